@@ -0,0 +1,83 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reseau.AnalyseReseau;
+import reseau.ComposantesConnexes;
+import reseau.Direction;
+import reseau.GrapheCompact;
+import reseau.ResultatTriangles;
+import reseau.ScoreInfluence;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyses globales sur le {@link GrapheCompact} du réseau : degrés, réciprocité, triangles,
+ * composantes, PageRank et portées.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BancAnalyse {
+
+    private int iteration;
+    private GrapheCompact graphe;
+    private AnalyseReseau analyse;
+    private ScoreInfluence influence;
+
+    @Setup(Level.Trial)
+    public void compacter(ReseauGenere r) {
+        graphe = GrapheCompact.depuis(r.reseau);
+        analyse = new AnalyseReseau(graphe);
+        influence = new ScoreInfluence(graphe, Direction.ABONNES);
+        influence.calculerPageRank(1e-6, 100);
+    }
+
+    @Benchmark
+    public long[] histogrammeDegres() {
+        return analyse.histogrammeDegres(Direction.ABONNES);
+    }
+
+    @Benchmark
+    public double tauxReciprocite() {
+        return analyse.tauxReciprocite();
+    }
+
+    @Benchmark
+    public ResultatTriangles compterTriangles() {
+        return analyse.compterTriangles();
+    }
+
+    @Benchmark
+    public int composantesConnexes(ReseauGenere r) {
+        // composantes faibles et fortes
+        ComposantesConnexes composantes = new ComposantesConnexes(r.reseau);
+        composantes.detacher();
+        return composantes.nombreComposantesFortes();
+    }
+
+    @Benchmark
+    public int calculerPageRankAFroid() {
+        return new ScoreInfluence(graphe, Direction.ABONNES).calculerPageRank(1e-6, 100);
+    }
+
+    @Benchmark
+    public int calculerPageRankRepris(ReseauGenere r) {
+        int i = iteration++;
+        graphe.ajouterAbonnement(i % r.taille, (i * 31 + 7) % r.taille);
+        influence.rafraichir();
+        return influence.calculerPageRank(1e-6, 100);
+    }
+
+    @Benchmark
+    public int estimerPortees() {
+        // 3 sauts
+        return influence.estimerPortees(3);
+    }
+}
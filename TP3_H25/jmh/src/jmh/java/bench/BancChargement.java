@@ -0,0 +1,59 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reseau.CivixNet;
+import reseau.ReseauBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chargement d'un fichier JSON écrit par {@link GenerateurReseau#ecrireJSON}, par l'arbre Jackson
+ * et par la lecture en continu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BancChargement {
+
+    @Param({"1000", "10000", "100000"})
+    public int taille;
+
+    private Path fichier;
+    private String chemin;
+
+    @Setup(Level.Trial)
+    public void ecrire() throws Exception {
+        fichier = Files.createTempFile("civixnet-banc", ".json");
+        new GenerateurReseau(taille, (long) taille * ReseauGenere.ABONNEMENTS_PAR_UTILISATEUR, 1.0, 42)
+                .ecrireJSON(fichier);
+        // chargerDepuisJSON attend un chemin relatif au répertoire src, qui doit exister pour être traversé
+        Path src = Files.createDirectories(Path.of(System.getProperty("user.dir"), "src"));
+        chemin = src.relativize(fichier).toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void effacer() throws Exception {
+        Files.deleteIfExists(fichier);
+    }
+
+    @Benchmark
+    public CivixNet chargerDepuisJSON() throws Exception {
+        return ReseauBuilder.chargerDepuisJSON(chemin);
+    }
+
+    @Benchmark
+    public CivixNet chargerDepuisJSONEnContinu() throws Exception {
+        return ReseauBuilder.chargerDepuisJSONEnContinu(chemin);
+    }
+}
@@ -0,0 +1,109 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reseau.BilanLot;
+import reseau.CivixNet;
+import reseau.Direction;
+import reseau.EstimateurPortee;
+import reseau.LotMutations;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modifications des abonnements : lots, abonnements isolés, et maintien d'un
+ * {@link EstimateurPortee} attaché.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BancMutations {
+
+    private static final int TAILLE_LOT = 100_000;
+
+    private int iteration;
+    private LotMutations[] lots;
+
+    @Setup(Level.Trial)
+    public void preparer(ReseauGenere r) {
+        // deux lots qui ajoutent puis retirent les mêmes abonnements, appliqués en alternance
+        lots = new LotMutations[]{new LotMutations(), new LotMutations()};
+        Random hasard = new Random(7);
+        for (int k = 0; k < TAILLE_LOT; k++) {
+            String abonne = GenerateurReseau.username(hasard.nextInt(r.taille));
+            String suivi = GenerateurReseau.username(hasard.nextInt(r.taille));
+            lots[0].ajouter(abonne, suivi);
+            lots[1].retirer(abonne, suivi);
+        }
+    }
+
+    /**
+     * Une copie jetable du réseau, pour laisser intact celui des autres mesures.
+     */
+    @State(Scope.Thread)
+    public static class Copie {
+
+        private CivixNet reseau;
+
+        @Setup(Level.Trial)
+        public void copier(ReseauGenere r) {
+            reseau = r.reseau.copie();
+        }
+    }
+
+    /**
+     * Un estimateur attaché au réseau, mis à jour à chaque modification.
+     */
+    @State(Scope.Thread)
+    public static class Estimation {
+
+        private EstimateurPortee estimateur;
+
+        @Setup(Level.Trial)
+        public void attacher(ReseauGenere r) {
+            estimateur = new EstimateurPortee(r.reseau, Direction.ABONNEMENTS, 3);
+        }
+
+        @TearDown(Level.Trial)
+        public void detacher() {
+            estimateur.detacher();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BilanLot appliquerLot(ReseauGenere r) {
+        return r.reseau.appliquerLot(lots[iteration++ & 1]);
+    }
+
+    @Benchmark
+    public void ajouterAbonnement(ReseauGenere r, Copie copie) {
+        // une paire nouvelle à chaque itération (distinctes pour les 2^24 premières)
+        int i = iteration++;
+        copie.reseau.ajouterAbonnement(r.comptes[i & ReseauGenere.MASQUE], r.comptes[((i >>> 12) + i) & ReseauGenere.MASQUE]);
+    }
+
+    @Benchmark
+    public long estimerPortee(ReseauGenere r, Estimation e) {
+        return e.estimateur.estimerPortee(r.comptes[iteration++ & ReseauGenere.MASQUE], 3);
+    }
+
+    @Benchmark
+    public void ajouterRetirerAbonnementAvecEstimateur(ReseauGenere r, Estimation e) {
+        // l'estimateur attaché suit chaque modification
+        int i = iteration++;
+        if ((i & 1) == 0) {
+            r.reseau.ajouterAbonnement(r.comptes[(i >> 1) & ReseauGenere.MASQUE], r.comptes[(i * 13 + 5) & ReseauGenere.MASQUE]);
+        } else {
+            r.reseau.retirerAbonnement(r.comptes[(i >> 1) & ReseauGenere.MASQUE], r.comptes[((i - 1) * 13 + 5) & ReseauGenere.MASQUE]);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reseau.CivixNet;
+import reseau.Direction;
+import reseau.IndexReciprocite;
+import reseau.MesuresReseau;
+import reseau.Utilisateur;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requêtes en lecture sur {@link CivixNet} : recherche, abonnement mutuel, propagation,
+ * extraction d'un sous-réseau et affichage.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BancRequetes {
+
+    private int iteration;
+    private IndexReciprocite reciprocite;
+
+    @Setup(Level.Trial)
+    public void indexer(ReseauGenere r) {
+        reciprocite = new IndexReciprocite(r.reseau);
+    }
+
+    @Benchmark
+    public Utilisateur obtenirUtilisateurAPartirDuUsername(ReseauGenere r) {
+        return r.reseau.obtenirUtilisateurAPartirDuUsername(r.noms[iteration++ & ReseauGenere.MASQUE]);
+    }
+
+    @Benchmark
+    public boolean abonnementMutuel(ReseauGenere r) {
+        int i = iteration++;
+        return r.reseau.abonnementMutuel(r.comptes[i & ReseauGenere.MASQUE], r.autre(i));
+    }
+
+    @Benchmark
+    public boolean indexReciprociteAbonnementMutuel(ReseauGenere r) {
+        int i = iteration++;
+        return reciprocite.abonnementMutuel(r.comptes[i & ReseauGenere.MASQUE], r.autre(i));
+    }
+
+    @Benchmark
+    public int indexReciprociteObtenirMutuels(ReseauGenere r) {
+        return reciprocite.obtenirMutuels(r.comptes[iteration++ & ReseauGenere.MASQUE]).size();
+    }
+
+    @Benchmark
+    public ArrayList<Utilisateur> propagationFausseInformationRecursive(ReseauGenere r) {
+        return r.reseau.propagationFausseInformationRecursive(r.noms[iteration++ & ReseauGenere.MASQUE]);
+    }
+
+    @Benchmark
+    public CivixNet extraireSousReseau(ReseauGenere r) {
+        // 2 sauts, 1000 utilisateurs au plus
+        return r.reseau.extraireSousReseau(r.noms[iteration++ & ReseauGenere.MASQUE], 2, Direction.ABONNES, 1000);
+    }
+
+    @Benchmark
+    public String afficher(ReseauGenere r) {
+        return r.reseau.toString();
+    }
+
+    @Benchmark
+    public void ecrire(ReseauGenere r) throws IOException {
+        r.reseau.ecrire(Writer.nullWriter(), CivixNet.SANS_LIMITE, CivixNet.SANS_LIMITE);
+    }
+
+    /**
+     * Les mêmes requêtes avec un {@link MesuresReseau} attaché, pour en mesurer le surcoût.
+     */
+    @State(Scope.Thread)
+    public static class Mesure {
+
+        private int iteration;
+        private MesuresReseau mesures;
+
+        @Setup(Level.Trial)
+        public void attacher(ReseauGenere r) {
+            mesures = new MesuresReseau();
+            mesures.attacher(r.reseau);
+        }
+
+        @TearDown(Level.Trial)
+        public void detacher() {
+            mesures.detacher();
+        }
+
+        int suivante() {
+            return iteration++ & ReseauGenere.MASQUE;
+        }
+    }
+
+    @Benchmark
+    public Utilisateur obtenirUtilisateurAPartirDuUsernameMesure(ReseauGenere r, Mesure m) {
+        return r.reseau.obtenirUtilisateurAPartirDuUsername(r.noms[m.suivante()]);
+    }
+
+    @Benchmark
+    public ArrayList<Utilisateur> propagationFausseInformationRecursiveMesuree(ReseauGenere r, Mesure m) {
+        return r.reseau.propagationFausseInformationRecursive(r.noms[m.suivante()]);
+    }
+}
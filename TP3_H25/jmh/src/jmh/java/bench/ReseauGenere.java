@@ -0,0 +1,58 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reseau.CivixNet;
+import reseau.Utilisateur;
+
+import java.util.Random;
+
+/**
+ * Réseau synthétique partagé par les bancs JMH, produit par {@link GenerateurReseau} avec dix
+ * abonnements par utilisateur, comme dans {@link BancCivixNet}.
+ * <p>
+ * Les entrées des opérations sont tirées d'avance dans des tableaux de 2^12 cases, indexés par
+ * un compteur d'itération masqué : la mesure ne paie ni le tirage ni la recherche des comptes.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class ReseauGenere {
+
+    static final int ABONNEMENTS_PAR_UTILISATEUR = 10;
+    static final int NB_ENTREES = 1 << 12;
+    static final int MASQUE = NB_ENTREES - 1;
+
+    /**
+     * Le nombre d'utilisateurs V.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int taille;
+
+    GenerateurReseau generateur;
+    CivixNet reseau;
+    String[] noms;
+    Utilisateur[] comptes;
+
+    @Setup(Level.Trial)
+    public void generer() {
+        generateur = new GenerateurReseau(taille, (long) taille * ABONNEMENTS_PAR_UTILISATEUR, 1.0, 42);
+        reseau = generateur.genererCivixNet();
+        Random hasard = new Random(7);
+        noms = new String[NB_ENTREES];
+        comptes = new Utilisateur[NB_ENTREES];
+        for (int i = 0; i < NB_ENTREES; i++) {
+            noms[i] = GenerateurReseau.username(hasard.nextInt(taille));
+            comptes[i] = reseau.obtenirUtilisateurAPartirDuUsername(noms[i]);
+        }
+    }
+
+    /**
+     * Le second compte d'une paire, tiré de façon déterministe à partir du premier.
+     */
+    Utilisateur autre(int i) {
+        return comptes[(i * 31 + 7) & MASQUE];
+    }
+}
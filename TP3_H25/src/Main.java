@@ -1,14 +1,26 @@
 import reseau.CivixNet;
 import reseau.ReseauBuilder;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
 public class Main {
+    /**
+     * Nombre d'utilisateurs et d'abonnements par utilisateur affichés pour chaque réseau.
+     */
+    private static final int APERCU = 50;
+
     public static void main(String[] args) throws Exception {
         CivixNet reseau = ReseauBuilder.chargerDepuisJSON("src\\donnees\\reseau.json");
-        System.out.println(reseau);
+        Writer sortie = new BufferedWriter(new OutputStreamWriter(System.out));
+        reseau.ecrire(sortie, APERCU, APERCU);
+        sortie.flush();
 
         ReseauBuilder.serialise(reseau, "src\\donnees\\");
         CivixNet reseau2 = ReseauBuilder.deserialise("src\\donnees\\civixNet.ser");
-        System.out.println(reseau2);
+        reseau2.ecrire(sortie, APERCU, APERCU);
+        sortie.flush();
 
         System.out.println(reseau.propagationFausseInformationRecursive("alice"));
     }
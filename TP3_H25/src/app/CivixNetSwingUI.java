@@ -1,6 +1,9 @@
 package app;
 
 import reseau.CivixNet;
+import reseau.Direction;
+import reseau.EcouteurReseau;
+import reseau.IndexReciprocite;
 import reseau.ReseauBuilder;
 import reseau.Utilisateur;
 
@@ -8,19 +11,93 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Cette classe représente l'interface utilisateur graphique pour afficher le réseau social CivixNet
  * avec des utilisateurs sous forme de nœuds et leurs connexions sous forme de flèches unidirectionnelles.
  * Elle hérite de JPanel et gère l'affichage du réseau, le positionnement des nœuds, les connexions, et l'interaction avec l'utilisateur.
+ * <p>
+ * Le réseau est dessiné une fois dans une image hors écran, redessinée seulement quand le réseau ou la vue
+ * change; un repaint ne fait que copier cette image et ajouter la sélection. Pendant un déplacement (glisser)
+ * ou un zoom (molette), l'image existante est transformée et n'est redessinée qu'une fois le geste terminé.
+ * Seuls les nœuds et arcs visibles sont dessinés; quand ils sont trop nombreux ou trop petits, les régions
+ * denses sont regroupées en cases dont l'intensité donne le nombre d'utilisateurs.
+ * </p>
+ * <p>
+ * Les positions sont calculées en arrière-plan par une {@link DispositionForces}, qui publie ses positions
+ * au fil des itérations; une modification du réseau annule la disposition en cours et en relance une
+ * à partir des positions courantes. Tant que l'utilisateur n'a pas déplacé ni zoomé la vue, elle suit la disposition.
+ * </p>
+ * <p>
+ * Un clic droit sur un utilisateur propose d'explorer son voisinage : le sous-réseau extrait par
+ * {@link CivixNet#extraireSousReseau(String, int, Direction, int)} s'ouvre dans une nouvelle fenêtre.
+ * </p>
  */
 public class CivixNetSwingUI extends JPanel {
 
+    private static final int RAYON_NOEUD = 30;  // Rayon d'un nœud, en coordonnées du réseau
+    private static final Font POLICE = new Font("Arial", Font.PLAIN, 14);  // Police des symboles et des noms
+    private static final int SEUIL_DETAIL = 2000;  // Nombre de nœuds visibles au-delà duquel les régions sont regroupées
+    private static final int RAYON_DETAIL_MIN = 4;  // Rayon à l'écran, en pixels, sous lequel les régions sont regroupées
+    private static final int CASE_AGREGEE = 16;  // Taille à l'écran, en pixels, d'une case regroupée
+    private static final int REGION_TRAITS = 4 * CASE_AGREGEE;  // Taille à l'écran, en pixels, des régions reliées par les arcs regroupés
+    private static final int MAX_TRAITS = 500;  // Nombre maximal de traits regroupés dessinés
+    private static final int DELAI_REDESSIN = 150;  // Délai, en ms, avant de redessiner l'image après un zoom
+    private static final int MAX_ITERATIONS_DISPOSITION = 1000;  // Nombre maximal d'itérations d'une disposition
+    private static final double SEUIL_CONVERGENCE = 0.01;  // Déplacement moyen relatif sous lequel la disposition s'arrête
+    private static final long PERIODE_PUBLICATION = 200;  // Intervalle, en ms, entre deux publications des positions
+    private static final int SAUTS_EXPLORATION = 2;  // Nombre de liens suivis depuis l'utilisateur exploré
+    private static final int MAX_NOEUDS_EXPLORATION = 2000;  // Nombre maximal d'utilisateurs d'un sous-réseau exploré
+
     private final CivixNet reseau;  // Réseau social contenant les utilisateurs et leurs abonnements
-    private final Map<Utilisateur, Point> positions;  // Cartographie des utilisateurs et leurs positions sur le panneau
+    private final IndexReciprocite reciprocite;  // Abonnements mutuels, tenus à jour avec le réseau
+
+    private final List<Utilisateur> noeuds = new ArrayList<>();  // Utilisateurs affichés, par indice
+    private final Map<Utilisateur, Integer> indices = new HashMap<>();  // Indice de chaque utilisateur affiché
+    private double[] xs = new double[0];  // Positions des utilisateurs, en coordonnées du réseau
+    private double[] ys = new double[0];
+    private final GrilleSpatiale grille = new GrilleSpatiale(2 * RAYON_NOEUD);  // Index des positions
+
+    // Arcs à dessiner (une seule fois par paire mutuelle), avec leur symbole de direction
+    private int nbArcs;
+    private int[] sources = new int[0];
+    private int[] cibles = new int[0];
+    private boolean[] mutuels = new boolean[0];
+    private String[] symboles = new String[0];
+    private volatile boolean reseauModifie = true;
+
+    // Vue : un point (x, y) du réseau est affiché en (x * echelle + decalageX, y * echelle + decalageY)
+    private double echelle = 1;
+    private double decalageX;
+    private double decalageY;
+
+    // Image hors écran et vue avec laquelle elle a été dessinée
+    private BufferedImage calque;
+    private boolean calqueAJour;
+    private double echelleCalque;
+    private double decalageXCalque;
+    private double decalageYCalque;
+    private final Timer minuterieRedessin;
+
+    // Disposition par forces en arrière-plan; seule la dernière lancée publie ses positions
+    private final ExecutorService fileDisposition;
+    private DispositionForces disposition;
+    private int generationDisposition;
+    private boolean vueTouchee;  // Vrai dès que l'utilisateur a déplacé ou zoomé la vue
+
     private Utilisateur utilisateurSelectionne = null;  // Utilisateur actuellement sélectionné par l'utilisateur
 
     /**
@@ -29,65 +106,290 @@ public class CivixNetSwingUI extends JPanel {
      */
     public CivixNetSwingUI(CivixNet reseau) {
         this.reseau = reseau;
-        this.positions = new HashMap<>();
+        this.reciprocite = new IndexReciprocite(reseau);
         this.setPreferredSize(new Dimension(800, 600));  // Taille préférée du panneau
-        genererPositionsEnCercle();  // Générer une disposition des utilisateurs en cercle
-        setupMouseListener();  // Ajouter un écouteur pour la sélection d'utilisateur
+        this.minuterieRedessin = new Timer(DELAI_REDESSIN, e -> invaliderCalque());
+        this.minuterieRedessin.setRepeats(false);
+        // Un seul fil, arrêté quand il est inactif : une fenêtre fermée ne garde pas de fil
+        ThreadPoolExecutor fil = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), tache -> {
+            Thread disposeur = new Thread(tache, "disposition-civixnet");
+            disposeur.setDaemon(true);
+            return disposeur;
+        });
+        fil.allowCoreThreadTimeOut(true);
+        this.fileDisposition = fil;
+        reconstruireReseau();
+        ajusterVue(getPreferredSize());
+        reseau.ajouterEcouteur(new EcouteurReseau() {
+            @Override
+            public void finLot() {
+                // appelé dans le fil qui modifie le réseau : le dessin se refait dans le fil de Swing
+                reseauModifie = true;
+                repaint();
+            }
+        });
+        setupMouseListener();  // Ajouter les écouteurs de sélection, de déplacement et de zoom
+    }
+
+    /**
+     * Met à jour les utilisateurs affichés et les arcs à dessiner d'après le réseau, puis relance la disposition.
+     * Les nouveaux utilisateurs reçoivent une position de départ; les autres gardent la leur.
+     */
+    private void reconstruireReseau() {
+        reseauModifie = false;
+        Map<Utilisateur, Set<Utilisateur>> utilisateurs = reseau.getUtilisateurs();
+        if (utilisateurs.size() != noeuds.size()) {
+            int anciens = noeuds.size();
+            for (Utilisateur u : utilisateurs.keySet()) {
+                if (indices.putIfAbsent(u, noeuds.size()) == null) {
+                    noeuds.add(u);
+                }
+            }
+            genererPositionsInitiales(anciens);
+        }
+
+        // Arcs et symboles : la réciprocité et la direction sont calculées ici, pas à chaque dessin
+        nbArcs = 0;
+        for (Map.Entry<Utilisateur, Set<Utilisateur>> entry : utilisateurs.entrySet()) {
+            Utilisateur from = entry.getKey();
+            int i = indices.get(from);
+            for (Utilisateur to : entry.getValue()) {
+                int j = indices.get(to);
+                boolean isBidirectional = reciprocite.abonnementMutuel(to, from);
+                if (isBidirectional && j < i) {
+                    continue;  // Paire mutuelle déjà dessinée depuis l'autre extrémité
+                }
+                if (nbArcs == sources.length) {
+                    int capacite = Math.max(16, 2 * nbArcs);
+                    sources = Arrays.copyOf(sources, capacite);
+                    cibles = Arrays.copyOf(cibles, capacite);
+                    mutuels = Arrays.copyOf(mutuels, capacite);
+                    symboles = Arrays.copyOf(symboles, capacite);
+                }
+                sources[nbArcs] = i;
+                cibles[nbArcs] = j;
+                mutuels[nbArcs] = isBidirectional;
+                nbArcs++;
+            }
+        }
+        Arrays.fill(symboles, nbArcs, symboles.length, null);
+        recalculerSymboles();
+        relancerDisposition();
+    }
+
+    /**
+     * Recalcule le symbole de direction de chaque arc d'après les positions courantes.
+     */
+    private void recalculerSymboles() {
+        for (int a = 0; a < nbArcs; a++) {
+            int i = sources[a];
+            int j = cibles[a];
+            symboles[a] = getDirectionSymbol(xs[j] - xs[i], ys[j] - ys[i], mutuels[a]);
+        }
+        calqueAJour = false;
     }
 
     /**
-     * Génère une disposition circulaire pour les utilisateurs afin qu'ils soient répartis uniformément sur le panneau.
+     * Donne une position de départ aux utilisateurs à partir de l'indice {@code debut}, sur une spirale
+     * (angle d'or) dont la densité est à peu près celle d'une disposition convergée.
+     * @param debut L'indice du premier utilisateur sans position.
      */
-    private void genererPositionsEnCercle() {
+    private void genererPositionsInitiales(int debut) {
         int centerX = getPreferredSize().width / 2;
         int centerY = getPreferredSize().height / 2;
-        int radius = 250;  // Rayon du cercle
-        int total = reseau.getUtilisateurs().size();
-        int index = 0;
+        int total = noeuds.size();
+        xs = Arrays.copyOf(xs, total);
+        ys = Arrays.copyOf(ys, total);
+        for (int index = debut; index < total; index++) {
+            double rayon = 0.6 * DispositionForces.DISTANCE_IDEALE * Math.sqrt(index + 0.5);
+            double angle = index * Math.PI * (3 - Math.sqrt(5));
+            xs[index] = centerX + rayon * Math.cos(angle);
+            ys[index] = centerY + rayon * Math.sin(angle);
+        }
+        grille.reconstruire(xs, ys, total);
+    }
+
+    /**
+     * Annule la disposition en cours et en lance une nouvelle, en arrière-plan, à partir des positions courantes.
+     * Ses positions sont appliquées dans le fil de Swing.
+     */
+    private void relancerDisposition() {
+        if (disposition != null) {
+            disposition.annuler();
+        }
+        int generation = ++generationDisposition;
+        DispositionForces nouvelle = new DispositionForces(noeuds.size(), sources, cibles, nbArcs, xs, ys);
+        disposition = nouvelle;
+        fileDisposition.submit(() -> nouvelle.executer(MAX_ITERATIONS_DISPOSITION, SEUIL_CONVERGENCE, PERIODE_PUBLICATION,
+                (x, y, terminee) -> SwingUtilities.invokeLater(() -> appliquerPositions(generation, x, y))));
+    }
 
-        // Positionner chaque utilisateur sur le cercle
-        for (Utilisateur u : reseau.getUtilisateurs().keySet()) {
-            double angle = 2 * Math.PI * index / total;
-            int x = (int) (centerX + radius * Math.cos(angle));
-            int y = (int) (centerY + radius * Math.sin(angle));
-            positions.put(u, new Point(x, y));
-            index++;
+    /**
+     * Applique des positions publiées par la disposition, si elle n'a pas été remplacée entre-temps.
+     */
+    private void appliquerPositions(int generation, double[] x, double[] y) {
+        if (generation != generationDisposition) {
+            return;
+        }
+        xs = x;
+        ys = y;
+        grille.reconstruire(xs, ys, xs.length);
+        recalculerSymboles();
+        if (!vueTouchee) {
+            ajusterVue(getWidth() > 0 ? getSize() : getPreferredSize());
+        }
+        repaint();
+    }
+
+    /**
+     * Cadre la vue pour que tous les utilisateurs soient visibles, sans grossir au-delà de l'échelle 1.
+     * @param taille La taille du panneau.
+     */
+    private void ajusterVue(Dimension taille) {
+        if (noeuds.isEmpty()) {
+            return;
         }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < noeuds.size(); i++) {
+            minX = Math.min(minX, xs[i] - RAYON_NOEUD);
+            minY = Math.min(minY, ys[i] - RAYON_NOEUD);
+            maxX = Math.max(maxX, xs[i] + RAYON_NOEUD);
+            maxY = Math.max(maxY, ys[i] + RAYON_NOEUD);
+        }
+        echelle = Math.min(1, Math.min(taille.width / (maxX - minX), taille.height / (maxY - minY)));
+        decalageX = taille.width / 2.0 - (minX + maxX) / 2 * echelle;
+        decalageY = taille.height / 2.0 - (minY + maxY) / 2 * echelle;
+        calqueAJour = false;
     }
 
     /**
-     * Configure un écouteur de souris pour gérer les clics sur les utilisateurs.
-     * Lorsqu'un utilisateur est sélectionné, les informations le concernant sont affichées.
+     * Configure les écouteurs de souris : un clic sélectionne l'utilisateur sous le pointeur
+     * (les informations le concernant sont alors affichées), glisser déplace la vue et la molette zoome.
      */
     private void setupMouseListener() {
-        this.addMouseListener(new MouseAdapter() {
+        MouseAdapter souris = new MouseAdapter() {
+            private Point dernierPoint;
+            private boolean glisse;
+
             @Override
             public void mouseClicked(MouseEvent e) {
-                for (Map.Entry<Utilisateur, Point> entry : positions.entrySet()) {
-                    Point p = entry.getValue();
-                    if (p.distance(e.getPoint()) < 30) {  // Si l'utilisateur est cliqué (distance au centre < 30)
-                        utilisateurSelectionne = entry.getKey();
-                        repaint();  // Repeindre le panneau avec l'utilisateur sélectionné
-                        return;
-                    }
+                int i = noeudSous(e.getPoint());
+                utilisateurSelectionne = i < 0 ? null : noeuds.get(i);
+                repaint();  // Repeindre le panneau avec ou sans sélection
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dernierPoint = e.getPoint();
+                glisse = false;
+                afficherMenuExploration(e);
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                decalageX += e.getX() - dernierPoint.x;
+                decalageY += e.getY() - dernierPoint.y;
+                dernierPoint = e.getPoint();
+                glisse = true;
+                vueTouchee = true;
+                repaint();  // L'image existante est simplement décalée
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (glisse) {
+                    invaliderCalque();
                 }
-                utilisateurSelectionne = null;  // Aucune sélection
-                repaint();  // Repeindre sans sélection
+                afficherMenuExploration(e);
             }
-        });
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double facteur = Math.pow(1.15, -e.getPreciseWheelRotation());
+                facteur = Math.max(1e-4, Math.min(8, echelle * facteur)) / echelle;
+                // Zoom autour du pointeur
+                decalageX = e.getX() - (e.getX() - decalageX) * facteur;
+                decalageY = e.getY() - (e.getY() - decalageY) * facteur;
+                echelle *= facteur;
+                vueTouchee = true;
+                minuterieRedessin.restart();
+                repaint();
+            }
+        };
+        this.addMouseListener(souris);
+        this.addMouseMotionListener(souris);
+        this.addMouseWheelListener(souris);
+    }
+
+    /**
+     * Retourne l'utilisateur affiché sous un point du panneau : le plus proche dans un rayon de 30
+     * (au moins quelques pixels quand la vue est éloignée).
+     * @param point Le point, en coordonnées du panneau.
+     * @return L'indice de l'utilisateur, ou -1 s'il n'y en a aucun.
+     */
+    private int noeudSous(Point point) {
+        double rayon = Math.max(RAYON_NOEUD, RAYON_DETAIL_MIN / echelle);
+        return grille.plusProche(xs, ys, (point.x - decalageX) / echelle, (point.y - decalageY) / echelle, rayon);
+    }
+
+    /**
+     * Affiche, pour un clic droit sur un utilisateur, le menu d'exploration de son voisinage.
+     * @param e L'événement de souris; rien n'est fait si ce n'est pas le déclencheur d'un menu contextuel.
+     */
+    private void afficherMenuExploration(MouseEvent e) {
+        int i = e.isPopupTrigger() ? noeudSous(e.getPoint()) : -1;
+        if (i < 0) {
+            return;
+        }
+        String username = noeuds.get(i).getUsername();
+        JPopupMenu menu = new JPopupMenu(username);
+        JMenuItem abonnes = new JMenuItem("Explorer ses abonnés");
+        abonnes.addActionListener(a -> explorer(username, Direction.ABONNES));
+        JMenuItem abonnements = new JMenuItem("Explorer ses abonnements");
+        abonnements.addActionListener(a -> explorer(username, Direction.ABONNEMENTS));
+        menu.add(abonnes);
+        menu.add(abonnements);
+        menu.show(this, e.getX(), e.getY());
+    }
+
+    /**
+     * Ouvre le voisinage d'un utilisateur dans une nouvelle fenêtre, l'utilisateur exploré y étant sélectionné.
+     * @param username Le nom de l'utilisateur exploré.
+     * @param direction Le sens des liens suivis.
+     */
+    private void explorer(String username, Direction direction) {
+        CivixNet voisinage = reseau.extraireSousReseau(username, SAUTS_EXPLORATION, direction, MAX_NOEUDS_EXPLORATION);
+        CivixNetSwingUI vue = new CivixNetSwingUI(voisinage);
+        vue.utilisateurSelectionne = voisinage.obtenirUtilisateurAPartirDuUsername(username);
+        String sens = direction == Direction.ABONNES ? "abonnés" : "abonnements";
+        ouvrirFenetre(vue, "CivixNet - " + sens + " de " + username, WindowConstants.DISPOSE_ON_CLOSE);
+    }
+
+    /**
+     * Arrête la disposition en cours quand le panneau est retiré de sa fenêtre.
+     */
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        if (disposition != null) {
+            disposition.annuler();
+        }
+    }
+
+    private void invaliderCalque() {
+        calqueAJour = false;
+        repaint();
     }
 
     /**
      * Fonction qui détermine le symbole de la direction d'une connexion.
-     * @param from Point de départ de la connexion.
-     * @param to Point d'arrivée de la connexion.
+     * @param dx Déplacement horizontal du point de départ au point d'arrivée de la connexion.
+     * @param dy Déplacement vertical du point de départ au point d'arrivée de la connexion.
      * @param isBidirectional Indique si la connexion est bidirectionnelle.
      * @return Un symbole de direction sous forme de chaîne ("^", "v", "<", ">").
      */
-    private String getDirectionSymbol(Point from, Point to, boolean isBidirectional) {
-        int dx = to.x - from.x;
-        int dy = to.y - from.y;
-
+    private String getDirectionSymbol(double dx, double dy, boolean isBidirectional) {
         if (Math.abs(dx) > Math.abs(dy)) {
             // Connexion horizontale
             if (isBidirectional)
@@ -108,8 +410,8 @@ public class CivixNetSwingUI extends JPanel {
 
     /**
      * Méthode de dessin de l'interface graphique.
-     * Elle dessine les utilisateurs sous forme de cercles et les connexions sous forme de flèches.
-     * Affiche également les informations sur l'utilisateur sélectionné.
+     * Elle copie l'image hors écran du réseau, redessinée au besoin, puis affiche l'utilisateur sélectionné
+     * et les informations le concernant.
      * @param g Objet Graphics utilisé pour dessiner.
      */
     @Override
@@ -117,49 +419,212 @@ public class CivixNetSwingUI extends JPanel {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
 
-        // Dessiner les connexions
-        for (Map.Entry<Utilisateur, Set<Utilisateur>> entry : reseau.getUtilisateurs().entrySet()) {
-            Utilisateur from = entry.getKey();
-            Point fromP = positions.get(from);
-            for (Utilisateur to : entry.getValue()) {
-                Point toP = positions.get(to);
+        if (reseauModifie) {
+            reconstruireReseau();
+        }
+        boolean enGeste = minuterieRedessin.isRunning();
+        if (calque == null || (!calqueAJour && !enGeste)
+                || calque.getWidth() != getWidth() || calque.getHeight() != getHeight()) {
+            dessinerCalque();
+        }
+
+        // Image hors écran, transformée si la vue a changé depuis qu'elle a été dessinée
+        double facteur = echelle / echelleCalque;
+        AffineTransform transformation = new AffineTransform();
+        transformation.translate(decalageX - decalageXCalque * facteur, decalageY - decalageYCalque * facteur);
+        transformation.scale(facteur, facteur);
+        g2d.drawImage(calque, transformation, null);
+
+        // Utilisateur sélectionné
+        Integer i = utilisateurSelectionne == null ? null : indices.get(utilisateurSelectionne);
+        if (i != null) {
+            int r = (int) Math.max(RAYON_DETAIL_MIN, RAYON_NOEUD * echelle);
+            int x = (int) (xs[i] * echelle + decalageX);
+            int y = (int) (ys[i] * echelle + decalageY);
+            g2d.setFont(POLICE);
+            g2d.setColor(Color.ORANGE);
+            g2d.fillOval(x - r, y - r, 2 * r, 2 * r);
+            g2d.setColor(Color.BLACK);
+            g2d.drawOval(x - r, y - r, 2 * r, 2 * r);
+            if (r >= 2 * RAYON_DETAIL_MIN) {
+                g2d.drawString(utilisateurSelectionne.getUsername(), x - (int) (20 * echelle), y + (int) (5 * echelle));
+            }
 
-                // Vérifier si la connexion est bidirectionnelle
-                boolean isBidirectional = reseau.abonnementMutuel(to, from);
+            // Infos sur l'utilisateur sélectionné
+            g2d.drawString("Utilisateur : " + utilisateurSelectionne.getUsername(), 20, 20);
+            g2d.drawString("Abonnements : " + reseau.obtenirAbonnements(utilisateurSelectionne).size()
+                    + ", abonnés : " + reseau.nombreAbonnes(utilisateurSelectionne), 20, 40);
+        }
+    }
+
+    /**
+     * Redessine l'image hors écran avec la vue actuelle : en détail si peu de nœuds sont visibles,
+     * sinon par régions regroupées.
+     */
+    private void dessinerCalque() {
+        int largeur = Math.max(1, getWidth());
+        int hauteur = Math.max(1, getHeight());
+        if (calque == null || calque.getWidth() != largeur || calque.getHeight() != hauteur) {
+            calque = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g2d = calque.createGraphics();
+        g2d.setColor(getBackground());
+        g2d.fillRect(0, 0, largeur, hauteur);
+        g2d.setFont(POLICE);
+
+        // Partie visible du réseau, élargie d'un rayon pour les nœuds à cheval sur le bord
+        double x1 = -decalageX / echelle - RAYON_NOEUD;
+        double y1 = -decalageY / echelle - RAYON_NOEUD;
+        double x2 = (largeur - decalageX) / echelle + RAYON_NOEUD;
+        double y2 = (hauteur - decalageY) / echelle + RAYON_NOEUD;
+        int[] visibles = {0};
+        grille.pourChaqueDans(x1, y1, x2, y2, i -> visibles[0]++);
+
+        if (visibles[0] <= SEUIL_DETAIL && RAYON_NOEUD * echelle >= RAYON_DETAIL_MIN) {
+            dessinerDetail(g2d, x1, y1, x2, y2);
+        } else {
+            dessinerRegroupe(g2d, x1, y1, x2, y2, largeur, hauteur);
+        }
+        g2d.dispose();
 
-                // Dessiner la ligne de connexion
-                g2d.setColor(Color.GRAY);
-                g2d.drawLine(fromP.x, fromP.y, toP.x, toP.y);
+        echelleCalque = echelle;
+        decalageXCalque = decalageX;
+        decalageYCalque = decalageY;
+        calqueAJour = true;
+    }
 
-                // Ajouter un symbole pour indiquer la direction de la connexion
-                String symbol = getDirectionSymbol(fromP, toP, isBidirectional);
+    /**
+     * Dessine les arcs visibles avec leur symbole de direction, puis les nœuds visibles avec leur nom.
+     */
+    private void dessinerDetail(Graphics2D g2d, double x1, double y1, double x2, double y2) {
+        boolean avecSymboles = echelle >= 0.5;
+        for (int a = 0; a < nbArcs; a++) {
+            int i = sources[a];
+            int j = cibles[a];
+            if (Math.max(xs[i], xs[j]) < x1 || Math.min(xs[i], xs[j]) > x2
+                    || Math.max(ys[i], ys[j]) < y1 || Math.min(ys[i], ys[j]) > y2) {
+                continue;  // Arc hors de la vue
+            }
+            int fromX = ecranX(xs[i]), fromY = ecranY(ys[i]);
+            int toX = ecranX(xs[j]), toY = ecranY(ys[j]);
+
+            // Dessiner la ligne de connexion
+            g2d.setColor(Color.GRAY);
+            g2d.drawLine(fromX, fromY, toX, toY);
 
-                // Déplacer le symbole pour éviter le chevauchement
-                Font font = new Font("Arial", Font.PLAIN, 14);
-                g2d.setFont(font);
+            // Ajouter un symbole pour indiquer la direction de la connexion
+            if (avecSymboles) {
                 g2d.setColor(Color.RED);
-                g2d.drawString(symbol, (fromP.x + toP.x) / 2, (fromP.y + toP.y) / 2);
+                g2d.drawString(symboles[a], (fromX + toX) / 2, (fromY + toY) / 2);
             }
         }
 
         // Dessiner les utilisateurs
-        for (Utilisateur u : reseau.getUtilisateurs().keySet()) {
-            Point p = positions.get(u);
-            g2d.setColor(u.equals(utilisateurSelectionne) ? Color.ORANGE : Color.CYAN);
-            g2d.fillOval(p.x - 30, p.y - 30, 60, 60);
+        int r = (int) (RAYON_NOEUD * echelle);
+        boolean avecNoms = r >= 2 * RAYON_DETAIL_MIN;
+        grille.pourChaqueDans(x1, y1, x2, y2, i -> {
+            int x = ecranX(xs[i]);
+            int y = ecranY(ys[i]);
+            g2d.setColor(Color.CYAN);
+            g2d.fillOval(x - r, y - r, 2 * r, 2 * r);
             g2d.setColor(Color.BLACK);
-            g2d.drawOval(p.x - 30, p.y - 30, 60, 60);
-            g2d.drawString(u.getUsername(), p.x - 20, p.y + 5);
+            g2d.drawOval(x - r, y - r, 2 * r, 2 * r);
+            if (avecNoms) {
+                g2d.drawString(noeuds.get(i).getUsername(), x - (int) (20 * echelle), y + (int) (5 * echelle));
+            }
+        });
+    }
+
+    /**
+     * Regroupe les nœuds visibles par cases de l'écran : chaque case est d'autant plus foncée qu'elle contient
+     * d'utilisateurs, et les arcs entre deux régions de quelques cases sont fusionnés en un seul trait,
+     * d'autant plus foncé qu'ils sont nombreux.
+     */
+    private void dessinerRegroupe(Graphics2D g2d, double x1, double y1, double x2, double y2, int largeur, int hauteur) {
+        int colonnes = largeur / CASE_AGREGEE + 1;
+        int lignes = hauteur / CASE_AGREGEE + 1;
+        int[] densites = new int[colonnes * lignes];
+        grille.pourChaqueDans(x1, y1, x2, y2, i -> {
+            int c = Math.floorDiv(ecranX(xs[i]), CASE_AGREGEE);
+            int l = Math.floorDiv(ecranY(ys[i]), CASE_AGREGEE);
+            if (c >= 0 && c < colonnes && l >= 0 && l < lignes) {
+                densites[c + l * colonnes]++;
+            }
+        });
+
+        // Arcs regroupés par paire de régions (dans un sens ou dans l'autre); les régions hors de la vue sont
+        // ramenées à la bordure. Seuls les traits les plus chargés sont dessinés.
+        int regionsX = largeur / REGION_TRAITS + 3;
+        int regionsY = hauteur / REGION_TRAITS + 3;
+        int nbRegions = regionsX * regionsY;
+        int[] regions = new int[noeuds.size()];
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = region(ecranX(xs[i]), regionsX) + region(ecranY(ys[i]), regionsY) * regionsX;
+        }
+        int[] charges = new int[nbRegions * nbRegions];
+        for (int a = 0; a < nbArcs; a++) {
+            int regionI = regions[sources[a]];
+            int regionJ = regions[cibles[a]];
+            if (regionI != regionJ) {
+                charges[Math.min(regionI, regionJ) * nbRegions + Math.max(regionI, regionJ)]++;
+            }
+        }
+        List<Integer> traits = new ArrayList<>();
+        for (int t = 0; t < charges.length; t++) {
+            if (charges[t] > 0) {
+                traits.add(t);
+            }
+        }
+        traits.sort((t1, t2) -> Integer.compare(charges[t2], charges[t1]));
+        for (int t : traits.subList(0, Math.min(MAX_TRAITS, traits.size()))) {
+            int regionI = t / nbRegions;
+            int regionJ = t % nbRegions;
+            g2d.setColor(new Color(128, 128, 128, intensite(charges[t])));
+            g2d.drawLine(centreRegion(regionI % regionsX), centreRegion(regionI / regionsX),
+                    centreRegion(regionJ % regionsX), centreRegion(regionJ / regionsX));
         }
 
-        // Infos sur l'utilisateur sélectionné
-        if (utilisateurSelectionne != null) {
-            g2d.setColor(Color.BLACK);
-            g2d.drawString("Utilisateur : " + utilisateurSelectionne.getUsername(), 20, 20);
-            g2d.drawString("Mot de passe : " + utilisateurSelectionne.getPassword(), 20, 40);
+        for (int l = 0; l < lignes; l++) {
+            for (int c = 0; c < colonnes; c++) {
+                int densite = densites[c + l * colonnes];
+                if (densite > 0) {
+                    g2d.setColor(new Color(0, 160, 200, intensite(densite)));
+                    g2d.fillRect(c * CASE_AGREGEE + 1, l * CASE_AGREGEE + 1, CASE_AGREGEE - 2, CASE_AGREGEE - 2);
+                }
+            }
         }
     }
 
+    /**
+     * Colonne (ou ligne) de la région de l'écran contenant une coordonnée à l'écran. La première et la
+     * dernière regroupent tout ce qui est hors de la vue.
+     */
+    private static int region(int coordonnee, int nbRegions) {
+        return Math.max(0, Math.min(nbRegions - 1, Math.floorDiv(coordonnee, REGION_TRAITS) + 1));
+    }
+
+    /**
+     * Position à l'écran du centre d'une colonne (ou d'une ligne) de régions.
+     */
+    private static int centreRegion(int rang) {
+        return (rang - 1) * REGION_TRAITS + REGION_TRAITS / 2;
+    }
+
+    /**
+     * Opacité croissante avec le logarithme d'un nombre d'éléments.
+     */
+    private static int intensite(int nombre) {
+        return (int) Math.min(255, 60 + 30 * Math.log(nombre) / Math.log(2));
+    }
+
+    private int ecranX(double x) {
+        return (int) Math.round(x * echelle + decalageX);
+    }
+
+    private int ecranY(double y) {
+        return (int) Math.round(y * echelle + decalageY);
+    }
+
     /**
      * Méthode principale pour lancer l'application graphique.
      * @param args Arguments de la ligne de commande.
@@ -167,10 +632,19 @@ public class CivixNetSwingUI extends JPanel {
      */
     public static void main(String[] args) throws Exception {
         CivixNet reseau = ReseauBuilder.chargerDepuisJSON("donnees\\reseau.json");
+        SwingUtilities.invokeLater(() -> ouvrirFenetre(new CivixNetSwingUI(reseau), "CivixNet - Réseau Social", JFrame.EXIT_ON_CLOSE));
+    }
 
-        JFrame frame = new JFrame("CivixNet - Réseau Social");
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.getContentPane().add(new CivixNetSwingUI(reseau));
+    /**
+     * Affiche un panneau dans une nouvelle fenêtre centrée.
+     * @param panneau Le panneau à afficher.
+     * @param titre Le titre de la fenêtre.
+     * @param fermeture L'opération à la fermeture de la fenêtre (voir {@link JFrame#setDefaultCloseOperation(int)}).
+     */
+    private static void ouvrirFenetre(CivixNetSwingUI panneau, String titre, int fermeture) {
+        JFrame frame = new JFrame(titre);
+        frame.setDefaultCloseOperation(fermeture);
+        frame.getContentPane().add(panneau);
         frame.pack();
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
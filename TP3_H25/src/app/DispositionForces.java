@@ -0,0 +1,414 @@
+package app;
+
+import reseau.Parallelisme;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Disposition par forces (Fruchterman-Reingold) des nœuds d'un graphe, avec l'approximation de Barnes-Hut.
+ * <p>
+ * Les nœuds se repoussent deux à deux et les arcs attirent leurs extrémités, sans tenir compte de leur sens;
+ * un faible rappel vers le barycentre retient les nœuds isolés et les petites composantes.
+ * À chaque itération, un quadtree des positions est construit : la répulsion d'un groupe de nœuds éloignés
+ * est calculée d'un seul coup depuis son centre de masse, ce qui ramène une itération à O(n log n + m).
+ * Les forces sont calculées en parallèle dans un {@link ForkJoinPool}, puis tous les nœuds sont déplacés
+ * d'un pas adapté au fil des itérations (réduit quand l'énergie ne diminue plus).
+ * </p>
+ * <p>
+ * {@link #executer(int, double, long, Publication)} itère jusqu'à la convergence et publie les positions
+ * à intervalles réguliers; elle est faite pour un fil d'arrière-plan et s'arrête à la première occasion
+ * après {@link #annuler()} ou une interruption du fil. Une disposition n'est pas synchronisée : ses
+ * positions ne se lisent qu'une fois l'exécution terminée, ou par les copies publiées.
+ * </p>
+ */
+public class DispositionForces {
+
+    /**
+     * Reçoit les positions au fil de l'exécution.
+     */
+    @FunctionalInterface
+    public interface Publication {
+
+        /**
+         * Positions courantes des nœuds. Appelé dans le fil qui exécute la disposition.
+         *
+         * @param xs       une copie des abscisses
+         * @param ys       une copie des ordonnées
+         * @param terminee si c'est la dernière publication (convergence ou nombre maximal d'itérations atteint)
+         */
+        void publier(double[] xs, double[] ys, boolean terminee);
+    }
+
+    /**
+     * Longueur d'un arc à l'équilibre entre deux nœuds reliés, en coordonnées du réseau.
+     */
+    public static final double DISTANCE_IDEALE = 100;
+
+    private static final double THETA = 0.8;  // Un groupe est vu comme un seul nœud si taille / distance < THETA
+    private static final int FEUILLE = 8;  // Nombre maximal de nœuds d'une feuille du quadtree
+    private static final int PROFONDEUR_MAX = 40;  // Profondeur maximale du quadtree (nœuds confondus)
+    private static final int GRAIN = 1024;  // Nombre de nœuds traités séquentiellement
+    private static final double REFROIDISSEMENT = 0.9;
+    private static final double GRAVITE = 0.5;  // Rappel vers le barycentre, pour ne pas éloigner les nœuds isolés
+    private static final double ANGLE_OR = Math.PI * (3 - Math.sqrt(5));  // Angle d'or, en radians
+
+    private final int nbNoeuds;
+    private final int[] debuts;  // Voisins de chaque nœud, dans les deux sens (vue CSR)
+    private final int[] voisins;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] fx;
+    private final double[] fy;
+    private final ForkJoinPool pool;
+
+    private double pas = DISTANCE_IDEALE;
+    private double energie = Double.POSITIVE_INFINITY;
+    private int progres;
+    private boolean convergee;
+    private volatile boolean annulee;
+
+    // Quadtree : cellules rangées dans des tableaux, chacune couvrant une plage de ordre
+    private final int[] ordre;
+    private int nbCellules;
+    private double[] masseX = new double[0];
+    private double[] masseY = new double[0];
+    private int[] masse = new int[0];
+    private double[] cote = new double[0];
+    private int[] premier = new int[0];
+    private int[] dernier = new int[0];
+    private int[] enfants = new int[0];
+
+    /**
+     * Construit une disposition dans le pool commun.
+     *
+     * @see #DispositionForces(int, int[], int[], int, double[], double[], ForkJoinPool)
+     */
+    public DispositionForces(int nbNoeuds, int[] sources, int[] cibles, int nbArcs, double[] xs, double[] ys) {
+        this(nbNoeuds, sources, cibles, nbArcs, xs, ys, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Construit une disposition à partir de positions de départ, qui sont copiées.
+     *
+     * @param nbNoeuds le nombre de nœuds, numérotés de 0 à nbNoeuds - 1
+     * @param sources  la première extrémité de chaque arc
+     * @param cibles   la seconde extrémité de chaque arc
+     * @param nbArcs   le nombre d'arcs
+     * @param xs       les abscisses de départ
+     * @param ys       les ordonnées de départ
+     * @param pool     le pool dans lequel les forces sont calculées
+     * @throws IllegalArgumentException si un tableau est trop court ou si un arc a une extrémité invalide
+     */
+    public DispositionForces(int nbNoeuds, int[] sources, int[] cibles, int nbArcs, double[] xs, double[] ys,
+                             ForkJoinPool pool) {
+        if (nbNoeuds < 0 || nbArcs < 0 || xs.length < nbNoeuds || ys.length < nbNoeuds
+                || sources.length < nbArcs || cibles.length < nbArcs) {
+            throw new IllegalArgumentException("Tailles de la disposition invalides");
+        }
+        this.nbNoeuds = nbNoeuds;
+        this.xs = Arrays.copyOf(xs, nbNoeuds);
+        this.ys = Arrays.copyOf(ys, nbNoeuds);
+        this.fx = new double[nbNoeuds];
+        this.fy = new double[nbNoeuds];
+        this.pool = pool;
+        this.ordre = new int[nbNoeuds];
+
+        this.debuts = new int[nbNoeuds + 1];
+        for (int a = 0; a < nbArcs; a++) {
+            if (sources[a] < 0 || sources[a] >= nbNoeuds || cibles[a] < 0 || cibles[a] >= nbNoeuds) {
+                throw new IllegalArgumentException("Arc invalide : " + sources[a] + " -> " + cibles[a]);
+            }
+            debuts[sources[a] + 1]++;
+            debuts[cibles[a] + 1]++;
+        }
+        for (int i = 0; i < nbNoeuds; i++) {
+            debuts[i + 1] += debuts[i];
+        }
+        this.voisins = new int[debuts[nbNoeuds]];
+        int[] curseurs = Arrays.copyOf(debuts, nbNoeuds);
+        for (int a = 0; a < nbArcs; a++) {
+            voisins[curseurs[sources[a]]++] = cibles[a];
+            voisins[curseurs[cibles[a]]++] = sources[a];
+        }
+    }
+
+    /**
+     * Itère jusqu'à la convergence, au nombre maximal d'itérations ou à l'annulation.
+     *
+     * @param maxIterations le nombre maximal d'itérations
+     * @param seuil         le déplacement moyen, relatif à {@link #DISTANCE_IDEALE}, sous lequel la disposition
+     *                      est considérée convergée
+     * @param periode       l'intervalle minimal entre deux publications, en millisecondes
+     * @param publication   le destinataire des positions, ou null; il reçoit une dernière publication
+     *                      à la fin de l'exécution, sauf en cas d'annulation
+     * @return le nombre d'itérations faites
+     */
+    public int executer(int maxIterations, double seuil, long periode, Publication publication) {
+        long dernierePublication = System.nanoTime();
+        int iterations = 0;
+        while (iterations < maxIterations && !estAnnulee()) {
+            double deplacement = iterer();
+            iterations++;
+            if (deplacement < seuil) {
+                convergee = true;
+                break;
+            }
+            if (publication != null && System.nanoTime() - dernierePublication >= periode * 1_000_000) {
+                publication.publier(xs.clone(), ys.clone(), false);
+                dernierePublication = System.nanoTime();
+            }
+        }
+        if (publication != null && !estAnnulee()) {
+            publication.publier(xs.clone(), ys.clone(), true);
+        }
+        return iterations;
+    }
+
+    /**
+     * Fait une itération : calcule les forces et déplace les nœuds.
+     *
+     * @return le déplacement moyen des nœuds, relatif à {@link #DISTANCE_IDEALE}
+     */
+    public double iterer() {
+        if (nbNoeuds == 0) {
+            return 0;
+        }
+        construireArbre();
+        Parallelisme.pourIntervalles(pool, nbNoeuds, GRAIN,
+                (debut, fin) -> calculerForces(debut, fin, new int[4 * PROFONDEUR_MAX + 4]));
+
+        // Déplacement de chaque nœud dans le sens de sa force, d'au plus le pas
+        double energieIteration = 0;
+        double deplacement = 0;
+        for (int i = 0; i < nbNoeuds; i++) {
+            double force = Math.hypot(fx[i], fy[i]);
+            if (force > 0) {
+                double d = Math.min(pas, force);
+                xs[i] += fx[i] / force * d;
+                ys[i] += fy[i] / force * d;
+                deplacement += d;
+            }
+            energieIteration += force * force;
+        }
+
+        // Pas adaptatif : agrandi après quelques baisses d'énergie consécutives, réduit sinon
+        if (energieIteration < energie) {
+            if (++progres >= 5) {
+                progres = 0;
+                pas /= REFROIDISSEMENT;
+            }
+        } else {
+            progres = 0;
+            pas *= REFROIDISSEMENT;
+        }
+        energie = energieIteration;
+        return deplacement / nbNoeuds / DISTANCE_IDEALE;
+    }
+
+    /**
+     * Demande l'arrêt de {@link #executer(int, double, long, Publication)}, qui s'arrête après l'itération en cours
+     * sans publier.
+     */
+    public void annuler() {
+        annulee = true;
+    }
+
+    /**
+     * Indique si la disposition a été annulée, ou si le fil qui l'exécute a été interrompu.
+     *
+     * @return true si l'exécution doit s'arrêter
+     */
+    public boolean estAnnulee() {
+        return annulee || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Indique si la dernière exécution s'est arrêtée par convergence.
+     *
+     * @return true si la disposition a convergé
+     */
+    public boolean estConvergee() {
+        return convergee;
+    }
+
+    /**
+     * Retourne l'abscisse courante d'un nœud.
+     *
+     * @param i le nœud
+     * @return son abscisse
+     */
+    public double abscisse(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Retourne l'ordonnée courante d'un nœud.
+     *
+     * @param i le nœud
+     * @return son ordonnée
+     */
+    public double ordonnee(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Calcule la force sur les nœuds de {@code [debut, fin[} : répulsion par le quadtree, attraction par les arcs
+     * et rappel vers le barycentre (le centre de masse de la racine).
+     */
+    private void calculerForces(int debut, int fin, int[] pile) {
+        double k2 = DISTANCE_IDEALE * DISTANCE_IDEALE;
+        double theta2 = THETA * THETA;
+        for (int i = debut; i < fin; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            double forceX = 0;
+            double forceY = 0;
+
+            int sommet = 0;
+            pile[sommet++] = 0;
+            while (sommet > 0) {
+                int c = pile[--sommet];
+                double dx = x - masseX[c];
+                double dy = y - masseY[c];
+                double d2 = dx * dx + dy * dy;
+                if (enfants[4 * c] < 0 && enfants[4 * c + 1] < 0 && enfants[4 * c + 2] < 0 && enfants[4 * c + 3] < 0) {
+                    // Feuille : répulsion exacte de chacun de ses nœuds
+                    for (int k = premier[c]; k < dernier[c]; k++) {
+                        int j = ordre[k];
+                        if (j == i) {
+                            continue;
+                        }
+                        double ex = x - xs[j];
+                        double ey = y - ys[j];
+                        double e2 = ex * ex + ey * ey;
+                        if (e2 < 1e-9) {
+                            // Nœuds confondus : chacun est écarté dans une direction qui dépend de son numéro
+                            ex = 1e-3 * Math.cos(i * ANGLE_OR);
+                            ey = 1e-3 * Math.sin(i * ANGLE_OR);
+                            e2 = 1e-6;
+                        }
+                        forceX += ex * k2 / e2;
+                        forceY += ey * k2 / e2;
+                    }
+                } else if (cote[c] * cote[c] < theta2 * d2) {
+                    // Groupe éloigné : vu comme un seul nœud de masse égale au nombre de ses nœuds
+                    forceX += masse[c] * dx * k2 / d2;
+                    forceY += masse[c] * dy * k2 / d2;
+                } else {
+                    for (int q = 0; q < 4; q++) {
+                        if (enfants[4 * c + q] >= 0) {
+                            pile[sommet++] = enfants[4 * c + q];
+                        }
+                    }
+                }
+            }
+
+            for (int k = debuts[i]; k < debuts[i + 1]; k++) {
+                int j = voisins[k];
+                double dx = xs[j] - x;
+                double dy = ys[j] - y;
+                double d = Math.sqrt(dx * dx + dy * dy);
+                forceX += dx * d / DISTANCE_IDEALE;
+                forceY += dy * d / DISTANCE_IDEALE;
+            }
+            fx[i] = forceX + GRAVITE * (masseX[0] - x);
+            fy[i] = forceY + GRAVITE * (masseY[0] - y);
+        }
+    }
+
+    /**
+     * Construit le quadtree des positions courantes.
+     */
+    private void construireArbre() {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < nbNoeuds; i++) {
+            ordre[i] = i;
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        double demi = Math.max(maxX - minX, maxY - minY) / 2 + 1;
+        nbCellules = 0;
+        construireCellule(0, nbNoeuds, (minX + maxX) / 2, (minY + maxY) / 2, demi, 0);
+    }
+
+    /**
+     * Construit la cellule des nœuds de {@code ordre[debut, fin[}, de centre (cx, cy) et de demi-côté donné,
+     * et ses descendantes.
+     *
+     * @return le numéro de la cellule
+     */
+    private int construireCellule(int debut, int fin, double cx, double cy, double demi, int profondeur) {
+        int c = nouvelleCellule();
+        double sommeX = 0;
+        double sommeY = 0;
+        for (int k = debut; k < fin; k++) {
+            sommeX += xs[ordre[k]];
+            sommeY += ys[ordre[k]];
+        }
+        masseX[c] = sommeX / (fin - debut);
+        masseY[c] = sommeY / (fin - debut);
+        masse[c] = fin - debut;
+        cote[c] = 2 * demi;
+        premier[c] = debut;
+        dernier[c] = fin;
+        Arrays.fill(enfants, 4 * c, 4 * c + 4, -1);
+        if (fin - debut <= FEUILLE || profondeur == PROFONDEUR_MAX) {
+            return c;
+        }
+
+        // Partage en quadrants : d'abord selon x, puis chaque moitié selon y
+        int milieu = partager(debut, fin, xs, cx);
+        int basGauche = partager(debut, milieu, ys, cy);
+        int basDroite = partager(milieu, fin, ys, cy);
+        int[] bornes = {debut, basGauche, milieu, basDroite, fin};
+        double quart = demi / 2;
+        for (int q = 0; q < 4; q++) {
+            if (bornes[q] < bornes[q + 1]) {
+                double qx = q < 2 ? cx - quart : cx + quart;
+                double qy = q % 2 == 0 ? cy - quart : cy + quart;
+                int enfant = construireCellule(bornes[q], bornes[q + 1], qx, qy, quart, profondeur + 1);
+                enfants[4 * c + q] = enfant;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Range en tête de {@code ordre[debut, fin[} les nœuds dont la coordonnée est inférieure au pivot.
+     *
+     * @return la fin de la partie inférieure
+     */
+    private int partager(int debut, int fin, double[] coordonnees, double pivot) {
+        int i = debut;
+        int j = fin - 1;
+        while (i <= j) {
+            if (coordonnees[ordre[i]] < pivot) {
+                i++;
+            } else {
+                int t = ordre[i];
+                ordre[i] = ordre[j];
+                ordre[j--] = t;
+            }
+        }
+        return i;
+    }
+
+    private int nouvelleCellule() {
+        if (nbCellules == masse.length) {
+            int capacite = Math.max(16, 2 * nbCellules);
+            masseX = Arrays.copyOf(masseX, capacite);
+            masseY = Arrays.copyOf(masseY, capacite);
+            masse = Arrays.copyOf(masse, capacite);
+            cote = Arrays.copyOf(cote, capacite);
+            premier = Arrays.copyOf(premier, capacite);
+            dernier = Arrays.copyOf(dernier, capacite);
+            enfants = Arrays.copyOf(enfants, 4 * capacite);
+        }
+        return nbCellules++;
+    }
+}
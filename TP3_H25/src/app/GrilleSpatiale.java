@@ -0,0 +1,143 @@
+package app;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Index spatial des nœuds affichés : une grille uniforme dont chaque case liste les nœuds qu'elle contient.
+ * <p>
+ * Les nœuds sont rangés case par case dans un seul tableau (comme une vue CSR), ce qui permet de
+ * retrouver le nœud sous un clic ou les nœuds visibles en ne parcourant que les cases concernées.
+ * La grille est reconstruite, en temps linéaire, quand les positions changent.
+ * </p>
+ */
+public final class GrilleSpatiale {
+
+    private final double tailleCellule;
+    private double cellule;
+    private double minX;
+    private double minY;
+    private int colonnes;
+    private int lignes;
+    private int[] debuts = new int[1];
+    private int[] noeuds = new int[0];
+
+    /**
+     * Construit une grille vide.
+     *
+     * @param tailleCellule la taille souhaitée d'une case, en coordonnées du réseau
+     */
+    public GrilleSpatiale(double tailleCellule) {
+        this.tailleCellule = tailleCellule;
+        this.cellule = tailleCellule;
+    }
+
+    /**
+     * Range les nœuds dans la grille d'après leurs positions.
+     *
+     * @param xs les abscisses des nœuds
+     * @param ys les ordonnées des nœuds
+     * @param n  le nombre de nœuds
+     */
+    public void reconstruire(double[] xs, double[] ys, int n) {
+        if (n == 0) {
+            colonnes = lignes = 0;
+            debuts = new int[1];
+            noeuds = new int[0];
+            return;
+        }
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        // pas plus de cases que quelques fois le nombre de nœuds
+        cellule = tailleCellule;
+        while (((maxX - minX) / cellule + 1) * ((maxY - minY) / cellule + 1) > 4.0 * n + 16) {
+            cellule *= 2;
+        }
+        colonnes = (int) ((maxX - minX) / cellule) + 1;
+        lignes = (int) ((maxY - minY) / cellule) + 1;
+
+        int[] cases = new int[n];
+        debuts = new int[colonnes * lignes + 1];
+        for (int i = 0; i < n; i++) {
+            cases[i] = colonne(xs[i]) + ligne(ys[i]) * colonnes;
+            debuts[cases[i] + 1]++;
+        }
+        for (int c = 0; c < colonnes * lignes; c++) {
+            debuts[c + 1] += debuts[c];
+        }
+        int[] curseurs = Arrays.copyOf(debuts, debuts.length - 1);
+        noeuds = new int[n];
+        for (int i = 0; i < n; i++) {
+            noeuds[curseurs[cases[i]]++] = i;
+        }
+    }
+
+    /**
+     * Retourne le nœud le plus proche d'un point, à une distance d'au plus {@code rayon}.
+     *
+     * @param xs    les abscisses des nœuds
+     * @param ys    les ordonnées des nœuds
+     * @param x     l'abscisse du point
+     * @param y     l'ordonnée du point
+     * @param rayon la distance maximale
+     * @return le nœud trouvé, ou -1 s'il n'y en a aucun assez proche
+     */
+    public int plusProche(double[] xs, double[] ys, double x, double y, double rayon) {
+        int[] trouve = {-1};
+        double[] meilleure = {rayon * rayon};
+        pourChaqueDans(x - rayon, y - rayon, x + rayon, y + rayon, i -> {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            double distance = dx * dx + dy * dy;
+            if (distance <= meilleure[0]) {
+                meilleure[0] = distance;
+                trouve[0] = i;
+            }
+        });
+        return trouve[0];
+    }
+
+    /**
+     * Parcourt les nœuds des cases qui touchent un rectangle. Les nœuds des cases du bord peuvent
+     * être un peu hors du rectangle.
+     *
+     * @param x1     l'abscisse minimale du rectangle
+     * @param y1     l'ordonnée minimale du rectangle
+     * @param x2     l'abscisse maximale du rectangle
+     * @param y2     l'ordonnée maximale du rectangle
+     * @param action le traitement de chaque nœud
+     */
+    public void pourChaqueDans(double x1, double y1, double x2, double y2, IntConsumer action) {
+        if (colonnes == 0) {
+            return;
+        }
+        int c1 = Math.max(0, colonne(x1));
+        int c2 = Math.min(colonnes - 1, colonne(x2));
+        int l1 = Math.max(0, ligne(y1));
+        int l2 = Math.min(lignes - 1, ligne(y2));
+        for (int l = l1; l <= l2; l++) {
+            for (int c = c1; c <= c2; c++) {
+                int cas = c + l * colonnes;
+                for (int k = debuts[cas]; k < debuts[cas + 1]; k++) {
+                    action.accept(noeuds[k]);
+                }
+            }
+        }
+    }
+
+    private int colonne(double x) {
+        return (int) Math.floor((x - minX) / cellule);
+    }
+
+    private int ligne(double y) {
+        return (int) Math.floor((y - minY) / cellule);
+    }
+}
@@ -0,0 +1,207 @@
+package bench;
+
+import reseau.AnalyseReseau;
+import reseau.CivixNet;
+import reseau.ComposantesConnexes;
+import reseau.Direction;
+import reseau.EstimateurPortee;
+import reseau.GrapheCompact;
+import reseau.IndexReciprocite;
+import reseau.LotMutations;
+import reseau.MesuresReseau;
+import reseau.ReseauBuilder;
+import reseau.ScoreInfluence;
+import reseau.Utilisateur;
+
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Banc d'essai des opérations critiques de {@link CivixNet} sur des réseaux synthétiques
+ * (voir {@link GenerateurReseau}) de tailles croissantes.
+ * <p>
+ * Pour chaque opération et chaque taille, l'opération est d'abord répétée pendant une période
+ * de chauffe, puis mesurée pendant une durée fixe. Le banc affiche le temps moyen par opération,
+ * les octets alloués par opération et le débit d'allocation (équivalent de {@code gc.alloc.rate}),
+ * mesurés sur le fil courant avec {@link com.sun.management.ThreadMXBean}.
+ * </p>
+ * <p>
+ * Arguments facultatifs : les nombres d'utilisateurs à tester (par défaut 1000, 10000 et 100000),
+ * par exemple {@code 1000 100000 10000000}. Chaque réseau a dix abonnements par utilisateur.
+ * </p>
+ * <p>
+ * Le module Gradle {@code jmh} mesure les mêmes opérations avec JMH ({@code gradle :jmh:jmh}),
+ * qui isole chaque mesure dans sa propre JVM.
+ * </p>
+ */
+public class BancCivixNet {
+
+    private static final long CHAUFFE_NANOS = 500_000_000L;
+    private static final long MESURE_NANOS = 1_000_000_000L;
+    private static final int ABONNEMENTS_PAR_UTILISATEUR = 10;
+    private static final int TAILLE_LOT = 100_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Une opération mesurée; l'indice d'itération permet de varier les entrées sans allouer. Il continue
+     * de la chauffe à la mesure : une opération qui modifie le réseau ne repasse pas sur ses entrées.
+     */
+    private interface Operation {
+        Object executer(int iteration) throws Exception;
+    }
+
+    /**
+     * Reçoit le résultat de chaque opération mesurée. L'écriture volatile oblige le JIT à calculer
+     * le résultat entier, sans pouvoir éliminer l'opération comme du code mort.
+     */
+    private static volatile Object puits;
+
+    public static void main(String[] args) throws Exception {
+        int[] tailles = {1_000, 10_000, 100_000};
+        if (args.length > 0) {
+            tailles = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                tailles[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%-40s %10s %14s %14s %12s%n", "opération", "V", "ns/op", "octets/op", "alloc Mo/s");
+        for (int taille : tailles) {
+            mesurerTaille(taille);
+        }
+    }
+
+    private static void mesurerTaille(int taille) throws Exception {
+        GenerateurReseau generateur = new GenerateurReseau(taille, (long) taille * ABONNEMENTS_PAR_UTILISATEUR, 1.0, 42);
+
+        // chargerDepuisJSON attend un chemin relatif au répertoire src
+        Path fichier = Files.createTempFile("civixnet-banc", ".json");
+        try {
+            generateur.ecrireJSON(fichier);
+            String chemin = Path.of(System.getProperty("user.dir"), "src").relativize(fichier).toString();
+            mesurer("chargerDepuisJSON", taille, i -> ReseauBuilder.chargerDepuisJSON(chemin));
+            mesurer("chargerDepuisJSONEnContinu", taille, i -> ReseauBuilder.chargerDepuisJSONEnContinu(chemin));
+        } finally {
+            Files.deleteIfExists(fichier);
+        }
+
+        CivixNet reseau = generateur.genererCivixNet();
+        Random hasard = new Random(7);
+        int nbEntrees = 1 << 12;
+        String[] noms = new String[nbEntrees];
+        Utilisateur[] comptes = new Utilisateur[nbEntrees];
+        for (int i = 0; i < nbEntrees; i++) {
+            noms[i] = GenerateurReseau.username(hasard.nextInt(taille));
+            comptes[i] = reseau.obtenirUtilisateurAPartirDuUsername(noms[i]);
+        }
+        int masque = nbEntrees - 1;
+
+        mesurer("obtenirUtilisateurAPartirDuUsername", taille,
+                i -> reseau.obtenirUtilisateurAPartirDuUsername(noms[i & masque]));
+        mesurer("abonnementMutuel", taille,
+                i -> reseau.abonnementMutuel(comptes[i & masque], comptes[(i * 31 + 7) & masque]));
+        IndexReciprocite reciprocite = new IndexReciprocite(reseau);
+        mesurer("IndexReciprocite.abonnementMutuel", taille,
+                i -> reciprocite.abonnementMutuel(comptes[i & masque], comptes[(i * 31 + 7) & masque]));
+        mesurer("IndexReciprocite.obtenirMutuels", taille,
+                i -> reciprocite.obtenirMutuels(comptes[i & masque]).size());
+        mesurer("propagationFausseInformationRecursive", taille,
+                i -> reseau.propagationFausseInformationRecursive(noms[i & masque]));
+        mesurer("extraireSousReseau (2 sauts, 1000 max)", taille,
+                i -> reseau.extraireSousReseau(noms[i & masque], 2, Direction.ABONNES, 1000));
+        MesuresReseau mesures = new MesuresReseau();
+        mesures.attacher(reseau);
+        mesurer("obtenirUtilisateurAPartirDuUsername (mesuré)", taille,
+                i -> reseau.obtenirUtilisateurAPartirDuUsername(noms[i & masque]));
+        mesurer("propagationFausseInformationRecursive (mesurée)", taille,
+                i -> reseau.propagationFausseInformationRecursive(noms[i & masque]));
+        mesures.detacher();
+        mesurer("toString", taille, i -> reseau.toString());
+        Writer poubelle = Writer.nullWriter();
+        mesurer("ecrire", taille, i -> {
+            reseau.ecrire(poubelle, CivixNet.SANS_LIMITE, CivixNet.SANS_LIMITE);
+            return null;
+        });
+        GrapheCompact graphe = GrapheCompact.depuis(reseau);
+        AnalyseReseau analyse = new AnalyseReseau(graphe);
+        mesurer("histogrammeDegres", taille, i -> analyse.histogrammeDegres(Direction.ABONNES));
+        mesurer("tauxReciprocite", taille, i -> analyse.tauxReciprocite());
+        mesurer("compterTriangles", taille, i -> analyse.compterTriangles());
+        mesurer("ComposantesConnexes (faibles et fortes)", taille, i -> {
+            ComposantesConnexes composantes = new ComposantesConnexes(reseau);
+            composantes.detacher();
+            return composantes.nombreComposantesFortes();
+        });
+        mesurer("calculerPageRank (à froid)", taille,
+                i -> new ScoreInfluence(graphe, Direction.ABONNES).calculerPageRank(1e-6, 100));
+        ScoreInfluence influence = new ScoreInfluence(graphe, Direction.ABONNES);
+        influence.calculerPageRank(1e-6, 100);
+        mesurer("calculerPageRank (repris)", taille, i -> {
+            graphe.ajouterAbonnement(i % taille, (i * 31 + 7) % taille);
+            influence.rafraichir();
+            return influence.calculerPageRank(1e-6, 100);
+        });
+        mesurer("estimerPortees (3 sauts)", taille, i -> influence.estimerPortees(3));
+        // deux lots qui ajoutent puis retirent les mêmes abonnements, appliqués en alternance
+        LotMutations[] lots = {new LotMutations(), new LotMutations()};
+        for (int k = 0; k < TAILLE_LOT; k++) {
+            String abonne = GenerateurReseau.username(hasard.nextInt(taille));
+            String suivi = GenerateurReseau.username(hasard.nextInt(taille));
+            lots[0].ajouter(abonne, suivi);
+            lots[1].retirer(abonne, suivi);
+        }
+        mesurer("appliquerLot (" + TAILLE_LOT + " opérations)", taille, i -> reseau.appliquerLot(lots[i & 1]));
+        // chaque itération ajoute une paire nouvelle (distinctes pour les 2^24 premières itérations),
+        // sur une copie jetable pour laisser le réseau des autres mesures intact
+        CivixNet copie = reseau.copie();
+        mesurer("ajouterAbonnement", taille, i -> {
+            copie.ajouterAbonnement(comptes[i & masque], comptes[((i >>> 12) + i) & masque]);
+            return null;
+        });
+        EstimateurPortee estimateur = new EstimateurPortee(reseau, Direction.ABONNEMENTS, 3);
+        mesurer("EstimateurPortee.estimerPortee", taille, i -> estimateur.estimerPortee(comptes[i & masque], 3));
+        mesurer("ajouter/retirerAbonnement (estimateur)", taille, i -> {
+            if ((i & 1) == 0) {
+                reseau.ajouterAbonnement(comptes[(i >> 1) & masque], comptes[(i * 13 + 5) & masque]);
+            } else {
+                reseau.retirerAbonnement(comptes[(i >> 1) & masque], comptes[((i - 1) * 13 + 5) & masque]);
+            }
+            return null;
+        });
+        estimateur.detacher();
+    }
+
+    private static void mesurer(String nom, int taille, Operation operation) throws Exception {
+        long chauffe = boucle(operation, 0, CHAUFFE_NANOS);
+
+        long allouesAvant = THREADS.getCurrentThreadAllocatedBytes();
+        long debut = System.nanoTime();
+        long iterations = boucle(operation, chauffe, MESURE_NANOS);
+        long duree = System.nanoTime() - debut;
+        long alloues = THREADS.getCurrentThreadAllocatedBytes() - allouesAvant;
+
+        System.out.printf("%-40s %10d %14.1f %14.1f %12.1f%n", nom, taille,
+                (double) duree / iterations, (double) alloues / iterations, alloues / 1e6 / (duree / 1e9));
+    }
+
+    /**
+     * Répète l'opération jusqu'à ce que la durée soit écoulée (au moins une fois).
+     *
+     * @param premiere l'indice de la première itération
+     * @return le nombre d'itérations faites
+     */
+    private static long boucle(Operation operation, long premiere, long dureeNanos) throws Exception {
+        long fin = System.nanoTime() + dureeNanos;
+        long iterations = 0;
+        do {
+            puits = operation.executer((int) (premiere + iterations));
+            iterations++;
+        } while (System.nanoTime() < fin);
+        return iterations;
+    }
+}
@@ -0,0 +1,119 @@
+package bench;
+
+import reseau.CivixNet;
+import reseau.CivixNetConcurrent;
+import reseau.MagasinIdentifiants;
+import reseau.Utilisateur;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Banc d'essai multi-fils des abonnements : compare {@link CivixNetConcurrent} à un {@link CivixNet}
+ * protégé par un verrou global, de 1 fil jusqu'au nombre de coeurs disponibles.
+ * <p>
+ * Chaque fil fait des abonnements et désabonnements aléatoires (un sur quatre est une lecture
+ * {@code abonnementMutuel}). Arguments facultatifs : nombre d'utilisateurs, opérations par fil.
+ * </p>
+ */
+public class BancConcurrence {
+
+    /**
+     * Une opération aléatoire sur le réseau testé.
+     */
+    private interface Operation {
+        void executer(int a, int b, int type);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nbUtilisateurs = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int operationsParFil = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        int maxFils = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%d utilisateurs, %d opérations par fil%n", nbUtilisateurs, operationsParFil);
+        System.out.printf("%6s %22s %22s%n", "fils", "verrou global (op/s)", "concurrent (op/s)");
+        // 1, 2, 4, ... puis le nombre de coeurs
+        for (int fils = 1; ; fils = Math.min(fils * 2, maxFils)) {
+            double global = mesurerVerrouGlobal(nbUtilisateurs, fils, operationsParFil);
+            double concurrent = mesurerConcurrent(nbUtilisateurs, fils, operationsParFil);
+            System.out.printf("%6d %22.0f %22.0f%n", fils, global, concurrent);
+            if (fils == maxFils) {
+                break;
+            }
+        }
+    }
+
+    private static double mesurerVerrouGlobal(int nbUtilisateurs, int fils, int operationsParFil) throws InterruptedException {
+        // une seule itération PBKDF2 : le banc mesure les abonnements, pas les inscriptions
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            reseau.ajouterUtilisateur("u" + i, "MotDePasse1");
+        }
+        Utilisateur[] parId = new Utilisateur[nbUtilisateurs];
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            parId[i] = reseau.obtenirUtilisateurAPartirDuUsername("u" + i);
+        }
+        Object verrou = new Object();
+        return mesurer(nbUtilisateurs, fils, operationsParFil, (a, b, type) -> {
+            synchronized (verrou) {
+                executer(type, () -> reseau.ajouterAbonnement(parId[a], parId[b]),
+                        () -> reseau.retirerAbonnement(parId[a], parId[b]),
+                        () -> reseau.abonnementMutuel(parId[a], parId[b]));
+            }
+        });
+    }
+
+    private static double mesurerConcurrent(int nbUtilisateurs, int fils, int operationsParFil) throws InterruptedException {
+        CivixNetConcurrent reseau = new CivixNetConcurrent(new MagasinIdentifiants(1, 0));
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            reseau.ajouterUtilisateur("u" + i, "MotDePasse1");
+        }
+        Utilisateur[] parId = new Utilisateur[nbUtilisateurs];
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            parId[i] = reseau.obtenirUtilisateurAPartirDuUsername("u" + i);
+        }
+        return mesurer(nbUtilisateurs, fils, operationsParFil, (a, b, type) ->
+                executer(type, () -> reseau.ajouterAbonnement(parId[a], parId[b]),
+                        () -> reseau.retirerAbonnement(parId[a], parId[b]),
+                        () -> reseau.abonnementMutuel(parId[a], parId[b])));
+    }
+
+    private static void executer(int type, Runnable ajout, Runnable retrait, Runnable lecture) {
+        if (type < 2) {
+            ajout.run();
+        } else if (type == 2) {
+            retrait.run();
+        } else {
+            lecture.run();
+        }
+    }
+
+    /**
+     * Lance les fils en même temps et retourne le débit total en opérations par seconde.
+     */
+    private static double mesurer(int nbUtilisateurs, int fils, int operationsParFil, Operation operation)
+            throws InterruptedException {
+        CountDownLatch depart = new CountDownLatch(1);
+        Thread[] threads = new Thread[fils];
+        for (int t = 0; t < fils; t++) {
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom hasard = ThreadLocalRandom.current();
+                try {
+                    depart.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < operationsParFil; i++) {
+                    operation.executer(hasard.nextInt(nbUtilisateurs), hasard.nextInt(nbUtilisateurs), hasard.nextInt(4));
+                }
+            });
+            threads[t].start();
+        }
+        long debut = System.nanoTime();
+        depart.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return (double) fils * operationsParFil / ((System.nanoTime() - debut) / 1e9);
+    }
+}
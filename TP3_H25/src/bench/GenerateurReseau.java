@@ -0,0 +1,185 @@
+package bench;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import reseau.CivixNet;
+import reseau.MagasinIdentifiants;
+import reseau.Utilisateur;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Générateur de réseaux synthétiques pour les bancs d'essai.
+ * <p>
+ * Les degrés suivent une loi de puissance : la source et la cible de chaque abonnement sont tirées
+ * selon une loi de Zipf d'exposant donné, sur deux permutations indépendantes des utilisateurs.
+ * Quelques comptes suivent donc beaucoup de monde, quelques autres sont suivis par beaucoup de
+ * monde, et la plupart ont peu de liens. Les abonnements en double sont ignorés, le nombre
+ * d'abonnements obtenu peut donc être un peu inférieur à celui demandé.
+ * </p>
+ * <p>
+ * Tous les utilisateurs ont le mot de passe {@value #MOT_DE_PASSE}. Le réseau en mémoire le hache avec
+ * une seule itération et le fichier JSON écrit une même empreinte pour tous : les bancs mesurent le graphe
+ * et les chargements, pas PBKDF2.
+ * </p>
+ */
+public class GenerateurReseau {
+
+    /**
+     * Mot de passe de tous les utilisateurs générés.
+     */
+    public static final String MOT_DE_PASSE = "MotDePasse1";
+
+    private final int nbUtilisateurs;
+    private final long nbAbonnements;
+    private final double exposant;
+    private final long graine;
+
+    /**
+     * Prépare un générateur.
+     *
+     * @param nbUtilisateurs le nombre d'utilisateurs V
+     * @param nbAbonnements  le nombre d'abonnements E visé
+     * @param exposant       l'exposant de la loi de Zipf (autour de 1 pour un réseau social)
+     * @param graine         la graine du générateur aléatoire, pour des réseaux reproductibles
+     */
+    public GenerateurReseau(int nbUtilisateurs, long nbAbonnements, double exposant, long graine) {
+        this.nbUtilisateurs = nbUtilisateurs;
+        this.nbAbonnements = nbAbonnements;
+        this.exposant = exposant;
+        this.graine = graine;
+    }
+
+    /**
+     * Retourne le nom d'utilisateur généré pour un indice.
+     *
+     * @param i l'indice de l'utilisateur
+     * @return son nom d'utilisateur
+     */
+    public static String username(int i) {
+        return "u" + i;
+    }
+
+    /**
+     * Génère le réseau en mémoire.
+     *
+     * @return un nouveau réseau de {@code nbUtilisateurs} utilisateurs
+     */
+    public CivixNet genererCivixNet() {
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        Utilisateur[] parIndice = new Utilisateur[nbUtilisateurs];
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            reseau.ajouterUtilisateur(username(i), MOT_DE_PASSE);
+            parIndice[i] = reseau.obtenirUtilisateurAPartirDuUsername(username(i));
+        }
+        genererArcs((source, cible) -> reseau.ajouterAbonnement(parIndice[source], parIndice[cible]));
+        return reseau;
+    }
+
+    /**
+     * Écrit le réseau généré dans un fichier JSON au format de {@code ReseauBuilder.chargerDepuisJSON},
+     * sans le construire en mémoire.
+     *
+     * @param fichier le fichier à écrire
+     * @throws IOException si une erreur d'écriture survient
+     */
+    public void ecrireJSON(Path fichier) throws IOException {
+        // les abonnements sont regroupés par source avant l'écriture
+        int[] degres = new int[nbUtilisateurs + 1];
+        int[][] abonnements = new int[nbUtilisateurs][];
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            abonnements[i] = new int[2];
+        }
+        genererArcs((source, cible) -> {
+            if (degres[source] == abonnements[source].length) {
+                abonnements[source] = Arrays.copyOf(abonnements[source], degres[source] * 2);
+            }
+            abonnements[source][degres[source]++] = cible;
+        });
+
+        MagasinIdentifiants magasin = new MagasinIdentifiants();
+        magasin.ajouter("modele", MOT_DE_PASSE);
+        String empreinte = magasin.empreinte("modele");
+        try (JsonGenerator json = new JsonFactory().createGenerator(fichier.toFile(), JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("utilisateurs");
+            for (int i = 0; i < nbUtilisateurs; i++) {
+                json.writeStartObject();
+                json.writeStringField("username", username(i));
+                json.writeStringField("password", empreinte);
+                json.writeArrayFieldStart("abonnements");
+                int[] cibles = Arrays.copyOf(abonnements[i], degres[i]);
+                Arrays.sort(cibles);
+                for (int k = 0; k < cibles.length; k++) {
+                    if (k == 0 || cibles[k] != cibles[k - 1]) {
+                        json.writeString(username(cibles[k]));
+                    }
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    /**
+     * Reçoit chaque arc généré.
+     */
+    private interface ReceveurArc {
+        void accepter(int source, int cible);
+    }
+
+    private void genererArcs(ReceveurArc receveur) {
+        Random hasard = new Random(graine);
+        double[] cumul = cumulZipf();
+        int[] sources = permutation(hasard);
+        int[] cibles = permutation(hasard);
+        for (long e = 0; e < nbAbonnements; e++) {
+            int source = sources[tirer(cumul, hasard)];
+            int cible = cibles[tirer(cumul, hasard)];
+            if (source != cible) {
+                receveur.accepter(source, cible);
+            }
+        }
+    }
+
+    /**
+     * Calcule la fonction de répartition de la loi de Zipf sur les rangs 0 à V - 1.
+     */
+    private double[] cumulZipf() {
+        double[] cumul = new double[nbUtilisateurs];
+        double total = 0;
+        for (int rang = 0; rang < nbUtilisateurs; rang++) {
+            total += 1.0 / Math.pow(rang + 1, exposant);
+            cumul[rang] = total;
+        }
+        for (int rang = 0; rang < nbUtilisateurs; rang++) {
+            cumul[rang] /= total;
+        }
+        return cumul;
+    }
+
+    private int tirer(double[] cumul, Random hasard) {
+        int rang = Arrays.binarySearch(cumul, hasard.nextDouble());
+        return Math.min(rang >= 0 ? rang : -rang - 1, nbUtilisateurs - 1);
+    }
+
+    private int[] permutation(Random hasard) {
+        int[] permutation = new int[nbUtilisateurs];
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            permutation[i] = i;
+        }
+        for (int i = nbUtilisateurs - 1; i > 0; i--) {
+            int j = hasard.nextInt(i + 1);
+            int temp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = temp;
+        }
+        return permutation;
+    }
+}
@@ -0,0 +1,84 @@
+package reseau;
+
+/**
+ * Vue en lecture seule d'un graphe d'abonnements au format CSR (compressed sparse row).
+ * <p>
+ * Les voisins du sommet {@code s} occupent les cases {@code voisins[debuts[s]]} à
+ * {@code voisins[debuts[s + 1] - 1]}, triées en ordre croissant. Cette vue est partagée
+ * par les moteurs de calcul (propagation, analyses) et ne doit pas être modifiée.
+ * </p>
+ */
+final class Adjacence {
+
+    /**
+     * Position du premier voisin de chaque sommet; contient {@code nbSommets + 1} cases.
+     */
+    final int[] debuts;
+
+    /**
+     * Les voisins de tous les sommets, ligne après ligne.
+     */
+    final int[] voisins;
+
+    /**
+     * Le nombre de sommets du graphe.
+     */
+    final int nbSommets;
+
+    /**
+     * Construit une vue sur des tableaux CSR existants, sans les copier.
+     *
+     * @param debuts    les positions de début de ligne
+     * @param voisins   les voisins, ligne après ligne
+     * @param nbSommets le nombre de sommets
+     */
+    Adjacence(int[] debuts, int[] voisins, int nbSommets) {
+        this.debuts = debuts;
+        this.voisins = voisins;
+        this.nbSommets = nbSommets;
+    }
+
+    /**
+     * Retourne le degré sortant d'un sommet.
+     *
+     * @param s le sommet
+     * @return le nombre de voisins de {@code s}
+     */
+    int degre(int s) {
+        return debuts[s + 1] - debuts[s];
+    }
+
+    /**
+     * Retourne le nombre d'arcs du graphe.
+     *
+     * @return le nombre d'arcs
+     */
+    int nbArcs() {
+        return debuts[nbSommets];
+    }
+
+    /**
+     * Construit le graphe transposé (chaque arc inversé), en temps O(V + E).
+     * Les lignes du résultat sont triées, puisque les sources sont parcourues dans l'ordre.
+     *
+     * @return le graphe transposé
+     */
+    Adjacence transposee() {
+        int[] nouveauxDebuts = new int[nbSommets + 1];
+        for (int k = 0; k < nbArcs(); k++) {
+            nouveauxDebuts[voisins[k] + 1]++;
+        }
+        for (int s = 0; s < nbSommets; s++) {
+            nouveauxDebuts[s + 1] += nouveauxDebuts[s];
+        }
+        int[] curseurs = new int[nbSommets];
+        System.arraycopy(nouveauxDebuts, 0, curseurs, 0, nbSommets);
+        int[] nouveauxVoisins = new int[nbArcs()];
+        for (int s = 0; s < nbSommets; s++) {
+            for (int k = debuts[s]; k < debuts[s + 1]; k++) {
+                nouveauxVoisins[curseurs[voisins[k]]++] = s;
+            }
+        }
+        return new Adjacence(nouveauxDebuts, nouveauxVoisins, nbSommets);
+    }
+}
@@ -0,0 +1,297 @@
+package reseau;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * La classe {@code AnalyseReseau} calcule des statistiques globales sur un {@link GrapheCompact} :
+ * distribution des degrés, taux de réciprocité, triangles et coefficients de clustering.
+ * <p>
+ * Les calculs parcourent la vue CSR du graphe (voir {@link Adjacence}), découpée en morceaux de
+ * sommets traités en parallèle dans un {@link ForkJoinPool}. Les lignes CSR étant triées, les
+ * voisins communs de deux sommets s'obtiennent par fusion de leurs lignes, sans table de hachage.
+ * </p>
+ * <p>
+ * Comme {@link MoteurPropagation}, l'analyse travaille sur la vue du graphe au moment de sa
+ * construction : les modifications ultérieures du graphe ne sont pas visibles.
+ * </p>
+ */
+public class AnalyseReseau {
+
+    /**
+     * Les degrés inférieurs à ce seuil sont comptés dans un histogramme propre à chaque morceau;
+     * les degrés plus grands, rares, directement dans l'histogramme partagé.
+     */
+    private static final int SEUIL_HISTOGRAMME_LOCAL = 1024;
+
+    /**
+     * Nombre de sommets par morceau pour les triangles, dont le coût par sommet est très inégal.
+     */
+    private static final int GRAIN_TRIANGLES = 256;
+
+    private final GrapheCompact graphe;
+    private final Adjacence abonnements;
+    private final Adjacence abonnes;
+    private final ForkJoinPool pool;
+
+    /**
+     * Construit une analyse qui utilise le pool fork-join commun.
+     *
+     * @param graphe le graphe à analyser
+     */
+    public AnalyseReseau(GrapheCompact graphe) {
+        this(graphe, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Construit une analyse qui utilise le pool fork-join donné.
+     *
+     * @param graphe le graphe à analyser
+     * @param pool   le pool d'exécution des calculs
+     */
+    public AnalyseReseau(GrapheCompact graphe, ForkJoinPool pool) {
+        this.graphe = graphe;
+        this.abonnements = Direction.ABONNEMENTS.adjacence(graphe);
+        this.abonnes = abonnements.transposee();
+        this.pool = pool;
+    }
+
+    /**
+     * Retourne la distribution des degrés dans un sens : la case {@code d} contient le nombre
+     * d'utilisateurs qui ont exactement {@code d} abonnements ({@link Direction#ABONNEMENTS},
+     * degré sortant) ou {@code d} abonnés ({@link Direction#ABONNES}, degré entrant).
+     *
+     * @param direction le sens des liens comptés
+     * @return l'histogramme des degrés, de longueur degré maximal + 1
+     */
+    public long[] histogrammeDegres(Direction direction) {
+        Adjacence adjacence = direction == Direction.ABONNEMENTS ? abonnements : abonnes;
+        AtomicInteger degreMax = new AtomicInteger();
+        Parallelisme.pourIntervalles(pool, adjacence.nbSommets, Parallelisme.GRAIN, (debut, fin) -> {
+            int max = 0;
+            for (int s = debut; s < fin; s++) {
+                max = Math.max(max, adjacence.degre(s));
+            }
+            degreMax.accumulateAndGet(max, Math::max);
+        });
+
+        AtomicLongArray histogramme = new AtomicLongArray(degreMax.get() + 1);
+        Parallelisme.pourIntervalles(pool, adjacence.nbSommets, Parallelisme.GRAIN, (debut, fin) -> {
+            long[] local = new long[Math.min(SEUIL_HISTOGRAMME_LOCAL, histogramme.length())];
+            for (int s = debut; s < fin; s++) {
+                int d = adjacence.degre(s);
+                if (d < local.length) {
+                    local[d]++;
+                } else {
+                    histogramme.incrementAndGet(d);
+                }
+            }
+            for (int d = 0; d < local.length; d++) {
+                if (local[d] != 0) {
+                    histogramme.addAndGet(d, local[d]);
+                }
+            }
+        });
+
+        long[] resultat = new long[histogramme.length()];
+        for (int d = 0; d < resultat.length; d++) {
+            resultat[d] = histogramme.get(d);
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne le nombre d'abonnements réciproques : les abonnements d'un utilisateur à un autre
+     * qui le suit aussi. Un utilisateur qui se suit lui-même ne compte pas.
+     *
+     * @return le nombre d'abonnements dont l'inverse existe, soit deux par paire mutuelle
+     */
+    public long nombreAbonnementsReciproques() {
+        LongAdder total = new LongAdder();
+        Parallelisme.pourIntervalles(pool, abonnements.nbSommets, Parallelisme.GRAIN, (debut, fin) -> {
+            long nb = 0;
+            for (int s = debut; s < fin; s++) {
+                // ses abonnements qui sont aussi ses abonnés
+                nb += intersection(abonnements, s, abonnes, s, s);
+            }
+            total.add(nb);
+        });
+        return total.sum();
+    }
+
+    /**
+     * Retourne la proportion des abonnements du graphe qui sont réciproques.
+     *
+     * @return le taux de réciprocité entre 0 et 1, ou 0 si le graphe n'a aucun abonnement
+     */
+    public double tauxReciprocite() {
+        int nbArcs = abonnements.nbArcs();
+        return nbArcs == 0 ? 0 : (double) nombreAbonnementsReciproques() / nbArcs;
+    }
+
+    /**
+     * Compte les triangles du graphe non orienté sous-jacent : deux utilisateurs y sont voisins
+     * si l'un suit l'autre, dans un sens ou dans l'autre.
+     * <p>
+     * Chaque arête est orientée vers son extrémité de plus grand degré (à égalité, de plus grand
+     * identifiant), ce qui borne les listes à fusionner par la racine carrée du nombre d'arêtes :
+     * chaque triangle est trouvé une seule fois, depuis son sommet de plus petit rang.
+     * </p>
+     *
+     * @return les triangles et les coefficients de clustering
+     */
+    public ResultatTriangles compterTriangles() {
+        int n = abonnements.nbSommets;
+
+        // degrés dans le graphe non orienté, sans boucles ni doublons
+        int[] degres = new int[n];
+        Parallelisme.pourIntervalles(pool, n, Parallelisme.GRAIN, (debut, fin) -> {
+            for (int s = debut; s < fin; s++) {
+                degres[s] = fusionner(s, null, null, 0);
+            }
+        });
+
+        // voisins de rang supérieur, triés par identifiant
+        int[] debutsAvant = new int[n + 1];
+        Parallelisme.pourIntervalles(pool, n, Parallelisme.GRAIN, (debut, fin) -> {
+            for (int s = debut; s < fin; s++) {
+                debutsAvant[s + 1] = fusionner(s, degres, null, 0);
+            }
+        });
+        for (int s = 0; s < n; s++) {
+            debutsAvant[s + 1] += debutsAvant[s];
+        }
+        int[] voisinsAvant = new int[debutsAvant[n]];
+        Parallelisme.pourIntervalles(pool, n, Parallelisme.GRAIN, (debut, fin) -> {
+            for (int s = debut; s < fin; s++) {
+                fusionner(s, degres, voisinsAvant, debutsAvant[s]);
+            }
+        });
+        Adjacence avant = new Adjacence(debutsAvant, voisinsAvant, n);
+
+        AtomicLongArray trianglesParSommet = new AtomicLongArray(n);
+        Parallelisme.pourIntervalles(pool, n, GRAIN_TRIANGLES, (debut, fin) -> {
+            for (int u = debut; u < fin; u++) {
+                long trianglesU = 0;
+                for (int k = avant.debuts[u]; k < avant.debuts[u + 1]; k++) {
+                    int v = avant.voisins[k];
+                    long trianglesUV = compterCommuns(avant, u, v, trianglesParSommet);
+                    if (trianglesUV != 0) {
+                        trianglesU += trianglesUV;
+                        trianglesParSommet.addAndGet(v, trianglesUV);
+                    }
+                }
+                if (trianglesU != 0) {
+                    trianglesParSommet.addAndGet(u, trianglesU);
+                }
+            }
+        });
+
+        long[] triangles = new long[n];
+        for (int s = 0; s < n; s++) {
+            triangles[s] = trianglesParSommet.get(s);
+        }
+        return new ResultatTriangles(graphe, degres, triangles);
+    }
+
+    /**
+     * Parcourt les voisins d'un sommet dans le graphe non orienté, en fusionnant ses abonnements
+     * et ses abonnés, sans le sommet lui-même ni doublons.
+     *
+     * @param s        le sommet
+     * @param degres   les degrés non orientés pour ne garder que les voisins de rang supérieur,
+     *                 ou {@code null} pour les garder tous
+     * @param sortie   le tableau où écrire les voisins gardés, ou {@code null} pour les compter seulement
+     * @param position la position d'écriture dans {@code sortie}
+     * @return le nombre de voisins gardés
+     */
+    private int fusionner(int s, int[] degres, int[] sortie, int position) {
+        int i = abonnements.debuts[s];
+        int finI = abonnements.debuts[s + 1];
+        int j = abonnes.debuts[s];
+        int finJ = abonnes.debuts[s + 1];
+        int nb = 0;
+        while (i < finI || j < finJ) {
+            int v;
+            if (j == finJ || (i < finI && abonnements.voisins[i] < abonnes.voisins[j])) {
+                v = abonnements.voisins[i++];
+            } else if (i == finI || abonnes.voisins[j] < abonnements.voisins[i]) {
+                v = abonnes.voisins[j++];
+            } else {
+                v = abonnements.voisins[i++];
+                j++;
+            }
+            if (v != s && (degres == null || rangSuperieur(degres, v, s))) {
+                if (sortie != null) {
+                    sortie[position + nb] = v;
+                }
+                nb++;
+            }
+        }
+        return nb;
+    }
+
+    private static boolean rangSuperieur(int[] degres, int v, int s) {
+        return degres[v] > degres[s] || (degres[v] == degres[s] && v > s);
+    }
+
+    /**
+     * Compte les voisins communs de deux lignes triées d'une vue CSR, en ignorant un sommet.
+     *
+     * @return le nombre de voisins communs
+     */
+    private static int intersection(Adjacence a, int s, Adjacence b, int t, int ignore) {
+        int i = a.debuts[s];
+        int finI = a.debuts[s + 1];
+        int j = b.debuts[t];
+        int finJ = b.debuts[t + 1];
+        int nb = 0;
+        while (i < finI && j < finJ) {
+            int x = a.voisins[i];
+            int y = b.voisins[j];
+            if (x < y) {
+                i++;
+            } else if (y < x) {
+                j++;
+            } else {
+                if (x != ignore) {
+                    nb++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return nb;
+    }
+
+    /**
+     * Compte les voisins de rang supérieur communs à {@code u} et {@code v}, qui ferment chacun
+     * un triangle, et crédite ce triangle au troisième sommet.
+     *
+     * @return le nombre de triangles qui contiennent l'arête {@code u-v}
+     */
+    private static long compterCommuns(Adjacence avant, int u, int v, AtomicLongArray trianglesParSommet) {
+        int i = avant.debuts[u];
+        int finI = avant.debuts[u + 1];
+        int j = avant.debuts[v];
+        int finJ = avant.debuts[v + 1];
+        long nb = 0;
+        while (i < finI && j < finJ) {
+            int x = avant.voisins[i];
+            int y = avant.voisins[j];
+            if (x < y) {
+                i++;
+            } else if (y < x) {
+                j++;
+            } else {
+                trianglesParSommet.incrementAndGet(x);
+                nb++;
+                i++;
+                j++;
+            }
+        }
+        return nb;
+    }
+}
@@ -0,0 +1,69 @@
+package reseau;
+
+/**
+ * Le bilan de l'application d'un {@link LotMutations} par {@link CivixNet#appliquerLot(LotMutations)}.
+ */
+public class BilanLot {
+
+    private final long appliquees;
+    private final long sansEffet;
+    private final long rejetees;
+    private final long doublons;
+
+    /**
+     * Construit un bilan.
+     *
+     * @param appliquees le nombre d'opérations qui ont modifié le réseau
+     * @param sansEffet  le nombre d'opérations sans effet (abonnement déjà présent ou déjà absent)
+     * @param rejetees   le nombre d'opérations rejetées parce qu'un des utilisateurs n'existe pas
+     * @param doublons   le nombre d'opérations remplacées par une opération ultérieure du lot
+     */
+    BilanLot(long appliquees, long sansEffet, long rejetees, long doublons) {
+        this.appliquees = appliquees;
+        this.sansEffet = sansEffet;
+        this.rejetees = rejetees;
+        this.doublons = doublons;
+    }
+
+    /**
+     * Retourne le nombre d'opérations qui ont modifié le réseau.
+     *
+     * @return le nombre d'opérations appliquées
+     */
+    public long nombreAppliquees() {
+        return appliquees;
+    }
+
+    /**
+     * Retourne le nombre d'opérations sans effet, l'abonnement étant déjà présent (ajout) ou absent (retrait).
+     *
+     * @return le nombre d'opérations sans effet
+     */
+    public long nombreSansEffet() {
+        return sansEffet;
+    }
+
+    /**
+     * Retourne le nombre d'opérations rejetées parce que l'abonné ou le compte suivi n'existe pas.
+     *
+     * @return le nombre d'opérations rejetées
+     */
+    public long nombreRejetees() {
+        return rejetees;
+    }
+
+    /**
+     * Retourne le nombre d'opérations ignorées parce qu'une opération ultérieure du lot portait sur le même abonnement.
+     *
+     * @return le nombre de doublons
+     */
+    public long nombreDoublons() {
+        return doublons;
+    }
+
+    @Override
+    public String toString() {
+        return "appliquées : " + appliquees + ", sans effet : " + sansEffet
+                + ", rejetées : " + rejetees + ", doublons : " + doublons;
+    }
+}
@@ -1,6 +1,16 @@
 package reseau;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * La classe {@code CivixNet} représente un réseau social simplifié où les utilisateurs
@@ -13,21 +23,145 @@ import java.util.*;
  */
 public class CivixNet {
 
+    /**
+     * Valeur des limites de {@link #ecrire(Appendable, int, int)} pour tout écrire.
+     */
+    public static final int SANS_LIMITE = Integer.MAX_VALUE;
+
+    /**
+     * Nombre de voisins examinés, en multiple de sa part, pour un hub lors de
+     * {@link #extraireSousReseau(String, int, Direction, int)}.
+     */
+    private static final int BALAYAGE_HUB = 4;
+
     /**
      * La carte représentant les utilisateurs et leurs abonnements.
      * La clé est un utilisateur, et la valeur est l'ensemble des utilisateurs qu'il suit.
      */
-    private Map<Utilisateur, Set<Utilisateur>> utilisateurs;
+    private NavigableMap<Utilisateur, Set<Utilisateur>> utilisateurs;
 //donc key: l'utilisateur, valeur: ceux qu'il suit.
+
+    /**
+     * Index des utilisateurs par nom d'utilisateur normalisé (en minuscules),
+     * maintenu en parallèle de {@link #utilisateurs} pour une recherche en temps constant.
+     */
+    private Map<String, Utilisateur> index;
+
+    /**
+     * Les abonnements de chaque utilisateur par nom normalisé : les mêmes ensembles que dans
+     * {@link #utilisateurs}, mais accessibles en temps constant pour les opérations fréquentes.
+     */
+    private Map<String, Set<Utilisateur>> suivis;
+
+    /**
+     * L'index inverse des abonnements : la clé est le nom normalisé d'un utilisateur, et la valeur est
+     * l'ensemble des utilisateurs qui le suivent (ses abonnés). La table de hachage rend la mise à jour
+     * de l'index indépendante de la taille du réseau.
+     */
+    private Map<String, Set<Utilisateur>> abonnes;
+
     /**
-     * Constructeur par défaut. Initialise un réseau vide.
+     * Les écouteurs avertis des modifications du réseau. Un écouteur peut en ajouter ou en retirer
+     * pendant qu'il est averti : la notification en cours continue sur la liste de départ.
+     */
+    private List<EcouteurReseau> ecouteurs;
+
+    /**
+     * Les mesures rattachées au réseau, ou null si ses opérations ne sont pas mesurées.
+     */
+    private MesuresReseau mesures;
+
+    /**
+     * Les mots de passe des utilisateurs, gardés à part des nœuds du graphe.
+     */
+    private final MagasinIdentifiants identifiants;
+
+    /**
+     * Constructeur par défaut. Initialise un réseau vide, dont les mots de passe sont hachés
+     * avec le facteur de travail par défaut.
      */
     public CivixNet() {
+        this(new MagasinIdentifiants());
+    }
+
+    /**
+     * Initialise un réseau vide dont les mots de passe sont gardés par le magasin donné,
+     * pour en régler le facteur de travail et le cache.
+     *
+     * @param identifiants le magasin des mots de passe
+     */
+    public CivixNet(MagasinIdentifiants identifiants) {
+        this.identifiants = Objects.requireNonNull(identifiants);
         this.utilisateurs = new TreeMap<>();
+        this.index = new HashMap<>();
+        this.suivis = new HashMap<>();
+        this.abonnes = new HashMap<>();
+        this.ecouteurs = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Retourne une copie indépendante du réseau, avec de nouveaux objets {@link Utilisateur}.
+     * Les écouteurs et les mesures ne sont pas copiés.
+     *
+     * @return la copie du réseau
+     */
+    public CivixNet copie() {
+        CivixNet copie = new CivixNet(identifiants.copie());
+        for (Utilisateur u : utilisateurs.keySet()) {
+            copie.inscrire(new Utilisateur(u.getUsername()));
+        }
+        for (Map.Entry<Utilisateur, Set<Utilisateur>> u : utilisateurs.entrySet()) {
+            Utilisateur compte = copie.index.get(u.getKey().cle());
+            Set<Utilisateur> abonnementsCompte = copie.suivis.get(compte.cle());
+            for (Utilisateur suivi : u.getValue()) {
+                copie.lier(compte, abonnementsCompte, copie.index.get(suivi.cle()));
+            }
+        }
+        return copie;
+    }
+
+    /**
+     * Ajoute un écouteur, averti de toutes les modifications suivantes du réseau.
+     *
+     * @param ecouteur l'écouteur à ajouter
+     */
+    public void ajouterEcouteur(EcouteurReseau ecouteur) {
+        ecouteurs.add(Objects.requireNonNull(ecouteur));
+    }
+
+    /**
+     * Retire un écouteur ajouté par {@link #ajouterEcouteur(EcouteurReseau)}.
+     *
+     * @param ecouteur l'écouteur à retirer
+     */
+    public void retirerEcouteur(EcouteurReseau ecouteur) {
+        ecouteurs.remove(ecouteur);
+    }
+
+    /**
+     * Retourne le magasin des mots de passe du réseau, pour authentifier ses utilisateurs.
+     *
+     * @return le magasin des identifiants
+     */
+    public MagasinIdentifiants identifiants() {
+        return identifiants;
+    }
+
+    /**
+     * Rattache des mesures au réseau (voir {@link MesuresReseau#attacher(CivixNet)}).
+     *
+     * @param mesures les mesures, ou null pour ne plus mesurer
+     */
+    void definirMesures(MesuresReseau mesures) {
+        this.mesures = mesures;
     }
 
     /**
      * Retourne la carte des utilisateurs du réseau.
+     * <p>
+     * Les modifications faites directement sur cette carte ne sont pas reportées dans
+     * l'index des abonnés; utiliser plutôt les méthodes d'abonnement de cette classe.
+     * </p>
      *
      * @return une map représentant les utilisateurs et leurs abonnements
      */
@@ -35,6 +169,20 @@ public class CivixNet {
         return utilisateurs;
     }
 
+    /**
+     * Retourne une vue des utilisateurs compris entre deux bornes, dans l'ordre du réseau.
+     *
+     * @param debut le premier utilisateur de la tranche, ou {@code null} pour partir du début
+     * @param fin   le premier utilisateur après la tranche, ou {@code null} pour aller jusqu'à la fin
+     * @return la vue des utilisateurs de {@code debut} inclus à {@code fin} exclu et de leurs abonnements
+     */
+    SortedMap<Utilisateur, Set<Utilisateur>> tranche(Utilisateur debut, Utilisateur fin) {
+        if (debut == null) {
+            return fin == null ? utilisateurs : utilisateurs.headMap(fin, false);
+        }
+        return fin == null ? utilisateurs.tailMap(debut, true) : utilisateurs.subMap(debut, true, fin, false);
+    }
+
     /**
      * Ajoute un nouvel utilisateur au réseau.
      *
@@ -43,8 +191,55 @@ public class CivixNet {
      * @throws IllegalArgumentException si le nom ou le mot de passe est invalide
      */
     public void ajouterUtilisateur(String username, String password) {
-        // TODO: Compléter cette méthode
-        utilisateurs.put(new Utilisateur(username, password), new HashSet<>());
+        Utilisateur nouveau = new Utilisateur(username);
+        identifiants.ajouter(username, password);
+        inscrire(nouveau);
+    }
+
+    /**
+     * Ajoute un utilisateur relu par un chargement, dont le mot de passe peut être l'empreinte
+     * encodée écrite par les exports (voir {@link MagasinIdentifiants#importer(String, String)}).
+     *
+     * @param username le nom d'utilisateur
+     * @param password le mot de passe associé, ou son empreinte encodée
+     * @throws IllegalArgumentException si le nom, le mot de passe ou l'empreinte est invalide
+     */
+    void importerUtilisateur(String username, String password) {
+        Utilisateur nouveau = new Utilisateur(username);
+        identifiants.importer(username, password);
+        inscrire(nouveau);
+    }
+
+    /**
+     * Ajoute un utilisateur au graphe, ses identifiants étant déjà dans le magasin. Si le nom est
+     * déjà pris, l'utilisateur existant est conservé et ses abonnements sont vidés.
+     *
+     * @param nouveau l'utilisateur à ajouter
+     */
+    void inscrire(Utilisateur nouveau) {
+        nouveau.marquerInscrit();
+        Set<Utilisateur> abonnementsVides = new HashSet<>();
+        Set<Utilisateur> anciensAbonnements = utilisateurs.put(nouveau, abonnementsVides);
+        // le TreeMap conserve la clé existante si le nom est déjà pris, l'index doit faire de même
+        index.putIfAbsent(nouveau.cle(), nouveau);
+        suivis.put(nouveau.cle(), abonnementsVides);
+
+        if (anciensAbonnements == null) {
+            abonnes.put(nouveau.cle(), new HashSet<>());
+            for (EcouteurReseau ecouteur : ecouteurs) {
+                ecouteur.utilisateurAjoute(nouveau);
+            }
+        } else {
+            // l'utilisateur existant repart sans abonnements : il n'est plus abonné de personne
+            Utilisateur existant = index.get(nouveau.cle());
+            for (Utilisateur suivi : anciensAbonnements) {
+                abonnes.get(suivi.cle()).remove(existant);
+                for (EcouteurReseau ecouteur : ecouteurs) {
+                    ecouteur.abonnementRetire(existant, suivi);
+                }
+            }
+        }
+        finLot();
     }
 
     /**
@@ -52,9 +247,11 @@ public class CivixNet {
      *
      * @param compte           l'utilisateur qui souhaite suivre
      * @param nouvelAbonnement l'utilisateur à suivre
+     * @throws RuntimeException si l'utilisateur à suivre n'existe pas
      */
     public void ajouterAbonnement(Utilisateur compte, Utilisateur nouvelAbonnement) {
-        utilisateurs.get(compte).add(nouvelAbonnement);
+        lier(compte, suivis.get(compte.cle()), nouvelAbonnement);
+        finLot();
     }
 
     /**
@@ -64,7 +261,8 @@ public class CivixNet {
      * @param abonnementARetirer l'utilisateur à ne plus suivre
      */
     public void retirerAbonnement(Utilisateur compte, Utilisateur abonnementARetirer) {
-        utilisateurs.get(compte).remove(abonnementARetirer);
+        retirerAbonnement(compte, suivis.get(compte.cle()), abonnementARetirer);
+        finLot();
     }
 
     /**
@@ -74,8 +272,13 @@ public class CivixNet {
      * @param nouveauxAbonnements la liste des nouveaux abonnements
      */
     public void ajouterAbonnements(Utilisateur compte, List<Utilisateur> nouveauxAbonnements) {
-        for (Utilisateur u : nouveauxAbonnements) {
-           ajouterAbonnement(compte, u);
+        Set<Utilisateur> abonnementsCompte = suivis.get(compte.cle());
+        try {
+            for (Utilisateur u : nouveauxAbonnements) {
+                lier(compte, abonnementsCompte, u);
+            }
+        } finally {
+            finLot();
         }
     }
 
@@ -86,9 +289,169 @@ public class CivixNet {
      * @param abonnementsARetirer la liste des abonnements à supprimer
      */
     public void retirerAbonnements(Utilisateur compte, List<Utilisateur> abonnementsARetirer) {
-        for (Utilisateur u : abonnementsARetirer) {
-            utilisateurs.get(compte).remove(u);
+        Set<Utilisateur> abonnementsCompte = suivis.get(compte.cle());
+        try {
+            for (Utilisateur u : abonnementsARetirer) {
+                retirerAbonnement(compte, abonnementsCompte, u);
+            }
+        } finally {
+            finLot();
+        }
+    }
+
+    /**
+     * Abonne un utilisateur à un autre et avertit les écouteurs si l'abonnement est nouveau,
+     * sans terminer le lot.
+     *
+     * @param compte            l'utilisateur qui souhaite suivre
+     * @param abonnementsCompte l'ensemble des abonnements de ce compte
+     * @param nouvelAbonnement  l'utilisateur à suivre
+     * @return {@code true} si l'abonnement est nouveau
+     * @throws RuntimeException si l'utilisateur à suivre n'existe pas
+     */
+    private boolean lier(Utilisateur compte, Set<Utilisateur> abonnementsCompte, Utilisateur nouvelAbonnement) {
+        Set<Utilisateur> abonnesCible = abonnes.get(nouvelAbonnement.cle());
+        if (abonnesCible == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        if (!abonnementsCompte.add(nouvelAbonnement)) {
+            return false;
+        }
+        abonnesCible.add(compte);
+        for (EcouteurReseau ecouteur : ecouteurs) {
+            ecouteur.abonnementAjoute(compte, nouvelAbonnement);
+        }
+        return true;
+    }
+
+    /**
+     * Retire un abonnement de l'ensemble des abonnements d'un compte et met à jour l'index des abonnés.
+     *
+     * @param compte             l'utilisateur qui arrête de suivre
+     * @param abonnementsCompte  l'ensemble des abonnements de ce compte
+     * @param abonnementARetirer l'utilisateur à ne plus suivre
+     * @return {@code true} si l'abonnement existait
+     */
+    private boolean retirerAbonnement(Utilisateur compte, Set<Utilisateur> abonnementsCompte, Utilisateur abonnementARetirer) {
+        if (!abonnementsCompte.remove(abonnementARetirer)) {
+            return false;
+        }
+        abonnes.get(abonnementARetirer.cle()).remove(compte);
+        for (EcouteurReseau ecouteur : ecouteurs) {
+            ecouteur.abonnementRetire(compte, abonnementARetirer);
+        }
+        return true;
+    }
+
+    /**
+     * Applique un lot d'ajouts et de retraits d'abonnements en une seule opération.
+     * <p>
+     * Les abonnés sont traités en ordre alphabétique, et pour chacun les comptes suivis aussi :
+     * chaque utilisateur n'est recherché qu'une fois dans le réseau, et l'ensemble de ses abonnements
+     * une seule fois. Une opération qui désigne un utilisateur inexistant est rejetée sans interrompre
+     * le lot. Les écouteurs reçoivent un seul {@link EcouteurReseau#finLot()} pour tout le lot, ce qui
+     * permet par exemple au {@link JournalMutations} de l'écrire en un seul bloc, forcé une seule fois.
+     * </p>
+     *
+     * @param lot le lot à appliquer
+     * @return le bilan des opérations du lot
+     */
+    public BilanLot appliquerLot(LotMutations lot) {
+        Map<String, Map<String, Boolean>> operations = lot.operations();
+        String[] nomsAbonnes = operations.keySet().toArray(new String[0]);
+        Arrays.sort(nomsAbonnes);
+
+        MesuresReseau m = mesures;
+        long debut = m == null ? 0 : m.debut();
+        long appliquees = 0;
+        long sansEffet = 0;
+        long rejetees = 0;
+        try {
+            for (String nomAbonne : nomsAbonnes) {
+                Map<String, Boolean> operationsAbonne = operations.get(nomAbonne);
+                Utilisateur compte = index.get(nomAbonne);
+                if (compte == null) {
+                    rejetees += operationsAbonne.size();
+                    continue;
+                }
+                Set<Utilisateur> abonnementsCompte = suivis.get(nomAbonne);
+                String[] nomsSuivis = operationsAbonne.keySet().toArray(new String[0]);
+                Arrays.sort(nomsSuivis);
+                for (String nomSuivi : nomsSuivis) {
+                    Utilisateur suivi = index.get(nomSuivi);
+                    boolean effet;
+                    if (suivi == null) {
+                        rejetees++;
+                        continue;
+                    } else if (operationsAbonne.get(nomSuivi)) {
+                        effet = lier(compte, abonnementsCompte, suivi);
+                    } else {
+                        effet = retirerAbonnement(compte, abonnementsCompte, suivi);
+                    }
+                    if (effet) {
+                        appliquees++;
+                    } else {
+                        sansEffet++;
+                    }
+                }
+            }
+        } finally {
+            finLot();
+            if (m != null) {
+                m.fin(OperationMesuree.APPLICATION_LOT, debut);
+            }
+        }
+        return new BilanLot(appliquees, sansEffet, rejetees, lot.nombreDoublons());
+    }
+
+    /**
+     * Avertit les écouteurs de la fin d'une opération de modification.
+     */
+    private void finLot() {
+        for (EcouteurReseau ecouteur : ecouteurs) {
+            ecouteur.finLot();
+        }
+    }
+
+    /**
+     * Retourne les abonnements d'un utilisateur, c'est-à-dire les utilisateurs qu'il suit.
+     *
+     * @param u l'utilisateur
+     * @return une vue non modifiable de ses abonnements
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public Set<Utilisateur> obtenirAbonnements(Utilisateur u) {
+        Set<Utilisateur> abonnementsU = suivis.get(u.cle());
+        if (abonnementsU == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return Collections.unmodifiableSet(abonnementsU);
+    }
+
+    /**
+     * Retourne les abonnés d'un utilisateur, c'est-à-dire les utilisateurs qui le suivent.
+     *
+     * @param u l'utilisateur
+     * @return une vue non modifiable de ses abonnés
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public Set<Utilisateur> obtenirAbonnes(Utilisateur u) {
+        Set<Utilisateur> abonnesU = abonnes.get(u.cle());
+        if (abonnesU == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
         }
+        return Collections.unmodifiableSet(abonnesU);
+    }
+
+    /**
+     * Retourne le nombre d'abonnés d'un utilisateur.
+     *
+     * @param u l'utilisateur
+     * @return le nombre d'utilisateurs qui le suivent
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public int nombreAbonnes(Utilisateur u) {
+        return obtenirAbonnes(u).size();
     }
 
     /**
@@ -99,18 +462,39 @@ public class CivixNet {
      * @throws RuntimeException si l'utilisateur n'existe pas
      */
     public Utilisateur obtenirUtilisateurAPartirDuUsername(String username) throws RuntimeException{
+        return chercherUtilisateur(username)
+                .orElseThrow(() -> new RuntimeException("L'utilisateur n'existe pas"));
+    }
 
-        Utilisateur uARechercher = new Utilisateur(username, "PassWordVal1de");
-        Utilisateur temp = null;
-        Iterator<Utilisateur> iter = utilisateurs.keySet().iterator();
-        while (iter.hasNext()) {
-            temp = iter.next();
-            if (temp.compareTo(uARechercher) == 0) {
-                return temp;
-            }
+    /**
+     * Recherche un utilisateur dans le réseau à partir de son nom, sans lancer d'exception.
+     * La recherche est insensible à la casse, comme {@link Utilisateur#compareTo(Utilisateur)}.
+     *
+     * @param username le nom d'utilisateur recherché
+     * @return l'utilisateur correspondant, ou {@link Optional#empty()} s'il n'existe pas
+     */
+    public Optional<Utilisateur> chercherUtilisateur(String username) {
+        if (username == null) {
+            return Optional.empty();
         }
-        throw new RuntimeException("L'utilisateur n'existe pas");
+        MesuresReseau m = mesures;
+        if (m == null) {
+            return Optional.ofNullable(index.get(normaliser(username)));
+        }
+        long debut = m.debut();
+        Utilisateur u = index.get(normaliser(username));
+        m.fin(OperationMesuree.RECHERCHE, debut);
+        return Optional.ofNullable(u);
+    }
 
+    /**
+     * Normalise un nom d'utilisateur pour servir de clé dans l'index.
+     *
+     * @param username le nom d'utilisateur
+     * @return le nom en minuscules
+     */
+    static String normaliser(String username) {
+        return username.toLowerCase();
     }
 
     /**
@@ -121,12 +505,12 @@ public class CivixNet {
      * @return {@code true} si u1 suit u2, sinon {@code false}
      */
     public boolean abonnementMutuel(Utilisateur u1, Utilisateur u2) {
-        return (utilisateurs.get(u1).contains(u2) && utilisateurs.get(u2).contains(u1));
+        return (suivis.get(u1.cle()).contains(u2) && suivis.get(u2.cle()).contains(u1));
     }
 
     /**
      * Retourne la liste des utilisateurs affectés par une fausse information initiée par un utilisateur donné,
-     * à l'aide d'une approche récursive. Cette méthode appelle la méthode privée propagerRecursive.
+     * niveau par niveau. Cette méthode appelle la méthode privée propagerParNiveaux.
      *
      * La propagation se fait jusqu'à deux niveaux de connexions :
      * - niveau 0 : l'utilisateur initial
@@ -139,77 +523,420 @@ public class CivixNet {
      * @return une liste triée en ordre alphabétique inverse des utilisateurs affectés sans doublons
      */
     public ArrayList<Utilisateur> propagationFausseInformationRecursive(String username) {
+        return propagationFausseInformationRecursive(username, 2);
+    }
 
-       Set<Utilisateur> affectesCourant = new HashSet<Utilisateur>();
-
-       Set<Utilisateur> affectes = new HashSet<Utilisateur>();
+    /**
+     * Retourne la liste des utilisateurs affectés par une fausse information, jusqu'à une profondeur donnée.
+     * <p>
+     * Chaque niveau n'explore que les utilisateurs atteints au niveau précédent (la frontière) :
+     * un utilisateur déjà affecté n'est jamais développé deux fois. Pour les grands réseaux,
+     * voir {@link MoteurPropagation}, qui fait le même parcours en parallèle sur un {@link GrapheCompact}.
+     * </p>
+     *
+     * @param username   le nom d'utilisateur de la personne ayant lancé la fausse information
+     * @param profondeur le nombre maximal de niveaux de propagation (0 pour l'utilisateur seul)
+     * @return une liste triée en ordre alphabétique inverse des utilisateurs affectés sans doublons
+     * @throws IllegalArgumentException si la profondeur est négative
+     */
+    public ArrayList<Utilisateur> propagationFausseInformationRecursive(String username, int profondeur) {
+        return propager(username, profondeur, u -> suivis.get(u.cle()));
+    }
 
-        ArrayList<Utilisateur> affectesList = new ArrayList<Utilisateur>();
+    /**
+     * Retourne la liste des utilisateurs atteints par une fausse information qui se propage
+     * aux abonnés, c'est-à-dire aux utilisateurs qui suivent la source, puis à leurs propres abonnés.
+     * <p>
+     * Les abonnés sont lus dans l'index inverse : le coût est proportionnel au nombre
+     * d'abonnés visités, et non à la taille du réseau.
+     * </p>
+     *
+     * @param username le nom d'utilisateur de la personne ayant lancé la fausse information
+     * @return une liste triée en ordre alphabétique inverse des utilisateurs atteints sans doublons
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public ArrayList<Utilisateur> propagationAuxAbonnes(String username) {
+        return propager(username, 2, u -> abonnes.get(u.cle()));
+    }
 
-        affectes.add(obtenirUtilisateurAPartirDuUsername(username));
+    /**
+     * Propage une fausse information en suivant les liens donnés.
+     *
+     * @param username   le nom d'utilisateur de la source
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @param liens      les liens à suivre depuis un utilisateur (abonnements ou abonnés)
+     * @return une liste triée en ordre alphabétique inverse des utilisateurs affectés sans doublons
+     */
+    private ArrayList<Utilisateur> propager(String username, int profondeur, Function<Utilisateur, Set<Utilisateur>> liens) {
+        ArrayList<Utilisateur> affectesList = new ArrayList<Utilisateur>(affectes(username, profondeur, liens));
+        affectesList.sort(Collections.reverseOrder());
+        return affectesList;
+    }
 
-        for (int i = 0; i < 2; i++) {
+    /**
+     * Retourne les premiers utilisateurs affectés par une fausse information, en ordre alphabétique inverse,
+     * sans trier l'ensemble des affectés : seuls les {@code k} premiers sont conservés dans un tas,
+     * soit un coût en O(n log k) pour n utilisateurs affectés.
+     *
+     * @param username   le nom d'utilisateur de la personne ayant lancé la fausse information
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @param k          le nombre maximal d'utilisateurs retournés
+     * @return au plus {@code k} utilisateurs affectés, en ordre alphabétique inverse
+     * @throws IllegalArgumentException si {@code k} ou la profondeur est négatif
+     */
+    public List<Utilisateur> propagationFausseInformationTopK(String username, int profondeur, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Le nombre de résultats doit être positif.");
+        }
+        Set<Utilisateur> affectes = affectes(username, profondeur, u -> suivis.get(u.cle()));
+        // tas min : sa racine est le plus petit des k plus grands noms vus jusqu'ici
+        PriorityQueue<Utilisateur> meilleurs = new PriorityQueue<Utilisateur>(Math.max(1, Math.min(k, affectes.size())));
+        for (Utilisateur u : affectes) {
+            if (meilleurs.size() < k) {
+                meilleurs.add(u);
+            } else if (k > 0 && u.compareTo(meilleurs.peek()) > 0) {
+                meilleurs.poll();
+                meilleurs.add(u);
+            }
+        }
+        ArrayList<Utilisateur> resultat = new ArrayList<Utilisateur>(meilleurs);
+        resultat.sort(Collections.reverseOrder());
+        return resultat;
+    }
 
-                for(Utilisateur u : affectes) {
-                    propagerRecursive(u, i, 2,affectesCourant);
-                }
-                affectes.addAll(affectesCourant);
-                affectesCourant.clear();
+    /**
+     * Retourne une page des utilisateurs affectés par une fausse information, en ordre alphabétique inverse.
+     *
+     * @param username   le nom d'utilisateur de la personne ayant lancé la fausse information
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @param page       le numéro de la page, à partir de 0
+     * @param taille     le nombre d'utilisateurs par page
+     * @return les utilisateurs de la page demandée (vide au-delà de la dernière page)
+     * @throws IllegalArgumentException si la page ou la taille est négative
+     */
+    public List<Utilisateur> propagationFausseInformationPage(String username, int profondeur, int page, int taille) {
+        if (page < 0 || taille < 0) {
+            throw new IllegalArgumentException("La page et sa taille doivent être positives.");
         }
+        int debut = (int) Math.min(Integer.MAX_VALUE, (long) page * taille);
+        int fin = (int) Math.min(Integer.MAX_VALUE, (long) debut + taille);
+        List<Utilisateur> premiers = propagationFausseInformationTopK(username, profondeur, fin);
+        return premiers.subList(Math.min(debut, premiers.size()), premiers.size());
+    }
 
+    /**
+     * Retourne les utilisateurs affectés par une fausse information sous forme de flux paresseux,
+     * en ordre alphabétique inverse. Le tri n'est pas fait d'avance : un tas est construit en
+     * temps linéaire en tamisant ses nœuds internes de bas en haut, puis chaque élément consommé
+     * coûte O(log n).
+     *
+     * @param username   le nom d'utilisateur de la personne ayant lancé la fausse information
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @return un flux ordonné des utilisateurs affectés
+     */
+    public Stream<Utilisateur> propagationFausseInformationStream(String username, int profondeur) {
+        Set<Utilisateur> affectes = affectes(username, profondeur, u -> suivis.get(u.cle()));
+        Utilisateur[] tas = affectes.toArray(new Utilisateur[0]);
+        for (int i = tas.length / 2 - 1; i >= 0; i--) {
+            tamiser(tas, i, tas.length);
+        }
+        Iterator<Utilisateur> iterateur = new Iterator<Utilisateur>() {
+            private int restants = tas.length;
 
+            @Override
+            public boolean hasNext() {
+                return restants > 0;
+            }
 
-        affectesList.addAll(affectes);
+            @Override
+            public Utilisateur next() {
+                if (restants == 0) {
+                    throw new NoSuchElementException();
+                }
+                Utilisateur premier = tas[0];
+                restants--;
+                tas[0] = tas[restants];
+                tas[restants] = null;
+                tamiser(tas, 0, restants);
+                return premier;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(iterateur, affectes.size(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
 
-        affectesList.sort(null);
+    /**
+     * Fait descendre un élément d'un tas dont la racine est le plus grand utilisateur, jusqu'à ce
+     * qu'il soit plus grand que ses deux enfants.
+     *
+     * @param tas    le tas, rangé dans un tableau
+     * @param i      la position de l'élément à descendre
+     * @param taille le nombre d'éléments du tas
+     */
+    private static void tamiser(Utilisateur[] tas, int i, int taille) {
+        Utilisateur element = tas[i];
+        int enfant;
+        while ((enfant = 2 * i + 1) < taille) {
+            if (enfant + 1 < taille && tas[enfant + 1].compareTo(tas[enfant]) > 0) {
+                enfant++;
+            }
+            if (tas[enfant].compareTo(element) <= 0) {
+                break;
+            }
+            tas[i] = tas[enfant];
+            i = enfant;
+        }
+        tas[i] = element;
+    }
 
-        Collections.reverse(affectesList);
+    /**
+     * Calcule l'ensemble des utilisateurs affectés par une fausse information, sans les trier.
+     *
+     * @param username   le nom d'utilisateur de la source
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @param liens      les liens à suivre depuis un utilisateur (abonnements ou abonnés)
+     * @return l'ensemble des utilisateurs affectés, source comprise
+     */
+    private Set<Utilisateur> affectes(String username, int profondeur, Function<Utilisateur, Set<Utilisateur>> liens) {
+        if (profondeur < 0) {
+            throw new IllegalArgumentException("La profondeur de propagation doit être positive.");
+        }
+        MesuresReseau m = mesures;
+        long debut = m == null ? 0 : m.debut();
+        Utilisateur source = obtenirUtilisateurAPartirDuUsername(username);
 
-        return affectesList;
+        Set<Utilisateur> affectes = new HashSet<Utilisateur>();
+        affectes.add(source);
+        propagerParNiveaux(source, profondeur, affectes, liens);
+        if (m != null) {
+            m.fin(OperationMesuree.PROPAGATION, debut);
+        }
+        return affectes;
     }
 
     /**
-     * Méthode auxiliaire récursive qui propage la fausse information dans le réseau.
+     * Méthode auxiliaire qui propage la fausse information dans le réseau, un niveau par tour de boucle.
+     * Elle est itérative : une grande profondeur ne consomme pas la pile d'appels.
      *
-     * @param courant   l'utilisateur actuellement traité dans la récursion
-     * @param niveau    niveau actuel de la récursion (0 pour l'utilisateur initial)
+     * @param source    l'utilisateur initial (niveau 0)
      * @param maxNiveau niveau maximal de propagation autorisé (ex. : 2)
      * @param affectes  ensemble cumulatif des utilisateurs affectés par la propagation
+     * @param liens     les liens à suivre depuis un utilisateur (abonnements ou abonnés)
      */
-    private void propagerRecursive(Utilisateur courant, int niveau, int maxNiveau, Set<Utilisateur> affectes) {
-        // TODO: Compléter cette méthode
-        if (niveau < maxNiveau) {
-           affectes.addAll(utilisateurs.get(courant));
+    private void propagerParNiveaux(Utilisateur source, int maxNiveau, Set<Utilisateur> affectes,
+                                    Function<Utilisateur, Set<Utilisateur>> liens) {
+        Set<Utilisateur> frontiere = Set.of(source);
+        for (int niveau = 0; niveau < maxNiveau && !frontiere.isEmpty(); niveau++) {
+            Set<Utilisateur> suivante = new HashSet<Utilisateur>();
+            for (Utilisateur courant : frontiere) {
+                for (Utilisateur voisin : liens.apply(courant)) {
+                    if (affectes.add(voisin)) {
+                        suivante.add(voisin);
+                    }
+                }
+            }
+            if (mesures != null && !suivante.isEmpty()) {
+                mesures.enregistrerFrontiere(suivante.size());
+            }
+            frontiere = suivante;
         }
     }
 
+    /**
+     * Extrait le voisinage d'un utilisateur : un nouveau réseau formé des utilisateurs atteints en au plus
+     * {@code sauts} liens dans une direction, et de tous les abonnements entre eux.
+     * <p>
+     * Le parcours se fait niveau par niveau comme la propagation, mais le nombre d'utilisateurs retenus est
+     * borné par {@code maxNoeuds}. Chaque utilisateur de la frontière reçoit une part égale du budget restant;
+     * les utilisateurs de plus faible degré passent en premier, et ce qu'ils n'utilisent pas revient aux suivants.
+     * Un utilisateur qui a plus de voisins que sa part (un « hub ») n'est pas parcouru en entier : seuls
+     * quelques fois sa part de ses voisins sont examinés, et ceux de plus fort degré sont retenus. Le coût
+     * de l'extraction dépend ainsi du budget, et non du degré des hubs.
+     * </p>
+     * <p>
+     * Comme avec {@link #copie()}, les utilisateurs du sous-réseau sont de nouveaux objets {@link Utilisateur} :
+     * modifier le sous-réseau ne modifie pas ce réseau.
+     * </p>
+     *
+     * @param username  le nom d'utilisateur de départ, toujours retenu
+     * @param sauts     le nombre maximal de liens depuis l'utilisateur de départ
+     * @param direction le sens des liens suivis
+     * @param maxNoeuds le nombre maximal d'utilisateurs du sous-réseau
+     * @return le sous-réseau
+     * @throws RuntimeException         si l'utilisateur n'existe pas
+     * @throws IllegalArgumentException si le nombre de sauts est négatif ou si {@code maxNoeuds} est inférieur à 1
+     */
+    public CivixNet extraireSousReseau(String username, int sauts, Direction direction, int maxNoeuds) {
+        if (sauts < 0) {
+            throw new IllegalArgumentException("Le nombre de sauts doit être positif.");
+        }
+        if (maxNoeuds < 1) {
+            throw new IllegalArgumentException("Le sous-réseau doit contenir au moins un utilisateur.");
+        }
+        MesuresReseau m = mesures;
+        long debut = m == null ? 0 : m.debut();
+        Utilisateur source = obtenirUtilisateurAPartirDuUsername(username);
+        Map<String, Set<Utilisateur>> liens = direction == Direction.ABONNEMENTS ? suivis : abonnes;
+
+        Set<Utilisateur> retenus = new LinkedHashSet<Utilisateur>();
+        retenus.add(source);
+        List<Utilisateur> frontiere = List.of(source);
+        for (int niveau = 0; niveau < sauts && !frontiere.isEmpty() && retenus.size() < maxNoeuds; niveau++) {
+            List<Utilisateur> parDegre = new ArrayList<Utilisateur>(frontiere);
+            parDegre.sort(Comparator.comparingInt(u -> liens.get(u.cle()).size()));
+            List<Utilisateur> suivante = new ArrayList<Utilisateur>();
+            for (int k = 0; k < parDegre.size() && retenus.size() < maxNoeuds; k++) {
+                int restants = parDegre.size() - k;
+                int part = (maxNoeuds - retenus.size() + restants - 1) / restants;
+                for (Utilisateur voisin : echantillonner(liens.get(parDegre.get(k).cle()), part, liens, retenus)) {
+                    if (retenus.add(voisin)) {
+                        suivante.add(voisin);
+                    }
+                }
+            }
+            frontiere = suivante;
+        }
+
+        CivixNet sousReseau = new CivixNet(new MagasinIdentifiants(identifiants.getIterations(),
+                MagasinIdentifiants.TAILLE_CACHE_PAR_DEFAUT));
+        for (Utilisateur u : retenus) {
+            sousReseau.identifiants.copierDepuis(identifiants, u.getUsername());
+            sousReseau.inscrire(new Utilisateur(u.getUsername()));
+        }
+        for (Utilisateur u : retenus) {
+            Utilisateur compte = sousReseau.index.get(u.cle());
+            Set<Utilisateur> abonnementsCompte = sousReseau.suivis.get(compte.cle());
+            Set<Utilisateur> abonnementsU = suivis.get(u.cle());
+            // on parcourt le plus petit des deux ensembles
+            for (Utilisateur suivi : abonnementsU.size() <= retenus.size() ? abonnementsU : retenus) {
+                if (retenus.contains(suivi) && abonnementsU.contains(suivi)) {
+                    sousReseau.lier(compte, abonnementsCompte, sousReseau.index.get(suivi.cle()));
+                }
+            }
+        }
+        if (m != null) {
+            m.fin(OperationMesuree.EXTRACTION, debut);
+        }
+        return sousReseau;
+    }
+
+    /**
+     * Choisit au plus {@code part} voisins pas encore retenus. Si les voisins sont trop nombreux,
+     * seuls les premiers {@link #BALAYAGE_HUB} fois {@code part} sont examinés, et ceux de plus fort degré gardés.
+     *
+     * @param voisins  les voisins d'un utilisateur de la frontière
+     * @param part     le nombre maximal de voisins choisis
+     * @param liens    les liens suivis, pour le degré des voisins
+     * @param retenus  les utilisateurs déjà retenus
+     * @return les voisins choisis
+     */
+    private static List<Utilisateur> echantillonner(Set<Utilisateur> voisins, int part, Map<String, Set<Utilisateur>> liens,
+                                                    Set<Utilisateur> retenus) {
+        if (voisins.size() <= part) {
+            return new ArrayList<Utilisateur>(voisins);
+        }
+        // tas min : sa racine est le voisin de plus faible degré parmi les meilleurs gardés
+        PriorityQueue<Utilisateur> meilleurs = new PriorityQueue<Utilisateur>(part + 1,
+                Comparator.comparingInt(v -> liens.get(v.cle()).size()));
+        long examinables = (long) BALAYAGE_HUB * part;
+        for (Utilisateur voisin : voisins) {
+            if (examinables-- == 0) {
+                break;
+            }
+            if (!retenus.contains(voisin)) {
+                meilleurs.add(voisin);
+                if (meilleurs.size() > part) {
+                    meilleurs.poll();
+                }
+            }
+        }
+        return new ArrayList<Utilisateur>(meilleurs);
+    }
+
 
     /**
      * Retourne une représentation textuelle du réseau.
+     * Pour un grand réseau, préférer {@link #ecrire(Appendable, int, int)}, qui écrit au fil de l'eau.
      *
      * @return une chaîne de caractères listant les utilisateurs et leurs abonnements
      */
     @Override
     public String toString() {
-        // TODO: Compléter cette méthode
-        String str = "=== Réseau CivixNet ===\n";
-
-        int compteur = 0;
-
-        for(Map.Entry<Utilisateur, Set<Utilisateur>> u : utilisateurs.entrySet()) {
-            compteur = 0;
-            str += u.getKey().getUsername() + " suit : ";
-            if (u.getValue().isEmpty()){
-                str += "aucun";
-            }else for (Utilisateur following : u.getValue()) {
-                compteur +=1;
-                str += following.getUsername();
-                 if (u.getValue().size() != compteur){
-                    str += ", ";
+        StringBuilder str = new StringBuilder();
+        try {
+            ecrire(str, SANS_LIMITE, SANS_LIMITE);
+        } catch (IOException e) {
+            // un StringBuilder ne lance jamais d'IOException
+            throw new UncheckedIOException(e);
+        }
+        return str.toString();
+    }
+
+    /**
+     * Écrit la liste des utilisateurs et de leurs abonnements, au même format que {@link #toString()},
+     * directement dans une sortie. Le temps est linéaire dans la taille de la sortie et la mémoire
+     * supplémentaire est constante.
+     * <p>
+     * Les limites permettent d'échantillonner un grand réseau : au-delà de {@code maxUtilisateurs}
+     * utilisateurs, ou de {@code maxAbonnementsParUtilisateur} abonnements pour un utilisateur,
+     * la liste est coupée et se termine par le nombre d'éléments omis, par exemple
+     * {@code "alice suit : bob, clara, ... (+12)"}.
+     * </p>
+     *
+     * @param sortie                       la sortie où écrire (un {@link Writer}, un {@link StringBuilder}, ...)
+     * @param maxUtilisateurs              le nombre maximal d'utilisateurs écrits, ou {@link #SANS_LIMITE}
+     * @param maxAbonnementsParUtilisateur le nombre maximal d'abonnements écrits par utilisateur, ou {@link #SANS_LIMITE}
+     * @throws IOException              si une erreur d'écriture survient
+     * @throws IllegalArgumentException si une limite est négative
+     */
+    public void ecrire(Appendable sortie, int maxUtilisateurs, int maxAbonnementsParUtilisateur) throws IOException {
+        if (maxUtilisateurs < 0 || maxAbonnementsParUtilisateur < 0) {
+            throw new IllegalArgumentException("Les limites d'écriture doivent être positives.");
+        }
+        sortie.append("=== Réseau CivixNet ===\n");
+
+        int ecrits = 0;
+        for (Map.Entry<Utilisateur, Set<Utilisateur>> u : utilisateurs.entrySet()) {
+            if (ecrits == maxUtilisateurs) {
+                sortie.append("... (+").append(String.valueOf(utilisateurs.size() - ecrits)).append(" utilisateurs)\n");
+                return;
+            }
+            ecrits++;
+            sortie.append(u.getKey().getUsername()).append(" suit : ");
+            Set<Utilisateur> abonnements = u.getValue();
+            if (abonnements.isEmpty()) {
+                sortie.append("aucun");
+            }
+            int compteur = 0;
+            for (Utilisateur following : abonnements) {
+                if (compteur == maxAbonnementsParUtilisateur) {
+                    // pas de séparateur si aucun abonnement n'a été écrit (limite à 0)
+                    sortie.append(compteur > 0 ? ", ... (+" : "... (+")
+                            .append(String.valueOf(abonnements.size() - compteur)).append(')');
+                    break;
                 }
+                if (compteur > 0) {
+                    sortie.append(", ");
+                }
+                sortie.append(following.getUsername());
+                compteur++;
             }
-            str += "\n";
+            sortie.append('\n');
+        }
+    }
+
+    /**
+     * Exporte la liste des utilisateurs et de leurs abonnements dans un fichier texte UTF-8,
+     * par une écriture tamponnée (voir {@link #ecrire(Appendable, int, int)}).
+     *
+     * @param fichier                      le fichier à écrire (remplacé s'il existe)
+     * @param maxUtilisateurs              le nombre maximal d'utilisateurs écrits, ou {@link #SANS_LIMITE}
+     * @param maxAbonnementsParUtilisateur le nombre maximal d'abonnements écrits par utilisateur, ou {@link #SANS_LIMITE}
+     * @throws IOException si une erreur d'écriture survient
+     */
+    public void exporterTexte(Path fichier, int maxUtilisateurs, int maxAbonnementsParUtilisateur) throws IOException {
+        try (Writer sortie = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            ecrire(sortie, maxUtilisateurs, maxAbonnementsParUtilisateur);
         }
-        return str;
     }
 }
@@ -0,0 +1,325 @@
+package reseau;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * La classe {@code CivixNetConcurrent} est une version de {@link CivixNet} utilisable
+ * par plusieurs fils d'exécution à la fois, sans verrou global.
+ * <p>
+ * Les utilisateurs sont inscrits dans une {@link ConcurrentHashMap}. Chaque utilisateur possède
+ * son propre verrou, pris seulement pour modifier ses abonnements : deux fils qui modifient les
+ * abonnements de deux utilisateurs différents ne s'attendent jamais.
+ * </p>
+ * <p>
+ * Les abonnements et les abonnés d'un utilisateur sont gardés dans des ensembles concurrents,
+ * mis à jour en temps constant sans copie. Les lecteurs ({@link #abonnementMutuel}, la
+ * propagation) les lisent sans verrou et leur parcours est faiblement cohérent. Seuls
+ * {@link #obtenirAbonnements} et {@link #copier} copient les abonnements d'un utilisateur, sous
+ * son verrou, pour en donner un instantané cohérent.
+ * </p>
+ */
+public class CivixNetConcurrent {
+
+    /**
+     * L'état d'un utilisateur dans le réseau.
+     */
+    private static final class Noeud {
+        final Utilisateur utilisateur;
+
+        /**
+         * Les comptes suivis, modifiés sous le verrou du noeud.
+         */
+        final Set<Utilisateur> abonnements = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Les comptes qui suivent cet utilisateur.
+         */
+        final Set<Utilisateur> abonnes = ConcurrentHashMap.newKeySet();
+
+        Noeud(Utilisateur utilisateur) {
+            this.utilisateur = utilisateur;
+        }
+    }
+
+    /**
+     * Les noeuds du réseau, indexés par nom d'utilisateur normalisé.
+     */
+    private final ConcurrentHashMap<String, Noeud> noeuds;
+
+    /**
+     * Les mots de passe des utilisateurs, gardés à part des noeuds.
+     */
+    private final MagasinIdentifiants identifiants;
+
+    /**
+     * Constructeur par défaut. Initialise un réseau vide, dont les mots de passe sont hachés
+     * avec le facteur de travail par défaut.
+     */
+    public CivixNetConcurrent() {
+        this(new MagasinIdentifiants());
+    }
+
+    /**
+     * Initialise un réseau vide dont les mots de passe sont gardés par le magasin donné,
+     * pour en régler le facteur de travail et le cache.
+     *
+     * @param identifiants le magasin des mots de passe
+     */
+    public CivixNetConcurrent(MagasinIdentifiants identifiants) {
+        this.noeuds = new ConcurrentHashMap<>();
+        this.identifiants = Objects.requireNonNull(identifiants);
+    }
+
+    /**
+     * Retourne le magasin des mots de passe du réseau, pour authentifier ses utilisateurs.
+     *
+     * @return le magasin des identifiants
+     */
+    public MagasinIdentifiants identifiants() {
+        return identifiants;
+    }
+
+    /**
+     * Ajoute un nouvel utilisateur au réseau. Si le nom est déjà pris, l'utilisateur existant
+     * est conservé et ses abonnements sont vidés, comme dans {@link CivixNet#ajouterUtilisateur}.
+     *
+     * @param username le nom d'utilisateur
+     * @param password le mot de passe associé
+     * @throws IllegalArgumentException si le nom ou le mot de passe est invalide
+     */
+    public void ajouterUtilisateur(String username, String password) {
+        Utilisateur nouveau = new Utilisateur(username);
+        nouveau.marquerInscrit();
+        identifiants.ajouter(username, password);
+        Noeud noeud = noeuds.computeIfAbsent(nouveau.cle(), cle -> new Noeud(nouveau));
+        if (noeud.utilisateur != nouveau) {
+            synchronized (noeud) {
+                for (Utilisateur suivi : noeud.abonnements) {
+                    noeud(suivi).abonnes.remove(noeud.utilisateur);
+                }
+                noeud.abonnements.clear();
+            }
+        }
+    }
+
+    /**
+     * Recherche un utilisateur dans le réseau à partir de son nom.
+     *
+     * @param username le nom d'utilisateur recherché
+     * @return l'objet {@link Utilisateur} correspondant
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public Utilisateur obtenirUtilisateurAPartirDuUsername(String username) throws RuntimeException {
+        return chercherUtilisateur(username)
+                .orElseThrow(() -> new RuntimeException("L'utilisateur n'existe pas"));
+    }
+
+    /**
+     * Recherche un utilisateur dans le réseau à partir de son nom, sans lancer d'exception.
+     *
+     * @param username le nom d'utilisateur recherché
+     * @return l'utilisateur correspondant, ou {@link Optional#empty()} s'il n'existe pas
+     */
+    public Optional<Utilisateur> chercherUtilisateur(String username) {
+        Noeud noeud = username == null ? null : noeuds.get(CivixNet.normaliser(username));
+        return noeud == null ? Optional.empty() : Optional.of(noeud.utilisateur);
+    }
+
+    /**
+     * Retourne le nombre d'utilisateurs du réseau.
+     *
+     * @return le nombre d'utilisateurs
+     */
+    public int nombreUtilisateurs() {
+        return noeuds.size();
+    }
+
+    /**
+     * Abonne un utilisateur à un autre.
+     *
+     * @param compte           l'utilisateur qui souhaite suivre
+     * @param nouvelAbonnement l'utilisateur à suivre
+     * @throws RuntimeException si l'un des utilisateurs n'existe pas
+     */
+    public void ajouterAbonnement(Utilisateur compte, Utilisateur nouvelAbonnement) {
+        ajouterAbonnements(compte, List.of(nouvelAbonnement));
+    }
+
+    /**
+     * Retire un abonnement pour un utilisateur donné.
+     *
+     * @param compte             l'utilisateur qui arrête de suivre
+     * @param abonnementARetirer l'utilisateur à ne plus suivre
+     * @throws RuntimeException si l'un des utilisateurs n'existe pas
+     */
+    public void retirerAbonnement(Utilisateur compte, Utilisateur abonnementARetirer) {
+        retirerAbonnements(compte, List.of(abonnementARetirer));
+    }
+
+    /**
+     * Abonne un utilisateur à une liste d'autres utilisateurs, en une seule prise de son verrou.
+     *
+     * @param compte              l'utilisateur qui souhaite suivre d'autres comptes
+     * @param nouveauxAbonnements la liste des nouveaux abonnements
+     * @throws RuntimeException si l'un des utilisateurs n'existe pas
+     */
+    public void ajouterAbonnements(Utilisateur compte, List<Utilisateur> nouveauxAbonnements) {
+        Noeud source = noeud(compte);
+        List<Noeud> cibles = new ArrayList<>(nouveauxAbonnements.size());
+        for (Utilisateur u : nouveauxAbonnements) {
+            cibles.add(noeud(u));
+        }
+        synchronized (source) {
+            for (Noeud cible : cibles) {
+                if (source.abonnements.add(cible.utilisateur)) {
+                    cible.abonnes.add(source.utilisateur);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retire une liste d'abonnements pour un utilisateur donné, en une seule prise de son verrou.
+     *
+     * @param compte              l'utilisateur concerné
+     * @param abonnementsARetirer la liste des abonnements à supprimer
+     * @throws RuntimeException si l'un des utilisateurs n'existe pas
+     */
+    public void retirerAbonnements(Utilisateur compte, List<Utilisateur> abonnementsARetirer) {
+        Noeud source = noeud(compte);
+        List<Noeud> cibles = new ArrayList<>(abonnementsARetirer.size());
+        for (Utilisateur u : abonnementsARetirer) {
+            cibles.add(noeud(u));
+        }
+        synchronized (source) {
+            for (Noeud cible : cibles) {
+                if (source.abonnements.remove(cible.utilisateur)) {
+                    cible.abonnes.remove(source.utilisateur);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retourne un instantané des abonnements d'un utilisateur, copié sous son verrou. L'ensemble
+     * retourné ne change plus, même si l'utilisateur modifie ensuite ses abonnements.
+     *
+     * @param u l'utilisateur
+     * @return l'ensemble immuable des comptes qu'il suit
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public Set<Utilisateur> obtenirAbonnements(Utilisateur u) {
+        return instantane(noeud(u));
+    }
+
+    /**
+     * Retourne les abonnés d'un utilisateur. La vue reflète les modifications concurrentes
+     * et son parcours est faiblement cohérent.
+     *
+     * @param u l'utilisateur
+     * @return une vue non modifiable de ses abonnés
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public Set<Utilisateur> obtenirAbonnes(Utilisateur u) {
+        return Collections.unmodifiableSet(noeud(u).abonnes);
+    }
+
+    /**
+     * Vérifie si deux utilisateurs sont mutuellement abonnés, sans prendre de verrou ni copier
+     * leurs abonnements.
+     *
+     * @param u1 le premier utilisateur
+     * @param u2 le second utilisateur
+     * @return {@code true} si u1 suit u2 et u2 suit u1, sinon {@code false}
+     */
+    public boolean abonnementMutuel(Utilisateur u1, Utilisateur u2) {
+        Noeud n1 = noeud(u1);
+        Noeud n2 = noeud(u2);
+        return n1.abonnements.contains(n2.utilisateur) && n2.abonnements.contains(n1.utilisateur);
+    }
+
+    /**
+     * Retourne la liste des utilisateurs affectés par une fausse information, comme
+     * {@link CivixNet#propagationFausseInformationRecursive(String, int)}. Le parcours lit les
+     * abonnements sans verrou ni copie et ne bloque pas les écrivains.
+     *
+     * @param username   le nom d'utilisateur de la personne ayant lancé la fausse information
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @return une liste triée en ordre alphabétique inverse des utilisateurs affectés sans doublons
+     * @throws IllegalArgumentException si la profondeur est négative
+     */
+    public ArrayList<Utilisateur> propagationFausseInformationRecursive(String username, int profondeur) {
+        if (profondeur < 0) {
+            throw new IllegalArgumentException("La profondeur de propagation doit être positive.");
+        }
+        Utilisateur source = obtenirUtilisateurAPartirDuUsername(username);
+        Set<Utilisateur> affectes = new HashSet<>();
+        affectes.add(source);
+        List<Utilisateur> frontiere = List.of(source);
+        for (int niveau = 0; niveau < profondeur && !frontiere.isEmpty(); niveau++) {
+            List<Utilisateur> suivante = new ArrayList<>();
+            for (Utilisateur courant : frontiere) {
+                for (Utilisateur voisin : noeud(courant).abonnements) {
+                    if (affectes.add(voisin)) {
+                        suivante.add(voisin);
+                    }
+                }
+            }
+            frontiere = suivante;
+        }
+        ArrayList<Utilisateur> affectesList = new ArrayList<>(affectes);
+        affectesList.sort(Collections.reverseOrder());
+        return affectesList;
+    }
+
+    /**
+     * Copie le réseau dans un {@link CivixNet} ordinaire. Chaque ensemble d'abonnements est lu
+     * de façon cohérente, mais les écritures concurrentes pendant la copie peuvent être vues
+     * pour certains utilisateurs et pas pour d'autres.
+     *
+     * @return une copie du réseau
+     */
+    public CivixNet copier() {
+        CivixNet copie = new CivixNet(identifiants.copie());
+        List<Noeud> tous = new ArrayList<>(noeuds.values());
+        for (Noeud noeud : tous) {
+            copie.inscrire(new Utilisateur(noeud.utilisateur.getUsername()));
+        }
+        for (Noeud noeud : tous) {
+            Utilisateur compte = copie.obtenirUtilisateurAPartirDuUsername(noeud.utilisateur.getUsername());
+            for (Utilisateur suivi : instantane(noeud)) {
+                copie.chercherUtilisateur(suivi.getUsername())
+                        .ifPresent(u -> copie.ajouterAbonnement(compte, u));
+            }
+        }
+        return copie;
+    }
+
+    /**
+     * Copie les abonnements d'un noeud sous son verrou, pour ne pas voir un lot à moitié appliqué.
+     *
+     * @param noeud le noeud
+     * @return l'ensemble immuable des comptes qu'il suit
+     */
+    private static Set<Utilisateur> instantane(Noeud noeud) {
+        synchronized (noeud) {
+            return Set.copyOf(noeud.abonnements);
+        }
+    }
+
+    /**
+     * Retourne le noeud d'un utilisateur du réseau.
+     *
+     * @param u l'utilisateur
+     * @return son noeud
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    private Noeud noeud(Utilisateur u) {
+        Noeud noeud = noeuds.get(u.cle());
+        if (noeud == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return noeud;
+    }
+}
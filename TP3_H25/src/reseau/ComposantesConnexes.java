@@ -0,0 +1,552 @@
+package reseau;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Les composantes connexes d'un {@link CivixNet} :
+ * <ul>
+ *     <li>les composantes faibles, où deux utilisateurs sont reliés si l'un suit l'autre, dans un sens
+ *     ou dans l'autre. Un utilisateur seul dans sa composante est isolé;</li>
+ *     <li>les composantes fortes, où chaque utilisateur atteint tous les autres en suivant les abonnements.
+ *     Une composante forte dont aucun abonnement ne sort enferme une fausse information qui y naît.</li>
+ * </ul>
+ * <p>
+ * Les deux calculs partagent une vue CSR des abonnements (voir {@link Adjacence}), construite une fois
+ * par état du réseau. Les composantes faibles sont tenues dans une structure union-find. Elle est
+ * construite en parallèle dans un {@link ForkJoinPool} : chaque morceau de sommets réunit les extrémités
+ * de ses arcs par compare-and-set, la racine de plus grand identifiant étant toujours rattachée à
+ * l'autre. Elle est ensuite tenue à jour à
+ * chaque ajout d'utilisateur ou d'abonnement (voir {@link EcouteurReseau}). Un retrait d'abonnement peut
+ * couper une composante, ce qu'une union-find ne sait pas défaire : la structure est alors reconstruite
+ * à la requête suivante. Les membres de chaque composante forment une liste circulaire, que deux
+ * composantes réunies raccordent en temps constant.
+ * </p>
+ * <p>
+ * Les composantes fortes sont calculées à la demande par l'algorithme de Tarjan, puis conservées
+ * jusqu'à la modification suivante du réseau. Le parcours en profondeur utilise une pile explicite,
+ * sans récursion : sa profondeur n'est limitée que par la mémoire.
+ * </p>
+ * <p>
+ * Comme le réseau, les composantes ne sont pas synchronisées et se lisent dans le fil qui modifie le réseau.
+ * </p>
+ */
+public class ComposantesConnexes implements EcouteurReseau {
+
+    private final CivixNet reseau;
+    private final ForkJoinPool pool;
+
+    /**
+     * Les identifiants des utilisateurs par nom normalisé, et les utilisateurs par identifiant.
+     */
+    private final Map<String, Integer> ids;
+    private Utilisateur[] parId;
+    private int nbSommets;
+
+    /**
+     * La vue CSR des abonnements par identifiant, partagée par les deux calculs,
+     * ou {@code null} si le réseau a changé depuis sa construction.
+     */
+    private int[] debutsCsr;
+    private int[] voisinsCsr;
+
+    /**
+     * L'union-find des composantes faibles : le parent de chaque sommet, la taille de la composante
+     * de chaque racine et le membre suivant de chaque sommet dans la liste circulaire de sa composante.
+     */
+    private int[] parents;
+    private int[] tailles;
+    private int[] suivants;
+    private int nbComposantesFaibles;
+    private boolean faiblesPerimees;
+
+    /**
+     * Les composantes fortes, ou {@code null} si le réseau a changé depuis leur calcul : la composante
+     * de chaque sommet, et les membres de chaque composante côte à côte.
+     */
+    private int[] composantesFortes;
+    private int[] debutsFortes;
+    private int[] membresForts;
+    private int nbComposantesFortes;
+
+    /**
+     * Calcule les composantes avec le pool fork-join commun et les abonne aux modifications du réseau.
+     *
+     * @param reseau le réseau
+     */
+    public ComposantesConnexes(CivixNet reseau) {
+        this(reseau, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Calcule les composantes avec le pool fork-join donné et les abonne aux modifications du réseau.
+     *
+     * @param reseau le réseau
+     * @param pool   le pool d'exécution des reconstructions
+     */
+    public ComposantesConnexes(CivixNet reseau, ForkJoinPool pool) {
+        this.reseau = reseau;
+        this.pool = pool;
+        this.ids = new HashMap<>();
+        int capacite = Math.max(16, reseau.getUtilisateurs().size());
+        this.parId = new Utilisateur[capacite];
+        this.parents = new int[capacite];
+        this.tailles = new int[capacite];
+        this.suivants = new int[capacite];
+        for (Utilisateur u : reseau.getUtilisateurs().keySet()) {
+            utilisateurAjoute(u);
+        }
+        reconstruireFaibles();
+        reseau.ajouterEcouteur(this);
+    }
+
+    /**
+     * Désabonne les composantes des modifications du réseau. Elles ne sont plus tenues à jour.
+     */
+    public void detacher() {
+        reseau.retirerEcouteur(this);
+    }
+
+    /**
+     * Retourne le nombre de composantes faibles, utilisateurs isolés compris.
+     *
+     * @return le nombre de composantes faibles
+     */
+    public int nombreComposantesFaibles() {
+        faiblesAJour();
+        return nbComposantesFaibles;
+    }
+
+    /**
+     * Vérifie si deux utilisateurs sont dans la même composante faible.
+     *
+     * @param u1 le premier utilisateur
+     * @param u2 le second utilisateur
+     * @return {@code true} si un chemin d'abonnements, dans un sens ou dans l'autre, les relie
+     * @throws RuntimeException si l'un des utilisateurs n'existe pas
+     */
+    public boolean memeComposanteFaible(Utilisateur u1, Utilisateur u2) {
+        faiblesAJour();
+        return trouver(id(u1)) == trouver(id(u2));
+    }
+
+    /**
+     * Retourne la taille de la composante faible d'un utilisateur.
+     *
+     * @param u l'utilisateur
+     * @return le nombre d'utilisateurs de sa composante, lui compris
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public int tailleComposanteFaible(Utilisateur u) {
+        faiblesAJour();
+        return tailles[trouver(id(u))];
+    }
+
+    /**
+     * Retourne les membres de la composante faible d'un utilisateur, en temps proportionnel à sa taille.
+     *
+     * @param u l'utilisateur
+     * @return les utilisateurs de sa composante, lui compris
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public List<Utilisateur> membresComposanteFaible(Utilisateur u) {
+        faiblesAJour();
+        int depart = id(u);
+        List<Utilisateur> membres = new ArrayList<>(tailles[trouver(depart)]);
+        int v = depart;
+        do {
+            membres.add(parId[v]);
+            v = suivants[v];
+        } while (v != depart);
+        return membres;
+    }
+
+    /**
+     * Retourne les utilisateurs isolés : ceux qui ne suivent personne d'autre et que personne d'autre ne suit.
+     *
+     * @return les utilisateurs seuls dans leur composante faible
+     */
+    public List<Utilisateur> utilisateursIsoles() {
+        faiblesAJour();
+        List<Utilisateur> isoles = new ArrayList<>();
+        for (int v = 0; v < nbSommets; v++) {
+            if (suivants[v] == v) {
+                isoles.add(parId[v]);
+            }
+        }
+        return isoles;
+    }
+
+    /**
+     * Retourne le nombre de composantes fortes.
+     *
+     * @return le nombre de composantes fortes
+     */
+    public int nombreComposantesFortes() {
+        fortesAJour();
+        return nbComposantesFortes;
+    }
+
+    /**
+     * Vérifie si deux utilisateurs sont dans la même composante forte.
+     *
+     * @param u1 le premier utilisateur
+     * @param u2 le second utilisateur
+     * @return {@code true} si chacun atteint l'autre en suivant les abonnements
+     * @throws RuntimeException si l'un des utilisateurs n'existe pas
+     */
+    public boolean memeComposanteForte(Utilisateur u1, Utilisateur u2) {
+        fortesAJour();
+        return composantesFortes[id(u1)] == composantesFortes[id(u2)];
+    }
+
+    /**
+     * Retourne la taille de la composante forte d'un utilisateur.
+     *
+     * @param u l'utilisateur
+     * @return le nombre d'utilisateurs de sa composante, lui compris
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public int tailleComposanteForte(Utilisateur u) {
+        fortesAJour();
+        int c = composantesFortes[id(u)];
+        return debutsFortes[c + 1] - debutsFortes[c];
+    }
+
+    /**
+     * Retourne les membres de la composante forte d'un utilisateur.
+     *
+     * @param u l'utilisateur
+     * @return les utilisateurs de sa composante, lui compris
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public List<Utilisateur> membresComposanteForte(Utilisateur u) {
+        fortesAJour();
+        return membresForts(composantesFortes[id(u)]);
+    }
+
+    /**
+     * Retourne les composantes fortes dont une fausse information ne peut pas sortir : aucun lien
+     * ne mène de la composante vers le reste du réseau dans le sens de propagation donné.
+     *
+     * @param direction le sens de propagation de la fausse information
+     * @param tailleMin la taille minimale des composantes retournées (2 pour exclure les utilisateurs seuls)
+     * @return les composantes sans issue, de la plus grande à la plus petite
+     */
+    public List<List<Utilisateur>> composantesSansIssue(Direction direction, int tailleMin) {
+        fortesAJour();
+        boolean[] ouvertes = new boolean[nbComposantesFortes];
+        csrAJour();
+        for (int v = 0; v < nbSommets; v++) {
+            int cv = composantesFortes[v];
+            for (int k = debutsCsr[v]; k < debutsCsr[v + 1]; k++) {
+                int cw = composantesFortes[voisinsCsr[k]];
+                if (cv != cw) {
+                    ouvertes[direction == Direction.ABONNEMENTS ? cv : cw] = true;
+                }
+            }
+        }
+        List<Integer> fermees = new ArrayList<>();
+        for (int c = 0; c < nbComposantesFortes; c++) {
+            if (!ouvertes[c] && debutsFortes[c + 1] - debutsFortes[c] >= tailleMin) {
+                fermees.add(c);
+            }
+        }
+        fermees.sort((a, b) -> Integer.compare(debutsFortes[b + 1] - debutsFortes[b], debutsFortes[a + 1] - debutsFortes[a]));
+        List<List<Utilisateur>> resultat = new ArrayList<>(fermees.size());
+        for (int c : fermees) {
+            resultat.add(membresForts(c));
+        }
+        return resultat;
+    }
+
+    @Override
+    public void utilisateurAjoute(Utilisateur u) {
+        int id = nbSommets++;
+        if (id == parId.length) {
+            int capacite = parId.length * 2;
+            parId = Arrays.copyOf(parId, capacite);
+            parents = Arrays.copyOf(parents, capacite);
+            tailles = Arrays.copyOf(tailles, capacite);
+            suivants = Arrays.copyOf(suivants, capacite);
+        }
+        ids.put(u.cle(), id);
+        parId[id] = u;
+        parents[id] = id;
+        tailles[id] = 1;
+        suivants[id] = id;
+        nbComposantesFaibles++;
+        composantesFortes = null;
+        debutsCsr = null;
+    }
+
+    @Override
+    public void abonnementAjoute(Utilisateur compte, Utilisateur cible) {
+        composantesFortes = null;
+        debutsCsr = null;
+        if (!faiblesPerimees) {
+            unir(id(compte), id(cible));
+        }
+    }
+
+    @Override
+    public void abonnementRetire(Utilisateur compte, Utilisateur cible) {
+        composantesFortes = null;
+        debutsCsr = null;
+        faiblesPerimees = true;
+    }
+
+    private void faiblesAJour() {
+        if (faiblesPerimees) {
+            reconstruireFaibles();
+        }
+    }
+
+    private void fortesAJour() {
+        if (composantesFortes == null) {
+            calculerFortes();
+        }
+    }
+
+    private void csrAJour() {
+        if (debutsCsr == null) {
+            construireCsr();
+        }
+    }
+
+    /**
+     * Reconstruit l'union-find à partir des abonnements du réseau, les arcs étant réunis en parallèle.
+     */
+    private void reconstruireFaibles() {
+        csrAJour();
+        int n = nbSommets;
+        int[] debuts = debutsCsr;
+        int[] voisins = voisinsCsr;
+
+        AtomicIntegerArray parentsPartages = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            parentsPartages.set(v, v);
+        }
+        Parallelisme.pourIntervalles(pool, n, Parallelisme.GRAIN, (debut, fin) -> {
+            for (int v = debut; v < fin; v++) {
+                for (int k = debuts[v]; k < debuts[v + 1]; k++) {
+                    unirConcurrent(parentsPartages, v, voisins[k]);
+                }
+            }
+        });
+        int[] racines = parents;
+        Parallelisme.pourIntervalles(pool, n, Parallelisme.GRAIN, (debut, fin) -> {
+            for (int v = debut; v < fin; v++) {
+                racines[v] = racineConcurrente(parentsPartages, v);
+            }
+        });
+
+        // chaque membre est inséré dans la liste circulaire de sa racine
+        Arrays.fill(tailles, 0, n, 0);
+        nbComposantesFaibles = 0;
+        for (int v = 0; v < n; v++) {
+            if (parents[v] == v) {
+                suivants[v] = v;
+                nbComposantesFaibles++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            int r = parents[v];
+            tailles[r]++;
+            if (r != v) {
+                suivants[v] = suivants[r];
+                suivants[r] = v;
+            }
+        }
+        faiblesPerimees = false;
+    }
+
+    /**
+     * Réunit les composantes de deux sommets, la plus petite sous la plus grande,
+     * et raccorde leurs listes de membres.
+     */
+    private void unir(int a, int b) {
+        int ra = trouver(a);
+        int rb = trouver(b);
+        if (ra == rb) {
+            return;
+        }
+        if (tailles[ra] < tailles[rb]) {
+            int temp = ra;
+            ra = rb;
+            rb = temp;
+        }
+        parents[rb] = ra;
+        tailles[ra] += tailles[rb];
+        int temp = suivants[ra];
+        suivants[ra] = suivants[rb];
+        suivants[rb] = temp;
+        nbComposantesFaibles--;
+    }
+
+    /**
+     * Retourne la racine de la composante d'un sommet, en raccourcissant le chemin parcouru de moitié.
+     */
+    private int trouver(int v) {
+        while (parents[v] != v) {
+            parents[v] = parents[parents[v]];
+            v = parents[v];
+        }
+        return v;
+    }
+
+    /**
+     * Réunit deux composantes pendant la construction parallèle. Une racine n'est rattachée que si elle
+     * l'est encore au moment du compare-and-set, et toujours à une racine d'identifiant plus petit,
+     * ce qui exclut les cycles.
+     */
+    private static void unirConcurrent(AtomicIntegerArray parents, int a, int b) {
+        while (true) {
+            a = racineConcurrente(parents, a);
+            b = racineConcurrente(parents, b);
+            if (a == b) {
+                return;
+            }
+            if (a < b) {
+                int temp = a;
+                a = b;
+                b = temp;
+            }
+            if (parents.compareAndSet(a, a, b)) {
+                return;
+            }
+        }
+    }
+
+    private static int racineConcurrente(AtomicIntegerArray parents, int v) {
+        while (true) {
+            int p = parents.get(v);
+            if (p == v) {
+                return v;
+            }
+            int gp = parents.get(p);
+            if (gp != p) {
+                parents.compareAndSet(v, p, gp);
+            }
+            v = gp;
+        }
+    }
+
+    /**
+     * Calcule les composantes fortes par l'algorithme de Tarjan, avec une pile d'appels explicite.
+     * Les membres d'une composante sont dépilés ensemble, et donc rangés côte à côte.
+     */
+    private void calculerFortes() {
+        csrAJour();
+        int n = nbSommets;
+        int[] debuts = debutsCsr;
+        int[] voisins = voisinsCsr;
+
+        int[] indices = new int[n];
+        Arrays.fill(indices, -1);
+        int[] basses = new int[n];
+        boolean[] surPile = new boolean[n];
+        int[] pile = new int[n];
+        int taillePile = 0;
+        int[] appels = new int[n];
+        int[] curseurs = new int[n];
+        int compteur = 0;
+
+        int[] composantes = new int[n];
+        int[] debutsComposantes = new int[n + 1];
+        int[] membres = new int[n];
+        int nbComposantes = 0;
+        int nbMembres = 0;
+
+        for (int s = 0; s < n; s++) {
+            if (indices[s] >= 0) {
+                continue;
+            }
+            int hauteur = 0;
+            appels[hauteur] = s;
+            curseurs[hauteur++] = debuts[s];
+            indices[s] = basses[s] = compteur++;
+            pile[taillePile++] = s;
+            surPile[s] = true;
+
+            while (hauteur > 0) {
+                int v = appels[hauteur - 1];
+                if (curseurs[hauteur - 1] < debuts[v + 1]) {
+                    int w = voisins[curseurs[hauteur - 1]++];
+                    if (indices[w] < 0) {
+                        // descente vers w, reprise de v au voisin suivant au retour
+                        indices[w] = basses[w] = compteur++;
+                        pile[taillePile++] = w;
+                        surPile[w] = true;
+                        appels[hauteur] = w;
+                        curseurs[hauteur++] = debuts[w];
+                    } else if (surPile[w]) {
+                        basses[v] = Math.min(basses[v], indices[w]);
+                    }
+                    continue;
+                }
+
+                hauteur--;
+                if (basses[v] == indices[v]) {
+                    int w;
+                    do {
+                        w = pile[--taillePile];
+                        surPile[w] = false;
+                        composantes[w] = nbComposantes;
+                        membres[nbMembres++] = w;
+                    } while (w != v);
+                    debutsComposantes[++nbComposantes] = nbMembres;
+                }
+                if (hauteur > 0) {
+                    int parent = appels[hauteur - 1];
+                    basses[parent] = Math.min(basses[parent], basses[v]);
+                }
+            }
+        }
+
+        composantesFortes = composantes;
+        debutsFortes = debutsComposantes;
+        membresForts = membres;
+        nbComposantesFortes = nbComposantes;
+    }
+
+    /**
+     * Construit la vue CSR des abonnements du réseau, indexée par identifiant.
+     */
+    private void construireCsr() {
+        int[] debuts = new int[nbSommets + 1];
+        for (int v = 0; v < nbSommets; v++) {
+            debuts[v + 1] = debuts[v] + reseau.obtenirAbonnements(parId[v]).size();
+        }
+        int[] voisins = new int[debuts[nbSommets]];
+        for (int v = 0; v < nbSommets; v++) {
+            int k = debuts[v];
+            for (Utilisateur w : reseau.obtenirAbonnements(parId[v])) {
+                voisins[k++] = id(w);
+            }
+        }
+        debutsCsr = debuts;
+        voisinsCsr = voisins;
+    }
+
+    private List<Utilisateur> membresForts(int c) {
+        List<Utilisateur> liste = new ArrayList<>(debutsFortes[c + 1] - debutsFortes[c]);
+        for (int k = debutsFortes[c]; k < debutsFortes[c + 1]; k++) {
+            liste.add(parId[membresForts[k]]);
+        }
+        return liste;
+    }
+
+    private int id(Utilisateur u) {
+        Integer id = ids.get(u.cle());
+        if (id == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,87 @@
+package reseau;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression optionnelle des fichiers JSON écrits et lus par {@link ReseauBuilder}.
+ * <p>
+ * Une compression enveloppe le flux du fichier. Pour utiliser un autre algorithme (zstd, lz4, ...),
+ * il suffit d'implémenter cette interface avec la bibliothèque correspondante.
+ * </p>
+ */
+public interface Compression {
+
+    /**
+     * Taille des tampons internes de la compression gzip.
+     */
+    int TAILLE_TAMPON = 1 << 16;
+
+    /**
+     * Aucune compression : les flux sont utilisés tels quels.
+     */
+    Compression AUCUNE = new Compression() {
+        @Override
+        public OutputStream compresser(OutputStream sortie) {
+            return sortie;
+        }
+
+        @Override
+        public InputStream decompresser(InputStream entree) {
+            return entree;
+        }
+
+        @Override
+        public String extension() {
+            return "";
+        }
+    };
+
+    /**
+     * Compression gzip de la bibliothèque standard.
+     */
+    Compression GZIP = new Compression() {
+        @Override
+        public OutputStream compresser(OutputStream sortie) throws IOException {
+            return new GZIPOutputStream(sortie, TAILLE_TAMPON);
+        }
+
+        @Override
+        public InputStream decompresser(InputStream entree) throws IOException {
+            return new GZIPInputStream(entree, TAILLE_TAMPON);
+        }
+
+        @Override
+        public String extension() {
+            return ".gz";
+        }
+    };
+
+    /**
+     * Enveloppe un flux de sortie; fermer le flux retourné ferme aussi {@code sortie}.
+     *
+     * @param sortie le flux du fichier
+     * @return le flux dans lequel écrire les données non compressées
+     * @throws IOException si une erreur d'écriture survient
+     */
+    OutputStream compresser(OutputStream sortie) throws IOException;
+
+    /**
+     * Enveloppe un flux d'entrée; fermer le flux retourné ferme aussi {@code entree}.
+     *
+     * @param entree le flux du fichier
+     * @return le flux des données décompressées
+     * @throws IOException si l'en-tête de compression est invalide
+     */
+    InputStream decompresser(InputStream entree) throws IOException;
+
+    /**
+     * Retourne l'extension ajoutée aux noms des fichiers compressés, par exemple {@code ".gz"}.
+     *
+     * @return l'extension, vide si les fichiers ne sont pas compressés
+     */
+    String extension();
+}
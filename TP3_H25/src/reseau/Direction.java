@@ -0,0 +1,28 @@
+package reseau;
+
+/**
+ * Le sens dans lequel un parcours suit les liens d'abonnement.
+ */
+public enum Direction {
+
+    /**
+     * Suit les abonnements : d'un utilisateur vers les comptes qu'il suit.
+     */
+    ABONNEMENTS,
+
+    /**
+     * Suit les abonnés : d'un utilisateur vers les comptes qui le suivent.
+     */
+    ABONNES;
+
+    /**
+     * Retourne la vue CSR d'un graphe compact orientée dans ce sens.
+     *
+     * @param graphe le graphe compact
+     * @return les abonnements tels quels, ou le graphe transposé pour les abonnés
+     */
+    Adjacence adjacence(GrapheCompact graphe) {
+        Adjacence abonnements = graphe.adjacence();
+        return this == ABONNEMENTS ? abonnements : abonnements.transposee();
+    }
+}
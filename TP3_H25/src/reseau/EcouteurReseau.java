@@ -0,0 +1,49 @@
+package reseau;
+
+/**
+ * Reçoit les modifications d'un {@link CivixNet} (voir {@link CivixNet#ajouterEcouteur(EcouteurReseau)}).
+ * <p>
+ * Seules les modifications effectives sont signalées : un abonnement déjà présent n'est pas signalé
+ * une seconde fois. Ajouter un nom déjà pris vide les abonnements de l'utilisateur existant, ce qui est
+ * signalé comme autant de retraits d'abonnements. Chaque méthode publique de modification du réseau se
+ * termine par un appel à {@link #finLot()}, une seule fois même si elle fait plusieurs modifications.
+ * </p>
+ * <p>
+ * Les méthodes sont appelées dans le fil qui modifie le réseau, après la modification;
+ * elles ne doivent pas modifier le réseau elles-mêmes.
+ * </p>
+ */
+public interface EcouteurReseau {
+
+    /**
+     * Un nouvel utilisateur a été ajouté au réseau.
+     *
+     * @param u l'utilisateur ajouté
+     */
+    default void utilisateurAjoute(Utilisateur u) {
+    }
+
+    /**
+     * Un utilisateur s'est abonné à un autre.
+     *
+     * @param compte l'utilisateur qui suit
+     * @param cible  l'utilisateur suivi
+     */
+    default void abonnementAjoute(Utilisateur compte, Utilisateur cible) {
+    }
+
+    /**
+     * Un utilisateur a cessé de suivre un autre.
+     *
+     * @param compte l'utilisateur qui ne suit plus
+     * @param cible  l'utilisateur qui n'est plus suivi
+     */
+    default void abonnementRetire(Utilisateur compte, Utilisateur cible) {
+    }
+
+    /**
+     * Une opération de modification du réseau est terminée; le réseau est dans un état cohérent.
+     */
+    default void finLot() {
+    }
+}
@@ -0,0 +1,172 @@
+package reseau;
+
+import java.util.Arrays;
+
+/**
+ * Ensemble de {@code long} positifs ou nuls, sans objets enveloppes : une table à adressage ouvert
+ * et sondage linéaire dans un seul tableau primitif.
+ * <p>
+ * Sert de tampon d'arcs à {@link GrapheCompact}, où un {@code HashSet<Long>} coûtait un objet
+ * {@code Long} et une entrée de table par arc. Un retrait recule les éléments suivants de la même
+ * suite de sondage au lieu de laisser une pierre tombale : la table ne se dégrade pas au fil des
+ * ajouts et retraits.
+ * </p>
+ */
+final class EnsembleLongs {
+
+    /**
+     * Marque d'une case vide; les éléments sont positifs ou nuls.
+     */
+    private static final long VIDE = -1L;
+
+    private long[] cases;
+    private int masque;
+    private int decalage;
+    private int taille;
+
+    /**
+     * Construit un ensemble vide.
+     */
+    EnsembleLongs() {
+        allouer(16);
+    }
+
+    /**
+     * Retourne le nombre d'éléments.
+     *
+     * @return la taille de l'ensemble
+     */
+    int taille() {
+        return taille;
+    }
+
+    /**
+     * Vérifie si l'ensemble est vide.
+     *
+     * @return {@code true} s'il ne contient aucun élément
+     */
+    boolean estVide() {
+        return taille == 0;
+    }
+
+    /**
+     * Vérifie si un élément est présent.
+     *
+     * @param valeur l'élément recherché
+     * @return {@code true} s'il est dans l'ensemble
+     */
+    boolean contient(long valeur) {
+        for (int i = position(valeur); cases[i] != VIDE; i = (i + 1) & masque) {
+            if (cases[i] == valeur) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ajoute un élément.
+     *
+     * @param valeur l'élément à ajouter, positif ou nul
+     * @return {@code true} s'il n'était pas déjà présent
+     * @throws IllegalArgumentException si l'élément est négatif
+     */
+    boolean ajouter(long valeur) {
+        if (valeur < 0) {
+            throw new IllegalArgumentException("Seuls les entiers positifs ou nuls sont acceptés.");
+        }
+        int i = position(valeur);
+        while (cases[i] != VIDE) {
+            if (cases[i] == valeur) {
+                return false;
+            }
+            i = (i + 1) & masque;
+        }
+        cases[i] = valeur;
+        // facteur de charge d'au plus 1/2, pour des suites de sondage courtes
+        if (++taille > cases.length >>> 1) {
+            redimensionner(cases.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Retire un élément.
+     *
+     * @param valeur l'élément à retirer
+     * @return {@code true} s'il était présent
+     */
+    boolean retirer(long valeur) {
+        int i = position(valeur);
+        while (cases[i] != valeur) {
+            if (cases[i] == VIDE) {
+                return false;
+            }
+            i = (i + 1) & masque;
+        }
+        // recule les éléments suivants qui ne pourraient plus être trouvés à travers le trou
+        int trou = i;
+        for (int j = (i + 1) & masque; cases[j] != VIDE; j = (j + 1) & masque) {
+            int ideale = position(cases[j]);
+            if (((j - ideale) & masque) >= ((j - trou) & masque)) {
+                cases[trou] = cases[j];
+                trou = j;
+            }
+        }
+        cases[trou] = VIDE;
+        taille--;
+        return true;
+    }
+
+    /**
+     * Vide l'ensemble en gardant sa capacité.
+     */
+    void vider() {
+        Arrays.fill(cases, VIDE);
+        taille = 0;
+    }
+
+    /**
+     * Retourne les éléments en ordre croissant.
+     *
+     * @return un nouveau tableau trié
+     */
+    long[] trier() {
+        long[] tries = new long[taille];
+        int n = 0;
+        for (long valeur : cases) {
+            if (valeur != VIDE) {
+                tries[n++] = valeur;
+            }
+        }
+        Arrays.sort(tries);
+        return tries;
+    }
+
+    private int position(long valeur) {
+        // hachage de Fibonacci : les arcs d'une même source ne diffèrent que par leurs bits de poids faible,
+        // que la multiplication répand dans les bits de poids fort retenus
+        return (int) ((valeur * 0x9E3779B97F4A7C15L) >>> decalage);
+    }
+
+    private void allouer(int capacite) {
+        cases = new long[capacite];
+        masque = capacite - 1;
+        decalage = Long.numberOfLeadingZeros(capacite) + 1;
+        Arrays.fill(cases, VIDE);
+    }
+
+    private void redimensionner(int capacite) {
+        long[] anciennes = cases;
+        allouer(capacite);
+        for (long valeur : anciennes) {
+            if (valeur != VIDE) {
+                int i = position(valeur);
+                while (cases[i] != VIDE) {
+                    i = (i + 1) & masque;
+                }
+                cases[i] = valeur;
+            }
+        }
+    }
+}
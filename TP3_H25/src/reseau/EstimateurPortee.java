@@ -0,0 +1,366 @@
+package reseau;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estime en temps constant la portée d'une fausse information dans un {@link CivixNet} : le nombre
+ * d'utilisateurs, source comprise, atteints en au plus k niveaux de propagation.
+ * <p>
+ * Pour chaque utilisateur et chaque niveau k jusqu'à {@link #sautsMax()}, l'estimateur conserve une
+ * esquisse HyperLogLog (voir {@link EsquisseHLL}) de l'ensemble atteint : l'esquisse au niveau k est
+ * l'union de l'esquisse de l'utilisateur et de celles de ses voisins au niveau k - 1. Une requête ne lit
+ * donc qu'une esquisse de {@value EsquisseHLL#REGISTRES} octets, avec une erreur relative typique de 13 %,
+ * au lieu de matérialiser la liste des utilisateurs atteints. La mémoire est de
+ * {@value EsquisseHLL#REGISTRES} octets par utilisateur et par niveau.
+ * </p>
+ * <p>
+ * L'estimateur est un {@link EcouteurReseau} : les modifications d'un lot sont accumulées, puis
+ * appliquées à la fin du lot en ne touchant que les esquisses concernées. Un ajout d'abonnement est
+ * réuni dans les esquisses qui changent, niveau par niveau, et s'arrête dès qu'elles ne changent plus.
+ * Un retrait ne peut pas être soustrait d'une esquisse : l'esquisse de l'utilisateur qui a perdu un
+ * voisin est recalculée à partir de celles de ses voisins et, si elle a diminué, celles des utilisateurs
+ * qui le précèdent le sont au niveau suivant, et ainsi de suite. L'esquisse d'un grand ensemble change
+ * rarement quand un seul élément disparaît, ce qui arrête vite la propagation. Les esquisses obtenues
+ * sont identiques à celles d'un estimateur construit sur le nouvel état du réseau.
+ * </p>
+ * <p>
+ * Comme le réseau, l'estimateur n'est pas synchronisé et se lit dans le fil qui modifie le réseau.
+ * </p>
+ */
+public class EstimateurPortee implements EcouteurReseau {
+
+    /**
+     * Résultats de {@link #comparer(byte[], int, byte[], int)}, combinables.
+     */
+    private static final int DIMINUE = 1;
+    private static final int AUGMENTE = 2;
+
+    private final CivixNet reseau;
+    private final Direction direction;
+    private final int sautsMax;
+
+    /**
+     * Les identifiants des utilisateurs par nom normalisé, et les utilisateurs par identifiant.
+     */
+    private final Map<String, Integer> ids;
+    private Utilisateur[] parId;
+    private int nbSommets;
+
+    /**
+     * Les esquisses de chaque niveau : {@code niveaux[k]} contient les esquisses de tous les
+     * utilisateurs au niveau k.
+     */
+    private final byte[][] niveaux;
+
+    /**
+     * Marque de dernier passage par sommet, pour ne traiter qu'une fois chaque sommet d'un niveau.
+     */
+    private int[] marques;
+    private int marqueCourante;
+
+    /**
+     * Les arcs ajoutés dans le lot courant, par paires (sommet, voisin ajouté).
+     */
+    private int[] ajouts;
+    private int nbAjouts;
+
+    /**
+     * Les sommets qui ont perdu un voisin dans le lot courant.
+     */
+    private int[] retraits;
+    private int nbRetraits;
+
+    /**
+     * Construit l'estimateur à partir de l'état actuel du réseau et l'abonne à ses modifications.
+     *
+     * @param reseau    le réseau
+     * @param direction le sens de propagation, comme pour {@link MoteurPropagation}
+     * @param sautsMax  le nombre maximal de niveaux des requêtes
+     * @throws IllegalArgumentException si le nombre de niveaux est négatif
+     */
+    public EstimateurPortee(CivixNet reseau, Direction direction, int sautsMax) {
+        if (sautsMax < 0) {
+            throw new IllegalArgumentException("La profondeur de propagation doit être positive.");
+        }
+        this.reseau = reseau;
+        this.direction = direction;
+        this.sautsMax = sautsMax;
+        this.ids = new HashMap<>();
+        int capacite = Math.max(16, reseau.getUtilisateurs().size());
+        this.parId = new Utilisateur[capacite];
+        this.niveaux = new byte[sautsMax + 1][];
+        for (int k = 0; k <= sautsMax; k++) {
+            niveaux[k] = EsquisseHLL.allouer(capacite);
+        }
+        this.marques = new int[capacite];
+        this.ajouts = new int[16];
+        this.retraits = new int[16];
+
+        for (Utilisateur u : reseau.getUtilisateurs().keySet()) {
+            utilisateurAjoute(u);
+        }
+        for (int k = 1; k <= sautsMax; k++) {
+            for (int v = 0; v < nbSommets; v++) {
+                recalculer(k, v);
+            }
+        }
+        reseau.ajouterEcouteur(this);
+    }
+
+    /**
+     * Désabonne l'estimateur des modifications du réseau. Les estimations ne sont plus tenues à jour.
+     */
+    public void detacher() {
+        reseau.retirerEcouteur(this);
+    }
+
+    /**
+     * Retourne le nombre maximal de niveaux des requêtes.
+     *
+     * @return le nombre de niveaux donné à la construction
+     */
+    public int sautsMax() {
+        return sautsMax;
+    }
+
+    /**
+     * Estime le nombre d'utilisateurs atteints par une fausse information partie d'un utilisateur.
+     *
+     * @param u     l'utilisateur à l'origine de la fausse information
+     * @param sauts le nombre maximal de niveaux de propagation, au plus {@link #sautsMax()}
+     * @return le nombre estimé d'utilisateurs atteints, source comprise
+     * @throws IllegalArgumentException si le nombre de niveaux est négatif ou dépasse {@link #sautsMax()}
+     * @throws RuntimeException         si l'utilisateur n'existe pas
+     */
+    public long estimerPortee(Utilisateur u, int sauts) {
+        if (sauts < 0 || sauts > sautsMax) {
+            throw new IllegalArgumentException("La profondeur doit être entre 0 et " + sautsMax + ".");
+        }
+        Integer id = ids.get(u.cle());
+        if (id == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return Math.round(EsquisseHLL.estimer(niveaux[sauts], id));
+    }
+
+    @Override
+    public void utilisateurAjoute(Utilisateur u) {
+        int id = nbSommets++;
+        if (id == parId.length) {
+            int capacite = parId.length * 2;
+            parId = Arrays.copyOf(parId, capacite);
+            for (int k = 0; k <= sautsMax; k++) {
+                niveaux[k] = Arrays.copyOf(niveaux[k], capacite * EsquisseHLL.REGISTRES);
+            }
+            marques = Arrays.copyOf(marques, capacite);
+        }
+        ids.put(u.cle(), id);
+        parId[id] = u;
+        // un nouvel utilisateur n'atteint que lui-même, à tous les niveaux; il est haché par son nom
+        // pour que les esquisses ne dépendent pas de l'ordre d'attribution des identifiants
+        for (int k = 0; k <= sautsMax; k++) {
+            EsquisseHLL.ajouter(niveaux[k], id, u.cle().hashCode());
+        }
+    }
+
+    @Override
+    public void abonnementAjoute(Utilisateur compte, Utilisateur cible) {
+        if (nbAjouts + 2 > ajouts.length) {
+            ajouts = Arrays.copyOf(ajouts, ajouts.length * 2);
+        }
+        boolean suiviParCompte = direction == Direction.ABONNEMENTS;
+        ajouts[nbAjouts++] = id(suiviParCompte ? compte : cible);
+        ajouts[nbAjouts++] = id(suiviParCompte ? cible : compte);
+    }
+
+    @Override
+    public void abonnementRetire(Utilisateur compte, Utilisateur cible) {
+        if (nbRetraits == retraits.length) {
+            retraits = Arrays.copyOf(retraits, retraits.length * 2);
+        }
+        retraits[nbRetraits++] = id(direction == Direction.ABONNEMENTS ? compte : cible);
+    }
+
+    @Override
+    public void finLot() {
+        if (nbAjouts == 0 && nbRetraits == 0) {
+            return;
+        }
+        // au niveau k, une esquisse ne peut changer que si le sommet a gagné ou perdu un voisin,
+        // ou si l'esquisse d'un voisin a changé au niveau k - 1 : on ne suit que ces changements
+        int[] agrandis = new int[16];
+        int nbAgrandis = 0;
+        int[] reduits = new int[16];
+        int nbReduits = 0;
+        byte[] anciennesReduites = new byte[0];
+        for (int k = 1; k <= sautsMax; k++) {
+            byte[] precedent = niveaux[k - 1];
+            byte[] courant = niveaux[k];
+            int[] nouveauxAgrandis = new int[16];
+            int nbNouveauxAgrandis = 0;
+            int[] nouveauxReduits = new int[16];
+            int nbNouveauxReduits = 0;
+            byte[] nouvellesAnciennes = new byte[16 * EsquisseHLL.REGISTRES];
+
+            // un voisin retiré ou une esquisse voisine réduite : l'union est recalculée
+            int[] aRecalculer = new int[nbRetraits];
+            System.arraycopy(retraits, 0, aRecalculer, 0, nbRetraits);
+            int nbARecalculer = nbRetraits;
+            for (int i = 0; i < nbReduits; i++) {
+                for (Utilisateur p : predecesseurs(parId[reduits[i]])) {
+                    int idP = id(p);
+                    if (dependait(courant, idP, anciennesReduites, i, precedent, reduits[i])) {
+                        aRecalculer = ajouter(aRecalculer, nbARecalculer++, idP);
+                    }
+                }
+            }
+            marqueCourante++;
+            for (int i = 0; i < nbARecalculer; i++) {
+                int v = aRecalculer[i];
+                if (marques[v] == marqueCourante) {
+                    continue;
+                }
+                marques[v] = marqueCourante;
+                if ((nbNouveauxReduits + 1) * EsquisseHLL.REGISTRES > nouvellesAnciennes.length) {
+                    nouvellesAnciennes = Arrays.copyOf(nouvellesAnciennes, nouvellesAnciennes.length * 2);
+                }
+                // l'ancienne esquisse est gardée à la suite des réduites, où elle reste si elle a diminué
+                System.arraycopy(courant, v * EsquisseHLL.REGISTRES, nouvellesAnciennes,
+                        nbNouveauxReduits * EsquisseHLL.REGISTRES, EsquisseHLL.REGISTRES);
+                recalculer(k, v);
+                // une esquisse recalculée peut à la fois perdre et gagner des registres (voisin retiré
+                // et voisin ajouté dans le même lot) : elle est alors suivie comme réduite et comme agrandie
+                int comparaison = comparer(nouvellesAnciennes, nbNouveauxReduits, courant, v);
+                if ((comparaison & DIMINUE) != 0) {
+                    nouveauxReduits = ajouter(nouveauxReduits, nbNouveauxReduits++, v);
+                }
+                if ((comparaison & AUGMENTE) != 0) {
+                    nouveauxAgrandis = ajouter(nouveauxAgrandis, nbNouveauxAgrandis++, v);
+                }
+            }
+
+            // un voisin ajouté ou une esquisse voisine agrandie : l'union suffit; les sommets recalculés
+            // plus haut sont déjà à jour et déjà suivis s'ils ont grandi
+            int marqueRecalcul = marqueCourante;
+            marqueCourante++;
+            for (int i = 0; i < nbAjouts; i += 2) {
+                int v = ajouts[i];
+                if (marques[v] == marqueRecalcul || !voisins(parId[v]).contains(parId[ajouts[i + 1]])) {
+                    // recalculé, ou ajouté puis retiré dans le même lot
+                    continue;
+                }
+                if (EsquisseHLL.fusionner(courant, v, precedent, ajouts[i + 1]) && marques[v] != marqueCourante) {
+                    marques[v] = marqueCourante;
+                    nouveauxAgrandis = ajouter(nouveauxAgrandis, nbNouveauxAgrandis++, v);
+                }
+            }
+            for (int i = 0; i < nbAgrandis; i++) {
+                int x = agrandis[i];
+                for (Utilisateur p : predecesseurs(parId[x])) {
+                    int idP = id(p);
+                    if (EsquisseHLL.fusionner(courant, idP, precedent, x) && marques[idP] != marqueCourante) {
+                        marques[idP] = marqueCourante;
+                        nouveauxAgrandis = ajouter(nouveauxAgrandis, nbNouveauxAgrandis++, idP);
+                    }
+                }
+            }
+            agrandis = nouveauxAgrandis;
+            nbAgrandis = nbNouveauxAgrandis;
+            reduits = nouveauxReduits;
+            nbReduits = nbNouveauxReduits;
+            anciennesReduites = nouvellesAnciennes;
+        }
+        nbAjouts = 0;
+        nbRetraits = 0;
+    }
+
+    /**
+     * Compare l'ancienne esquisse d'un sommet à la nouvelle.
+     *
+     * @param anciennes les anciennes esquisses, côte à côte
+     * @param i         la position de l'ancienne esquisse du sommet dans {@code anciennes}
+     * @param esquisses les nouvelles esquisses
+     * @param v         le sommet
+     * @return {@link #DIMINUE} si un registre a diminué, combiné à {@link #AUGMENTE} si un registre a
+     *         augmenté, 0 si rien n'a changé
+     */
+    private static int comparer(byte[] anciennes, int i, byte[] esquisses, int v) {
+        int resultat = 0;
+        int baseAncienne = i * EsquisseHLL.REGISTRES;
+        int base = v * EsquisseHLL.REGISTRES;
+        for (int r = 0; r < EsquisseHLL.REGISTRES && resultat != (DIMINUE | AUGMENTE); r++) {
+            if (esquisses[base + r] < anciennes[baseAncienne + r]) {
+                resultat |= DIMINUE;
+            } else if (esquisses[base + r] > anciennes[baseAncienne + r]) {
+                resultat |= AUGMENTE;
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Vérifie si l'esquisse d'un prédécesseur a pu tenir un de ses registres d'une esquisse voisine
+     * qui a diminué. Si chaque registre diminué est plus grand chez le prédécesseur que l'ancienne
+     * valeur du voisin, le maximum venait d'ailleurs et l'union ne change pas.
+     *
+     * @param esquisses les esquisses du niveau du prédécesseur, pas encore mises à jour
+     * @param p         le prédécesseur
+     * @param anciennes les anciennes esquisses des voisins réduits, côte à côte
+     * @param i         la position de l'ancienne esquisse du voisin dans {@code anciennes}
+     * @param voisines  les nouvelles esquisses du niveau du voisin
+     * @param x         le voisin réduit
+     * @return {@code true} si l'esquisse du prédécesseur doit être recalculée
+     */
+    private static boolean dependait(byte[] esquisses, int p, byte[] anciennes, int i, byte[] voisines, int x) {
+        int baseP = p * EsquisseHLL.REGISTRES;
+        int baseAncienne = i * EsquisseHLL.REGISTRES;
+        int baseX = x * EsquisseHLL.REGISTRES;
+        for (int r = 0; r < EsquisseHLL.REGISTRES; r++) {
+            byte ancienne = anciennes[baseAncienne + r];
+            if (voisines[baseX + r] < ancienne && esquisses[baseP + r] <= ancienne) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Recalcule l'esquisse d'un sommet au niveau k à partir de celles de ses voisins au niveau k - 1.
+     */
+    private void recalculer(int k, int v) {
+        System.arraycopy(niveaux[0], v * EsquisseHLL.REGISTRES, niveaux[k], v * EsquisseHLL.REGISTRES,
+                EsquisseHLL.REGISTRES);
+        for (Utilisateur w : voisins(parId[v])) {
+            EsquisseHLL.fusionner(niveaux[k], v, niveaux[k - 1], id(w));
+        }
+    }
+
+    /**
+     * Les utilisateurs vers qui la propagation avance depuis {@code u}.
+     */
+    private Set<Utilisateur> voisins(Utilisateur u) {
+        return direction == Direction.ABONNEMENTS ? reseau.obtenirAbonnements(u) : reseau.obtenirAbonnes(u);
+    }
+
+    /**
+     * Les utilisateurs depuis lesquels la propagation avance vers {@code u}.
+     */
+    private Set<Utilisateur> predecesseurs(Utilisateur u) {
+        return direction == Direction.ABONNEMENTS ? reseau.obtenirAbonnes(u) : reseau.obtenirAbonnements(u);
+    }
+
+    private int id(Utilisateur u) {
+        return ids.get(u.cle());
+    }
+
+    private static int[] ajouter(int[] tableau, int position, int valeur) {
+        if (position == tableau.length) {
+            tableau = Arrays.copyOf(tableau, tableau.length * 2);
+        }
+        tableau[position] = valeur;
+        return tableau;
+    }
+}
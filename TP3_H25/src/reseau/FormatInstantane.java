@@ -0,0 +1,397 @@
+package reseau;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Format binaire des instantanés de {@link CivixNet} (fichiers {@code .ser}).
+ * <p>
+ * Structure d'un fichier, tous les entiers étant en gros-boutiste :
+ * </p>
+ * <pre>
+ * en-tête     : "CVXN" (4 octets), version (int), nombre d'utilisateurs (int)
+ * chaînes     : pour chaque utilisateur, dans l'ordre du réseau :
+ *               longueur (varint) + username UTF-8, longueur (varint) + password UTF-8
+ *               (empreinte encodée, voir {@link MagasinIdentifiants#empreinte(String)})
+ * abonnements : pour chaque utilisateur : degré (varint), puis les identifiants suivis,
+ *               triés, le premier en clair et les suivants en écart avec le précédent (varint)
+ * index       : (version 2) la position (long) de la chaîne username de chaque utilisateur,
+ *               puis la position (long) de la liste d'abonnements de chaque utilisateur
+ * fin         : (version 2) la position de l'index (long), puis
+ *               CRC32 (int) de tous les octets précédents
+ * </pre>
+ * <p>
+ * L'identifiant d'un utilisateur est sa position dans la table des chaînes, qui suit l'ordre
+ * alphabétique du réseau. Les lectures et écritures passent par un {@link FileChannel} et un
+ * tampon direct de taille fixe. L'index de la version 2 permet d'interroger le fichier sans le
+ * charger, par projection en mémoire (voir {@link ReseauMappe}); la version 1 reste lisible.
+ * </p>
+ */
+final class FormatInstantane {
+
+    /**
+     * Signature des fichiers d'instantané ("CVXN").
+     */
+    static final int SIGNATURE = 0x4356584E;
+
+    /**
+     * Version courante du format.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Taille de la fin de fichier : position de l'index et somme de contrôle.
+     */
+    static final int TAILLE_FIN = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Taille du tampon d'entrée-sortie.
+     */
+    private static final int TAILLE_TAMPON = 1 << 16;
+
+    private FormatInstantane() {
+    }
+
+    /**
+     * Écrit un instantané du réseau. Le fichier est d'abord écrit à côté, puis renommé,
+     * pour qu'un arrêt brutal ne laisse jamais d'instantané à moitié écrit.
+     *
+     * @param reseau  le réseau à sauvegarder
+     * @param fichier le fichier de destination
+     * @throws IOException si une erreur d'écriture survient
+     */
+    static void ecrire(CivixNet reseau, Path fichier) throws IOException {
+        Map<Utilisateur, Set<Utilisateur>> utilisateurs = reseau.getUtilisateurs();
+        MagasinIdentifiants identifiants = reseau.identifiants();
+        identifiants.hacherEnAttente();
+        Map<Utilisateur, Integer> ids = new HashMap<>();
+        for (Utilisateur u : utilisateurs.keySet()) {
+            ids.put(u, ids.size());
+        }
+
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (Ecrivain out = new Ecrivain(FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            out.ecrireInt(SIGNATURE);
+            out.ecrireInt(VERSION);
+            out.ecrireInt(utilisateurs.size());
+
+            long[] positionsNoms = new long[utilisateurs.size()];
+            long[] positionsLignes = new long[utilisateurs.size()];
+            int id = 0;
+            for (Utilisateur u : utilisateurs.keySet()) {
+                positionsNoms[id++] = out.position();
+                out.ecrireChaine(u.getUsername());
+                out.ecrireChaine(identifiants.empreinte(u.getUsername()));
+            }
+
+            int[] voisins = new int[0];
+            id = 0;
+            for (Set<Utilisateur> abonnements : utilisateurs.values()) {
+                positionsLignes[id++] = out.position();
+                if (voisins.length < abonnements.size()) {
+                    voisins = new int[abonnements.size()];
+                }
+                int degre = 0;
+                for (Utilisateur v : abonnements) {
+                    voisins[degre++] = ids.get(v);
+                }
+                Arrays.sort(voisins, 0, degre);
+                out.ecrireVarint(degre);
+                int precedent = 0;
+                for (int k = 0; k < degre; k++) {
+                    out.ecrireVarint(voisins[k] - precedent);
+                    precedent = voisins[k];
+                }
+            }
+
+            long positionIndex = out.position();
+            for (long position : positionsNoms) {
+                out.ecrireLong(position);
+            }
+            for (long position : positionsLignes) {
+                out.ecrireLong(position);
+            }
+            out.ecrireLong(positionIndex);
+            out.terminer();
+        }
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lit un instantané et reconstruit le réseau.
+     *
+     * @param fichier le fichier d'instantané
+     * @return le réseau restauré
+     * @throws IOException si le fichier est illisible, d'une version inconnue ou corrompu
+     */
+    static CivixNet lire(Path fichier) throws IOException {
+        try (Lecteur in = new Lecteur(FileChannel.open(fichier, StandardOpenOption.READ))) {
+            if (in.lireInt() != SIGNATURE) {
+                throw new IOException("Ce fichier n'est pas un instantané CivixNet.");
+            }
+            int version = in.lireInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Version d'instantané non supportée : " + version);
+            }
+            int nbUtilisateurs = in.lireInt();
+            // chaque utilisateur occupe au moins trois octets : deux longueurs de chaîne et un degré
+            if (nbUtilisateurs < 0 || nbUtilisateurs > in.restants() / 3) {
+                throw new IOException("Instantané corrompu : nombre d'utilisateurs invalide (" + nbUtilisateurs + ").");
+            }
+
+            CivixNet reseau = new CivixNet();
+            Utilisateur[] parId = new Utilisateur[nbUtilisateurs];
+            for (int id = 0; id < nbUtilisateurs; id++) {
+                String username = in.lireChaine();
+                reseau.importerUtilisateur(username, in.lireChaine());
+                parId[id] = reseau.obtenirUtilisateurAPartirDuUsername(username);
+            }
+
+            for (int id = 0; id < nbUtilisateurs; id++) {
+                int degre = in.lireVarint();
+                if (degre < 0 || degre > in.restants()) {
+                    throw new IOException("Instantané corrompu : degré invalide (" + degre + ").");
+                }
+                int voisin = 0;
+                for (int k = 0; k < degre; k++) {
+                    voisin += in.lireVarint();
+                    reseau.ajouterAbonnement(parId[id], parId[voisin]);
+                }
+            }
+            if (version >= 2) {
+                // l'index ne sert qu'aux lectures par projection en mémoire
+                for (long i = 0; i < 2L * nbUtilisateurs + 1; i++) {
+                    in.lireLong();
+                }
+            }
+            in.verifierFin();
+            // les instantanés écrits avant le magasin d'identifiants gardent des mots de passe en clair
+            reseau.identifiants().hacherEnAttente();
+            return reseau;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Instantané corrompu.", e);
+        }
+    }
+
+    /**
+     * Écriture tamponnée dans un canal, avec calcul du CRC32 au fil de l'eau.
+     */
+    private static final class Ecrivain implements AutoCloseable {
+        private final FileChannel canal;
+        private final ByteBuffer tampon = ByteBuffer.allocateDirect(TAILLE_TAMPON);
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Nombre d'octets déjà écrits dans le canal.
+         */
+        private long ecrits;
+
+        Ecrivain(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        /**
+         * Retourne la position dans le fichier du prochain octet écrit.
+         */
+        long position() {
+            return ecrits + tampon.position();
+        }
+
+        void ecrireInt(int valeur) throws IOException {
+            reserver(Integer.BYTES);
+            tampon.putInt(valeur);
+        }
+
+        void ecrireLong(long valeur) throws IOException {
+            reserver(Long.BYTES);
+            tampon.putLong(valeur);
+        }
+
+        void ecrireVarint(int valeur) throws IOException {
+            reserver(5);
+            while ((valeur & ~0x7F) != 0) {
+                tampon.put((byte) ((valeur & 0x7F) | 0x80));
+                valeur >>>= 7;
+            }
+            tampon.put((byte) valeur);
+        }
+
+        void ecrireChaine(String chaine) throws IOException {
+            byte[] octets = chaine.getBytes(StandardCharsets.UTF_8);
+            ecrireVarint(octets.length);
+            int position = 0;
+            while (position < octets.length) {
+                reserver(1);
+                int morceau = Math.min(tampon.remaining(), octets.length - position);
+                tampon.put(octets, position, morceau);
+                position += morceau;
+            }
+        }
+
+        /**
+         * Écrit la somme de contrôle, vide le tampon et force l'écriture sur disque.
+         */
+        void terminer() throws IOException {
+            vider();
+            tampon.putInt((int) crc.getValue());
+            tampon.flip();
+            while (tampon.hasRemaining()) {
+                canal.write(tampon);
+            }
+            canal.force(false);
+        }
+
+        private void reserver(int octets) throws IOException {
+            if (tampon.remaining() < octets) {
+                vider();
+            }
+        }
+
+        private void vider() throws IOException {
+            tampon.flip();
+            crc.update(tampon.duplicate());
+            while (tampon.hasRemaining()) {
+                ecrits += canal.write(tampon);
+            }
+            tampon.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+
+    /**
+     * Lecture tamponnée d'un canal, avec vérification du CRC32 des octets lus.
+     */
+    private static final class Lecteur implements AutoCloseable {
+        private final FileChannel canal;
+        private final ByteBuffer tampon = ByteBuffer.allocateDirect(TAILLE_TAMPON);
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Position dans le fichier de la somme de contrôle finale.
+         */
+        private final long finDonnees;
+
+        /**
+         * Nombre d'octets du fichier déjà chargés dans le tampon.
+         */
+        private long charges;
+
+        Lecteur(FileChannel canal) throws IOException {
+            this.canal = canal;
+            this.finDonnees = canal.size() - Integer.BYTES;
+            tampon.limit(0);
+        }
+
+        int lireInt() throws IOException {
+            exiger(Integer.BYTES);
+            return tampon.getInt();
+        }
+
+        long lireLong() throws IOException {
+            exiger(Long.BYTES);
+            return tampon.getLong();
+        }
+
+        int lireVarint() throws IOException {
+            int valeur = 0;
+            for (int decalage = 0; decalage < 35; decalage += 7) {
+                exiger(1);
+                byte octet = tampon.get();
+                valeur |= (octet & 0x7F) << decalage;
+                if (octet >= 0) {
+                    return valeur;
+                }
+            }
+            throw new IOException("Instantané corrompu : entier trop long.");
+        }
+
+        /**
+         * Retourne le nombre d'octets de données pas encore lus, somme de contrôle exclue.
+         */
+        long restants() {
+            return finDonnees - charges + tampon.remaining();
+        }
+
+        String lireChaine() throws IOException {
+            // la longueur n'est pas encore couverte par la somme de contrôle : elle est bornée avant d'allouer
+            int longueur = lireVarint();
+            if (longueur < 0 || longueur > restants()) {
+                throw new IOException("Instantané corrompu : longueur de chaîne invalide (" + longueur + ").");
+            }
+            byte[] octets = new byte[longueur];
+            int position = 0;
+            while (position < octets.length) {
+                exiger(1);
+                int morceau = Math.min(tampon.remaining(), octets.length - position);
+                tampon.get(octets, position, morceau);
+                position += morceau;
+            }
+            return new String(octets, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Vérifie que toutes les données ont été consommées et que la somme de contrôle concorde.
+         */
+        void verifierFin() throws IOException {
+            if (tampon.hasRemaining() || charges != finDonnees) {
+                throw new IOException("Instantané corrompu : données excédentaires.");
+            }
+            ByteBuffer fin = ByteBuffer.allocate(Integer.BYTES);
+            while (fin.hasRemaining()) {
+                if (canal.read(fin, finDonnees + fin.position()) < 0) {
+                    throw new EOFException("Instantané tronqué.");
+                }
+            }
+            if (fin.getInt(0) != (int) crc.getValue()) {
+                throw new IOException("Instantané corrompu : somme de contrôle invalide.");
+            }
+        }
+
+        /**
+         * S'assure que le tampon contient au moins {@code octets} octets, sans jamais charger la somme de contrôle.
+         */
+        private void exiger(int octets) throws IOException {
+            if (tampon.remaining() >= octets) {
+                return;
+            }
+            tampon.compact();
+            while (tampon.position() < octets) {
+                long restant = finDonnees - charges;
+                if (restant <= 0) {
+                    throw new EOFException("Instantané tronqué.");
+                }
+                ByteBuffer fenetre = tampon.duplicate();
+                fenetre.limit((int) Math.min(tampon.capacity(), tampon.position() + restant));
+                int lus = canal.read(fenetre, charges);
+                if (lus < 0) {
+                    throw new EOFException("Instantané tronqué.");
+                }
+                ByteBuffer nouveaux = tampon.duplicate();
+                nouveaux.limit(tampon.position() + lus);
+                crc.update(nouveaux);
+                tampon.position(tampon.position() + lus);
+                charges += lus;
+            }
+            tampon.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
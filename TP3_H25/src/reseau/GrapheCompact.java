@@ -0,0 +1,649 @@
+package reseau;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * La classe {@code GrapheCompact} est un moteur de stockage alternatif à {@link CivixNet}
+ * pour les très grands réseaux.
+ * <p>
+ * Chaque utilisateur reçoit un identifiant entier dense (0, 1, 2, ...) et les abonnements
+ * sont conservés dans des tableaux primitifs au format CSR (voir {@link Adjacence}),
+ * ce qui coûte environ 4 octets par abonnement au lieu d'une entrée de {@link HashSet}.
+ * Les modifications sont d'abord accumulées dans un tampon (ajouts et retraits, dans des ensembles
+ * de {@code long} primitifs), qui n'est fusionné dans les tableaux CSR que lorsqu'il atteint le seuil
+ * de compaction, ou quand un moteur de calcul demande la vue CSR complète. Les lectures d'un
+ * utilisateur ({@link #degreSortant(int)}, {@link #pourChaqueAbonnement(int, IntConsumer)}) fusionnent
+ * à la volée sa ligne CSR et ses modifications en attente : une modification isolée ne coûte jamais
+ * une reconstruction en O(V + E).
+ * </p>
+ * <p>
+ * Les méthodes {@code ajouterAbonnement}, {@code retirerAbonnement} et
+ * {@code abonnementMutuel} ont la même signature que dans {@link CivixNet}.
+ * </p>
+ */
+public class GrapheCompact {
+
+    /**
+     * Nombre de modifications en attente au-delà duquel le tampon est fusionné dans le CSR.
+     */
+    private static final int SEUIL_COMPACTION_PAR_DEFAUT = 1 << 16;
+
+    /**
+     * Identifiant de chaque utilisateur, indexé par nom d'utilisateur normalisé.
+     */
+    private final Map<String, Integer> ids;
+
+    /**
+     * Les utilisateurs, indexés par identifiant.
+     */
+    private Utilisateur[] parId;
+
+    /**
+     * Le nombre d'utilisateurs internés.
+     */
+    private int nbSommets;
+
+    /**
+     * Début de ligne CSR de chaque sommet compacté ({@code nbSommetsCompactes + 1} cases).
+     */
+    private int[] debuts;
+
+    /**
+     * Voisins CSR, triés à l'intérieur de chaque ligne.
+     */
+    private int[] voisins;
+
+    /**
+     * Le nombre de sommets couverts par les tableaux CSR; les sommets suivants n'ont que des ajouts en attente.
+     */
+    private int nbSommetsCompactes;
+
+    /**
+     * Arcs ajoutés depuis la dernière compaction et absents du CSR.
+     */
+    private final EnsembleLongs ajouts;
+
+    /**
+     * Arcs présents dans le CSR et retirés depuis la dernière compaction.
+     */
+    private final EnsembleLongs retraits;
+
+    /**
+     * Les cibles des arcs de {@link #ajouts}, par sommet source, sans ordre, pour lire une ligne sans compacter.
+     */
+    private int[][] ajoutsParSommet;
+    private int[] nbAjoutsParSommet;
+
+    /**
+     * Le nombre d'arcs de {@link #retraits} par sommet source.
+     */
+    private int[] nbRetraitsParSommet;
+
+    /**
+     * Nombre de modifications en attente qui déclenche une compaction.
+     */
+    private final int seuilCompaction;
+
+    /**
+     * Le nombre d'abonnements du graphe, tampon compris.
+     */
+    private long nbAbonnements;
+
+    /**
+     * Les mots de passe des utilisateurs, gardés à part des sommets.
+     */
+    private MagasinIdentifiants identifiants;
+
+    /**
+     * Constructeur par défaut. Initialise un graphe vide.
+     */
+    public GrapheCompact() {
+        this(SEUIL_COMPACTION_PAR_DEFAUT);
+    }
+
+    /**
+     * Initialise un graphe vide avec un seuil de compaction donné.
+     *
+     * @param seuilCompaction le nombre de modifications en attente qui déclenche une compaction
+     * @throws IllegalArgumentException si le seuil n'est pas strictement positif
+     */
+    public GrapheCompact(int seuilCompaction) {
+        this(seuilCompaction, new MagasinIdentifiants());
+    }
+
+    /**
+     * Initialise un graphe vide dont les mots de passe sont gardés par le magasin donné.
+     *
+     * @param identifiants le magasin des mots de passe
+     */
+    public GrapheCompact(MagasinIdentifiants identifiants) {
+        this(SEUIL_COMPACTION_PAR_DEFAUT, identifiants);
+    }
+
+    /**
+     * Initialise un graphe vide dont les mots de passe sont gardés par le magasin donné,
+     * pour en régler le facteur de travail et le cache.
+     *
+     * @param seuilCompaction le nombre de modifications en attente qui déclenche une compaction
+     * @param identifiants    le magasin des mots de passe
+     * @throws IllegalArgumentException si le seuil n'est pas strictement positif
+     */
+    public GrapheCompact(int seuilCompaction, MagasinIdentifiants identifiants) {
+        if (seuilCompaction <= 0) {
+            throw new IllegalArgumentException("Le seuil de compaction doit être positif.");
+        }
+        this.seuilCompaction = seuilCompaction;
+        this.ids = new HashMap<>();
+        this.parId = new Utilisateur[16];
+        this.debuts = new int[1];
+        this.voisins = new int[0];
+        this.ajouts = new EnsembleLongs();
+        this.retraits = new EnsembleLongs();
+        this.ajoutsParSommet = new int[16][];
+        this.nbAjoutsParSommet = new int[16];
+        this.nbRetraitsParSommet = new int[16];
+        this.identifiants = Objects.requireNonNull(identifiants);
+    }
+
+    /**
+     * Construit un graphe compact à partir d'un {@link CivixNet}, directement au format CSR.
+     * Les identifiants suivent l'ordre alphabétique des utilisateurs du réseau.
+     *
+     * @param reseau le réseau à convertir
+     * @return le graphe compact équivalent
+     */
+    public static GrapheCompact depuis(CivixNet reseau) {
+        GrapheCompact graphe = new GrapheCompact();
+        graphe.identifiants = reseau.identifiants().copie();
+        Map<Utilisateur, Set<Utilisateur>> utilisateurs = reseau.getUtilisateurs();
+        for (Utilisateur u : utilisateurs.keySet()) {
+            graphe.interner(u);
+        }
+
+        int[] debuts = new int[graphe.nbSommets + 1];
+        long total = 0;
+        int s = 0;
+        for (Set<Utilisateur> abonnements : utilisateurs.values()) {
+            total += abonnements.size();
+            debuts[++s] = (int) total;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Trop d'abonnements pour un graphe compact.");
+        }
+
+        int[] voisins = new int[(int) total];
+        s = 0;
+        for (Set<Utilisateur> abonnements : utilisateurs.values()) {
+            int k = debuts[s];
+            for (Utilisateur v : abonnements) {
+                voisins[k++] = graphe.idExistant(v);
+            }
+            Arrays.sort(voisins, debuts[s], k);
+            s++;
+        }
+
+        graphe.debuts = debuts;
+        graphe.voisins = voisins;
+        graphe.nbSommetsCompactes = graphe.nbSommets;
+        graphe.nbAbonnements = total;
+        return graphe;
+    }
+
+    /**
+     * Retourne le magasin des mots de passe du graphe, pour authentifier ses utilisateurs.
+     *
+     * @return le magasin des identifiants
+     */
+    public MagasinIdentifiants identifiants() {
+        return identifiants;
+    }
+
+    /**
+     * Reconstruit un {@link CivixNet} équivalent à ce graphe.
+     *
+     * @return un nouveau réseau contenant les mêmes utilisateurs et abonnements
+     */
+    public CivixNet versCivixNet() {
+        CivixNet reseau = new CivixNet(identifiants.copie());
+        for (int s = 0; s < nbSommets; s++) {
+            reseau.inscrire(new Utilisateur(parId[s].getUsername()));
+        }
+        Utilisateur[] copies = new Utilisateur[nbSommets];
+        for (int s = 0; s < nbSommets; s++) {
+            copies[s] = reseau.obtenirUtilisateurAPartirDuUsername(parId[s].getUsername());
+        }
+        for (int s = 0; s < nbSommets; s++) {
+            Utilisateur compte = copies[s];
+            pourChaqueAbonnement(s, v -> reseau.ajouterAbonnement(compte, copies[v]));
+        }
+        return reseau;
+    }
+
+    /**
+     * Ajoute un nouvel utilisateur au graphe. Si le nom est déjà pris, l'utilisateur existant est conservé.
+     *
+     * @param username le nom d'utilisateur
+     * @param password le mot de passe associé
+     * @throws IllegalArgumentException si le nom ou le mot de passe est invalide
+     */
+    public void ajouterUtilisateur(String username, String password) {
+        Utilisateur nouveau = new Utilisateur(username);
+        identifiants.ajouter(username, password);
+        if (!ids.containsKey(CivixNet.normaliser(username))) {
+            interner(nouveau);
+        }
+    }
+
+    /**
+     * Attribue un identifiant à un utilisateur, ou retourne celui qu'il possède déjà.
+     *
+     * @param u l'utilisateur
+     * @return l'identifiant de l'utilisateur
+     */
+    public int interner(Utilisateur u) {
+        String cle = CivixNet.normaliser(u.getUsername());
+        Integer existant = ids.get(cle);
+        if (existant != null) {
+            return existant;
+        }
+        if (nbSommets == parId.length) {
+            parId = Arrays.copyOf(parId, parId.length * 2);
+        }
+        if (nbSommets == ajoutsParSommet.length) {
+            ajoutsParSommet = Arrays.copyOf(ajoutsParSommet, parId.length);
+            nbAjoutsParSommet = Arrays.copyOf(nbAjoutsParSommet, parId.length);
+            nbRetraitsParSommet = Arrays.copyOf(nbRetraitsParSommet, parId.length);
+        }
+        u.marquerInscrit();
+        parId[nbSommets] = u;
+        ids.put(cle, nbSommets);
+        return nbSommets++;
+    }
+
+    /**
+     * Retourne l'identifiant d'un utilisateur.
+     *
+     * @param u l'utilisateur
+     * @return son identifiant, ou -1 s'il n'est pas dans le graphe
+     */
+    public int id(Utilisateur u) {
+        Integer id = ids.get(CivixNet.normaliser(u.getUsername()));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Retourne l'utilisateur associé à un identifiant.
+     *
+     * @param id l'identifiant
+     * @return l'utilisateur correspondant
+     * @throws IndexOutOfBoundsException si l'identifiant n'existe pas
+     */
+    public Utilisateur utilisateur(int id) {
+        Objects.checkIndex(id, nbSommets);
+        return parId[id];
+    }
+
+    /**
+     * Recherche un utilisateur dans le graphe à partir de son nom.
+     *
+     * @param username le nom d'utilisateur recherché
+     * @return l'objet {@link Utilisateur} correspondant
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public Utilisateur obtenirUtilisateurAPartirDuUsername(String username) throws RuntimeException {
+        Integer id = username == null ? null : ids.get(CivixNet.normaliser(username));
+        if (id == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return parId[id];
+    }
+
+    /**
+     * Retourne le nombre d'utilisateurs du graphe.
+     *
+     * @return le nombre d'utilisateurs
+     */
+    public int nombreUtilisateurs() {
+        return nbSommets;
+    }
+
+    /**
+     * Retourne le nombre d'abonnements du graphe, modifications en attente comprises.
+     *
+     * @return le nombre d'abonnements
+     */
+    public long nombreAbonnements() {
+        return nbAbonnements;
+    }
+
+    /**
+     * Abonne un utilisateur à un autre.
+     *
+     * @param compte           l'utilisateur qui souhaite suivre
+     * @param nouvelAbonnement l'utilisateur à suivre
+     * @throws RuntimeException si l'un des utilisateurs n'existe pas
+     */
+    public void ajouterAbonnement(Utilisateur compte, Utilisateur nouvelAbonnement) {
+        ajouterAbonnement(idExistant(compte), idExistant(nouvelAbonnement));
+    }
+
+    /**
+     * Retire un abonnement pour un utilisateur donné.
+     *
+     * @param compte             l'utilisateur qui arrête de suivre
+     * @param abonnementARetirer l'utilisateur à ne plus suivre
+     * @throws RuntimeException si l'un des utilisateurs n'existe pas
+     */
+    public void retirerAbonnement(Utilisateur compte, Utilisateur abonnementARetirer) {
+        retirerAbonnement(idExistant(compte), idExistant(abonnementARetirer));
+    }
+
+    /**
+     * Abonne un utilisateur à une liste d'autres utilisateurs.
+     *
+     * @param compte              l'utilisateur qui souhaite suivre d'autres comptes
+     * @param nouveauxAbonnements la liste des nouveaux abonnements
+     */
+    public void ajouterAbonnements(Utilisateur compte, List<Utilisateur> nouveauxAbonnements) {
+        int source = idExistant(compte);
+        for (Utilisateur u : nouveauxAbonnements) {
+            ajouterAbonnement(source, idExistant(u));
+        }
+    }
+
+    /**
+     * Retire une liste d'abonnements pour un utilisateur donné.
+     *
+     * @param compte              l'utilisateur concerné
+     * @param abonnementsARetirer la liste des abonnements à supprimer
+     */
+    public void retirerAbonnements(Utilisateur compte, List<Utilisateur> abonnementsARetirer) {
+        int source = idExistant(compte);
+        for (Utilisateur u : abonnementsARetirer) {
+            retirerAbonnement(source, idExistant(u));
+        }
+    }
+
+    /**
+     * Vérifie si deux utilisateurs sont mutuellement abonnés.
+     *
+     * @param u1 le premier utilisateur
+     * @param u2 le second utilisateur
+     * @return {@code true} si u1 suit u2 et u2 suit u1, sinon {@code false}
+     */
+    public boolean abonnementMutuel(Utilisateur u1, Utilisateur u2) {
+        int a = idExistant(u1);
+        int b = idExistant(u2);
+        return contient(a, b) && contient(b, a);
+    }
+
+    /**
+     * Ajoute l'arc {@code source -> cible}.
+     *
+     * @param source l'identifiant de l'abonné
+     * @param cible  l'identifiant du compte suivi
+     * @return {@code true} si l'abonnement n'existait pas déjà
+     */
+    public boolean ajouterAbonnement(int source, int cible) {
+        verifierId(source);
+        verifierId(cible);
+        long arc = encoder(source, cible);
+        if (ajouts.contient(arc)) {
+            return false;
+        }
+        if (contientCompacte(source, cible)) {
+            if (!retraits.retirer(arc)) {
+                return false;
+            }
+            nbRetraitsParSommet[source]--;
+        } else {
+            ajouts.ajouter(arc);
+            empilerAjout(source, cible);
+        }
+        nbAbonnements++;
+        compacterSiNecessaire();
+        return true;
+    }
+
+    /**
+     * Retire l'arc {@code source -> cible}.
+     *
+     * @param source l'identifiant de l'abonné
+     * @param cible  l'identifiant du compte suivi
+     * @return {@code true} si l'abonnement existait
+     */
+    public boolean retirerAbonnement(int source, int cible) {
+        verifierId(source);
+        verifierId(cible);
+        long arc = encoder(source, cible);
+        if (ajouts.retirer(arc)) {
+            depilerAjout(source, cible);
+            nbAbonnements--;
+            return true;
+        }
+        if (!contientCompacte(source, cible) || !retraits.ajouter(arc)) {
+            return false;
+        }
+        nbRetraitsParSommet[source]++;
+        nbAbonnements--;
+        compacterSiNecessaire();
+        return true;
+    }
+
+    /**
+     * Vérifie si l'arc {@code source -> cible} existe, sans forcer de compaction.
+     *
+     * @param source l'identifiant de l'abonné
+     * @param cible  l'identifiant du compte suivi
+     * @return {@code true} si {@code source} suit {@code cible}
+     */
+    public boolean contient(int source, int cible) {
+        long arc = encoder(source, cible);
+        if (ajouts.contient(arc)) {
+            return true;
+        }
+        return !retraits.contient(arc) && contientCompacte(source, cible);
+    }
+
+    /**
+     * Retourne le nombre d'abonnements d'un utilisateur, modifications en attente comprises, sans compacter.
+     *
+     * @param id l'identifiant de l'utilisateur
+     * @return son degré sortant
+     */
+    public int degreSortant(int id) {
+        verifierId(id);
+        int degreCompacte = id < nbSommetsCompactes ? debuts[id + 1] - debuts[id] : 0;
+        return degreCompacte - nbRetraitsParSommet[id] + nbAjoutsParSommet[id];
+    }
+
+    /**
+     * Parcourt les abonnements d'un utilisateur en ordre croissant d'identifiant. La ligne CSR est
+     * fusionnée à la volée avec les modifications en attente de l'utilisateur, sans compacter.
+     *
+     * @param id     l'identifiant de l'utilisateur
+     * @param action l'action appliquée à l'identifiant de chaque compte suivi
+     */
+    public void pourChaqueAbonnement(int id, IntConsumer action) {
+        verifierId(id);
+        int debut = id < nbSommetsCompactes ? debuts[id] : 0;
+        int fin = id < nbSommetsCompactes ? debuts[id + 1] : 0;
+        int nbAjoutes = nbAjoutsParSommet[id];
+        boolean filtrer = nbRetraitsParSommet[id] > 0;
+        if (nbAjoutes == 0 && !filtrer) {
+            for (int k = debut; k < fin; k++) {
+                action.accept(voisins[k]);
+            }
+            return;
+        }
+        // les cibles ajoutées ne sont jamais dans le CSR : la fusion des deux listes triées est sans doublon
+        int[] ajoutes = Arrays.copyOf(ajoutsParSommet[id], nbAjoutes);
+        Arrays.sort(ajoutes);
+        int a = 0;
+        for (int k = debut; k < fin; k++) {
+            int v = voisins[k];
+            while (a < nbAjoutes && ajoutes[a] < v) {
+                action.accept(ajoutes[a++]);
+            }
+            if (!filtrer || !retraits.contient(encoder(id, v))) {
+                action.accept(v);
+            }
+        }
+        while (a < nbAjoutes) {
+            action.accept(ajoutes[a++]);
+        }
+    }
+
+    /**
+     * Fusionne les modifications en attente dans les tableaux CSR, en temps O(V + E).
+     * Sans effet si aucune modification n'est en attente.
+     */
+    public void compacter() {
+        if (ajouts.estVide() && retraits.estVide() && nbSommetsCompactes == nbSommets) {
+            return;
+        }
+        long[] ajoutsTries = ajouts.trier();
+        long[] retraitsTries = retraits.trier();
+
+        int[] nouveauxDebuts = new int[nbSommets + 1];
+        int[] nouveauxVoisins = new int[Math.toIntExact(nbAbonnements)];
+        int k = 0;
+        int ia = 0;
+        int ir = 0;
+        for (int s = 0; s < nbSommets; s++) {
+            int p = s < nbSommetsCompactes ? debuts[s] : 0;
+            int fin = s < nbSommetsCompactes ? debuts[s + 1] : 0;
+            // fusion de deux listes triées : la ligne CSR (moins les retraits) et les ajouts de s
+            while (p < fin || (ia < ajoutsTries.length && source(ajoutsTries[ia]) == s)) {
+                int candidatCsr = p < fin ? voisins[p] : Integer.MAX_VALUE;
+                int candidatAjout = ia < ajoutsTries.length && source(ajoutsTries[ia]) == s
+                        ? cible(ajoutsTries[ia]) : Integer.MAX_VALUE;
+                if (candidatAjout < candidatCsr) {
+                    nouveauxVoisins[k++] = candidatAjout;
+                    ia++;
+                } else {
+                    p++;
+                    long arc = encoder(s, candidatCsr);
+                    while (ir < retraitsTries.length && retraitsTries[ir] < arc) {
+                        ir++;
+                    }
+                    if (ir < retraitsTries.length && retraitsTries[ir] == arc) {
+                        ir++;
+                    } else {
+                        nouveauxVoisins[k++] = candidatCsr;
+                    }
+                }
+            }
+            nouveauxDebuts[s + 1] = k;
+        }
+
+        debuts = nouveauxDebuts;
+        voisins = nouveauxVoisins;
+        nbSommetsCompactes = nbSommets;
+        ajouts.vider();
+        retraits.vider();
+        Arrays.fill(ajoutsParSommet, 0, nbSommets, null);
+        Arrays.fill(nbAjoutsParSommet, 0, nbSommets, 0);
+        Arrays.fill(nbRetraitsParSommet, 0, nbSommets, 0);
+    }
+
+    /**
+     * Retourne la vue CSR du graphe, après compaction. La vue n'est valide que jusqu'à la
+     * prochaine modification du graphe.
+     *
+     * @return la vue CSR des abonnements
+     */
+    Adjacence adjacence() {
+        compacter();
+        return new Adjacence(debuts, voisins, nbSommets);
+    }
+
+    /**
+     * Retourne l'identifiant d'un utilisateur qui doit exister.
+     *
+     * @param u l'utilisateur
+     * @return son identifiant
+     * @throws RuntimeException si l'utilisateur n'est pas dans le graphe
+     */
+    private int idExistant(Utilisateur u) {
+        int id = id(u);
+        if (id < 0) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return id;
+    }
+
+    /**
+     * Vérifie qu'un identifiant désigne un utilisateur du graphe.
+     *
+     * @param id l'identifiant
+     */
+    private void verifierId(int id) {
+        Objects.checkIndex(id, nbSommets);
+    }
+
+    /**
+     * Recherche dichotomique de l'arc dans les tableaux CSR, sans tenir compte du tampon.
+     */
+    private boolean contientCompacte(int source, int cible) {
+        if (source >= nbSommetsCompactes) {
+            return false;
+        }
+        return Arrays.binarySearch(voisins, debuts[source], debuts[source + 1], cible) >= 0;
+    }
+
+    /**
+     * Déclenche une compaction si le tampon de modifications a atteint le seuil.
+     */
+    private void compacterSiNecessaire() {
+        if (ajouts.taille() + retraits.taille() >= seuilCompaction) {
+            compacter();
+        }
+    }
+
+    /**
+     * Note la cible d'un arc ajouté dans la liste en attente de sa source.
+     */
+    private void empilerAjout(int source, int cible) {
+        int[] liste = ajoutsParSommet[source];
+        int nb = nbAjoutsParSommet[source];
+        if (liste == null) {
+            liste = ajoutsParSommet[source] = new int[4];
+        } else if (nb == liste.length) {
+            liste = ajoutsParSommet[source] = Arrays.copyOf(liste, nb * 2);
+        }
+        liste[nb] = cible;
+        nbAjoutsParSommet[source] = nb + 1;
+    }
+
+    /**
+     * Retire la cible d'un arc ajouté puis retiré avant la compaction de la liste en attente de sa source.
+     */
+    private void depilerAjout(int source, int cible) {
+        int[] liste = ajoutsParSommet[source];
+        int dernier = --nbAjoutsParSommet[source];
+        for (int i = 0; i <= dernier; i++) {
+            if (liste[i] == cible) {
+                liste[i] = liste[dernier];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Encode un arc dans un {@code long} : la source dans les 32 bits de poids fort,
+     * ce qui fait que l'ordre des {@code long} suit l'ordre (source, cible).
+     */
+    private static long encoder(int source, int cible) {
+        return ((long) source << 32) | cible;
+    }
+
+    private static int source(long arc) {
+        return (int) (arc >>> 32);
+    }
+
+    private static int cible(long arc) {
+        return (int) arc;
+    }
+}
@@ -0,0 +1,95 @@
+package reseau;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de valeurs positives à cases log-linéaires, à la manière de HdrHistogram.
+ * <p>
+ * Les valeurs inférieures à 32 ont chacune leur case; au-delà, chaque puissance de deux est partagée
+ * en 32 cases de même largeur. L'erreur relative sur une valeur lue est donc d'au plus 1/32 (3 %),
+ * avec 1888 cases pour toute la plage des {@code long}. Enregistrer une valeur ne fait qu'incrémenter
+ * des compteurs atomiques, sans verrou ni allocation; plusieurs fils peuvent enregistrer en même temps.
+ * </p>
+ */
+final class HistogrammeLog {
+
+    private static final int BITS = 5;
+    private static final int SOUS_CASES = 1 << BITS;
+    static final int NOMBRE_CASES = (64 - BITS) * SOUS_CASES;
+
+    private final AtomicLongArray comptes = new AtomicLongArray(NOMBRE_CASES);
+    private final LongAdder nombre = new LongAdder();
+    private final LongAdder somme = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Enregistre une valeur. Une valeur négative compte comme 0.
+     *
+     * @param valeur la valeur
+     */
+    void enregistrer(long valeur) {
+        valeur = Math.max(0, valeur);
+        comptes.incrementAndGet(indice(valeur));
+        nombre.increment();
+        somme.add(valeur);
+        max.accumulate(valeur);
+    }
+
+    /**
+     * Remet l'histogramme à zéro. Les valeurs enregistrées pendant la remise à zéro peuvent être perdues.
+     */
+    void reinitialiser() {
+        for (int i = 0; i < NOMBRE_CASES; i++) {
+            comptes.set(i, 0);
+        }
+        nombre.reset();
+        somme.reset();
+        max.reset();
+    }
+
+    /**
+     * Retourne une copie de l'histogramme. Elle n'est pas atomique : les valeurs enregistrées pendant
+     * la copie peuvent n'y être qu'en partie.
+     *
+     * @return le résumé de l'histogramme
+     */
+    ResumeHistogramme resume() {
+        long[] copie = new long[NOMBRE_CASES];
+        for (int i = 0; i < NOMBRE_CASES; i++) {
+            copie[i] = comptes.get(i);
+        }
+        return new ResumeHistogramme(copie, nombre.sum(), somme.sum(), max.get());
+    }
+
+    /**
+     * Retourne la case d'une valeur positive.
+     */
+    static int indice(long valeur) {
+        if (valeur < SOUS_CASES) {
+            return (int) valeur;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(valeur);
+        int decalage = magnitude - BITS;
+        return (decalage + 1) * SOUS_CASES + (int) (valeur >>> decalage) - SOUS_CASES;
+    }
+
+    /**
+     * Retourne la plus petite valeur d'une case.
+     */
+    static long borneInferieure(int indice) {
+        if (indice < SOUS_CASES) {
+            return indice;
+        }
+        int decalage = indice / SOUS_CASES - 1;
+        return (long) (indice % SOUS_CASES + SOUS_CASES) << decalage;
+    }
+
+    /**
+     * Retourne le nombre de valeurs d'une case.
+     */
+    static long largeur(int indice) {
+        return indice < SOUS_CASES ? 1 : 1L << (indice / SOUS_CASES - 1);
+    }
+}
@@ -0,0 +1,175 @@
+package reseau;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index des abonnements mutuels d'un {@link CivixNet}, tenu à jour au fil des modifications du réseau
+ * (voir {@link EcouteurReseau}).
+ * <p>
+ * Pour chaque utilisateur, l'index conserve l'ensemble des utilisateurs avec qui il est mutuellement
+ * abonné : obtenir ces « amis » coûte la taille du résultat plutôt qu'une intersection de ses
+ * abonnements et de ses abonnés. L'index compte aussi les paires mutuelles et les abonnements du
+ * réseau, ce qui donne le taux de réciprocité sans parcourir le graphe. Un utilisateur qui se suit
+ * lui-même n'est pas son propre ami.
+ * </p>
+ * <p>
+ * Comme le réseau, l'index n'est pas synchronisé : il se lit dans le fil qui modifie le réseau, ou
+ * quand le réseau n'est plus modifié.
+ * </p>
+ */
+public class IndexReciprocite implements EcouteurReseau {
+
+    private final CivixNet reseau;
+
+    /**
+     * Les abonnés mutuels de chaque utilisateur, par nom normalisé.
+     */
+    private final Map<String, Set<Utilisateur>> mutuels;
+
+    private long nombrePaires;
+    private long nombreAbonnements;
+
+    /**
+     * Construit l'index à partir de l'état actuel du réseau et l'abonne à ses modifications.
+     *
+     * @param reseau le réseau à indexer
+     */
+    public IndexReciprocite(CivixNet reseau) {
+        this.reseau = reseau;
+        this.mutuels = new HashMap<>();
+        Map<Utilisateur, Set<Utilisateur>> utilisateurs = reseau.getUtilisateurs();
+        for (Utilisateur u : utilisateurs.keySet()) {
+            mutuels.put(u.cle(), new HashSet<>());
+        }
+        for (Map.Entry<Utilisateur, Set<Utilisateur>> u : utilisateurs.entrySet()) {
+            Utilisateur compte = u.getKey();
+            Set<Utilisateur> abonnesCompte = reseau.obtenirAbonnes(compte);
+            nombreAbonnements += u.getValue().size();
+            for (Utilisateur suivi : u.getValue()) {
+                // chaque paire est vue depuis ses deux extrémités : on ne la compte qu'une fois
+                if (suivi != compte && abonnesCompte.contains(suivi) && compte.compareTo(suivi) < 0) {
+                    relier(compte, suivi);
+                }
+            }
+        }
+        reseau.ajouterEcouteur(this);
+    }
+
+    /**
+     * Désabonne l'index des modifications du réseau. L'index n'est plus tenu à jour.
+     */
+    public void detacher() {
+        reseau.retirerEcouteur(this);
+    }
+
+    /**
+     * Retourne les utilisateurs avec qui un utilisateur est mutuellement abonné.
+     *
+     * @param u l'utilisateur
+     * @return une vue non modifiable de ses abonnés mutuels
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public Set<Utilisateur> obtenirMutuels(Utilisateur u) {
+        return Collections.unmodifiableSet(mutuelsDe(u));
+    }
+
+    /**
+     * Retourne le nombre d'utilisateurs avec qui un utilisateur est mutuellement abonné.
+     *
+     * @param u l'utilisateur
+     * @return le nombre de ses abonnés mutuels
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public int nombreMutuels(Utilisateur u) {
+        return mutuelsDe(u).size();
+    }
+
+    /**
+     * Vérifie si deux utilisateurs distincts sont mutuellement abonnés, avec une seule recherche.
+     *
+     * @param u1 le premier utilisateur
+     * @param u2 le second utilisateur
+     * @return {@code true} si u1 suit u2 et u2 suit u1
+     * @throws RuntimeException si u1 n'existe pas
+     */
+    public boolean abonnementMutuel(Utilisateur u1, Utilisateur u2) {
+        return mutuelsDe(u1).contains(u2);
+    }
+
+    /**
+     * Retourne le nombre de paires d'utilisateurs mutuellement abonnés.
+     *
+     * @return le nombre de paires mutuelles
+     */
+    public long nombrePaires() {
+        return nombrePaires;
+    }
+
+    /**
+     * Retourne le nombre d'abonnements réciproques, soit deux par paire mutuelle.
+     *
+     * @return le nombre d'abonnements dont l'inverse existe aussi
+     */
+    public long nombreAbonnementsReciproques() {
+        return 2 * nombrePaires;
+    }
+
+    /**
+     * Retourne le nombre total d'abonnements du réseau.
+     *
+     * @return le nombre d'abonnements
+     */
+    public long nombreAbonnements() {
+        return nombreAbonnements;
+    }
+
+    /**
+     * Retourne la proportion des abonnements du réseau qui sont réciproques.
+     *
+     * @return le taux de réciprocité entre 0 et 1, ou 0 si le réseau n'a aucun abonnement
+     */
+    public double tauxReciprocite() {
+        return nombreAbonnements == 0 ? 0 : (double) nombreAbonnementsReciproques() / nombreAbonnements;
+    }
+
+    @Override
+    public void utilisateurAjoute(Utilisateur u) {
+        mutuels.put(u.cle(), new HashSet<>());
+    }
+
+    @Override
+    public void abonnementAjoute(Utilisateur compte, Utilisateur cible) {
+        nombreAbonnements++;
+        // l'écouteur est appelé après la modification : il reste à savoir si la cible suivait déjà le compte
+        if (cible != compte && reseau.obtenirAbonnes(compte).contains(cible)) {
+            relier(compte, cible);
+        }
+    }
+
+    @Override
+    public void abonnementRetire(Utilisateur compte, Utilisateur cible) {
+        nombreAbonnements--;
+        if (mutuelsDe(compte).remove(cible)) {
+            mutuelsDe(cible).remove(compte);
+            nombrePaires--;
+        }
+    }
+
+    private void relier(Utilisateur u1, Utilisateur u2) {
+        mutuelsDe(u1).add(u2);
+        mutuelsDe(u2).add(u1);
+        nombrePaires++;
+    }
+
+    private Set<Utilisateur> mutuelsDe(Utilisateur u) {
+        Set<Utilisateur> mutuelsU = mutuels.get(u.cle());
+        if (mutuelsU == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return mutuelsU;
+    }
+}
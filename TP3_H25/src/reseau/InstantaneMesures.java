@@ -0,0 +1,132 @@
+package reseau;
+
+import java.util.Map;
+
+/**
+ * Copie figée des mesures d'un {@link CivixNet} (voir {@link MesuresReseau#instantane()}).
+ */
+public class InstantaneMesures {
+
+    private final long nombreUtilisateurs;
+    private final long nombreAbonnements;
+    private final int degreSortantMax;
+    private final int degreEntrantMax;
+    private final long utilisateursAjoutes;
+    private final long abonnementsAjoutes;
+    private final long abonnementsRetires;
+    private final Map<OperationMesuree, ResumeHistogramme> durees;
+    private final ResumeHistogramme frontieres;
+
+    InstantaneMesures(long nombreUtilisateurs, long nombreAbonnements, int degreSortantMax, int degreEntrantMax,
+                      long utilisateursAjoutes, long abonnementsAjoutes, long abonnementsRetires,
+                      Map<OperationMesuree, ResumeHistogramme> durees, ResumeHistogramme frontieres) {
+        this.nombreUtilisateurs = nombreUtilisateurs;
+        this.nombreAbonnements = nombreAbonnements;
+        this.degreSortantMax = degreSortantMax;
+        this.degreEntrantMax = degreEntrantMax;
+        this.utilisateursAjoutes = utilisateursAjoutes;
+        this.abonnementsAjoutes = abonnementsAjoutes;
+        this.abonnementsRetires = abonnementsRetires;
+        this.durees = durees;
+        this.frontieres = frontieres;
+    }
+
+    /**
+     * Retourne le nombre d'utilisateurs du réseau.
+     *
+     * @return le nombre d'utilisateurs
+     */
+    public long nombreUtilisateurs() {
+        return nombreUtilisateurs;
+    }
+
+    /**
+     * Retourne le nombre d'abonnements du réseau.
+     *
+     * @return le nombre d'abonnements
+     */
+    public long nombreAbonnements() {
+        return nombreAbonnements;
+    }
+
+    /**
+     * Retourne le plus grand nombre d'abonnements d'un utilisateur.
+     *
+     * @return le degré sortant maximal
+     */
+    public int degreSortantMax() {
+        return degreSortantMax;
+    }
+
+    /**
+     * Retourne le plus grand nombre d'abonnés d'un utilisateur.
+     *
+     * @return le degré entrant maximal
+     */
+    public int degreEntrantMax() {
+        return degreEntrantMax;
+    }
+
+    /**
+     * Retourne le nombre d'utilisateurs ajoutés depuis que les mesures sont attachées ou remises à zéro.
+     *
+     * @return le nombre d'utilisateurs ajoutés
+     */
+    public long utilisateursAjoutes() {
+        return utilisateursAjoutes;
+    }
+
+    /**
+     * Retourne le nombre d'abonnements ajoutés depuis que les mesures sont attachées ou remises à zéro.
+     *
+     * @return le nombre d'abonnements ajoutés
+     */
+    public long abonnementsAjoutes() {
+        return abonnementsAjoutes;
+    }
+
+    /**
+     * Retourne le nombre d'abonnements retirés depuis que les mesures sont attachées ou remises à zéro.
+     *
+     * @return le nombre d'abonnements retirés
+     */
+    public long abonnementsRetires() {
+        return abonnementsRetires;
+    }
+
+    /**
+     * Retourne les durées d'une opération, en nanosecondes. Le nombre de valeurs est le nombre d'appels mesurés.
+     *
+     * @param operation l'opération
+     * @return l'histogramme de ses durées
+     */
+    public ResumeHistogramme durees(OperationMesuree operation) {
+        return durees.get(operation);
+    }
+
+    /**
+     * Retourne les tailles des frontières de propagation : le nombre d'utilisateurs atteints pour la première
+     * fois à chaque niveau.
+     *
+     * @return l'histogramme des tailles
+     */
+    public ResumeHistogramme frontieres() {
+        return frontieres;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texte = new StringBuilder()
+                .append("utilisateurs : ").append(nombreUtilisateurs)
+                .append(", abonnements : ").append(nombreAbonnements)
+                .append(", degré sortant max : ").append(degreSortantMax)
+                .append(", degré entrant max : ").append(degreEntrantMax)
+                .append("\najouts d'utilisateurs : ").append(utilisateursAjoutes)
+                .append(", ajouts d'abonnements : ").append(abonnementsAjoutes)
+                .append(", retraits d'abonnements : ").append(abonnementsRetires);
+        for (Map.Entry<OperationMesuree, ResumeHistogramme> duree : durees.entrySet()) {
+            texte.append('\n').append(duree.getKey()).append(" (ns) : ").append(duree.getValue());
+        }
+        return texte.append("\nfrontières : ").append(frontieres).toString();
+    }
+}
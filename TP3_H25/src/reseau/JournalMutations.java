@@ -0,0 +1,498 @@
+package reseau;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Journal des modifications d'un {@link CivixNet}, écrit en ajout seulement.
+ * <p>
+ * Branché comme {@link EcouteurReseau}, le journal ajoute un court enregistrement par modification :
+ * chaque modification coûte une petite écriture séquentielle plutôt qu'une sauvegarde complète du réseau.
+ * Un ajout d'utilisateur enregistre l'empreinte déjà calculée à l'inscription
+ * (voir {@link MagasinIdentifiants#empreinte(String)}) : le journal ne fait jamais de hachage. Le journal
+ * écoute aussi le {@link MagasinIdentifiants} du réseau : chaque changement de mot de passe y est
+ * enregistré comme une opération à lui seul.
+ * Les enregistrements sont accumulés dans un tampon, écrits dans le fichier à la fin de chaque opération
+ * ({@link #finLot()}), et forcés sur disque dès qu'au moins {@code lotSynchro} enregistrements attendent :
+ * un arrêt brutal du processus ne perd rien, une panne du système perd au plus les derniers enregistrements
+ * non forcés.
+ * </p>
+ * <pre>
+ * en-tête        : "CVXJ" (4 octets), version (int)
+ * enregistrement : longueur (int), CRC32 du contenu (int), contenu :
+ *                  type (octet), puis les chaînes, chacune en longueur (varint) + UTF-8
+ *                  1 = ajout d'utilisateur (username, empreinte encodée du mot de passe)
+ *                  2 = ajout d'abonnement (compte, cible), 3 = retrait d'abonnement (compte, cible)
+ *                  4 = fin de lot (sans chaîne)
+ *                  5 = changement de mot de passe (username, empreinte encodée du nouveau mot de passe)
+ *                  le bit 0x80 du type marque le dernier enregistrement d'un lot
+ * </pre>
+ * <p>
+ * Les enregistrements d'une même opération forment un lot, appliqué en entier ou pas du tout.
+ * La relecture s'arrête au premier enregistrement incomplet ou dont la somme de contrôle est invalide,
+ * ce qui arrive quand un arrêt brutal coupe une écriture : tous les lots complets qui précèdent sont appliqués.
+ * Rejouer une fin du journal sur un réseau qui la contient déjà ne change rien, chaque enregistrement
+ * fixant un état (abonné ou non) plutôt qu'une différence.
+ * </p>
+ */
+public class JournalMutations implements EcouteurReseau, Closeable {
+
+    /**
+     * Signature des fichiers de journal ("CVXJ").
+     */
+    static final int SIGNATURE = 0x4356584A;
+
+    /**
+     * Version courante du format.
+     */
+    static final int VERSION = 1;
+
+    private static final int TAILLE_EN_TETE = 2 * Integer.BYTES;
+    private static final int TAILLE_TAMPON = 1 << 16;
+
+    /**
+     * Longueur maximale d'un enregistrement; au-delà, la longueur lue est considérée comme corrompue.
+     */
+    private static final int LONGUEUR_MAX = 1 << 20;
+
+    private static final byte AJOUT_UTILISATEUR = 1;
+    private static final byte AJOUT_ABONNEMENT = 2;
+    private static final byte RETRAIT_ABONNEMENT = 3;
+    private static final byte FIN_LOT = 4;
+    private static final byte CHANGEMENT_MOT_DE_PASSE = 5;
+    private static final int DERNIER_DU_LOT = 0x80;
+    private static final int MASQUE_TYPE = 0x7F;
+
+    private final Path fichier;
+    private final int lotSynchro;
+    private final MagasinIdentifiants identifiants;
+    private final ByteBuffer tampon = ByteBuffer.allocate(TAILLE_TAMPON);
+    private final CRC32 crc = new CRC32();
+    private FileChannel canal;
+
+    /**
+     * Nombre d'octets déjà écrits dans le fichier.
+     */
+    private long ecrits;
+
+    /**
+     * Nombre d'enregistrements écrits depuis le dernier forçage sur disque.
+     */
+    private int nonSynchronises;
+
+    /**
+     * Position dans le tampon du dernier enregistrement, ou -1 s'il a déjà été écrit dans le fichier.
+     */
+    private int debutDernier = -1;
+
+    /**
+     * Indique si des enregistrements ont été écrits depuis la dernière fin de lot.
+     */
+    private boolean lotOuvert;
+
+    /**
+     * Enregistre les changements de mot de passe, faits dans le magasin plutôt que dans le graphe.
+     */
+    private final MagasinIdentifiants.EcouteurIdentifiants ecouteurIdentifiants = (username, empreinte) -> {
+        enregistrer(CHANGEMENT_MOT_DE_PASSE, username, empreinte);
+        finLot();
+    };
+
+    private JournalMutations(Path fichier, int lotSynchro, MagasinIdentifiants identifiants) {
+        this.fichier = fichier;
+        this.lotSynchro = lotSynchro;
+        this.identifiants = identifiants;
+    }
+
+    /**
+     * Ouvre un journal pour y ajouter les modifications d'un réseau. Si le fichier existe, ses
+     * enregistrements sont d'abord rejoués sur le réseau et une éventuelle fin incomplète est coupée.
+     * Le journal est ensuite branché comme écouteur du réseau et de son magasin d'identifiants.
+     *
+     * @param fichier    le fichier du journal, créé s'il n'existe pas
+     * @param reseau     le réseau journalisé
+     * @param lotSynchro le nombre d'enregistrements au-delà duquel la fin d'une opération force l'écriture sur disque
+     * @return le journal ouvert
+     * @throws IOException              si le fichier est illisible ou n'est pas un journal
+     * @throws IllegalArgumentException si {@code lotSynchro} n'est pas positif
+     */
+    public static JournalMutations ouvrir(Path fichier, CivixNet reseau, int lotSynchro) throws IOException {
+        if (lotSynchro <= 0) {
+            throw new IllegalArgumentException("La taille d'un lot de synchronisation doit être positive.");
+        }
+        JournalMutations journal = new JournalMutations(fichier, lotSynchro, reseau.identifiants());
+        long valides = Files.exists(fichier) ? relire(fichier, reseau)[0] : 0;
+        journal.ouvrirCanal(valides);
+        reseau.ajouterEcouteur(journal);
+        reseau.identifiants().ajouterEcouteur(journal.ecouteurIdentifiants);
+        return journal;
+    }
+
+    /**
+     * Rejoue les enregistrements valides d'un journal sur un réseau, sans modifier le fichier.
+     *
+     * @param fichier le fichier du journal
+     * @param reseau  le réseau à mettre à jour
+     * @return le nombre d'enregistrements appliqués
+     * @throws IOException si le fichier est illisible, n'est pas un journal, ou désigne un utilisateur inconnu
+     */
+    public static long rejouer(Path fichier, CivixNet reseau) throws IOException {
+        return relire(fichier, reseau)[1];
+    }
+
+    /**
+     * Retourne la taille du journal, y compris les enregistrements encore dans le tampon.
+     *
+     * @return la taille en octets
+     */
+    public long taille() {
+        return ecrits + tampon.position();
+    }
+
+    /**
+     * Écrit les enregistrements en attente et les force sur disque.
+     *
+     * @throws IOException si une erreur d'écriture survient
+     */
+    public void synchroniser() throws IOException {
+        vider();
+        canal.force(false);
+        nonSynchronises = 0;
+    }
+
+    /**
+     * Déplace le contenu du journal dans une archive et repart d'un journal vide. Si l'archive existe
+     * déjà, les enregistrements du journal sont ajoutés à sa fin, pour qu'elle contienne toujours toutes
+     * les modifications qui ne sont pas encore dans un instantané.
+     *
+     * @param archive le fichier d'archive
+     * @throws IOException si une erreur d'entrée-sortie survient
+     */
+    void pivoter(Path archive) throws IOException {
+        synchroniser();
+        canal.close();
+        if (Files.exists(archive)) {
+            try (FileChannel source = FileChannel.open(fichier, StandardOpenOption.READ);
+                 FileChannel destination = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+                long position = TAILLE_EN_TETE;
+                long fin = source.size();
+                // une copie précédente interrompue a pu laisser une fin incomplète
+                long valides = relireTaille(archive);
+                destination.truncate(valides);
+                destination.position(valides);
+                while (position < fin) {
+                    position += source.transferTo(position, fin - position, destination);
+                }
+                destination.force(false);
+            }
+            Files.delete(fichier);
+        } else {
+            Files.move(fichier, archive, StandardCopyOption.ATOMIC_MOVE);
+        }
+        ouvrirCanal(0);
+    }
+
+    @Override
+    public void utilisateurAjoute(Utilisateur u) {
+        enregistrer(AJOUT_UTILISATEUR, u.getUsername(), identifiants.empreinte(u.getUsername()));
+    }
+
+    @Override
+    public void abonnementAjoute(Utilisateur compte, Utilisateur cible) {
+        enregistrer(AJOUT_ABONNEMENT, compte.getUsername(), cible.getUsername());
+    }
+
+    @Override
+    public void abonnementRetire(Utilisateur compte, Utilisateur cible) {
+        enregistrer(RETRAIT_ABONNEMENT, compte.getUsername(), cible.getUsername());
+    }
+
+    /**
+     * Écrit les enregistrements de l'opération terminée et les force sur disque si le lot est atteint.
+     *
+     * @throws UncheckedIOException si une erreur d'écriture survient
+     */
+    @Override
+    public void finLot() {
+        try {
+            if (lotOuvert) {
+                fermerLot();
+            }
+            if (nonSynchronises >= lotSynchro) {
+                synchroniser();
+            } else {
+                vider();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Force les enregistrements en attente sur disque et ferme le fichier. Le journal cesse d'écouter le
+     * magasin d'identifiants, mais doit aussi être retiré des écouteurs du réseau.
+     *
+     * @throws IOException si une erreur d'écriture survient
+     */
+    @Override
+    public void close() throws IOException {
+        identifiants.retirerEcouteur(ecouteurIdentifiants);
+        try {
+            synchroniser();
+        } finally {
+            canal.close();
+        }
+    }
+
+    /**
+     * Ouvre le fichier pour y ajouter des enregistrements après les {@code valides} premiers octets,
+     * en écrivant l'en-tête si le fichier n'en a pas.
+     */
+    private void ouvrirCanal(long valides) throws IOException {
+        canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (valides < TAILLE_EN_TETE) {
+            canal.truncate(0);
+            ByteBuffer enTete = ByteBuffer.allocate(TAILLE_EN_TETE).putInt(SIGNATURE).putInt(VERSION).flip();
+            while (enTete.hasRemaining()) {
+                canal.write(enTete, enTete.position());
+            }
+            valides = TAILLE_EN_TETE;
+        } else {
+            canal.truncate(valides);
+        }
+        canal.force(false);
+        canal.position(valides);
+        ecrits = valides;
+        nonSynchronises = 0;
+    }
+
+    private void enregistrer(byte type, String premier, String second) {
+        try {
+            ecrireEnregistrement(type, premier.getBytes(StandardCharsets.UTF_8), second.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lotOuvert = true;
+    }
+
+    /**
+     * Marque la fin du lot : le dernier enregistrement est marqué s'il est encore dans le tampon,
+     * sinon un enregistrement de fin de lot est ajouté.
+     */
+    private void fermerLot() throws IOException {
+        if (debutDernier >= 0) {
+            int longueur = tampon.getInt(debutDernier);
+            int contenu = debutDernier + 2 * Integer.BYTES;
+            tampon.put(contenu, (byte) (tampon.get(contenu) | DERNIER_DU_LOT));
+            crc.reset();
+            crc.update(tampon.array(), contenu, longueur);
+            tampon.putInt(debutDernier + Integer.BYTES, (int) crc.getValue());
+        } else {
+            ecrireEnregistrement((byte) (FIN_LOT | DERNIER_DU_LOT), null, null);
+        }
+        lotOuvert = false;
+    }
+
+    /**
+     * Ajoute un enregistrement au tampon, ou l'écrit directement s'il est plus grand que le tampon.
+     *
+     * @param type le type de l'enregistrement
+     * @param a    la première chaîne en UTF-8, ou {@code null} s'il n'y a pas de chaîne
+     * @param b    la seconde chaîne en UTF-8, ou {@code null} s'il n'y a pas de chaîne
+     */
+    private void ecrireEnregistrement(byte type, byte[] a, byte[] b) throws IOException {
+        int longueur = 1;
+        if (a != null) {
+            longueur += tailleVarint(a.length) + a.length + tailleVarint(b.length) + b.length;
+        }
+        if (tampon.remaining() < 2 * Integer.BYTES + longueur) {
+            vider();
+        }
+        ByteBuffer cible = longueur + 2 * Integer.BYTES <= tampon.capacity()
+                ? tampon : ByteBuffer.allocate(longueur + 2 * Integer.BYTES);
+        int debut = cible.position();
+        cible.putInt(longueur);
+        cible.putInt(0);
+        cible.put(type);
+        if (a != null) {
+            ecrireVarint(cible, a.length);
+            cible.put(a);
+            ecrireVarint(cible, b.length);
+            cible.put(b);
+        }
+        crc.reset();
+        crc.update(cible.array(), debut + 2 * Integer.BYTES, longueur);
+        cible.putInt(debut + Integer.BYTES, (int) crc.getValue());
+        if (cible == tampon) {
+            debutDernier = debut;
+        } else {
+            cible.flip();
+            while (cible.hasRemaining()) {
+                ecrits += canal.write(cible);
+            }
+            debutDernier = -1;
+        }
+        nonSynchronises++;
+    }
+
+    private void vider() throws IOException {
+        tampon.flip();
+        while (tampon.hasRemaining()) {
+            ecrits += canal.write(tampon);
+        }
+        tampon.clear();
+        debutDernier = -1;
+    }
+
+    private static void ecrireVarint(ByteBuffer tampon, int valeur) {
+        while ((valeur & ~0x7F) != 0) {
+            tampon.put((byte) ((valeur & 0x7F) | 0x80));
+            valeur >>>= 7;
+        }
+        tampon.put((byte) valeur);
+    }
+
+    private static int tailleVarint(int valeur) {
+        int taille = 1;
+        while ((valeur & ~0x7F) != 0) {
+            valeur >>>= 7;
+            taille++;
+        }
+        return taille;
+    }
+
+    /**
+     * Retourne la taille de la partie valide d'un journal, sans rien appliquer.
+     */
+    private static long relireTaille(Path fichier) throws IOException {
+        return relire(fichier, null)[0];
+    }
+
+    /**
+     * Relit un journal et applique ses enregistrements valides au réseau, s'il y en a un.
+     *
+     * @return la taille de la partie valide du fichier, jusqu'à la fin du dernier lot complet
+     * (0 si l'en-tête est incomplet), et le nombre d'enregistrements appliqués
+     */
+    private static long[] relire(Path fichier, CivixNet reseau) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(fichier), TAILLE_TAMPON))) {
+            int signature;
+            int version;
+            try {
+                signature = in.readInt();
+                version = in.readInt();
+            } catch (EOFException e) {
+                // en-tête coupé à la création du fichier
+                return new long[]{0, 0};
+            }
+            if (signature != SIGNATURE) {
+                throw new IOException("Ce fichier n'est pas un journal CivixNet.");
+            }
+            if (version != VERSION) {
+                throw new IOException("Version de journal non supportée : " + version);
+            }
+
+            CRC32 crc = new CRC32();
+            long valides = TAILLE_EN_TETE;
+            long position = TAILLE_EN_TETE;
+            long nbEnregistrements = 0;
+            // enregistrements du lot en cours, appliqués quand sa fin est lue
+            List<byte[]> lot = new ArrayList<>();
+            byte[] contenu = new byte[256];
+            while (true) {
+                int longueur;
+                int somme;
+                try {
+                    longueur = in.readInt();
+                    somme = in.readInt();
+                    if (longueur <= 0 || longueur > LONGUEUR_MAX) {
+                        break;
+                    }
+                    if (contenu.length < longueur) {
+                        contenu = new byte[Math.max(longueur, contenu.length * 2)];
+                    }
+                    in.readFully(contenu, 0, longueur);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(contenu, 0, longueur);
+                if ((int) crc.getValue() != somme) {
+                    break;
+                }
+                position += 2 * Integer.BYTES + longueur;
+                int type = contenu[0] & MASQUE_TYPE;
+                if (type != FIN_LOT) {
+                    lot.add(reseau == null ? null : Arrays.copyOf(contenu, longueur));
+                }
+                if ((contenu[0] & DERNIER_DU_LOT) != 0) {
+                    if (reseau != null) {
+                        for (byte[] enregistrement : lot) {
+                            appliquer(ByteBuffer.wrap(enregistrement), reseau);
+                        }
+                    }
+                    nbEnregistrements += lot.size();
+                    lot.clear();
+                    valides = position;
+                }
+            }
+            if (reseau != null) {
+                // les journaux écrits avant le magasin d'identifiants gardent des mots de passe en clair
+                reseau.identifiants().hacherEnAttente();
+            }
+            return new long[]{valides, nbEnregistrements};
+        }
+    }
+
+    private static void appliquer(ByteBuffer contenu, CivixNet reseau) throws IOException {
+        try {
+            int type = contenu.get() & MASQUE_TYPE;
+            String premier = lireChaine(contenu);
+            String second = lireChaine(contenu);
+            switch (type) {
+                case AJOUT_UTILISATEUR -> reseau.importerUtilisateur(premier, second);
+                case AJOUT_ABONNEMENT -> reseau.ajouterAbonnement(
+                        reseau.obtenirUtilisateurAPartirDuUsername(premier),
+                        reseau.obtenirUtilisateurAPartirDuUsername(second));
+                case RETRAIT_ABONNEMENT -> reseau.retirerAbonnement(
+                        reseau.obtenirUtilisateurAPartirDuUsername(premier),
+                        reseau.obtenirUtilisateurAPartirDuUsername(second));
+                case CHANGEMENT_MOT_DE_PASSE -> reseau.identifiants().remplacer(premier, second);
+                default -> throw new IOException("Journal corrompu : type d'enregistrement inconnu " + type);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Journal incohérent avec le réseau.", e);
+        }
+    }
+
+    private static String lireChaine(ByteBuffer contenu) {
+        int longueur = 0;
+        for (int decalage = 0; ; decalage += 7) {
+            byte b = contenu.get();
+            longueur |= (b & 0x7F) << decalage;
+            if (b >= 0) {
+                break;
+            }
+        }
+        String chaine = new String(contenu.array(), contenu.arrayOffset() + contenu.position(), longueur,
+                StandardCharsets.UTF_8);
+        contenu.position(contenu.position() + longueur);
+        return chaine;
+    }
+}
@@ -0,0 +1,89 @@
+package reseau;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Un lot d'abonnements à ajouter ou à retirer, appliqué en une fois par {@link CivixNet#appliquerLot(LotMutations)}.
+ * <p>
+ * Les opérations sont regroupées par abonné dès leur ajout au lot. Pour un même couple (abonné, compte suivi),
+ * seule la dernière opération est conservée : ajouter puis retirer le même abonnement revient à le retirer.
+ * Les noms sont comparés sans tenir compte de la casse, comme dans le réseau.
+ * </p>
+ */
+public class LotMutations {
+
+    /**
+     * Les opérations, par nom normalisé de l'abonné puis du compte suivi : {@code true} pour un ajout,
+     * {@code false} pour un retrait.
+     */
+    private final Map<String, Map<String, Boolean>> parAbonne;
+
+    private long nbOperations;
+    private long nbDoublons;
+
+    /**
+     * Constructeur par défaut. Initialise un lot vide.
+     */
+    public LotMutations() {
+        this.parAbonne = new HashMap<>();
+    }
+
+    /**
+     * Ajoute au lot un nouvel abonnement.
+     *
+     * @param abonne le nom de l'utilisateur qui suit
+     * @param suivi  le nom de l'utilisateur à suivre
+     * @return ce lot, pour enchaîner les appels
+     */
+    public LotMutations ajouter(String abonne, String suivi) {
+        return operation(abonne, suivi, true);
+    }
+
+    /**
+     * Ajoute au lot le retrait d'un abonnement.
+     *
+     * @param abonne le nom de l'utilisateur qui ne suit plus
+     * @param suivi  le nom de l'utilisateur à ne plus suivre
+     * @return ce lot, pour enchaîner les appels
+     */
+    public LotMutations retirer(String abonne, String suivi) {
+        return operation(abonne, suivi, false);
+    }
+
+    /**
+     * Retourne le nombre d'opérations ajoutées au lot, doublons compris.
+     *
+     * @return le nombre d'opérations
+     */
+    public long nombreOperations() {
+        return nbOperations;
+    }
+
+    /**
+     * Retourne le nombre d'opérations remplacées par une opération ultérieure sur le même abonnement.
+     *
+     * @return le nombre de doublons
+     */
+    public long nombreDoublons() {
+        return nbDoublons;
+    }
+
+    /**
+     * Retourne les opérations du lot, par nom normalisé de l'abonné puis du compte suivi.
+     *
+     * @return les opérations, {@code true} pour un ajout et {@code false} pour un retrait
+     */
+    Map<String, Map<String, Boolean>> operations() {
+        return parAbonne;
+    }
+
+    private LotMutations operation(String abonne, String suivi, boolean ajout) {
+        Map<String, Boolean> operations = parAbonne.computeIfAbsent(CivixNet.normaliser(abonne), k -> new HashMap<>());
+        if (operations.put(CivixNet.normaliser(suivi), ajout) != null) {
+            nbDoublons++;
+        }
+        nbOperations++;
+        return this;
+    }
+}
@@ -0,0 +1,529 @@
+package reseau;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Les identifiants des utilisateurs d'un réseau, gardés à part du graphe et indexés par nom
+ * d'utilisateur normalisé : les {@link Utilisateur} ne contiennent plus de mot de passe.
+ * <p>
+ * Chaque mot de passe est conservé sous forme d'empreinte PBKDF2 (HMAC-SHA256) salée, dont le
+ * facteur de travail (le nombre d'itérations) se règle par {@link #setIterations(int)}. Un mot de passe
+ * reçu par {@link #ajouter(String, String)} ou {@link #changer(String, String)} est haché aussitôt, dans
+ * le fil appelant, et ne reste jamais en clair dans le magasin. Seuls les chargements en bloc gardent
+ * les mots de passe relus en attente, le temps de les hacher tous en parallèle par
+ * {@link #hacherEnAttente(ForkJoinPool)} avant de rendre le réseau chargé.
+ * Une empreinte d'un autre facteur de travail est refaite à la première authentification réussie.
+ * </p>
+ * <p>
+ * Les authentifications réussies récentes sont gardées dans un cache borné, du moins récemment utilisé
+ * au plus récent : une nouvelle authentification avec le même mot de passe ne coûte alors qu'un SHA-256
+ * salé au lieu de toutes les itérations. Le débit des connexions se règle ainsi indépendamment du
+ * parcours du graphe.
+ * </p>
+ * <p>
+ * Un mot de passe ne quitte jamais le magasin en clair : les exports, les instantanés et le journal
+ * écrivent l'empreinte encodée {@code $pbkdf2-sha256$<itérations>$<sel>$<empreinte>} rendue par
+ * {@link #empreinte(String)}, qui ne hache jamais. Les exports et les instantanés hachent d'abord ce qui
+ * attend encore; le journal, lui, ne reçoit que des utilisateurs dont le mot de passe a été haché à
+ * l'inscription, et n'ajoute donc aucun hachage aux modifications qu'il enregistre. Seuls les chargements (JSON, instantanés, journal)
+ * reprennent une empreinte encodée telle quelle : les méthodes publiques n'acceptent que des mots de passe, soumis aux règles de {@link #validerPassword(String)}. Une empreinte
+ * relue doit avoir un sel de la taille attendue et au plus {@link #ITERATIONS_MAX} itérations, pour
+ * qu'une empreinte forgée ne rende pas chaque authentification démesurément coûteuse. Le magasin peut
+ * être utilisé par plusieurs fils à la fois.
+ * </p>
+ */
+public class MagasinIdentifiants {
+
+    /**
+     * Nombre d'itérations PBKDF2 par défaut.
+     */
+    public static final int ITERATIONS_PAR_DEFAUT = 210_000;
+
+    /**
+     * Nombre maximal d'itérations PBKDF2, d'un magasin comme d'une empreinte relue.
+     */
+    public static final int ITERATIONS_MAX = 10 * ITERATIONS_PAR_DEFAUT;
+
+    /**
+     * Nombre d'authentifications réussies gardées en cache par défaut.
+     */
+    public static final int TAILLE_CACHE_PAR_DEFAUT = 1024;
+
+    // préfixe des empreintes encodées
+    static final String PREFIXE = "$pbkdf2-sha256$";
+
+    private static final String ALGORITHME = "PBKDF2WithHmacSHA256";
+    private static final int TAILLE_SEL = 16;
+    private static final int TAILLE_EMPREINTE = 32;
+
+    // nombre de mots de passe hachés d'un seul tenant par une tâche de hacherEnAttente
+    private static final int GRAIN_HACHAGE = 8;
+
+    private static final SecureRandom HASARD = new SecureRandom();
+
+    private final ConcurrentHashMap<String, Entree> entrees = new ConcurrentHashMap<>();
+    private final List<EcouteurIdentifiants> ecouteurs = new CopyOnWriteArrayList<>();
+    private final Map<String, Verification> cache;
+    private final int tailleCache;
+    private volatile int iterations;
+
+    /**
+     * Crée un magasin vide avec le facteur de travail et la taille de cache par défaut.
+     */
+    public MagasinIdentifiants() {
+        this(ITERATIONS_PAR_DEFAUT, TAILLE_CACHE_PAR_DEFAUT);
+    }
+
+    /**
+     * Crée un magasin vide.
+     *
+     * @param iterations  le nombre d'itérations PBKDF2 des nouvelles empreintes
+     * @param tailleCache le nombre d'authentifications réussies gardées en cache, 0 pour aucun cache
+     * @throws IllegalArgumentException si le nombre d'itérations n'est pas entre 1 et {@link #ITERATIONS_MAX}
+     *                                  ou si la taille du cache est négative
+     */
+    public MagasinIdentifiants(int iterations, int tailleCache) {
+        setIterations(iterations);
+        if (tailleCache < 0) {
+            throw new IllegalArgumentException("La taille du cache ne peut pas être négative.");
+        }
+        this.tailleCache = tailleCache;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, Verification>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Verification> plusAncienne) {
+                return size() > tailleCache;
+            }
+        });
+    }
+
+    /**
+     * Reçoit les changements de mot de passe, pour les journaliser (voir {@link JournalMutations}).
+     * Appelé dans le fil qui change le mot de passe, après le changement.
+     */
+    interface EcouteurIdentifiants {
+
+        /**
+         * Le mot de passe d'un utilisateur a changé.
+         *
+         * @param username  le nom d'utilisateur
+         * @param empreinte l'empreinte encodée du nouveau mot de passe
+         */
+        void motDePasseChange(String username, String empreinte);
+    }
+
+    /**
+     * Retourne une copie indépendante du magasin, avec les mêmes réglages et un cache vide.
+     * Les écouteurs ne sont pas copiés.
+     *
+     * @return la copie du magasin
+     */
+    public MagasinIdentifiants copie() {
+        MagasinIdentifiants copie = new MagasinIdentifiants(iterations, tailleCache);
+        copie.entrees.putAll(entrees);
+        return copie;
+    }
+
+    /**
+     * Retourne le nombre d'itérations PBKDF2 des nouvelles empreintes.
+     *
+     * @return le facteur de travail
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Change le nombre d'itérations PBKDF2. Les empreintes existantes restent valides et sont refaites
+     * avec le nouveau facteur à la prochaine authentification réussie.
+     *
+     * @param iterations le nouveau facteur de travail
+     * @throws IllegalArgumentException si le nombre d'itérations n'est pas entre 1 et {@link #ITERATIONS_MAX}
+     */
+    public void setIterations(int iterations) {
+        if (iterations <= 0 || iterations > ITERATIONS_MAX) {
+            throw new IllegalArgumentException("Le nombre d'itérations doit être entre 1 et " + ITERATIONS_MAX + ".");
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Ajoute les identifiants d'un utilisateur. Si l'utilisateur a déjà des identifiants, ils sont
+     * conservés, comme l'utilisateur existant dans {@link CivixNet#ajouterUtilisateur(String, String)}.
+     *
+     * @param username   le nom d'utilisateur
+     * @param motDePasse le mot de passe
+     * @return true si les identifiants ont été ajoutés
+     * @throws IllegalArgumentException si le mot de passe est invalide
+     */
+    public boolean ajouter(String username, String motDePasse) {
+        String cle = CivixNet.normaliser(username);
+        valider(motDePasse);
+        // inutile de payer le hachage pour un nom déjà pris
+        if (entrees.containsKey(cle)) {
+            return false;
+        }
+        return entrees.putIfAbsent(cle, Entree.hacher(motDePasse, iterations)) == null;
+    }
+
+    /**
+     * Ajoute les identifiants d'un utilisateur relus par un chargement : une empreinte encodée est
+     * reprise telle quelle, un mot de passe est validé comme par {@link #ajouter(String, String)} et
+     * attend d'être haché par {@link #hacherEnAttente(ForkJoinPool)}, que le chargement doit appeler
+     * avant de rendre le réseau.
+     *
+     * @param username le nom d'utilisateur
+     * @param valeur   le mot de passe, ou son empreinte encodée
+     * @return true si les identifiants ont été ajoutés
+     * @throws IllegalArgumentException si le mot de passe est invalide ou l'empreinte mal formée
+     */
+    boolean importer(String username, String valeur) {
+        Entree entree = estEmpreinte(valeur) ? Entree.decoder(valeur) : new Entree(valider(valeur), 0, null, null);
+        return entrees.putIfAbsent(CivixNet.normaliser(username), entree) == null;
+    }
+
+    /**
+     * Remplace le mot de passe d'un utilisateur.
+     *
+     * @param username   le nom d'utilisateur
+     * @param motDePasse le nouveau mot de passe
+     * @throws IllegalArgumentException si le mot de passe est invalide
+     * @throws RuntimeException         si l'utilisateur n'a pas d'identifiants
+     */
+    public void changer(String username, String motDePasse) {
+        String cle = CivixNet.normaliser(username);
+        valider(motDePasse);
+        if (!entrees.containsKey(cle)) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        Entree nouvelle = Entree.hacher(motDePasse, iterations);
+        if (entrees.replace(cle, nouvelle) == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        cache.remove(cle);
+        signalerChangement(username, nouvelle);
+    }
+
+    /**
+     * Remplace le mot de passe d'un utilisateur par une empreinte relue dans un journal.
+     *
+     * @param username  le nom d'utilisateur
+     * @param empreinte l'empreinte encodée du nouveau mot de passe
+     * @throws IllegalArgumentException si l'empreinte est mal formée
+     * @throws RuntimeException         si l'utilisateur n'a pas d'identifiants
+     */
+    void remplacer(String username, String empreinte) {
+        String cle = CivixNet.normaliser(username);
+        if (!estEmpreinte(empreinte)) {
+            throw new IllegalArgumentException("Empreinte de mot de passe mal formée.");
+        }
+        Entree nouvelle = Entree.decoder(empreinte);
+        if (entrees.replace(cle, nouvelle) == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        cache.remove(cle);
+        signalerChangement(username, nouvelle);
+    }
+
+    /**
+     * Ajoute un écouteur, averti des changements de mot de passe suivants.
+     *
+     * @param ecouteur l'écouteur à ajouter
+     */
+    void ajouterEcouteur(EcouteurIdentifiants ecouteur) {
+        ecouteurs.add(ecouteur);
+    }
+
+    /**
+     * Retire un écouteur ajouté par {@link #ajouterEcouteur(EcouteurIdentifiants)}.
+     *
+     * @param ecouteur l'écouteur à retirer
+     */
+    void retirerEcouteur(EcouteurIdentifiants ecouteur) {
+        ecouteurs.remove(ecouteur);
+    }
+
+    /**
+     * Copie les identifiants d'un utilisateur depuis un autre magasin.
+     *
+     * @param source   le magasin d'origine
+     * @param username le nom d'utilisateur
+     */
+    void copierDepuis(MagasinIdentifiants source, String username) {
+        String cle = CivixNet.normaliser(username);
+        Entree entree = source.entrees.get(cle);
+        if (entree != null) {
+            entrees.putIfAbsent(cle, entree);
+        }
+    }
+
+    /**
+     * Vérifie le mot de passe d'un utilisateur.
+     *
+     * @param username   le nom d'utilisateur
+     * @param motDePasse le mot de passe proposé
+     * @return true si l'utilisateur existe et que le mot de passe est le bon
+     */
+    public boolean authentifier(String username, String motDePasse) {
+        if (username == null || motDePasse == null) {
+            return false;
+        }
+        String cle = CivixNet.normaliser(username);
+        Entree entree = hachee(cle);
+        if (entree == null) {
+            return false;
+        }
+        byte[] resume = resume(entree.sel, motDePasse);
+        Verification verifiee = cache.get(cle);
+        boolean enCache = verifiee != null && verifiee.entree == entree && MessageDigest.isEqual(verifiee.resume, resume);
+        if (!enCache && !MessageDigest.isEqual(entree.empreinte, pbkdf2(motDePasse, entree.sel, entree.iterations))) {
+            return false;
+        }
+        int facteur = iterations;
+        if (entree.iterations != facteur) {
+            // le mot de passe est bon : on en profite pour refaire l'empreinte au facteur actuel
+            Entree refaite = Entree.hacher(motDePasse, facteur);
+            if (entrees.replace(cle, entree, refaite)) {
+                entree = refaite;
+                resume = resume(entree.sel, motDePasse);
+                enCache = false;
+            }
+        }
+        if (!enCache) {
+            cache.put(cle, new Verification(entree, resume));
+        }
+        return true;
+    }
+
+    /**
+     * Hache en parallèle tous les mots de passe en attente, avec le facteur de travail actuel.
+     *
+     * @param pool le pool d'exécution
+     * @return le nombre de mots de passe hachés
+     */
+    public int hacherEnAttente(ForkJoinPool pool) {
+        List<String> cles = new ArrayList<>();
+        for (Map.Entry<String, Entree> e : entrees.entrySet()) {
+            if (e.getValue().enClair != null) {
+                cles.add(e.getKey());
+            }
+        }
+        Parallelisme.pourIntervalles(pool, cles.size(), GRAIN_HACHAGE, (debut, fin) -> {
+            for (int i = debut; i < fin; i++) {
+                hachee(cles.get(i));
+            }
+        });
+        return cles.size();
+    }
+
+    /**
+     * Hache en parallèle tous les mots de passe en attente dans le pool commun.
+     *
+     * @return le nombre de mots de passe hachés
+     * @see #hacherEnAttente(ForkJoinPool)
+     */
+    public int hacherEnAttente() {
+        return hacherEnAttente(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Retourne le nombre de mots de passe pas encore hachés.
+     *
+     * @return le nombre de mots de passe en attente
+     */
+    public int nombreEnAttente() {
+        int enAttente = 0;
+        for (Entree entree : entrees.values()) {
+            if (entree.enClair != null) {
+                enAttente++;
+            }
+        }
+        return enAttente;
+    }
+
+    /**
+     * Retourne l'empreinte encodée du mot de passe d'un utilisateur, telle qu'écrite par les exports.
+     * Ne hache jamais : un coût PBKDF2 n'est payé qu'à l'inscription, au chargement ou à l'authentification.
+     *
+     * @param username le nom d'utilisateur
+     * @return l'empreinte encodée
+     * @throws RuntimeException      si l'utilisateur n'a pas d'identifiants
+     * @throws IllegalStateException si son mot de passe attend encore d'être haché (voir {@link #hacherEnAttente()})
+     */
+    public String empreinte(String username) {
+        Entree entree = entrees.get(CivixNet.normaliser(username));
+        if (entree == null) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        if (entree.enClair != null) {
+            throw new IllegalStateException("Le mot de passe de " + username + " n'est pas encore haché.");
+        }
+        return entree.encoder();
+    }
+
+    /**
+     * Indique si une valeur est une empreinte encodée plutôt qu'un mot de passe.
+     *
+     * @param valeur la valeur lue
+     * @return true si la valeur commence par le préfixe des empreintes
+     */
+    public static boolean estEmpreinte(String valeur) {
+        return valeur != null && valeur.startsWith(PREFIXE);
+    }
+
+    /**
+     * Valide le mot de passe donné pour s'assurer qu'il contient au moins une lettre majuscule, une lettre minuscule et un chiffre.
+     *
+     * @param password le mot de passe à valider
+     * @return true si le mot de passe respecte les critères de validation, false sinon
+     */
+    static boolean validerPassword(String password) {
+        boolean hasUpper = false;
+        boolean hasLower = false;
+        boolean hasNumber = false;
+
+        if (password == null)
+            return false;
+
+        char[] charsPassword = password.toCharArray();
+        for (char c : charsPassword) {
+            if (Character.isUpperCase(c)) {
+                hasUpper = true;
+            }
+            if (Character.isLowerCase(c)) {
+                hasLower = true;
+            }
+            if (Character.isDigit(c)) {
+                hasNumber = true;
+            }
+        }
+        return hasUpper && hasLower && hasNumber;
+    }
+
+    private void signalerChangement(String username, Entree nouvelle) {
+        if (ecouteurs.isEmpty()) {
+            return;
+        }
+        String encodee = nouvelle.encoder();
+        for (EcouteurIdentifiants ecouteur : ecouteurs) {
+            ecouteur.motDePasseChange(username, encodee);
+        }
+    }
+
+    /**
+     * Retourne l'entrée d'un utilisateur, hachée au besoin.
+     */
+    private Entree hachee(String cle) {
+        Entree entree = entrees.get(cle);
+        if (entree == null || entree.enClair == null) {
+            return entree;
+        }
+        Entree hachee = Entree.hacher(entree.enClair, iterations);
+        // un autre fil a pu hacher ou changer le mot de passe entre-temps
+        return entrees.replace(cle, entree, hachee) ? hachee : hachee(cle);
+    }
+
+    private static String valider(String motDePasse) {
+        if (estEmpreinte(motDePasse)) {
+            throw new IllegalArgumentException("Le mot de passe ne peut pas commencer par " + PREFIXE);
+        }
+        if (!validerPassword(motDePasse)) {
+            throw new IllegalArgumentException("Le mot de passe doit contenir au moins une lettre majuscule, une lettre minuscule et un chiffre.");
+        }
+        return motDePasse;
+    }
+
+    private static byte[] pbkdf2(String motDePasse, byte[] sel, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(motDePasse.toCharArray(), sel, iterations, TAILLE_EMPREINTE * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHME).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 n'est pas disponible.", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] resume(byte[] sel, String motDePasse) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(sel);
+            return sha.digest(motDePasse.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 n'est pas disponible.", e);
+        }
+    }
+
+    /**
+     * Les identifiants d'un utilisateur : un mot de passe en attente, ou son empreinte. Immuable.
+     */
+    private static final class Entree {
+        final String enClair;
+        final int iterations;
+        final byte[] sel;
+        final byte[] empreinte;
+
+        Entree(String enClair, int iterations, byte[] sel, byte[] empreinte) {
+            this.enClair = enClair;
+            this.iterations = iterations;
+            this.sel = sel;
+            this.empreinte = empreinte;
+        }
+
+        static Entree hacher(String motDePasse, int iterations) {
+            byte[] sel = new byte[TAILLE_SEL];
+            HASARD.nextBytes(sel);
+            return new Entree(null, iterations, sel, pbkdf2(motDePasse, sel, iterations));
+        }
+
+        static Entree decoder(String encodee) {
+            String[] parties = encodee.substring(PREFIXE.length()).split("\\$", -1);
+            try {
+                if (parties.length != 3) {
+                    throw new IllegalArgumentException();
+                }
+                int iterations = Integer.parseInt(parties[0]);
+                byte[] sel = Base64.getDecoder().decode(parties[1]);
+                byte[] empreinte = Base64.getDecoder().decode(parties[2]);
+                if (iterations <= 0 || iterations > ITERATIONS_MAX || sel.length != TAILLE_SEL
+                        || empreinte.length != TAILLE_EMPREINTE) {
+                    throw new IllegalArgumentException();
+                }
+                return new Entree(null, iterations, sel, empreinte);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Empreinte de mot de passe mal formée.", e);
+            }
+        }
+
+        String encoder() {
+            Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+            return PREFIXE + iterations + '$' + base64.encodeToString(sel) + '$' + base64.encodeToString(empreinte);
+        }
+    }
+
+    /**
+     * Une authentification réussie : l'entrée vérifiée et le résumé salé du mot de passe accepté.
+     */
+    private static final class Verification {
+        final Entree entree;
+        final byte[] resume;
+
+        Verification(Entree entree, byte[] resume) {
+            this.entree = entree;
+            this.resume = resume;
+        }
+    }
+}
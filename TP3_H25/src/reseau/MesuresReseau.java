@@ -0,0 +1,360 @@
+package reseau;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Mesures d'un {@link CivixNet} : durées des opérations, tailles des frontières de propagation,
+ * compteurs de modifications et jauges de la taille du réseau.
+ * <p>
+ * Un réseau sans mesures attachées ne paie qu'une lecture de champ par opération. Une fois attachées
+ * par {@link #attacher(CivixNet)}, chaque opération mesurée lit deux fois l'horloge et incrémente
+ * quelques compteurs atomiques d'un {@link HistogrammeLog}, sans verrou ni allocation; la mesure peut
+ * être suspendue par {@link #setActives(boolean)}. Les jauges sont tenues à jour comme écouteur du réseau,
+ * dans le fil qui le modifie, et publiées à chaque {@link EcouteurReseau#finLot()}.
+ * </p>
+ * <p>
+ * Les mesures se lisent par {@link #instantane()} ou par JMX après {@link #enregistrerJmx(String)}.
+ * </p>
+ */
+public class MesuresReseau implements EcouteurReseau, MesuresReseauMXBean {
+
+    private static final OperationMesuree[] OPERATIONS = OperationMesuree.values();
+
+    private volatile boolean actives = true;
+
+    private final HistogrammeLog[] durees = new HistogrammeLog[OPERATIONS.length];
+    private final HistogrammeLog frontieres = new HistogrammeLog();
+
+    private final LongAdder utilisateursAjoutes = new LongAdder();
+    private final LongAdder abonnementsAjoutes = new LongAdder();
+    private final LongAdder abonnementsRetires = new LongAdder();
+
+    // état des jauges, touché seulement par le fil qui modifie le réseau
+    private CivixNet reseau;
+    private final Map<String, int[]> degres = new HashMap<>();
+    private final Distribution sortants = new Distribution();
+    private final Distribution entrants = new Distribution();
+    private long nombreAbonnements;
+
+    // jauges publiées
+    private volatile long nombreUtilisateursPublie;
+    private volatile long nombreAbonnementsPublie;
+    private volatile int degreSortantMaxPublie;
+    private volatile int degreEntrantMaxPublie;
+
+    private ObjectName nomJmx;
+
+    /**
+     * Crée des mesures actives, rattachées à aucun réseau.
+     */
+    public MesuresReseau() {
+        for (int i = 0; i < durees.length; i++) {
+            durees[i] = new HistogrammeLog();
+        }
+    }
+
+    /**
+     * Rattache les mesures à un réseau : les jauges partent de son état actuel, puis ses opérations
+     * et ses modifications sont mesurées. Doit être appelée dans le fil qui modifie le réseau.
+     *
+     * @param reseau le réseau à mesurer
+     * @throws IllegalStateException si les mesures sont déjà rattachées à un réseau
+     */
+    public void attacher(CivixNet reseau) {
+        if (this.reseau != null) {
+            throw new IllegalStateException("Les mesures sont déjà rattachées à un réseau.");
+        }
+        for (Map.Entry<Utilisateur, Set<Utilisateur>> u : reseau.getUtilisateurs().entrySet()) {
+            int[] degre = {u.getValue().size(), reseau.nombreAbonnes(u.getKey())};
+            degres.put(u.getKey().cle(), degre);
+            sortants.ajouter(degre[0]);
+            entrants.ajouter(degre[1]);
+            nombreAbonnements += degre[0];
+        }
+        this.reseau = reseau;
+        reseau.ajouterEcouteur(this);
+        reseau.definirMesures(this);
+        publier();
+    }
+
+    /**
+     * Détache les mesures du réseau. Les valeurs déjà mesurées restent lisibles.
+     */
+    public void detacher() {
+        if (reseau == null) {
+            return;
+        }
+        reseau.definirMesures(null);
+        reseau.retirerEcouteur(this);
+        reseau = null;
+        degres.clear();
+        sortants.vider();
+        entrants.vider();
+        nombreAbonnements = 0;
+    }
+
+    /**
+     * Début d'une opération mesurée.
+     *
+     * @return l'instant de début, ou 0 si les mesures sont suspendues
+     */
+    long debut() {
+        return actives ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Fin d'une opération mesurée.
+     *
+     * @param operation l'opération
+     * @param debut     la valeur rendue par {@link #debut()}
+     */
+    void fin(OperationMesuree operation, long debut) {
+        if (debut != 0) {
+            durees[operation.ordinal()].enregistrer(System.nanoTime() - debut);
+        }
+    }
+
+    /**
+     * Enregistre la taille d'une frontière de propagation.
+     *
+     * @param taille le nombre d'utilisateurs atteints pour la première fois à un niveau
+     */
+    void enregistrerFrontiere(int taille) {
+        if (actives) {
+            frontieres.enregistrer(taille);
+        }
+    }
+
+    /**
+     * Retourne une copie des mesures. Les histogrammes sont copiés un à un, sans bloquer les fils qui mesurent.
+     *
+     * @return l'instantané des mesures
+     */
+    public InstantaneMesures instantane() {
+        Map<OperationMesuree, ResumeHistogramme> resumes = new EnumMap<>(OperationMesuree.class);
+        for (OperationMesuree operation : OPERATIONS) {
+            resumes.put(operation, durees[operation.ordinal()].resume());
+        }
+        return new InstantaneMesures(nombreUtilisateursPublie, nombreAbonnementsPublie, degreSortantMaxPublie,
+                degreEntrantMaxPublie, utilisateursAjoutes.sum(), abonnementsAjoutes.sum(), abonnementsRetires.sum(),
+                resumes, frontieres.resume());
+    }
+
+    /**
+     * Enregistre les mesures auprès du serveur JMX de la plateforme, sous le nom
+     * {@code reseau:type=CivixNet,name=<nom>}, pour les consulter avec JConsole ou VisualVM.
+     *
+     * @param nom le nom distinguant ce réseau
+     * @return le nom JMX enregistré
+     * @throws JMException           si le nom est invalide ou déjà pris
+     * @throws IllegalStateException si les mesures sont déjà enregistrées
+     */
+    public ObjectName enregistrerJmx(String nom) throws JMException {
+        if (nomJmx != null) {
+            throw new IllegalStateException("Les mesures sont déjà enregistrées : " + nomJmx);
+        }
+        ObjectName objet = new ObjectName("reseau:type=CivixNet,name=" + ObjectName.quote(nom));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objet);
+        nomJmx = objet;
+        return objet;
+    }
+
+    /**
+     * Retire les mesures du serveur JMX, si elles y sont enregistrées.
+     *
+     * @throws JMException si le retrait échoue
+     */
+    public void desenregistrerJmx() throws JMException {
+        if (nomJmx != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(nomJmx);
+            nomJmx = null;
+        }
+    }
+
+    @Override
+    public void utilisateurAjoute(Utilisateur u) {
+        degres.put(u.cle(), new int[2]);
+        sortants.ajouter(0);
+        entrants.ajouter(0);
+        utilisateursAjoutes.increment();
+    }
+
+    @Override
+    public void abonnementAjoute(Utilisateur compte, Utilisateur cible) {
+        int[] degreCompte = degres.get(compte.cle());
+        sortants.deplacer(degreCompte[0], ++degreCompte[0]);
+        int[] degreCible = degres.get(cible.cle());
+        entrants.deplacer(degreCible[1], ++degreCible[1]);
+        nombreAbonnements++;
+        abonnementsAjoutes.increment();
+    }
+
+    @Override
+    public void abonnementRetire(Utilisateur compte, Utilisateur cible) {
+        int[] degreCompte = degres.get(compte.cle());
+        sortants.deplacer(degreCompte[0], --degreCompte[0]);
+        int[] degreCible = degres.get(cible.cle());
+        entrants.deplacer(degreCible[1], --degreCible[1]);
+        nombreAbonnements--;
+        abonnementsRetires.increment();
+    }
+
+    @Override
+    public void finLot() {
+        publier();
+    }
+
+    private void publier() {
+        nombreUtilisateursPublie = degres.size();
+        nombreAbonnementsPublie = nombreAbonnements;
+        degreSortantMaxPublie = sortants.max;
+        degreEntrantMaxPublie = entrants.max;
+    }
+
+    @Override
+    public boolean isActives() {
+        return actives;
+    }
+
+    @Override
+    public void setActives(boolean actives) {
+        this.actives = actives;
+    }
+
+    @Override
+    public void reinitialiser() {
+        for (HistogrammeLog duree : durees) {
+            duree.reinitialiser();
+        }
+        frontieres.reinitialiser();
+        utilisateursAjoutes.reset();
+        abonnementsAjoutes.reset();
+        abonnementsRetires.reset();
+    }
+
+    @Override
+    public long getNombreUtilisateurs() {
+        return nombreUtilisateursPublie;
+    }
+
+    @Override
+    public long getNombreAbonnements() {
+        return nombreAbonnementsPublie;
+    }
+
+    @Override
+    public int getDegreSortantMax() {
+        return degreSortantMaxPublie;
+    }
+
+    @Override
+    public int getDegreEntrantMax() {
+        return degreEntrantMaxPublie;
+    }
+
+    @Override
+    public long getUtilisateursAjoutes() {
+        return utilisateursAjoutes.sum();
+    }
+
+    @Override
+    public long getAbonnementsAjoutes() {
+        return abonnementsAjoutes.sum();
+    }
+
+    @Override
+    public long getAbonnementsRetires() {
+        return abonnementsRetires.sum();
+    }
+
+    @Override
+    public Map<String, Long> getNombresOperations() {
+        Map<String, Long> nombres = new LinkedHashMap<>();
+        for (OperationMesuree operation : OPERATIONS) {
+            nombres.put(operation.name(), durees[operation.ordinal()].resume().nombre());
+        }
+        return nombres;
+    }
+
+    @Override
+    public Map<String, Double> getDureesMoyennesMicros() {
+        return parOperation(ResumeHistogramme::moyenne);
+    }
+
+    @Override
+    public Map<String, Double> getDureesMedianesMicros() {
+        return parOperation(r -> r.quantile(0.5));
+    }
+
+    @Override
+    public Map<String, Double> getDurees99CentileMicros() {
+        return parOperation(r -> r.quantile(0.99));
+    }
+
+    @Override
+    public Map<String, Double> getDureesMaxMicros() {
+        return parOperation(ResumeHistogramme::max);
+    }
+
+    @Override
+    public double getTailleFrontiereMoyenne() {
+        return frontieres.resume().moyenne();
+    }
+
+    @Override
+    public long getTailleFrontiereMax() {
+        return frontieres.resume().max();
+    }
+
+    private Map<String, Double> parOperation(ToDoubleFunction<ResumeHistogramme> nanos) {
+        Map<String, Double> valeurs = new LinkedHashMap<>();
+        for (OperationMesuree operation : OPERATIONS) {
+            valeurs.put(operation.name(), nanos.applyAsDouble(durees[operation.ordinal()].resume()) / 1000);
+        }
+        return valeurs;
+    }
+
+    /**
+     * Nombre d'utilisateurs par degré, pour tenir le degré maximal à jour sans parcourir le réseau.
+     */
+    private static final class Distribution {
+        private long[] parDegre = new long[16];
+        private int max;
+
+        void ajouter(int degre) {
+            if (degre >= parDegre.length) {
+                parDegre = Arrays.copyOf(parDegre, Math.max(degre + 1, parDegre.length * 2));
+            }
+            parDegre[degre]++;
+            max = Math.max(max, degre);
+        }
+
+        void retirer(int degre) {
+            parDegre[degre]--;
+            while (max > 0 && parDegre[max] == 0) {
+                max--;
+            }
+        }
+
+        void deplacer(int ancien, int nouveau) {
+            // ajouter d'abord : le maximum ne redescend alors que d'un cran
+            ajouter(nouveau);
+            retirer(ancien);
+        }
+
+        void vider() {
+            Arrays.fill(parDegre, 0);
+            max = 0;
+        }
+    }
+}
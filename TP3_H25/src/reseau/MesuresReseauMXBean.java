@@ -0,0 +1,98 @@
+package reseau;
+
+import java.util.Map;
+
+/**
+ * Les mesures d'un {@link CivixNet} exposées par JMX (voir {@link MesuresReseau#enregistrerJmx(String)}).
+ * Les durées sont en microsecondes; les tables sont indexées par le nom des {@link OperationMesuree}.
+ */
+public interface MesuresReseauMXBean {
+
+    /**
+     * @return si les durées et les frontières sont mesurées
+     */
+    boolean isActives();
+
+    /**
+     * Active ou suspend la mesure des durées et des frontières. Les compteurs de modifications et
+     * les jauges restent tenus à jour.
+     *
+     * @param actives true pour mesurer
+     */
+    void setActives(boolean actives);
+
+    /**
+     * Remet à zéro les compteurs et les histogrammes. Les jauges ne changent pas.
+     */
+    void reinitialiser();
+
+    /**
+     * @return le nombre d'utilisateurs du réseau
+     */
+    long getNombreUtilisateurs();
+
+    /**
+     * @return le nombre d'abonnements du réseau
+     */
+    long getNombreAbonnements();
+
+    /**
+     * @return le plus grand nombre d'abonnements d'un utilisateur
+     */
+    int getDegreSortantMax();
+
+    /**
+     * @return le plus grand nombre d'abonnés d'un utilisateur
+     */
+    int getDegreEntrantMax();
+
+    /**
+     * @return le nombre d'utilisateurs ajoutés
+     */
+    long getUtilisateursAjoutes();
+
+    /**
+     * @return le nombre d'abonnements ajoutés
+     */
+    long getAbonnementsAjoutes();
+
+    /**
+     * @return le nombre d'abonnements retirés
+     */
+    long getAbonnementsRetires();
+
+    /**
+     * @return le nombre d'appels de chaque opération
+     */
+    Map<String, Long> getNombresOperations();
+
+    /**
+     * @return la durée moyenne de chaque opération
+     */
+    Map<String, Double> getDureesMoyennesMicros();
+
+    /**
+     * @return la durée médiane de chaque opération
+     */
+    Map<String, Double> getDureesMedianesMicros();
+
+    /**
+     * @return le 99e centile de la durée de chaque opération
+     */
+    Map<String, Double> getDurees99CentileMicros();
+
+    /**
+     * @return la durée maximale de chaque opération
+     */
+    Map<String, Double> getDureesMaxMicros();
+
+    /**
+     * @return la taille moyenne d'une frontière de propagation (utilisateurs atteints à un niveau)
+     */
+    double getTailleFrontiereMoyenne();
+
+    /**
+     * @return la plus grande frontière de propagation
+     */
+    long getTailleFrontiereMax();
+}
@@ -0,0 +1,278 @@
+package reseau;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * La classe {@code MoteurPropagation} calcule la propagation d'une fausse information
+ * à une profondeur quelconque sur un {@link GrapheCompact}.
+ * <p>
+ * Le parcours en largeur avance niveau par niveau : seule la frontière (les utilisateurs atteints
+ * au niveau précédent) est développée, et les utilisateurs déjà visités sont marqués dans un
+ * tableau de bits. Chaque niveau est découpé en morceaux de frontière traités en parallèle
+ * dans un {@link ForkJoinPool}, avec vol de tâches entre les fils.
+ * </p>
+ * <p>
+ * Pour de nombreuses sources à la fois, {@link #propagerLot(int[], int)} partage un même parcours
+ * entre 64 sources : chaque sommet porte un mot de 64 bits, un bit par source.
+ * </p>
+ * <p>
+ * Le moteur travaille sur la vue CSR du graphe au moment de sa construction : les modifications
+ * ultérieures du graphe ne sont pas visibles, mais ne perturbent pas un calcul en cours.
+ * </p>
+ */
+public class MoteurPropagation {
+
+    private final GrapheCompact graphe;
+    private final Adjacence adjacence;
+    private final ForkJoinPool pool;
+
+    /**
+     * Construit un moteur qui utilise le pool fork-join commun.
+     *
+     * @param graphe    le graphe à parcourir
+     * @param direction le sens de propagation
+     */
+    public MoteurPropagation(GrapheCompact graphe, Direction direction) {
+        this(graphe, direction, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Construit un moteur qui utilise le pool fork-join donné.
+     *
+     * @param graphe    le graphe à parcourir
+     * @param direction le sens de propagation
+     * @param pool      le pool d'exécution des niveaux
+     */
+    public MoteurPropagation(GrapheCompact graphe, Direction direction, ForkJoinPool pool) {
+        this.graphe = graphe;
+        this.adjacence = direction.adjacence(graphe);
+        this.pool = pool;
+    }
+
+    /**
+     * Propage une fausse information à partir d'un utilisateur.
+     *
+     * @param source     l'utilisateur à l'origine de la fausse information
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @return les utilisateurs affectés et les comptes par niveau
+     * @throws RuntimeException si l'utilisateur n'est pas dans le graphe
+     */
+    public ResultatPropagation propager(Utilisateur source, int profondeur) {
+        int id = graphe.id(source);
+        if (id < 0) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return propager(id, profondeur);
+    }
+
+    /**
+     * Propage une fausse information à partir d'un identifiant d'utilisateur.
+     *
+     * @param source     l'identifiant de l'utilisateur à l'origine de la fausse information
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @return les utilisateurs affectés et les comptes par niveau
+     * @throws IllegalArgumentException si la profondeur est négative
+     */
+    public ResultatPropagation propager(int source, int profondeur) {
+        Objects.checkIndex(source, adjacence.nbSommets);
+        if (profondeur < 0) {
+            throw new IllegalArgumentException("La profondeur de propagation doit être positive.");
+        }
+        AtomicLongArray visites = new AtomicLongArray((adjacence.nbSommets + 63) >>> 6);
+        marquer(visites, source);
+
+        // dimensionné aux niveaux effectivement atteints, la profondeur pouvant valoir Integer.MAX_VALUE
+        int[] atteintsParNiveau = new int[Math.min(profondeur, 15) + 1];
+        int nbNiveaux = 1;
+        atteintsParNiveau[0] = 1;
+        int[] frontiere = {source};
+        int tailleFrontiere = 1;
+        int[] suivante = null;
+
+        for (int niveau = 1; niveau <= profondeur && tailleFrontiere > 0; niveau++) {
+            if (suivante == null) {
+                suivante = new int[adjacence.nbSommets];
+            }
+            int[] courante = frontiere;
+            int[] destination = suivante;
+            AtomicInteger curseur = new AtomicInteger();
+
+            Parallelisme.pourIntervalles(pool, tailleFrontiere, Parallelisme.GRAIN, (debut, fin) -> {
+                int[] locale = new int[64];
+                int nb = 0;
+                for (int i = debut; i < fin; i++) {
+                    int u = courante[i];
+                    for (int k = adjacence.debuts[u]; k < adjacence.debuts[u + 1]; k++) {
+                        int v = adjacence.voisins[k];
+                        if (marquer(visites, v)) {
+                            if (nb == locale.length) {
+                                locale = Arrays.copyOf(locale, nb * 2);
+                            }
+                            locale[nb++] = v;
+                        }
+                    }
+                }
+                System.arraycopy(locale, 0, destination, curseur.getAndAdd(nb), nb);
+            });
+
+            tailleFrontiere = curseur.get();
+            if (tailleFrontiere > 0) {
+                if (nbNiveaux == atteintsParNiveau.length) {
+                    atteintsParNiveau = Arrays.copyOf(atteintsParNiveau, nbNiveaux * 2);
+                }
+                atteintsParNiveau[nbNiveaux++] = tailleFrontiere;
+            }
+            // la frontière courante sert de tampon au niveau suivant (sauf le tableau initial d'une case)
+            suivante = courante.length == adjacence.nbSommets ? courante : null;
+            frontiere = destination;
+        }
+
+        long[] mots = new long[visites.length()];
+        for (int i = 0; i < mots.length; i++) {
+            mots[i] = visites.get(i);
+        }
+        return new ResultatPropagation(graphe, BitSet.valueOf(mots), Arrays.copyOf(atteintsParNiveau, nbNiveaux));
+    }
+
+    /**
+     * Propage une fausse information à partir de plusieurs utilisateurs à la fois.
+     *
+     * @param usernames  les noms des utilisateurs à l'origine de la fausse information
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @return le nombre d'utilisateurs atteints par chaque source et leur union
+     * @throws RuntimeException si l'un des utilisateurs n'est pas dans le graphe
+     */
+    public ResultatPropagationLot propagerLot(List<String> usernames, int profondeur) {
+        int[] sources = new int[usernames.size()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = graphe.id(graphe.obtenirUtilisateurAPartirDuUsername(usernames.get(i)));
+        }
+        return propagerLot(sources, profondeur);
+    }
+
+    /**
+     * Propage une fausse information à partir de plusieurs sources à la fois.
+     * <p>
+     * Les sources sont traitées par groupes de 64 : un seul parcours par groupe, où le mot
+     * {@code visites[v]} indique par ses bits quelles sources ont déjà atteint {@code v}.
+     * Un arc {@code u -> v} transmet en une opération les bits de la frontière de {@code u}
+     * que {@code v} n'a pas encore reçus. Les groupes sont répartis sur le pool.
+     * </p>
+     *
+     * @param sources    les identifiants des sources
+     * @param profondeur le nombre maximal de niveaux de propagation
+     * @return le nombre d'utilisateurs atteints par chaque source et leur union
+     * @throws IllegalArgumentException si la profondeur est négative
+     */
+    public ResultatPropagationLot propagerLot(int[] sources, int profondeur) {
+        if (profondeur < 0) {
+            throw new IllegalArgumentException("La profondeur de propagation doit être positive.");
+        }
+        for (int source : sources) {
+            Objects.checkIndex(source, adjacence.nbSommets);
+        }
+        int[] atteints = new int[sources.length];
+        int nbGroupes = (sources.length + 63) >>> 6;
+        BitSet[] unions = new BitSet[nbGroupes];
+
+        Parallelisme.pourIntervalles(pool, nbGroupes, 1, (debut, fin) -> {
+            for (int groupe = debut; groupe < fin; groupe++) {
+                int premier = groupe << 6;
+                unions[groupe] = propagerGroupe(sources, premier, Math.min(64, sources.length - premier),
+                        profondeur, atteints);
+            }
+        });
+
+        BitSet union = new BitSet(adjacence.nbSommets);
+        for (BitSet partielle : unions) {
+            union.or(partielle);
+        }
+        return new ResultatPropagationLot(graphe, sources.clone(), atteints, union);
+    }
+
+    /**
+     * Parcours commun à un groupe d'au plus 64 sources.
+     *
+     * @param sources    toutes les sources du lot
+     * @param premier    la position de la première source du groupe
+     * @param nb         le nombre de sources du groupe
+     * @param profondeur le nombre maximal de niveaux
+     * @param atteints   reçoit le nombre d'utilisateurs atteints par chaque source du groupe
+     * @return les sommets atteints par au moins une source du groupe
+     */
+    private BitSet propagerGroupe(int[] sources, int premier, int nb, int profondeur, int[] atteints) {
+        int n = adjacence.nbSommets;
+        long[] visites = new long[n];
+        long[] frontiere = new long[n];
+        long[] suivante = new long[n];
+        for (int j = 0; j < nb; j++) {
+            int s = sources[premier + j];
+            visites[s] |= 1L << j;
+            frontiere[s] |= 1L << j;
+        }
+
+        boolean actif = nb > 0;
+        for (int niveau = 1; niveau <= profondeur && actif; niveau++) {
+            actif = false;
+            for (int u = 0; u < n; u++) {
+                long bits = frontiere[u];
+                if (bits == 0) {
+                    continue;
+                }
+                frontiere[u] = 0;
+                for (int k = adjacence.debuts[u]; k < adjacence.debuts[u + 1]; k++) {
+                    int v = adjacence.voisins[k];
+                    long nouveaux = bits & ~visites[v];
+                    if (nouveaux != 0) {
+                        visites[v] |= nouveaux;
+                        suivante[v] |= nouveaux;
+                        actif = true;
+                    }
+                }
+            }
+            long[] echange = frontiere;
+            frontiere = suivante;
+            suivante = echange;
+        }
+
+        BitSet union = new BitSet(n);
+        int[] comptes = new int[64];
+        for (int v = 0; v < n; v++) {
+            long mot = visites[v];
+            if (mot != 0) {
+                union.set(v);
+                while (mot != 0) {
+                    comptes[Long.numberOfTrailingZeros(mot)]++;
+                    mot &= mot - 1;
+                }
+            }
+        }
+        System.arraycopy(comptes, 0, atteints, premier, nb);
+        return union;
+    }
+
+    /**
+     * Marque un sommet comme visité.
+     *
+     * @return {@code true} si ce fil est le premier à marquer le sommet
+     */
+    private static boolean marquer(AtomicLongArray visites, int v) {
+        int i = v >>> 6;
+        long bit = 1L << v;
+        while (true) {
+            long mot = visites.get(i);
+            if ((mot & bit) != 0) {
+                return false;
+            }
+            if (visites.compareAndSet(i, mot, mot | bit)) {
+                return true;
+            }
+        }
+    }
+}
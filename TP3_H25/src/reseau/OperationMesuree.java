@@ -0,0 +1,33 @@
+package reseau;
+
+/**
+ * Les opérations d'un {@link CivixNet} dont la durée est mesurée par {@link MesuresReseau}.
+ */
+public enum OperationMesuree {
+
+    /**
+     * Chargement d'un réseau par {@link ReseauBuilder#chargerDepuisJSON(String, MesuresReseau)}.
+     */
+    CHARGEMENT,
+
+    /**
+     * Recherche d'un utilisateur par son nom ({@link CivixNet#chercherUtilisateur(String)} et
+     * {@link CivixNet#obtenirUtilisateurAPartirDuUsername(String)}).
+     */
+    RECHERCHE,
+
+    /**
+     * Propagation d'une fausse information, quelle que soit la méthode de propagation appelée.
+     */
+    PROPAGATION,
+
+    /**
+     * Application d'un lot par {@link CivixNet#appliquerLot(LotMutations)}.
+     */
+    APPLICATION_LOT,
+
+    /**
+     * Extraction d'un sous-réseau par {@link CivixNet#extraireSousReseau(String, int, Direction, int)}.
+     */
+    EXTRACTION
+}
@@ -0,0 +1,76 @@
+package reseau;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Découpage d'un intervalle d'indices en tâches fork-join, partagé par les moteurs de calcul
+ * et par la disposition de la visionneuse.
+ * <p>
+ * L'intervalle est coupé en deux récursivement jusqu'à la taille du grain; les moitiés
+ * non encore traitées peuvent être volées par les fils inactifs du pool.
+ * </p>
+ */
+public final class Parallelisme {
+
+    /**
+     * Taille par défaut d'un morceau traité séquentiellement.
+     */
+    static final int GRAIN = 1024;
+
+    private Parallelisme() {
+    }
+
+    /**
+     * Traitement d'un morceau {@code [debut, fin[} de l'intervalle.
+     */
+    @FunctionalInterface
+    public interface ActionIntervalle {
+        void executer(int debut, int fin);
+    }
+
+    /**
+     * Applique une action à tous les morceaux de {@code [0, taille[}, dans le pool donné,
+     * et attend la fin du traitement. Un intervalle plus petit que le grain est traité
+     * directement dans le fil appelant.
+     *
+     * @param pool   le pool d'exécution
+     * @param taille la taille de l'intervalle
+     * @param grain  la taille maximale d'un morceau
+     * @param action le traitement d'un morceau
+     */
+    public static void pourIntervalles(ForkJoinPool pool, int taille, int grain, ActionIntervalle action) {
+        if (taille <= grain) {
+            action.executer(0, taille);
+        } else {
+            pool.invoke(new TacheIntervalle(0, taille, grain, action));
+        }
+    }
+
+    private static final class TacheIntervalle extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int debut;
+        private final int fin;
+        private final int grain;
+        private final ActionIntervalle action;
+
+        TacheIntervalle(int debut, int fin, int grain, ActionIntervalle action) {
+            this.debut = debut;
+            this.fin = fin;
+            this.grain = grain;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (fin - debut <= grain) {
+                action.executer(debut, fin);
+                return;
+            }
+            int milieu = (debut + fin) >>> 1;
+            invokeAll(new TacheIntervalle(debut, milieu, grain, action),
+                    new TacheIntervalle(milieu, fin, grain, action));
+        }
+    }
+}
@@ -1,17 +1,33 @@
 package reseau;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
  * La classe {@code ReseauBuilder} fournit des utilitaires pour
- * charger un réseau {@link CivixNet} à partir d'un fichier JSON,
+ * charger un réseau {@link CivixNet} à partir d'un fichier JSON ou l'y exporter,
  * ainsi que pour le sérialiser et le désérialiser.
  * <p>
  * Cette classe est utilisée pour initialiser un réseau à partir d'un fichier
@@ -25,11 +41,21 @@ public class ReseauBuilder {
     // Chemin d'accès par défaut vers le répertoire des données
     private static final String pathIn = System.getProperty("user.dir") + fSep + "src" + fSep;
 
+    // Nom du fichier d'instantané écrit par serialise
+    private static final String NOM_INSTANTANE = "civixNet.ser";
+
+    // Nombre d'utilisateurs lus entre deux appels au suivi du chargement en continu
+    private static final int INTERVALLE_SUIVI = 100_000;
+
+    // Taille des tampons des fichiers JSON exportés et des fragments relus
+    private static final int TAILLE_TAMPON = 1 << 16;
+
     /**
      * Charge un objet {@link CivixNet} à partir d'un fichier JSON.
      * <p>
      * Le fichier doit contenir une structure JSON avec un tableau d'utilisateurs,
-     * chacun ayant un nom, un mot de passe, et une liste d'abonnements.
+     * chacun ayant un nom, un mot de passe, et une liste d'abonnements. Le mot de passe peut être
+     * l'empreinte encodée écrite par les exports (voir {@link MagasinIdentifiants#empreinte(String)}).
      * </p>
      *
      * Exemple de structure attendue :
@@ -51,37 +77,415 @@ public class ReseauBuilder {
      * @throws Exception si le fichier est introuvable, mal formé ou si une erreur d'E/S survient
      */
     public static CivixNet chargerDepuisJSON(String cheminFichier) throws Exception {
-        // TODO: Compléter cette méthode
+        return chargerDepuisJSON(cheminFichier, null);
+    }
 
+    /**
+     * Charge un objet {@link CivixNet} à partir d'un fichier JSON, comme {@link #chargerDepuisJSON(String)},
+     * en le mesurant dès sa création : la durée du chargement et les modifications qu'il fait sont comptées.
+     *
+     * @param cheminFichier le chemin absolu ou relatif vers le fichier JSON
+     * @param mesures       les mesures à rattacher au réseau chargé, ou null
+     * @return un objet {@link CivixNet} reconstruit à partir du fichier
+     * @throws Exception si le fichier est introuvable, mal formé ou si une erreur d'E/S survient
+     */
+    public static CivixNet chargerDepuisJSON(String cheminFichier, MesuresReseau mesures) throws Exception {
+            long debut = mesures == null ? 0 : mesures.debut();
             ObjectMapper mapper = new ObjectMapper();
             JsonNode racine = mapper.readTree(new File(pathIn + cheminFichier)).get("utilisateurs");
 
             CivixNet charged = new CivixNet();
+            if (mesures != null) {
+                mesures.attacher(charged);
+            }
 
             List<String> abonnementsList = new ArrayList<>();
 
 
             for (int i = 0; i < racine.size(); i++) {
-                charged.ajouterUtilisateur(racine.get(i).get("username").asText(), racine.get(i).get("password").asText());
+                charged.importerUtilisateur(racine.get(i).get("username").asText(), racine.get(i).get("password").asText());
 
             }
             for (int i = 0; i < racine.size(); i++) {
-                for (int j = 0; j < racine.get(i).get("abonnements").size(); j++) {
-                charged.ajouterAbonnement(charged.obtenirUtilisateurAPartirDuUsername(racine.get(i).get("username").asText()), charged.obtenirUtilisateurAPartirDuUsername(racine.get(i).get("abonnements").get(j).asText()));
+                Utilisateur compte = charged.obtenirUtilisateurAPartirDuUsername(racine.get(i).get("username").asText());
+                JsonNode abonnements = racine.get(i).get("abonnements");
+                for (int j = 0; j < abonnements.size(); j++) {
+                    charged.ajouterAbonnement(compte, charged.obtenirUtilisateurAPartirDuUsername(abonnements.get(j).asText()));
+                }
+            }
+            charged.identifiants().hacherEnAttente();
+            if (mesures != null) {
+                mesures.fin(OperationMesuree.CHARGEMENT, debut);
+            }
+            return charged;
+    }
+
+    /**
+     * Charge un objet {@link CivixNet} à partir d'un fichier JSON, sans suivi de progression.
+     *
+     * @param cheminFichier le chemin vers le fichier JSON, relatif au répertoire {@code src}
+     * @return un objet {@link CivixNet} reconstruit à partir du fichier
+     * @throws IOException si le fichier est introuvable, mal formé ou si une erreur d'E/S survient
+     * @see #chargerDepuisJSONEnContinu(String, SuiviChargement)
+     */
+    public static CivixNet chargerDepuisJSONEnContinu(String cheminFichier) throws IOException {
+        return chargerDepuisJSONEnContinu(cheminFichier, SuiviChargement.AUCUN);
+    }
+
+    /**
+     * Charge un objet {@link CivixNet} à partir d'un fichier JSON en une seule passe,
+     * sans construire l'arbre du document en mémoire.
+     * <p>
+     * Le fichier a la même structure que pour {@link #chargerDepuisJSON(String)}. Les utilisateurs
+     * sont ajoutés au fil de la lecture; un abonnement vers un utilisateur qui n'a pas encore été lu
+     * est mis en attente, puis résolu dès que cet utilisateur apparaît. La mémoire utilisée est donc
+     * proportionnelle au réseau construit et non à la taille du fichier.
+     * </p>
+     *
+     * @param cheminFichier le chemin vers le fichier JSON, relatif au répertoire {@code src}
+     * @param suivi         reçoit la progression tous les {@value #INTERVALLE_SUIVI} utilisateurs, et à la fin
+     * @return un objet {@link CivixNet} reconstruit à partir du fichier
+     * @throws IOException      si le fichier est introuvable, mal formé ou si une erreur d'E/S survient
+     * @throws RuntimeException si un abonnement désigne un utilisateur absent du fichier
+     */
+    public static CivixNet chargerDepuisJSONEnContinu(String cheminFichier, SuiviChargement suivi) throws IOException {
+        Chargement chargement = new Chargement(suivi, new CivixNet());
+        try (JsonParser parser = new JsonFactory().createParser(new File(pathIn + cheminFichier))) {
+            chargement.lire(parser);
+        }
+        return chargement.terminer();
+    }
+
+    /**
+     * Charge un objet {@link CivixNet} à partir d'un fichier JSON, éventuellement compressé, en une seule
+     * passe (voir {@link #chargerDepuisJSONEnContinu(String, SuiviChargement)}).
+     *
+     * @param fichier     le fichier JSON
+     * @param compression la compression du fichier
+     * @return un objet {@link CivixNet} reconstruit à partir du fichier
+     * @throws IOException      si le fichier est introuvable, mal formé ou si une erreur d'E/S survient
+     * @throws RuntimeException si un abonnement désigne un utilisateur absent du fichier
+     */
+    public static CivixNet chargerDepuisJSONEnContinu(Path fichier, Compression compression) throws IOException {
+        return chargerDepuisFragmentsJSON(List.of(fichier), compression);
+    }
+
+    /**
+     * Charge un objet {@link CivixNet} à partir d'un fichier JSON, comme
+     * {@link #chargerDepuisJSONEnContinu(Path, Compression)}, en gardant ses mots de passe dans le magasin
+     * donné : les mots de passe en clair du fichier sont hachés avec son facteur de travail.
+     *
+     * @param fichier      le fichier JSON
+     * @param compression  la compression du fichier
+     * @param identifiants le magasin des mots de passe du réseau chargé
+     * @return un objet {@link CivixNet} reconstruit à partir du fichier
+     * @throws IOException      si le fichier est introuvable, mal formé ou si une erreur d'E/S survient
+     * @throws RuntimeException si un abonnement désigne un utilisateur absent du fichier
+     */
+    public static CivixNet chargerDepuisJSONEnContinu(Path fichier, Compression compression,
+                                                      MagasinIdentifiants identifiants) throws IOException {
+        Chargement chargement = new Chargement(SuiviChargement.AUCUN, new CivixNet(identifiants));
+        chargement.lire(fichier, compression);
+        return chargement.terminer();
+    }
+
+    /**
+     * Charge un objet {@link CivixNet} à partir des fragments écrits par
+     * {@link #exporterVersJSONEnFragments(CivixNet, Path, int, Compression)}, lus l'un après l'autre.
+     * Les abonnements vers un utilisateur d'un fragment suivant restent en attente jusqu'à sa lecture.
+     *
+     * @param fragments   les fichiers des fragments, dans l'ordre
+     * @param compression la compression des fragments
+     * @return un objet {@link CivixNet} reconstruit à partir des fragments
+     * @throws IOException      si un fragment est introuvable, mal formé ou si une erreur d'E/S survient
+     * @throws RuntimeException si un abonnement désigne un utilisateur absent de tous les fragments
+     */
+    public static CivixNet chargerDepuisFragmentsJSON(List<Path> fragments, Compression compression) throws IOException {
+        Chargement chargement = new Chargement(SuiviChargement.AUCUN, new CivixNet());
+        for (Path fragment : fragments) {
+            chargement.lire(fragment, compression);
+        }
+        return chargement.terminer();
+    }
+
+    /**
+     * État d'un chargement en continu, qui peut s'étendre sur plusieurs documents JSON.
+     */
+    private static final class Chargement {
+        private final SuiviChargement suivi;
+        private final long debut = System.nanoTime();
+        private final CivixNet charged;
+
+        // abonnements vers des utilisateurs pas encore lus, par nom normalisé du compte suivi
+        private final Map<String, List<Utilisateur>> enAttente = new HashMap<>();
+        private final List<String> abonnements = new ArrayList<>();
+        private long nbUtilisateurs;
+        private long nbAbonnements;
+
+        // octets des documents précédents, pour un suivi cumulatif
+        private long octetsPrecedents;
+
+        Chargement(SuiviChargement suivi, CivixNet charged) {
+            this.suivi = suivi;
+            this.charged = charged;
+        }
+
+        /**
+         * Ajoute au réseau les utilisateurs d'un fichier JSON.
+         *
+         * @param fichier     le fichier
+         * @param compression la compression du fichier
+         * @throws IOException si le document est mal formé ou si une erreur d'E/S survient
+         */
+        void lire(Path fichier, Compression compression) throws IOException {
+            try (JsonParser parser = new JsonFactory().createParser(compression.decompresser(
+                    new BufferedInputStream(Files.newInputStream(fichier), TAILLE_TAMPON)))) {
+                lire(parser);
+            }
+        }
+
+        /**
+         * Ajoute au réseau les utilisateurs d'un document JSON.
+         *
+         * @param parser le parser positionné au début du document
+         * @throws IOException si le document est mal formé ou si une erreur d'E/S survient
+         */
+        void lire(JsonParser parser) throws IOException {
+            avancerJusquAuTableau(parser, "utilisateurs");
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String username = null;
+                String password = null;
+                abonnements.clear();
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String champ = parser.getCurrentName();
+                    JsonToken valeur = parser.nextToken();
+                    if (champ.equals("username")) {
+                        username = parser.getValueAsString();
+                    } else if (champ.equals("password")) {
+                        password = parser.getValueAsString();
+                    } else if (champ.equals("abonnements") && valeur == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            abonnements.add(parser.getValueAsString());
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+
+                charged.importerUtilisateur(username, password);
+                Utilisateur compte = charged.obtenirUtilisateurAPartirDuUsername(username);
+                nbUtilisateurs++;
+
+                List<Utilisateur> abonnesEnAttente = enAttente.remove(CivixNet.normaliser(username));
+                if (abonnesEnAttente != null) {
+                    for (Utilisateur abonne : abonnesEnAttente) {
+                        charged.ajouterAbonnement(abonne, compte);
+                    }
+                    nbAbonnements += abonnesEnAttente.size();
+                }
+
+                for (String nom : abonnements) {
+                    Utilisateur cible = charged.chercherUtilisateur(nom).orElse(null);
+                    if (cible != null) {
+                        charged.ajouterAbonnement(compte, cible);
+                        nbAbonnements++;
+                    } else {
+                        enAttente.computeIfAbsent(CivixNet.normaliser(nom), k -> new ArrayList<>()).add(compte);
+                    }
                 }
+
+                if (nbUtilisateurs % INTERVALLE_SUIVI == 0) {
+                    signaler(parser);
+                }
+            }
+            signaler(parser);
+            octetsPrecedents += parser.getCurrentLocation().getByteOffset();
+        }
+
+        /**
+         * Termine le chargement : les mots de passe relus en clair sont hachés en parallèle.
+         *
+         * @return le réseau chargé
+         * @throws RuntimeException si des abonnements désignent des utilisateurs jamais lus
+         */
+        CivixNet terminer() {
+            if (!enAttente.isEmpty()) {
+                throw new RuntimeException("L'utilisateur n'existe pas : " + enAttente.keySet().iterator().next());
             }
+            charged.identifiants().hacherEnAttente();
             return charged;
+        }
+
+        private void signaler(JsonParser parser) {
+            suivi.progression(nbUtilisateurs, nbAbonnements,
+                    octetsPrecedents + parser.getCurrentLocation().getByteOffset(), System.nanoTime() - debut);
+        }
+    }
+
+    /**
+     * Avance le parser jusqu'au début du tableau associé à un champ de l'objet racine.
+     *
+     * @param parser le parser positionné au début du document
+     * @param champ  le nom du champ contenant le tableau
+     * @throws IOException si le document ne contient pas ce tableau
+     */
+    private static void avancerJusquAuTableau(JsonParser parser, String champ) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Le document JSON doit commencer par un objet.");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            JsonToken valeur = parser.nextToken();
+            if (parser.getCurrentName().equals(champ) && valeur == JsonToken.START_ARRAY) {
+                return;
+            }
+            parser.skipChildren();
+        }
+        throw new IOException("Le tableau \"" + champ + "\" est introuvable.");
+    }
+
+    /**
+     * Écrit un réseau dans un flux au format JSON de {@link #chargerDepuisJSON(String)}.
+     * <p>
+     * Les utilisateurs et leurs abonnements sont écrits au fil du parcours du réseau avec un
+     * {@link JsonGenerator}, sans construire d'arbre du document : la mémoire utilisée ne dépend
+     * pas de la taille du réseau. Le réseau ne doit pas être modifié pendant l'écriture.
+     * </p>
+     * <p>
+     * Seules les empreintes des mots de passe sont écrites : ceux qui attendent encore dans le
+     * {@link MagasinIdentifiants} sont d'abord hachés en parallèle.
+     * </p>
+     *
+     * @param reseau le réseau à exporter
+     * @param sortie le flux de sortie, vidé mais pas fermé
+     * @throws IOException si une erreur d'écriture survient
+     */
+    public static void exporterVersJSON(CivixNet reseau, OutputStream sortie) throws IOException {
+        reseau.identifiants().hacherEnAttente();
+        JsonFactory fabrique = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (JsonGenerator json = fabrique.createGenerator(sortie, JsonEncoding.UTF8)) {
+            ecrireUtilisateurs(json, reseau.getUtilisateurs(), reseau.identifiants());
+        }
     }
 
     /**
-     * Sérialise un objet {@link CivixNet} et l'écrit dans un fichier `.ser`.
+     * Écrit un réseau dans un fichier JSON, éventuellement compressé. Le fichier est d'abord écrit
+     * à côté, puis renommé, pour qu'un arrêt brutal ne laisse jamais d'export à moitié écrit.
+     *
+     * @param reseau      le réseau à exporter
+     * @param fichier     le fichier de destination (remplacé s'il existe)
+     * @param compression la compression à appliquer
+     * @throws IOException si une erreur d'écriture survient
+     * @see #exporterVersJSON(CivixNet, OutputStream)
+     */
+    public static void exporterVersJSON(CivixNet reseau, Path fichier, Compression compression) throws IOException {
+        reseau.identifiants().hacherEnAttente();
+        ecrireFichierJSON(reseau.getUtilisateurs(), reseau.identifiants(), fichier, compression);
+    }
+
+    /**
+     * Écrit un réseau en plusieurs fichiers JSON, en parallèle. Chaque fragment est un document complet
+     * contenant une tranche contiguë des utilisateurs, dans l'ordre du réseau, avec tous leurs abonnements.
+     * Les fragments se rechargent avec {@link #chargerDepuisFragmentsJSON(List, Compression)}.
+     * <p>
+     * Les fragments sont nommés {@code reseau-0.json}, {@code reseau-1.json}, ... suivis de l'extension
+     * de la compression. Le réseau ne doit pas être modifié pendant l'écriture.
+     * </p>
+     *
+     * @param reseau      le réseau à exporter
+     * @param dossier     le dossier de destination, qui doit exister
+     * @param nbFragments le nombre de fragments à écrire
+     * @param compression la compression à appliquer à chaque fragment
+     * @return les fichiers écrits, dans l'ordre des utilisateurs
+     * @throws IOException              si une erreur d'écriture survient
+     * @throws IllegalArgumentException si le nombre de fragments n'est pas positif
+     */
+    public static List<Path> exporterVersJSONEnFragments(CivixNet reseau, Path dossier, int nbFragments,
+                                                         Compression compression) throws IOException {
+        if (nbFragments <= 0) {
+            throw new IllegalArgumentException("Le nombre de fragments doit être positif.");
+        }
+        reseau.identifiants().hacherEnAttente();
+        // premier utilisateur de chaque fragment, null pour les bornes ouvertes
+        Utilisateur[] bornes = new Utilisateur[nbFragments + 1];
+        int parFragment = (reseau.getUtilisateurs().size() + nbFragments - 1) / nbFragments;
+        int rang = 0;
+        for (Utilisateur u : reseau.getUtilisateurs().keySet()) {
+            if (rang > 0 && rang % parFragment == 0) {
+                bornes[rang / parFragment] = u;
+            }
+            rang++;
+        }
+
+        List<Path> fragments = new ArrayList<>(nbFragments);
+        for (int i = 0; i < nbFragments; i++) {
+            fragments.add(dossier.resolve("reseau-" + i + ".json" + compression.extension()));
+        }
+        try {
+            Parallelisme.pourIntervalles(ForkJoinPool.commonPool(), nbFragments, 1, (debut, fin) -> {
+                for (int i = debut; i < fin; i++) {
+                    // un fragment dont la borne de début manque est vide (moins d'utilisateurs que de fragments)
+                    Map<Utilisateur, Set<Utilisateur>> tranche = i > 0 && bornes[i] == null
+                            ? Map.of() : reseau.tranche(bornes[i], bornes[i + 1]);
+                    try {
+                        ecrireFichierJSON(tranche, reseau.identifiants(), fragments.get(i), compression);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return fragments;
+    }
+
+    private static void ecrireFichierJSON(Map<Utilisateur, Set<Utilisateur>> utilisateurs,
+                                          MagasinIdentifiants identifiants, Path fichier,
+                                          Compression compression) throws IOException {
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (OutputStream sortie = compression.compresser(
+                new BufferedOutputStream(Files.newOutputStream(temporaire), TAILLE_TAMPON));
+             JsonGenerator json = new JsonFactory().createGenerator(sortie, JsonEncoding.UTF8)) {
+            ecrireUtilisateurs(json, utilisateurs, identifiants);
+        }
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void ecrireUtilisateurs(JsonGenerator json, Map<Utilisateur, Set<Utilisateur>> utilisateurs,
+                                           MagasinIdentifiants identifiants) throws IOException {
+        json.writeStartObject();
+        json.writeArrayFieldStart("utilisateurs");
+        for (Map.Entry<Utilisateur, Set<Utilisateur>> u : utilisateurs.entrySet()) {
+            json.writeStartObject();
+            json.writeStringField("username", u.getKey().getUsername());
+            json.writeStringField("password", identifiants.empreinte(u.getKey().getUsername()));
+            json.writeArrayFieldStart("abonnements");
+            for (Utilisateur suivi : u.getValue()) {
+                json.writeString(suivi.getUsername());
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    /**
+     * Sérialise un objet {@link CivixNet} et l'écrit dans un fichier `civixNet.ser`.
+     * <p>
+     * Le fichier utilise le format binaire versionné décrit dans {@link FormatInstantane} :
+     * une table des noms d'utilisateur suivie des listes d'abonnements compressées,
+     * protégées par une somme de contrôle.
+     * </p>
      *
      * @param reseau  l'objet {@link CivixNet} à sauvegarder
      * @param pathOut le répertoire de sortie (chemin terminé par un slash)
      * @throws IOException si une erreur d'écriture survient
      */
     public static void serialise(CivixNet reseau, String pathOut) throws IOException {
-        // TODO: Compléter cette méthode
+        FormatInstantane.ecrire(reseau, Path.of(pathOut + NOM_INSTANTANE));
     }
 
     /**
@@ -89,11 +493,23 @@ public class ReseauBuilder {
      *
      * @param inputFile le chemin vers le fichier de sérialisation
      * @return l'objet {@link CivixNet} restauré
-     * @throws IOException            si une erreur de lecture survient
+     * @throws IOException            si une erreur de lecture survient, ou si le fichier est corrompu
+     *                                ou d'une version inconnue
      * @throws ClassNotFoundException si la classe {@link CivixNet} n’est pas trouvée
      */
     public static CivixNet deserialise(String inputFile) throws IOException, ClassNotFoundException {
-        // TODO: Compléter cette méthode
-        return null;
+        return FormatInstantane.lire(Path.of(inputFile));
+    }
+
+    /**
+     * Convertit un fichier JSON au format de {@link #chargerDepuisJSON(String)} en instantané binaire,
+     * pour que les démarrages suivants utilisent {@link #deserialise(String)} plutôt que le JSON.
+     *
+     * @param cheminFichier le chemin vers le fichier JSON, relatif au répertoire {@code src}
+     * @param pathOut       le répertoire de sortie (chemin terminé par un slash)
+     * @throws IOException si une erreur de lecture ou d'écriture survient
+     */
+    public static void convertirJSONEnInstantane(String cheminFichier, String pathOut) throws IOException {
+        serialise(chargerDepuisJSONEnContinu(cheminFichier), pathOut);
     }
 }
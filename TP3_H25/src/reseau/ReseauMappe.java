@@ -0,0 +1,388 @@
+package reseau;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * La classe {@code ReseauMappe} est une version en lecture seule de {@link CivixNet}
+ * qui interroge directement un instantané (voir {@link ReseauBuilder#serialise(CivixNet, String)})
+ * projeté en mémoire avec {@link FileChannel#map}.
+ * <p>
+ * Rien n'est désérialisé à l'ouverture : les noms et les abonnements sont décodés à la demande
+ * dans les pages du fichier. L'ouverture est donc quasi instantanée quelle que soit la taille du
+ * réseau, et plusieurs JVM qui ouvrent le même fichier partagent la même copie en cache système.
+ * Les utilisateurs sont désignés par leur nom ou par leur identifiant dans l'instantané.
+ * </p>
+ * <p>
+ * Les lectures n'utilisent que des accès absolus aux tampons : une instance peut être partagée
+ * entre plusieurs fils d'exécution. Chaque position et chaque longueur lue est bornée par la zone
+ * des données avant d'être suivie : une lecture dans un instantané corrompu lève une
+ * {@link UncheckedIOException}.
+ * </p>
+ */
+public class ReseauMappe implements Closeable {
+
+    /**
+     * Taille maximale d'un segment projeté (un {@link MappedByteBuffer} est limité à 2 Go).
+     */
+    private static final int BITS_SEGMENT = 30;
+    private static final long MASQUE_SEGMENT = (1L << BITS_SEGMENT) - 1;
+
+    private final FileChannel canal;
+    private final MappedByteBuffer[] segments;
+    private final long taille;
+    private final int nbUtilisateurs;
+
+    /**
+     * Position dans le fichier de l'index des noms (suivi de l'index des listes d'abonnements).
+     */
+    private final long positionIndex;
+
+    private ReseauMappe(FileChannel canal) throws IOException {
+        this.canal = canal;
+        this.taille = canal.size();
+        int nbSegments = (int) ((taille + MASQUE_SEGMENT) >>> BITS_SEGMENT);
+        this.segments = new MappedByteBuffer[nbSegments];
+        for (int i = 0; i < nbSegments; i++) {
+            long debut = (long) i << BITS_SEGMENT;
+            segments[i] = canal.map(FileChannel.MapMode.READ_ONLY, debut, Math.min(1L << BITS_SEGMENT, taille - debut));
+        }
+
+        if (taille < 12 + FormatInstantane.TAILLE_FIN || lireInt(0) != FormatInstantane.SIGNATURE) {
+            throw new IOException("Ce fichier n'est pas un instantané CivixNet.");
+        }
+        int version = lireInt(4);
+        if (version != FormatInstantane.VERSION) {
+            throw new IOException("Version d'instantané non supportée pour la projection : " + version);
+        }
+        this.nbUtilisateurs = lireInt(8);
+        // chaque utilisateur occupe au moins trois octets de données (deux longueurs de chaîne et un degré)
+        if (nbUtilisateurs < 0 || nbUtilisateurs > (taille - 12 - FormatInstantane.TAILLE_FIN) / 19) {
+            throw new IOException("Instantané corrompu : nombre d'utilisateurs invalide (" + nbUtilisateurs + ").");
+        }
+        this.positionIndex = lireLong(taille - FormatInstantane.TAILLE_FIN);
+        if (positionIndex < 12 + 3L * nbUtilisateurs
+                || positionIndex + 16L * nbUtilisateurs != taille - FormatInstantane.TAILLE_FIN) {
+            throw new IOException("Instantané corrompu : index invalide.");
+        }
+    }
+
+    /**
+     * Ouvre un instantané en lecture seule par projection en mémoire.
+     * La somme de contrôle n'est pas vérifiée (voir {@link #verifierIntegrite()}).
+     *
+     * @param fichier le fichier d'instantané
+     * @return le réseau projeté
+     * @throws IOException si le fichier est illisible ou n'est pas un instantané de version 2
+     */
+    public static ReseauMappe ouvrir(Path fichier) throws IOException {
+        FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ);
+        try {
+            return new ReseauMappe(canal);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Recalcule la somme de contrôle de tout le fichier. Cette opération lit l'instantané en entier.
+     *
+     * @throws IOException si la somme de contrôle ne concorde pas
+     */
+    public void verifierIntegrite() throws IOException {
+        CRC32 crc = new CRC32();
+        long fin = taille - Integer.BYTES;
+        for (int i = 0; i < segments.length; i++) {
+            ByteBuffer vue = segments[i].duplicate();
+            long debut = (long) i << BITS_SEGMENT;
+            vue.limit((int) Math.max(0, Math.min(vue.capacity(), fin - debut)));
+            crc.update(vue);
+        }
+        if (lireInt(fin) != (int) crc.getValue()) {
+            throw new IOException("Instantané corrompu : somme de contrôle invalide.");
+        }
+    }
+
+    /**
+     * Retourne le nombre d'utilisateurs de l'instantané.
+     *
+     * @return le nombre d'utilisateurs
+     */
+    public int nombreUtilisateurs() {
+        return nbUtilisateurs;
+    }
+
+    /**
+     * Retourne le nom d'un utilisateur.
+     *
+     * @param id l'identifiant de l'utilisateur
+     * @return son nom d'utilisateur
+     * @throws UncheckedIOException si l'instantané est corrompu
+     */
+    public String username(int id) {
+        return lireChaine(positionNom(id));
+    }
+
+    /**
+     * Retourne l'identifiant d'un utilisateur, par recherche dichotomique dans la table des noms
+     * (qui suit l'ordre alphabétique insensible à la casse du réseau).
+     *
+     * @param username le nom d'utilisateur recherché
+     * @return son identifiant, ou -1 s'il n'existe pas
+     */
+    public int id(String username) {
+        if (username == null) {
+            return -1;
+        }
+        String cle = CivixNet.normaliser(username);
+        int bas = 0;
+        int haut = nbUtilisateurs - 1;
+        while (bas <= haut) {
+            int milieu = (bas + haut) >>> 1;
+            int comparaison = CivixNet.normaliser(username(milieu)).compareTo(cle);
+            if (comparaison < 0) {
+                bas = milieu + 1;
+            } else if (comparaison > 0) {
+                haut = milieu - 1;
+            } else {
+                return milieu;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retourne le nombre d'abonnements d'un utilisateur.
+     *
+     * @param id l'identifiant de l'utilisateur
+     * @return son degré sortant
+     */
+    public int degreSortant(int id) {
+        long position = positionLigne(id);
+        int degre = lireVarint(position);
+        verifierLongueur(degre, position + tailleVarint(degre), "degré");
+        return degre;
+    }
+
+    /**
+     * Parcourt les abonnements d'un utilisateur en ordre croissant d'identifiant.
+     *
+     * @param id     l'identifiant de l'utilisateur
+     * @param action l'action appliquée à l'identifiant de chaque compte suivi
+     */
+    public void pourChaqueAbonnement(int id, IntConsumer action) {
+        long position = positionLigne(id);
+        int degre = lireVarint(position);
+        position += tailleVarint(degre);
+        verifierLongueur(degre, position, "degré");
+        int voisin = 0;
+        for (int k = 0; k < degre; k++) {
+            int ecart = lireVarint(position);
+            position += tailleVarint(ecart);
+            voisin += ecart;
+            if (ecart < 0 || voisin >= nbUtilisateurs) {
+                throw corrompu("identifiant invalide (" + voisin + ")");
+            }
+            action.accept(voisin);
+        }
+    }
+
+    /**
+     * Vérifie si l'utilisateur {@code source} suit l'utilisateur {@code cible}.
+     * La liste étant triée, le décodage s'arrête dès qu'un identifiant dépasse la cible.
+     *
+     * @param source l'identifiant de l'abonné
+     * @param cible  l'identifiant du compte suivi
+     * @return {@code true} si {@code source} suit {@code cible}
+     */
+    public boolean contient(int source, int cible) {
+        long position = positionLigne(source);
+        int degre = lireVarint(position);
+        position += tailleVarint(degre);
+        verifierLongueur(degre, position, "degré");
+        int voisin = 0;
+        for (int k = 0; k < degre; k++) {
+            int ecart = lireVarint(position);
+            position += tailleVarint(ecart);
+            voisin += ecart;
+            if (voisin >= cible) {
+                return voisin == cible;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Vérifie si deux utilisateurs sont mutuellement abonnés.
+     *
+     * @param username1 le premier utilisateur
+     * @param username2 le second utilisateur
+     * @return {@code true} si chacun suit l'autre, sinon {@code false}
+     * @throws RuntimeException si l'un des utilisateurs n'existe pas
+     */
+    public boolean abonnementMutuel(String username1, String username2) {
+        int a = idExistant(username1);
+        int b = idExistant(username2);
+        return contient(a, b) && contient(b, a);
+    }
+
+    /**
+     * Retourne les noms des utilisateurs affectés par une fausse information, sur deux niveaux
+     * d'abonnements, comme {@link CivixNet#propagationFausseInformationRecursive(String)}.
+     * <p>
+     * Les identifiants suivant l'ordre alphabétique, l'ordre inverse s'obtient en parcourant
+     * les identifiants atteints à rebours, sans tri.
+     * </p>
+     *
+     * @param username le nom d'utilisateur de la personne ayant lancé la fausse information
+     * @return les noms des utilisateurs affectés en ordre alphabétique inverse
+     * @throws RuntimeException si l'utilisateur n'existe pas
+     */
+    public List<String> propagationFausseInformationRecursive(String username) {
+        BitSet affectes = new BitSet(nbUtilisateurs);
+        int source = idExistant(username);
+        affectes.set(source);
+
+        BitSet frontiere = new BitSet(nbUtilisateurs);
+        frontiere.set(source);
+        for (int niveau = 0; niveau < 2; niveau++) {
+            BitSet suivante = new BitSet(nbUtilisateurs);
+            for (int u = frontiere.nextSetBit(0); u >= 0; u = frontiere.nextSetBit(u + 1)) {
+                pourChaqueAbonnement(u, v -> {
+                    if (!affectes.get(v)) {
+                        affectes.set(v);
+                        suivante.set(v);
+                    }
+                });
+            }
+            frontiere = suivante;
+        }
+
+        List<String> noms = new ArrayList<>(affectes.cardinality());
+        for (int u = affectes.previousSetBit(nbUtilisateurs - 1); u >= 0; u = affectes.previousSetBit(u - 1)) {
+            noms.add(username(u));
+        }
+        return noms;
+    }
+
+    /**
+     * Ferme le fichier. Les projections restent valides jusqu'à leur libération par le ramasse-miettes.
+     *
+     * @throws IOException si une erreur survient à la fermeture
+     */
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private int idExistant(String username) {
+        int id = id(username);
+        if (id < 0) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return id;
+    }
+
+    private long positionNom(int id) {
+        Objects.checkIndex(id, nbUtilisateurs);
+        return positionDonnees(lireLong(positionIndex + (long) id * Long.BYTES));
+    }
+
+    private long positionLigne(int id) {
+        Objects.checkIndex(id, nbUtilisateurs);
+        return positionDonnees(lireLong(positionIndex + ((long) nbUtilisateurs + id) * Long.BYTES));
+    }
+
+    /**
+     * Vérifie qu'une position lue dans l'index tombe dans la zone des données, entre l'en-tête et l'index.
+     */
+    private long positionDonnees(long position) {
+        if (position < 12 || position >= positionIndex) {
+            throw corrompu("position hors des données (" + position + ")");
+        }
+        return position;
+    }
+
+    /**
+     * Vérifie qu'une longueur lue à une position tient dans la zone des données, chaque élément occupant
+     * au moins un octet.
+     */
+    private void verifierLongueur(int longueur, long position, String nom) {
+        if (longueur < 0 || longueur > positionIndex - position) {
+            throw corrompu(nom + " invalide (" + longueur + ")");
+        }
+    }
+
+    private static UncheckedIOException corrompu(String detail) {
+        return new UncheckedIOException(new IOException("Instantané corrompu : " + detail + "."));
+    }
+
+    private byte octet(long position) {
+        return segments[(int) (position >>> BITS_SEGMENT)].get((int) (position & MASQUE_SEGMENT));
+    }
+
+    private int lireInt(long position) {
+        int valeur = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            valeur = (valeur << 8) | (octet(position + i) & 0xFF);
+        }
+        return valeur;
+    }
+
+    private long lireLong(long position) {
+        long valeur = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            valeur = (valeur << 8) | (octet(position + i) & 0xFF);
+        }
+        return valeur;
+    }
+
+    private int lireVarint(long position) {
+        int valeur = 0;
+        for (int decalage = 0; decalage < 35 && position < positionIndex; decalage += 7) {
+            byte b = octet(position++);
+            valeur |= (b & 0x7F) << decalage;
+            if (b >= 0) {
+                return valeur;
+            }
+        }
+        throw corrompu("entier trop long");
+    }
+
+    /**
+     * Retourne le nombre d'octets de l'encodage varint d'une valeur (l'encodage est toujours minimal).
+     */
+    private static int tailleVarint(int valeur) {
+        int taille = 1;
+        while ((valeur & ~0x7F) != 0) {
+            valeur >>>= 7;
+            taille++;
+        }
+        return taille;
+    }
+
+    private String lireChaine(long position) {
+        int longueur = lireVarint(position);
+        position += tailleVarint(longueur);
+        verifierLongueur(longueur, position, "longueur de chaîne");
+        byte[] octets = new byte[longueur];
+        for (int i = 0; i < longueur; i++) {
+            octets[i] = octet(position + i);
+        }
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,193 @@
+package reseau;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Un {@link CivixNet} sauvegardé de façon incrémentale dans un dossier : un instantané
+ * ({@value #INSTANTANE}, voir {@link ReseauBuilder#serialise(CivixNet, String)}) et le journal
+ * des modifications faites depuis ({@value #JOURNAL}, voir {@link JournalMutations}), changements de mot de
+ * passe compris.
+ * <p>
+ * À l'ouverture, le journal est rejoué sur le dernier instantané. Quand le journal dépasse le seuil de
+ * compaction, il est archivé ({@value #ARCHIVE}) et un nouvel instantané est construit en arrière-plan en
+ * rejouant l'archive sur l'instantané précédent, sans copier ni lire le réseau en mémoire; l'archive est
+ * supprimée une fois l'instantané en place. Un arrêt brutal
+ * à n'importe quelle étape laisse un instantané complet et des journaux qui le complètent : rejouer
+ * l'archive sur un instantané qui la contient déjà ne change rien.
+ * </p>
+ * <p>
+ * Le réseau et les mots de passe de son magasin doivent être modifiés par un seul fil à la fois, celui qui
+ * appelle aussi {@link #compacter()}.
+ * </p>
+ */
+public class ReseauPersistant implements Closeable {
+
+    /**
+     * Nom du fichier d'instantané dans le dossier.
+     */
+    public static final String INSTANTANE = "civixNet.ser";
+
+    /**
+     * Nom du journal courant dans le dossier.
+     */
+    public static final String JOURNAL = "journal.log";
+
+    /**
+     * Nom du journal archivé en attente d'être intégré à un instantané.
+     */
+    public static final String ARCHIVE = "journal.old";
+
+    private final Path dossier;
+    private final CivixNet reseau;
+    private final JournalMutations journal;
+    private final long seuilCompaction;
+    private final ExecutorService compacteur;
+    private Future<?> compaction = CompletableFuture.completedFuture(null);
+
+    /**
+     * Lance une compaction à la fin d'une opération quand le journal dépasse le seuil.
+     */
+    private final EcouteurReseau ecouteurCompaction = new EcouteurReseau() {
+        @Override
+        public void finLot() {
+            compacterAuBesoin();
+        }
+    };
+
+    private ReseauPersistant(Path dossier, CivixNet reseau, JournalMutations journal, long seuilCompaction) {
+        this.dossier = dossier;
+        this.reseau = reseau;
+        this.journal = journal;
+        this.seuilCompaction = seuilCompaction;
+        this.compacteur = Executors.newSingleThreadExecutor(tache -> {
+            Thread fil = new Thread(tache, "compaction-civixnet");
+            fil.setDaemon(true);
+            return fil;
+        });
+    }
+
+    /**
+     * Ouvre ou crée un réseau persistant dans un dossier.
+     *
+     * @param dossier         le dossier du réseau, créé s'il n'existe pas
+     * @param lotSynchro      le nombre d'enregistrements au-delà duquel le journal est forcé sur disque
+     *                        à la fin d'une opération (1 pour forcer chaque opération)
+     * @param seuilCompaction la taille en octets du journal au-delà de laquelle il est intégré à un nouvel instantané
+     * @return le réseau persistant
+     * @throws IOException si l'instantané ou le journal est illisible
+     */
+    public static ReseauPersistant ouvrir(Path dossier, int lotSynchro, long seuilCompaction) throws IOException {
+        Files.createDirectories(dossier);
+        Path instantane = dossier.resolve(INSTANTANE);
+        CivixNet reseau = Files.exists(instantane) ? FormatInstantane.lire(instantane) : new CivixNet();
+        Path archive = dossier.resolve(ARCHIVE);
+        if (Files.exists(archive)) {
+            JournalMutations.rejouer(archive, reseau);
+        }
+        JournalMutations journal = JournalMutations.ouvrir(dossier.resolve(JOURNAL), reseau, lotSynchro);
+
+        ReseauPersistant persistant = new ReseauPersistant(dossier, reseau, journal, seuilCompaction);
+        reseau.ajouterEcouteur(persistant.ecouteurCompaction);
+        return persistant;
+    }
+
+    /**
+     * Retourne le réseau. Toutes ses modifications sont journalisées.
+     *
+     * @return le réseau
+     */
+    public CivixNet reseau() {
+        return reseau;
+    }
+
+    /**
+     * Retourne le journal des modifications.
+     *
+     * @return le journal
+     */
+    public JournalMutations journal() {
+        return journal;
+    }
+
+    /**
+     * Archive le journal et lance l'écriture d'un nouvel instantané en arrière-plan. Seul l'archivage
+     * est fait dans le fil appelant : l'instantané précédent est relu et l'archive y est rejouée dans le
+     * fil de compaction, pour que le coût de la compaction ne dépende pas de la taille du réseau.
+     * Si une compaction précédente est en cours, elle est d'abord attendue; si elle a échoué,
+     * l'archive est conservée et celle-ci la reprend.
+     *
+     * @return la compaction lancée, terminée quand l'instantané est écrit et l'archive supprimée
+     * @throws IOException si l'archivage du journal a échoué
+     */
+    public Future<?> compacter() throws IOException {
+        attendreCompaction(false);
+        Path archive = dossier.resolve(ARCHIVE);
+        journal.pivoter(archive);
+        compaction = compacteur.submit(() -> {
+            // l'archive contient toutes les modifications absentes de l'instantané précédent
+            Path instantane = dossier.resolve(INSTANTANE);
+            CivixNet base = Files.exists(instantane) ? FormatInstantane.lire(instantane) : new CivixNet();
+            JournalMutations.rejouer(archive, base);
+            FormatInstantane.ecrire(base, instantane);
+            Files.delete(archive);
+            return null;
+        });
+        return compaction;
+    }
+
+    /**
+     * Attend la fin de la compaction en cours, force le journal sur disque et le ferme.
+     * Les modifications suivantes du réseau ne sont plus journalisées.
+     *
+     * @throws IOException si la compaction ou l'écriture du journal a échoué
+     */
+    @Override
+    public void close() throws IOException {
+        reseau.retirerEcouteur(ecouteurCompaction);
+        reseau.retirerEcouteur(journal);
+        try {
+            attendreCompaction(true);
+        } finally {
+            compacteur.shutdown();
+            journal.close();
+        }
+    }
+
+    private void compacterAuBesoin() {
+        if (journal.taille() >= seuilCompaction && compaction.isDone()) {
+            try {
+                compacter();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Attend la fin de la compaction en cours.
+     *
+     * @param signalerEchec si un échec de la compaction doit être signalé; sinon, l'archive
+     *                      contient encore tout ce qui manque à l'instantané et la compaction suivante le reprend
+     */
+    private void attendreCompaction(boolean signalerEchec) throws IOException {
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compaction interrompue.", e);
+        } catch (ExecutionException e) {
+            if (signalerEchec) {
+                throw new IOException("La compaction a échoué.", e.getCause());
+            }
+        }
+    }
+}
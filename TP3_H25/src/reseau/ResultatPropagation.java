@@ -0,0 +1,81 @@
+package reseau;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Le résultat d'une propagation calculée par {@link MoteurPropagation} : l'ensemble des
+ * utilisateurs affectés et le nombre de nouveaux utilisateurs atteints à chaque niveau.
+ */
+public class ResultatPropagation {
+
+    private final GrapheCompact graphe;
+    private final BitSet affectes;
+    private final int[] atteintsParNiveau;
+
+    /**
+     * Construit un résultat de propagation.
+     *
+     * @param graphe            le graphe parcouru, pour retrouver les utilisateurs
+     * @param affectes          les identifiants des utilisateurs affectés
+     * @param atteintsParNiveau le nombre de nouveaux utilisateurs atteints à chaque niveau
+     */
+    ResultatPropagation(GrapheCompact graphe, BitSet affectes, int[] atteintsParNiveau) {
+        this.graphe = graphe;
+        this.affectes = affectes;
+        this.atteintsParNiveau = atteintsParNiveau;
+    }
+
+    /**
+     * Retourne le nombre total d'utilisateurs affectés, source comprise.
+     *
+     * @return le nombre d'utilisateurs affectés
+     */
+    public int nombreAffectes() {
+        return affectes.cardinality();
+    }
+
+    /**
+     * Retourne le nombre de nouveaux utilisateurs atteints à chaque niveau.
+     * La case 0 vaut 1 (la source); le tableau s'arrête au dernier niveau qui a atteint un utilisateur,
+     * avant la profondeur demandée si la propagation s'est éteinte plus tôt.
+     *
+     * @return une copie du tableau des comptes par niveau
+     */
+    public int[] atteintsParNiveau() {
+        return atteintsParNiveau.clone();
+    }
+
+    /**
+     * Vérifie si un utilisateur a été affecté.
+     *
+     * @param id l'identifiant de l'utilisateur dans le graphe
+     * @return {@code true} s'il a été atteint
+     */
+    public boolean estAffecte(int id) {
+        return affectes.get(id);
+    }
+
+    /**
+     * Retourne les identifiants des utilisateurs affectés, en ordre croissant.
+     *
+     * @return les identifiants affectés
+     */
+    public int[] affectes() {
+        return affectes.stream().toArray();
+    }
+
+    /**
+     * Retourne les utilisateurs affectés, dans l'ordre de leurs identifiants.
+     *
+     * @return la liste des utilisateurs affectés
+     */
+    public List<Utilisateur> utilisateursAffectes() {
+        List<Utilisateur> liste = new ArrayList<>(nombreAffectes());
+        for (int id = affectes.nextSetBit(0); id >= 0; id = affectes.nextSetBit(id + 1)) {
+            liste.add(graphe.utilisateur(id));
+        }
+        return liste;
+    }
+}
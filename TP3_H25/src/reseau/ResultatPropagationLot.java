@@ -0,0 +1,93 @@
+package reseau;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Le résultat d'une propagation en lot calculée par {@link MoteurPropagation#propagerLot(int[], int)} :
+ * le nombre d'utilisateurs atteints par chaque source, et l'union des utilisateurs atteints.
+ */
+public class ResultatPropagationLot {
+
+    private final GrapheCompact graphe;
+    private final int[] sources;
+    private final int[] atteints;
+    private final BitSet union;
+
+    /**
+     * Construit un résultat de propagation en lot.
+     *
+     * @param graphe   le graphe parcouru, pour retrouver les utilisateurs
+     * @param sources  les identifiants des sources, dans l'ordre de la demande
+     * @param atteints le nombre d'utilisateurs atteints par chaque source, source comprise
+     * @param union    les identifiants atteints par au moins une source
+     */
+    ResultatPropagationLot(GrapheCompact graphe, int[] sources, int[] atteints, BitSet union) {
+        this.graphe = graphe;
+        this.sources = sources;
+        this.atteints = atteints;
+        this.union = union;
+    }
+
+    /**
+     * Retourne le nombre de sources du lot.
+     *
+     * @return le nombre de sources
+     */
+    public int nombreSources() {
+        return sources.length;
+    }
+
+    /**
+     * Retourne l'identifiant d'une source du lot.
+     *
+     * @param i la position de la source dans la demande
+     * @return son identifiant dans le graphe
+     */
+    public int source(int i) {
+        return sources[i];
+    }
+
+    /**
+     * Retourne le nombre d'utilisateurs atteints par une source, elle-même comprise.
+     *
+     * @param i la position de la source dans la demande
+     * @return le nombre d'utilisateurs atteints par cette source
+     */
+    public int nombreAtteints(int i) {
+        return atteints[i];
+    }
+
+    /**
+     * Retourne le nombre d'utilisateurs atteints par au moins une source.
+     *
+     * @return la taille de l'union
+     */
+    public int nombreAffectes() {
+        return union.cardinality();
+    }
+
+    /**
+     * Vérifie si un utilisateur a été atteint par au moins une source.
+     *
+     * @param id l'identifiant de l'utilisateur dans le graphe
+     * @return {@code true} s'il fait partie de l'union
+     */
+    public boolean estAffecte(int id) {
+        return union.get(id);
+    }
+
+    /**
+     * Retourne les utilisateurs atteints par au moins une source, dans l'ordre de leurs identifiants.
+     *
+     * @return la liste des utilisateurs de l'union
+     */
+    public List<Utilisateur> utilisateursAffectes() {
+        List<Utilisateur> liste = new ArrayList<>(nombreAffectes());
+        for (int id = union.nextSetBit(0); id >= 0; id = union.nextSetBit(id + 1)) {
+            liste.add(graphe.utilisateur(id));
+        }
+        return liste;
+    }
+}
@@ -0,0 +1,109 @@
+package reseau;
+
+/**
+ * Le résultat d'un comptage de triangles par {@link AnalyseReseau#compterTriangles()} : le nombre
+ * de triangles qui passent par chaque utilisateur et les coefficients de clustering qui en découlent.
+ * <p>
+ * Le graphe considéré est non orienté : deux utilisateurs y sont voisins si l'un suit l'autre.
+ * </p>
+ */
+public class ResultatTriangles {
+
+    private final GrapheCompact graphe;
+    private final int[] degres;
+    private final long[] triangles;
+
+    /**
+     * Construit un résultat de comptage de triangles.
+     *
+     * @param graphe    le graphe analysé, pour retrouver les utilisateurs
+     * @param degres    le nombre de voisins de chaque utilisateur dans le graphe non orienté
+     * @param triangles le nombre de triangles qui passent par chaque utilisateur
+     */
+    ResultatTriangles(GrapheCompact graphe, int[] degres, long[] triangles) {
+        this.graphe = graphe;
+        this.degres = degres;
+        this.triangles = triangles;
+    }
+
+    /**
+     * Retourne le nombre total de triangles du graphe.
+     *
+     * @return le nombre de triangles
+     */
+    public long nombreTriangles() {
+        long total = 0;
+        for (long t : triangles) {
+            total += t;
+        }
+        // chaque triangle est compté une fois par sommet
+        return total / 3;
+    }
+
+    /**
+     * Retourne le nombre de triangles qui passent par un utilisateur.
+     *
+     * @param u l'utilisateur
+     * @return le nombre de paires de ses voisins qui sont voisines entre elles
+     * @throws RuntimeException si l'utilisateur n'était pas dans le graphe analysé
+     */
+    public long triangles(Utilisateur u) {
+        return triangles[sommet(u)];
+    }
+
+    /**
+     * Retourne le coefficient de clustering local d'un utilisateur : la proportion des paires
+     * de ses voisins qui sont voisines entre elles.
+     *
+     * @param u l'utilisateur
+     * @return le coefficient entre 0 et 1, ou 0 si l'utilisateur a moins de deux voisins
+     * @throws RuntimeException si l'utilisateur n'était pas dans le graphe analysé
+     */
+    public double coefficientClustering(Utilisateur u) {
+        return coefficientClustering(sommet(u));
+    }
+
+    /**
+     * Retourne la moyenne des coefficients de clustering locaux de tous les utilisateurs,
+     * ceux qui ont moins de deux voisins comptant pour 0.
+     *
+     * @return le coefficient de clustering moyen, ou 0 si le graphe est vide
+     */
+    public double coefficientClusteringMoyen() {
+        if (degres.length == 0) {
+            return 0;
+        }
+        double somme = 0;
+        for (int s = 0; s < degres.length; s++) {
+            somme += coefficientClustering(s);
+        }
+        return somme / degres.length;
+    }
+
+    /**
+     * Retourne la transitivité du graphe : la proportion des chemins de longueur deux
+     * qui sont fermés par un triangle.
+     *
+     * @return la transitivité entre 0 et 1, ou 0 si le graphe n'a aucun chemin de longueur deux
+     */
+    public double transitivite() {
+        long chemins = 0;
+        for (int d : degres) {
+            chemins += (long) d * (d - 1) / 2;
+        }
+        return chemins == 0 ? 0 : 3.0 * nombreTriangles() / chemins;
+    }
+
+    private double coefficientClustering(int s) {
+        long d = degres[s];
+        return d < 2 ? 0 : 2.0 * triangles[s] / (d * (d - 1));
+    }
+
+    private int sommet(Utilisateur u) {
+        int id = graphe.id(u);
+        if (id < 0 || id >= degres.length) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,79 @@
+package reseau;
+
+/**
+ * Copie figée d'un histogramme de {@link MesuresReseau} : durées en nanosecondes, ou tailles.
+ */
+public class ResumeHistogramme {
+
+    private final long[] comptes;
+    private final long nombre;
+    private final long somme;
+    private final long max;
+
+    ResumeHistogramme(long[] comptes, long nombre, long somme, long max) {
+        this.comptes = comptes;
+        this.nombre = nombre;
+        this.somme = somme;
+        this.max = max;
+    }
+
+    /**
+     * Retourne le nombre de valeurs enregistrées.
+     *
+     * @return le nombre de valeurs
+     */
+    public long nombre() {
+        return nombre;
+    }
+
+    /**
+     * Retourne la moyenne exacte des valeurs enregistrées.
+     *
+     * @return la moyenne, ou 0 s'il n'y a aucune valeur
+     */
+    public double moyenne() {
+        return nombre == 0 ? 0 : (double) somme / nombre;
+    }
+
+    /**
+     * Retourne la plus grande valeur enregistrée, exacte.
+     *
+     * @return le maximum, ou 0 s'il n'y a aucune valeur
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Retourne un quantile des valeurs enregistrées, à 3 % près.
+     *
+     * @param q le quantile, entre 0 et 1 (0,5 pour la médiane, 0,99 pour le 99e centile)
+     * @return la valeur au quantile demandé, ou 0 s'il n'y a aucune valeur
+     * @throws IllegalArgumentException si q n'est pas entre 0 et 1
+     */
+    public long quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Le quantile doit être entre 0 et 1.");
+        }
+        long total = 0;
+        for (long compte : comptes) {
+            total += compte;
+        }
+        long rang = Math.max(1, (long) Math.ceil(q * total));
+        long cumul = 0;
+        for (int i = 0; i < comptes.length; i++) {
+            cumul += comptes[i];
+            if (cumul >= rang) {
+                // milieu de la case, sans dépasser le maximum exact
+                return Math.min(max, HistogrammeLog.borneInferieure(i) + (HistogrammeLog.largeur(i) - 1) / 2);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "nombre : " + nombre + ", moyenne : " + Math.round(moyenne()) + ", médiane : " + quantile(0.5)
+                + ", 99e centile : " + quantile(0.99) + ", max : " + max;
+    }
+}
@@ -0,0 +1,320 @@
+package reseau;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * La classe {@code ScoreInfluence} classe les utilisateurs d'un {@link GrapheCompact} selon leur
+ * capacité à répandre une fausse information, de deux façons :
+ * <ul>
+ *     <li>le PageRank : un utilisateur est influent s'il est suivi par des utilisateurs influents;</li>
+ *     <li>la portée à k sauts : le nombre d'utilisateurs atteints en au plus k niveaux de propagation,
+ *     estimé pour tous les utilisateurs à la fois avec une esquisse HyperLogLog par sommet
+ *     (voir {@link EsquisseHLL}).</li>
+ * </ul>
+ * <p>
+ * Les scores sont conservés dans des tableaux primitifs indexés par identifiant, et chaque itération
+ * est découpée en morceaux de sommets traités en parallèle dans un {@link ForkJoinPool}. Le PageRank
+ * « tire » les scores le long des abonnés de chaque sommet (le graphe transposé), ce qui évite
+ * toute écriture concurrente.
+ * </p>
+ * <p>
+ * Comme {@link MoteurPropagation}, le calcul travaille sur la vue du graphe au moment de la construction.
+ * Après un lot de modifications du graphe, {@link #rafraichir()} reprend la nouvelle vue en conservant
+ * les scores : le PageRank suivant repart des anciens scores et converge en quelques itérations,
+ * au lieu de repartir de zéro.
+ * </p>
+ */
+public class ScoreInfluence {
+
+    /**
+     * La probabilité qu'un lecteur relaie l'information à un de ses abonnements plutôt que de
+     * repartir d'un utilisateur au hasard.
+     */
+    public static final double AMORTISSEMENT = 0.85;
+
+    private final GrapheCompact graphe;
+    private final Direction direction;
+    private final ForkJoinPool pool;
+    private Adjacence abonnements;
+    private Adjacence abonnes;
+    private double[] rangs;
+    private double[] portees;
+
+    /**
+     * Construit un calcul d'influence qui utilise le pool fork-join commun.
+     *
+     * @param graphe    le graphe à analyser
+     * @param direction le sens de propagation pour la portée
+     */
+    public ScoreInfluence(GrapheCompact graphe, Direction direction) {
+        this(graphe, direction, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Construit un calcul d'influence qui utilise le pool fork-join donné.
+     *
+     * @param graphe    le graphe à analyser
+     * @param direction le sens de propagation pour la portée
+     * @param pool      le pool d'exécution des itérations
+     */
+    public ScoreInfluence(GrapheCompact graphe, Direction direction, ForkJoinPool pool) {
+        this.graphe = graphe;
+        this.direction = direction;
+        this.pool = pool;
+        rafraichir();
+    }
+
+    /**
+     * Reprend la vue actuelle du graphe après des modifications. Les scores déjà calculés sont
+     * conservés comme point de départ; les nouveaux utilisateurs reçoivent un score moyen.
+     */
+    public void rafraichir() {
+        abonnements = Direction.ABONNEMENTS.adjacence(graphe);
+        abonnes = abonnements.transposee();
+        portees = null;
+        int n = abonnements.nbSommets;
+        if (rangs == null || rangs.length == n) {
+            return;
+        }
+        int anciens = rangs.length;
+        double[] etendus = new double[n];
+        System.arraycopy(rangs, 0, etendus, 0, anciens);
+        double somme = 0;
+        for (int s = 0; s < anciens; s++) {
+            somme += etendus[s];
+        }
+        // les anciens gardent leurs proportions, les nouveaux partent de la moyenne
+        double facteur = anciens == 0 ? 0 : (double) anciens / n / somme;
+        for (int s = 0; s < n; s++) {
+            etendus[s] = s < anciens ? etendus[s] * facteur : 1.0 / n;
+        }
+        rangs = etendus;
+    }
+
+    /**
+     * Calcule le PageRank de tous les utilisateurs, en partant des scores précédents s'il y en a.
+     * Les utilisateurs qui ne suivent personne redistribuent leur score à tous.
+     *
+     * @param tolerance     l'écart total (somme des écarts absolus) entre deux itérations
+     *                      en dessous duquel le calcul s'arrête
+     * @param maxIterations le nombre maximal d'itérations
+     * @return le nombre d'itérations faites
+     * @throws IllegalArgumentException si la tolérance n'est pas positive ou si le nombre d'itérations est négatif
+     */
+    public int calculerPageRank(double tolerance, int maxIterations) {
+        if (!(tolerance > 0) || maxIterations < 0) {
+            throw new IllegalArgumentException("La tolérance doit être positive et le nombre d'itérations aussi.");
+        }
+        int n = abonnements.nbSommets;
+        if (rangs == null) {
+            rangs = new double[n];
+            Arrays.fill(rangs, 1.0 / n);
+        }
+        double[] contributions = new double[n];
+        double[] nouveaux = new double[n];
+
+        int iteration = 0;
+        while (iteration < maxIterations) {
+            iteration++;
+            double[] courants = rangs;
+            DoubleAdder pendants = new DoubleAdder();
+            Parallelisme.pourIntervalles(pool, n, Parallelisme.GRAIN, (debut, fin) -> {
+                double pendantsLocaux = 0;
+                for (int u = debut; u < fin; u++) {
+                    int degre = abonnements.degre(u);
+                    if (degre == 0) {
+                        pendantsLocaux += courants[u];
+                        contributions[u] = 0;
+                    } else {
+                        contributions[u] = courants[u] / degre;
+                    }
+                }
+                pendants.add(pendantsLocaux);
+            });
+
+            double base = (1 - AMORTISSEMENT + AMORTISSEMENT * pendants.sum()) / n;
+            DoubleAdder ecart = new DoubleAdder();
+            double[] destination = nouveaux;
+            Parallelisme.pourIntervalles(pool, n, Parallelisme.GRAIN, (debut, fin) -> {
+                double ecartLocal = 0;
+                for (int v = debut; v < fin; v++) {
+                    double somme = 0;
+                    for (int k = abonnes.debuts[v]; k < abonnes.debuts[v + 1]; k++) {
+                        somme += contributions[abonnes.voisins[k]];
+                    }
+                    destination[v] = base + AMORTISSEMENT * somme;
+                    ecartLocal += Math.abs(destination[v] - courants[v]);
+                }
+                ecart.add(ecartLocal);
+            });
+
+            nouveaux = courants;
+            rangs = destination;
+            if (ecart.sum() < tolerance) {
+                break;
+            }
+        }
+        return iteration;
+    }
+
+    /**
+     * Estime la portée de tous les utilisateurs : le nombre d'utilisateurs, eux compris, atteints
+     * en au plus {@code sauts} niveaux de propagation dans le sens choisi à la construction.
+     * <p>
+     * L'esquisse d'un utilisateur au niveau k est l'union de son esquisse et de celles de ses voisins
+     * au niveau k - 1 : chaque niveau coûte un passage sur les arcs, quelle que soit la taille des
+     * ensembles atteints. Le calcul s'arrête plus tôt si aucune esquisse ne change.
+     * </p>
+     *
+     * @param sauts le nombre maximal de niveaux de propagation
+     * @return le nombre de niveaux calculés
+     * @throws IllegalArgumentException si le nombre de sauts est négatif
+     */
+    public int estimerPortees(int sauts) {
+        if (sauts < 0) {
+            throw new IllegalArgumentException("La profondeur de propagation doit être positive.");
+        }
+        Adjacence adjacence = direction == Direction.ABONNEMENTS ? abonnements : abonnes;
+        int n = adjacence.nbSommets;
+        byte[] courantes = EsquisseHLL.allouer(n);
+        for (int s = 0; s < n; s++) {
+            EsquisseHLL.ajouter(courantes, s, s);
+        }
+        byte[] suivantes = EsquisseHLL.allouer(n);
+
+        int niveau = 0;
+        while (niveau < sauts) {
+            byte[] precedentes = courantes;
+            byte[] destination = suivantes;
+            AtomicBoolean change = new AtomicBoolean();
+            Parallelisme.pourIntervalles(pool, n, Parallelisme.GRAIN, (debut, fin) -> {
+                boolean changeLocal = false;
+                for (int v = debut; v < fin; v++) {
+                    System.arraycopy(precedentes, v * EsquisseHLL.REGISTRES, destination,
+                            v * EsquisseHLL.REGISTRES, EsquisseHLL.REGISTRES);
+                    for (int k = adjacence.debuts[v]; k < adjacence.debuts[v + 1]; k++) {
+                        changeLocal |= EsquisseHLL.fusionner(destination, v, precedentes, adjacence.voisins[k]);
+                    }
+                }
+                if (changeLocal) {
+                    change.set(true);
+                }
+            });
+            if (!change.get()) {
+                break;
+            }
+            niveau++;
+            courantes = destination;
+            suivantes = precedentes;
+        }
+
+        double[] estimations = new double[n];
+        byte[] finales = courantes;
+        Parallelisme.pourIntervalles(pool, n, Parallelisme.GRAIN, (debut, fin) -> {
+            for (int s = debut; s < fin; s++) {
+                estimations[s] = EsquisseHLL.estimer(finales, s);
+            }
+        });
+        portees = estimations;
+        return niveau;
+    }
+
+    /**
+     * Retourne le PageRank d'un utilisateur. Les scores de tous les utilisateurs font 1 au total.
+     *
+     * @param u l'utilisateur
+     * @return son score
+     * @throws IllegalStateException si le PageRank n'a pas été calculé
+     * @throws RuntimeException      si l'utilisateur n'est pas dans le graphe
+     */
+    public double pageRank(Utilisateur u) {
+        if (rangs == null) {
+            throw new IllegalStateException("Le PageRank n'a pas été calculé.");
+        }
+        return rangs[sommet(u)];
+    }
+
+    /**
+     * Retourne la portée estimée d'un utilisateur, calculée par le dernier appel à {@link #estimerPortees(int)}.
+     *
+     * @param u l'utilisateur
+     * @return le nombre estimé d'utilisateurs atteints, lui compris
+     * @throws IllegalStateException si les portées n'ont pas été estimées depuis la dernière modification
+     * @throws RuntimeException      si l'utilisateur n'est pas dans le graphe
+     */
+    public double portee(Utilisateur u) {
+        if (portees == null) {
+            throw new IllegalStateException("Les portées n'ont pas été estimées.");
+        }
+        return portees[sommet(u)];
+    }
+
+    /**
+     * Retourne les utilisateurs de plus grand PageRank, du plus influent au moins influent.
+     *
+     * @param k le nombre d'utilisateurs voulus
+     * @return au plus {@code k} utilisateurs
+     * @throws IllegalStateException si le PageRank n'a pas été calculé
+     */
+    public List<Utilisateur> plusInfluents(int k) {
+        if (rangs == null) {
+            throw new IllegalStateException("Le PageRank n'a pas été calculé.");
+        }
+        return meilleurs(rangs, k);
+    }
+
+    /**
+     * Retourne les utilisateurs de plus grande portée estimée, de la plus grande à la plus petite.
+     *
+     * @param k le nombre d'utilisateurs voulus
+     * @return au plus {@code k} utilisateurs
+     * @throws IllegalStateException si les portées n'ont pas été estimées depuis la dernière modification
+     */
+    public List<Utilisateur> plusGrandesPortees(int k) {
+        if (portees == null) {
+            throw new IllegalStateException("Les portées n'ont pas été estimées.");
+        }
+        return meilleurs(portees, k);
+    }
+
+    /**
+     * Sélectionne les {@code k} meilleurs scores avec un tas de taille {@code k}; à score égal,
+     * le plus petit identifiant passe en premier.
+     */
+    private List<Utilisateur> meilleurs(double[] scores, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Le nombre d'utilisateurs doit être positif.");
+        }
+        PriorityQueue<Integer> tas = new PriorityQueue<>(
+                (a, b) -> scores[a] != scores[b] ? Double.compare(scores[a], scores[b]) : Integer.compare(b, a));
+        for (int s = 0; s < scores.length && k > 0; s++) {
+            if (tas.size() < k) {
+                tas.add(s);
+            } else if (scores[s] > scores[tas.peek()]) {
+                tas.poll();
+                tas.add(s);
+            }
+        }
+        List<Utilisateur> resultat = new ArrayList<>(tas.size());
+        while (!tas.isEmpty()) {
+            resultat.add(graphe.utilisateur(tas.poll()));
+        }
+        Collections.reverse(resultat);
+        return resultat;
+    }
+
+    private int sommet(Utilisateur u) {
+        int id = graphe.id(u);
+        if (id < 0 || id >= abonnements.nbSommets) {
+            throw new RuntimeException("L'utilisateur n'existe pas");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,41 @@
+package reseau;
+
+/**
+ * L'interface {@code SuiviChargement} reçoit la progression d'un chargement en continu
+ * (voir {@link ReseauBuilder#chargerDepuisJSONEnContinu(String, SuiviChargement)}).
+ * <p>
+ * Elle est appelée périodiquement pendant la lecture, puis une dernière fois à la fin du chargement.
+ * </p>
+ */
+@FunctionalInterface
+public interface SuiviChargement {
+
+    /**
+     * Suivi qui n'affiche rien.
+     */
+    SuiviChargement AUCUN = (utilisateurs, abonnements, octetsLus, nanosEcoulees) -> { };
+
+    /**
+     * Signale l'avancement du chargement.
+     *
+     * @param utilisateurs  le nombre d'utilisateurs lus jusqu'ici
+     * @param abonnements   le nombre d'abonnements ajoutés jusqu'ici
+     * @param octetsLus     le nombre d'octets du fichier lus jusqu'ici
+     * @param nanosEcoulees le temps écoulé depuis le début du chargement, en nanosecondes
+     */
+    void progression(long utilisateurs, long abonnements, long octetsLus, long nanosEcoulees);
+
+    /**
+     * Retourne un suivi qui affiche la progression et le débit sur la sortie standard.
+     *
+     * @return un suivi qui écrit dans la console
+     */
+    static SuiviChargement console() {
+        return (utilisateurs, abonnements, octetsLus, nanosEcoulees) -> {
+            double secondes = Math.max(nanosEcoulees, 1) / 1e9;
+            System.out.printf("%d utilisateurs, %d abonnements, %.1f Mo lus en %.1f s (%.0f utilisateurs/s, %.1f Mo/s)%n",
+                    utilisateurs, abonnements, octetsLus / 1e6, secondes,
+                    utilisateurs / secondes, octetsLus / 1e6 / secondes);
+        };
+    }
+}
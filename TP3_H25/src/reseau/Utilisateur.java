@@ -8,14 +8,14 @@ package reseau;
  */
 public class Utilisateur implements Comparable<Utilisateur> {
     /**
-     * Construit un nouvel Utilisateur avec le nom d'utilisateur et le mot de passe spécifiés.
+     * Construit un nouvel Utilisateur avec le nom d'utilisateur spécifié. Le mot de passe n'est pas
+     * gardé dans l'utilisateur, mais dans le {@link MagasinIdentifiants} du réseau.
      *
-     * @param user     le nom d'utilisateur de l'utilisateur
-     * @param password le mot de passe de l'utilisateur
+     * @param user le nom d'utilisateur de l'utilisateur
+     * @throws IllegalArgumentException si le nom d'utilisateur dépasse 15 caractères
      */
-    public Utilisateur(String user, String password) {
+    public Utilisateur(String user) {
         setUsername(user);
-        setPassword(password);
     }
 
     /**
@@ -24,9 +24,14 @@ public class Utilisateur implements Comparable<Utilisateur> {
     private String user;
 
     /**
-     * Le mot de passe
+     * Le nom d'utilisateur en minuscules, calculé une seule fois pour les comparaisons
+     */
+    private String cle;
+
+    /**
+     * Vrai dès que l'utilisateur est inscrit dans un réseau, dont les index sont rangés par sa clé
      */
-    private String password;
+    private volatile boolean inscrit;
 
     /**
      * La longueur maximale du nom d'utilisateur
@@ -41,89 +46,59 @@ public class Utilisateur implements Comparable<Utilisateur> {
      */
     @Override
     public int compareTo(Utilisateur u) {
-        String nomCourantLower = user.toLowerCase();
-        String nomEntryLower = u.getUsername().toLowerCase();
-        return nomCourantLower.compareTo(nomEntryLower);
+        return cle.compareTo(u.cle);
     }
 
     /**
-     * Renvoie le nom d'utilisateur de cet utilisateur.
+     * Renvoie le nom d'utilisateur normalisé (en minuscules) utilisé pour les comparaisons et les index.
      *
-     * @return le nom d'utilisateur de cet utilisateur
+     * @return le nom d'utilisateur en minuscules
      */
-    public String getUsername() {
-        return user;
+    String cle() {
+        return cle;
     }
 
     /**
-     * Renvoie le mot de passe de cet utilisateur.
+     * Marque l'utilisateur comme inscrit dans un réseau : il ne peut plus être renommé.
+     */
+    void marquerInscrit() {
+        inscrit = true;
+    }
+
+    /**
+     * Renvoie le nom d'utilisateur de cet utilisateur.
      *
-     * @return le mot de passe de cet utilisateur
+     * @return le nom d'utilisateur de cet utilisateur
      */
-    public String getPassword() {
-        return password;
+    public String getUsername() {
+        return user;
     }
 
     /**
-     * Définit le nom d'utilisateur de cet utilisateur.
+     * Définit le nom d'utilisateur de cet utilisateur. Seul un utilisateur qui n'est encore inscrit
+     * dans aucun réseau peut être renommé : les réseaux rangent leurs index par le nom normalisé,
+     * qu'un renommage rendrait faux.
      *
      * @param username le nouveau nom d'utilisateur de cet utilisateur
      * @throws IllegalArgumentException si le nom d'utilisateur dépasse 15 caractères
+     * @throws IllegalStateException    si l'utilisateur est déjà inscrit dans un réseau
      */
     public void setUsername(String username) throws IllegalArgumentException {
+        if (inscrit) {
+            throw new IllegalStateException("Un utilisateur inscrit dans un réseau ne peut pas être renommé.");
+        }
         if (username != null && username.length() <= MAX_USERNAME_LENGTH) {
             user = username;
+            cle = CivixNet.normaliser(username);
         } else throw new IllegalArgumentException("Le nom d'utilisateur doit avoir un maximum de 15 charactères.");
     }
 
-    /**
-     * Définit le mot de passe de cet utilisateur.
-     *
-     * @param password le nouveau mot de passe de cet utilisateur
-     * @throws IllegalArgumentException si le mot de passe ne respecte pas les critères de validation
-     */
-    public void setPassword(String password) throws IllegalArgumentException {
-        if (validerPassword(password)) {
-            this.password = password;
-        } else
-            throw new IllegalArgumentException("Le mot de passe doit contenir au moins une lettre majuscule, une lettre minuscule et un chiffre.");
-    }
-
-    /**
-     * Valide le mot de passe donné pour s'assurer qu'il contient au moins une lettre majuscule, une lettre minuscule et un chiffre.
-     *
-     * @param password le mot de passe à valider
-     * @return true si le mot de passe respecte les critères de validation, false sinon
-     */
-    private boolean validerPassword(String password) {
-        boolean hasUpper = false;
-        boolean hasLower = false;
-        boolean hasNumber = false;
-
-        if (password == null)
-            return false;
-
-        char[] charsPassword = password.toCharArray();
-        for (char c : charsPassword) {
-            if (Character.isUpperCase(c)) {
-                hasUpper = true;
-            }
-            if (Character.isLowerCase(c)) {
-                hasLower = true;
-            }
-            if (Character.isDigit(c)) {
-                hasNumber = true;
-            }
-        }
-        return hasUpper && hasLower && hasNumber;
-    }
-
     /**
      * Renvoie une représentation sous forme de chaîne de cet utilisateur.
      *
      * @return une représentation sous forme de chaîne de cet utilisateur
      */
     public String toString() {
-        return "Username: " + user + " (Mot de passe: " + password + ")";
+        return "Username: " + user;
     }
 }
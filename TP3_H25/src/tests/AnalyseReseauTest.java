@@ -0,0 +1,118 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import reseau.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyseReseauTest {
+
+    private static CivixNet reseau(String... abonnements) {
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        for (String abonnement : abonnements) {
+            for (String nom : abonnement.split(">")) {
+                if (reseau.chercherUtilisateur(nom).isEmpty()) {
+                    reseau.ajouterUtilisateur(nom, "MotDePasse1");
+                }
+            }
+            String[] extremites = abonnement.split(">");
+            reseau.ajouterAbonnement(reseau.obtenirUtilisateurAPartirDuUsername(extremites[0]),
+                    reseau.obtenirUtilisateurAPartirDuUsername(extremites[1]));
+        }
+        return reseau;
+    }
+
+    @Test
+    void testPetitReseau() {
+        // triangle a-b-c (a et b mutuels), plus c>d et une boucle sur d
+        CivixNet reseau = reseau("a>b", "b>a", "b>c", "c>a", "c>d", "d>d");
+        GrapheCompact graphe = GrapheCompact.depuis(reseau);
+        AnalyseReseau analyse = new AnalyseReseau(graphe);
+
+        assertArrayEquals(new long[]{0, 2, 2}, analyse.histogrammeDegres(Direction.ABONNEMENTS));
+        assertArrayEquals(new long[]{0, 2, 2}, analyse.histogrammeDegres(Direction.ABONNES));
+        assertEquals(2, analyse.nombreAbonnementsReciproques());
+        assertEquals(2.0 / 6, analyse.tauxReciprocite(), 1e-12);
+
+        ResultatTriangles triangles = analyse.compterTriangles();
+        Utilisateur a = graphe.obtenirUtilisateurAPartirDuUsername("a");
+        Utilisateur c = graphe.obtenirUtilisateurAPartirDuUsername("c");
+        Utilisateur d = graphe.obtenirUtilisateurAPartirDuUsername("d");
+        assertEquals(1, triangles.nombreTriangles());
+        assertEquals(1, triangles.triangles(c));
+        assertEquals(1.0, triangles.coefficientClustering(a));
+        assertEquals(1.0 / 3, triangles.coefficientClustering(c), 1e-12);
+        assertEquals(0.0, triangles.coefficientClustering(d));
+        assertEquals((1 + 1 + 1.0 / 3) / 4, triangles.coefficientClusteringMoyen(), 1e-12);
+        assertEquals(3.0 / 5, triangles.transitivite(), 1e-12);
+        assertThrows(RuntimeException.class, () -> triangles.triangles(new Utilisateur("Inconnu")));
+    }
+
+    @Test
+    void testIdentiqueAuCalculNaif() {
+        Random hasard = new Random(17);
+        int n = 3000;
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        for (int i = 0; i < n; i++) {
+            reseau.ajouterUtilisateur("u" + i, "MotDePasse1");
+        }
+        for (int i = 0; i < n; i++) {
+            Utilisateur compte = reseau.obtenirUtilisateurAPartirDuUsername("u" + i);
+            for (int j = 0; j < 6; j++) {
+                // voisins proches pour former des triangles, quelques liens lointains
+                int cible = hasard.nextInt(4) == 0 ? hasard.nextInt(n) : Math.floorMod(i + hasard.nextInt(21) - 10, n);
+                reseau.ajouterAbonnement(compte, reseau.obtenirUtilisateurAPartirDuUsername("u" + cible));
+            }
+        }
+        GrapheCompact graphe = GrapheCompact.depuis(reseau);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            AnalyseReseau analyse = new AnalyseReseau(graphe, pool);
+
+            Map<Utilisateur, Set<Utilisateur>> voisins = new HashMap<>();
+            long reciproques = 0;
+            TreeMap<Integer, Long> degresSortants = new TreeMap<>();
+            for (Map.Entry<Utilisateur, Set<Utilisateur>> u : reseau.getUtilisateurs().entrySet()) {
+                degresSortants.merge(u.getValue().size(), 1L, Long::sum);
+                for (Utilisateur v : u.getValue()) {
+                    if (v != u.getKey()) {
+                        voisins.computeIfAbsent(u.getKey(), k -> new HashSet<>()).add(v);
+                        voisins.computeIfAbsent(v, k -> new HashSet<>()).add(u.getKey());
+                        if (reseau.abonnementMutuel(u.getKey(), v)) {
+                            reciproques++;
+                        }
+                    }
+                }
+            }
+            assertEquals(reciproques, analyse.nombreAbonnementsReciproques());
+            long[] histogramme = analyse.histogrammeDegres(Direction.ABONNEMENTS);
+            assertEquals(degresSortants.lastKey() + 1, histogramme.length);
+            for (int d = 0; d < histogramme.length; d++) {
+                assertEquals(degresSortants.getOrDefault(d, 0L), histogramme[d], "degré " + d);
+            }
+
+            ResultatTriangles triangles = analyse.compterTriangles();
+            long total = 0;
+            for (Map.Entry<Utilisateur, Set<Utilisateur>> u : voisins.entrySet()) {
+                List<Utilisateur> liste = new ArrayList<>(u.getValue());
+                long attendus = 0;
+                for (int i = 0; i < liste.size(); i++) {
+                    for (int j = i + 1; j < liste.size(); j++) {
+                        if (voisins.get(liste.get(i)).contains(liste.get(j))) {
+                            attendus++;
+                        }
+                    }
+                }
+                Utilisateur dansGraphe = graphe.obtenirUtilisateurAPartirDuUsername(u.getKey().getUsername());
+                assertEquals(attendus, triangles.triangles(dansGraphe), u.getKey().getUsername());
+                total += attendus;
+            }
+            assertEquals(total / 3, triangles.nombreTriangles());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package tests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reseau.CivixNetConcurrent;
+import reseau.MagasinIdentifiants;
+import reseau.Utilisateur;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CivixNetConcurrentTest {
+
+    private CivixNetConcurrent reseau;
+    private Utilisateur alice, bob, clara, david;
+
+    @BeforeEach
+    void setUp() {
+        reseau = new CivixNetConcurrent(new MagasinIdentifiants(1, 0));
+        reseau.ajouterUtilisateur("Alice", "MotDePasse12345");
+        reseau.ajouterUtilisateur("Bob", "SecurePass45678");
+        reseau.ajouterUtilisateur("Clara", "TestPass78901");
+        reseau.ajouterUtilisateur("David", "AlphaPass99999");
+
+        alice = reseau.obtenirUtilisateurAPartirDuUsername("Alice");
+        bob = reseau.obtenirUtilisateurAPartirDuUsername("Bob");
+        clara = reseau.obtenirUtilisateurAPartirDuUsername("Clara");
+        david = reseau.obtenirUtilisateurAPartirDuUsername("David");
+    }
+
+    @Test
+    void testAbonnementsEtAbonnes() {
+        reseau.ajouterAbonnements(alice, List.of(bob, clara));
+        reseau.ajouterAbonnement(bob, alice);
+        Set<Utilisateur> instantane = reseau.obtenirAbonnements(alice);
+
+        reseau.retirerAbonnement(alice, clara);
+        assertEquals(Set.of(bob, clara), instantane);
+        assertEquals(Set.of(bob), reseau.obtenirAbonnements(alice));
+        assertTrue(reseau.obtenirAbonnes(clara).isEmpty());
+        assertTrue(reseau.abonnementMutuel(alice, bob));
+        assertFalse(reseau.abonnementMutuel(alice, david));
+    }
+
+    @Test
+    void testPropagation() {
+        reseau.ajouterAbonnement(alice, bob);
+        reseau.ajouterAbonnement(bob, clara);
+        reseau.ajouterAbonnement(clara, david);
+        List<String> noms = reseau.propagationFausseInformationRecursive("Alice", 2).stream()
+                .map(Utilisateur::getUsername).toList();
+        assertEquals(List.of("Clara", "Bob", "Alice"), noms);
+    }
+
+    @Test
+    void testEcrivainsConcurrents() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            reseau.ajouterUtilisateur("u" + i, "MotDePasse1");
+        }
+        ExecutorService executeur = Executors.newFixedThreadPool(8);
+        List<Future<?>> travaux = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int fil = t;
+            travaux.add(executeur.submit(() -> {
+                Random hasard = new Random(fil);
+                for (int i = 0; i < 20_000; i++) {
+                    Utilisateur a = reseau.obtenirUtilisateurAPartirDuUsername("u" + hasard.nextInt(200));
+                    Utilisateur b = reseau.obtenirUtilisateurAPartirDuUsername("u" + hasard.nextInt(200));
+                    if (hasard.nextBoolean()) {
+                        reseau.ajouterAbonnement(a, b);
+                    } else {
+                        reseau.retirerAbonnement(a, b);
+                    }
+                }
+            }));
+        }
+        executeur.shutdown();
+        // une exception lancée par un fil fait échouer le test
+        for (Future<?> travail : travaux) {
+            travail.get(1, TimeUnit.MINUTES);
+        }
+        assertTrue(executeur.awaitTermination(1, TimeUnit.MINUTES));
+
+        // l'index des abonnés doit concorder exactement avec les abonnements
+        for (int i = 0; i < 200; i++) {
+            Utilisateur u = reseau.obtenirUtilisateurAPartirDuUsername("u" + i);
+            for (Utilisateur abonne : reseau.obtenirAbonnes(u)) {
+                assertTrue(reseau.obtenirAbonnements(abonne).contains(u));
+            }
+            for (Utilisateur suivi : reseau.obtenirAbonnements(u)) {
+                assertTrue(reseau.obtenirAbonnes(suivi).contains(u));
+            }
+        }
+    }
+}
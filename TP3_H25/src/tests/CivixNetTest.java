@@ -2,9 +2,18 @@ package tests;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reseau.BilanLot;
 import reseau.CivixNet;
+import reseau.Direction;
+import reseau.EcouteurReseau;
+import reseau.LotMutations;
+import reseau.MagasinIdentifiants;
 import reseau.Utilisateur;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -16,7 +25,8 @@ class CivixNetTest {
 
     @BeforeEach
     void setUp() {
-        reseau = new CivixNet();
+        // une seule itération PBKDF2 : les mots de passe sont hachés dès l'inscription
+        reseau = new CivixNet(new MagasinIdentifiants(1, 0));
         reseau.ajouterUtilisateur("Alice", "MotDePasse12345");
         reseau.ajouterUtilisateur("Bob", "SecurePass45678");
         reseau.ajouterUtilisateur("Clara", "TestPass78901");
@@ -70,6 +80,18 @@ class CivixNetTest {
         assertThrows(RuntimeException.class, () -> reseau.obtenirUtilisateurAPartirDuUsername("Inconnu"));
     }
 
+    @Test
+    void testObtenirUtilisateurInsensibleALaCasse() {
+        assertSame(bob, reseau.obtenirUtilisateurAPartirDuUsername("bOB"));
+    }
+
+    @Test
+    void testChercherUtilisateur() {
+        assertEquals(Optional.of(clara), reseau.chercherUtilisateur("clara"));
+        assertTrue(reseau.chercherUtilisateur("Inconnu").isEmpty());
+        assertTrue(reseau.chercherUtilisateur(null).isEmpty());
+    }
+
     @Test
     void testAbonnementMutuel() {
         reseau.ajouterAbonnement(alice, bob);
@@ -144,6 +166,50 @@ class CivixNetTest {
         assertEquals(3, noms.size());
     }
 
+    @Test
+    void testAbonnesMisAJour() {
+        reseau.ajouterAbonnement(alice, clara);
+        reseau.ajouterAbonnements(bob, List.of(clara, david));
+        assertEquals(Set.of(alice, bob), reseau.obtenirAbonnes(clara));
+        assertEquals(1, reseau.nombreAbonnes(david));
+
+        reseau.retirerAbonnements(bob, List.of(clara, david));
+        reseau.retirerAbonnement(alice, clara);
+        assertTrue(reseau.obtenirAbonnes(clara).isEmpty());
+        assertEquals(0, reseau.nombreAbonnes(david));
+    }
+
+    @Test
+    void testPropagationAuxAbonnes() {
+        reseau.ajouterAbonnement(bob, alice);    // Bob suit Alice
+        reseau.ajouterAbonnement(clara, bob);    // Clara suit Bob
+        reseau.ajouterAbonnement(david, clara);  // David suit Clara (niveau 3)
+
+        List<String> noms = reseau.propagationAuxAbonnes("Alice").stream().map(Utilisateur::getUsername).toList();
+        assertEquals(List.of("Clara", "Bob", "Alice"), noms);
+    }
+
+    @Test
+    void testPropagationTopKPageEtFlux() {
+        reseau.ajouterAbonnements(alice, List.of(bob, clara, david));
+
+        assertEquals(List.of(david, clara), reseau.propagationFausseInformationTopK("Alice", 2, 2));
+        assertEquals(List.of(bob, alice), reseau.propagationFausseInformationPage("Alice", 2, 1, 2));
+        assertTrue(reseau.propagationFausseInformationPage("Alice", 2, 5, 2).isEmpty());
+        assertTrue(reseau.propagationFausseInformationTopK("Alice", 2, 0).isEmpty());
+        assertEquals(reseau.propagationFausseInformationRecursive("Alice"),
+                reseau.propagationFausseInformationStream("Alice", 2).toList());
+        assertEquals(List.of(david), reseau.propagationFausseInformationStream("Alice", 2).limit(1).toList());
+
+        // un tas plus profond que quelques niveaux, parcouru jusqu'au bout
+        for (int i = 0; i < 100; i++) {
+            reseau.ajouterUtilisateur("u" + (i * 37 % 100), "MotDePasse1");
+            reseau.ajouterAbonnement(david, reseau.obtenirUtilisateurAPartirDuUsername("u" + (i * 37 % 100)));
+        }
+        assertEquals(reseau.propagationFausseInformationRecursive("Alice", 3),
+                reseau.propagationFausseInformationStream("Alice", 3).toList());
+    }
+
     @Test
     void testToString() {
         reseau.ajouterAbonnement(alice, bob);
@@ -153,4 +219,174 @@ class CivixNetTest {
         assertTrue(output.contains("Alice suit : Bob, Clara") || output.contains("Alice suit : Clara, Bob"));
         assertTrue(output.contains("Bob suit : aucun"));
     }
+
+    @Test
+    void testEcrireAvecLimites() throws IOException {
+        reseau.ajouterAbonnement(alice, bob);
+        reseau.ajouterAbonnement(alice, clara);
+        reseau.ajouterAbonnement(alice, david);
+
+        StringBuilder complet = new StringBuilder();
+        reseau.ecrire(complet, CivixNet.SANS_LIMITE, CivixNet.SANS_LIMITE);
+        assertEquals(reseau.toString(), complet.toString());
+
+        StringBuilder apercu = new StringBuilder();
+        reseau.ecrire(apercu, 2, 1);
+        String[] lignes = apercu.toString().split("\n");
+        assertEquals(4, lignes.length);
+        assertTrue(lignes[1].startsWith("Alice suit : ") && lignes[1].endsWith(", ... (+2)"));
+        assertEquals("Bob suit : aucun", lignes[2]);
+        assertEquals("... (+2 utilisateurs)", lignes[3]);
+
+        // limite à 0 abonnement : seulement le nombre omis, sans séparateur
+        StringBuilder sansAbonnements = new StringBuilder();
+        reseau.ecrire(sansAbonnements, 2, 0);
+        lignes = sansAbonnements.toString().split("\n");
+        assertEquals("Alice suit : ... (+3)", lignes[1]);
+        assertEquals("Bob suit : aucun", lignes[2]);
+
+        assertThrows(IllegalArgumentException.class, () -> reseau.ecrire(new StringBuilder(), -1, 1));
+    }
+
+    @Test
+    void testExporterTexte(@TempDir Path dossier) throws IOException {
+        reseau.ajouterAbonnement(bob, alice);
+        Path fichier = dossier.resolve("reseau.txt");
+        reseau.exporterTexte(fichier, CivixNet.SANS_LIMITE, CivixNet.SANS_LIMITE);
+        assertEquals(reseau.toString(), Files.readString(fichier));
+    }
+
+    @Test
+    void testAppliquerLot() {
+        reseau.ajouterAbonnement(bob, alice);
+        int[] finsLot = new int[1];
+        List<String> ajouts = new ArrayList<>();
+        reseau.ajouterEcouteur(new EcouteurReseau() {
+            @Override
+            public void abonnementAjoute(Utilisateur compte, Utilisateur cible) {
+                ajouts.add(compte.getUsername() + ">" + cible.getUsername());
+            }
+
+            @Override
+            public void finLot() {
+                finsLot[0]++;
+            }
+        });
+
+        LotMutations lot = new LotMutations()
+                .ajouter("alice", "Clara")
+                .ajouter("alice", "bob")
+                .retirer("ALICE", "bob")
+                .ajouter("bob", "alice")
+                .retirer("clara", "david")
+                .ajouter("bob", "inconnu")
+                .ajouter("inconnu", "alice")
+                .ajouter("David", "alice");
+        BilanLot bilan = reseau.appliquerLot(lot);
+
+        assertEquals(8, lot.nombreOperations());
+        assertEquals(1, bilan.nombreDoublons());
+        assertEquals(2, bilan.nombreAppliquees());
+        assertEquals(3, bilan.nombreSansEffet());
+        assertEquals(2, bilan.nombreRejetees());
+        assertEquals(Set.of(clara), reseau.getUtilisateurs().get(alice));
+        assertEquals(Set.of(bob, david), reseau.obtenirAbonnes(alice));
+        assertEquals(List.of("Alice>Clara", "David>Alice"), ajouts);
+        assertEquals(1, finsLot[0]);
+    }
+
+    @Test
+    void testEcouteurQuiSeRetire() {
+        // un écouteur qui se retire pendant la notification ne doit pas interrompre les suivants
+        int[] fins = new int[2];
+        reseau.ajouterEcouteur(new EcouteurReseau() {
+            @Override
+            public void finLot() {
+                fins[0]++;
+                reseau.retirerEcouteur(this);
+            }
+        });
+        reseau.ajouterEcouteur(new EcouteurReseau() {
+            @Override
+            public void finLot() {
+                fins[1]++;
+            }
+        });
+        reseau.ajouterAbonnement(alice, bob);
+        reseau.ajouterAbonnement(bob, alice);
+        assertArrayEquals(new int[]{1, 2}, fins);
+    }
+
+    private static Map<String, Set<String>> abonnementsParNom(CivixNet reseau) {
+        Map<String, Set<String>> abonnements = new TreeMap<>();
+        for (Map.Entry<Utilisateur, Set<Utilisateur>> u : reseau.getUtilisateurs().entrySet()) {
+            Set<String> suivis = new TreeSet<>();
+            for (Utilisateur suivi : u.getValue()) {
+                suivis.add(suivi.getUsername());
+            }
+            abonnements.put(u.getKey().getUsername(), suivis);
+        }
+        return abonnements;
+    }
+
+    @Test
+    void testExtraireSousReseau() {
+        reseau.ajouterAbonnement(alice, bob);
+        reseau.ajouterAbonnement(alice, clara);
+        reseau.ajouterAbonnement(bob, clara);
+        reseau.ajouterAbonnement(clara, david);
+        reseau.ajouterAbonnement(david, alice);
+
+        CivixNet voisinage = reseau.extraireSousReseau("alice", 1, Direction.ABONNEMENTS, 10);
+        assertEquals(Map.of("Alice", Set.of("Bob", "Clara"), "Bob", Set.of("Clara"), "Clara", Set.of()),
+                abonnementsParNom(voisinage));
+        assertEquals(abonnementsParNom(reseau), abonnementsParNom(reseau.extraireSousReseau("Alice", 2, Direction.ABONNEMENTS, 10)));
+        assertEquals(Map.of("David", Set.of(), "Clara", Set.of("David")),
+                abonnementsParNom(reseau.extraireSousReseau("david", 1, Direction.ABONNES, 10)));
+        assertEquals(2, reseau.extraireSousReseau("alice", 2, Direction.ABONNEMENTS, 2).getUtilisateurs().size());
+        assertEquals(Set.of("Alice"), abonnementsParNom(reseau.extraireSousReseau("alice", 0, Direction.ABONNES, 10)).keySet());
+
+        // le sous-réseau est indépendant
+        Utilisateur copieAlice = voisinage.obtenirUtilisateurAPartirDuUsername("Alice");
+        assertNotSame(alice, copieAlice);
+        assertTrue(voisinage.identifiants().authentifier("Alice", "MotDePasse12345"));
+        voisinage.retirerAbonnement(copieAlice, voisinage.obtenirUtilisateurAPartirDuUsername("Bob"));
+        assertTrue(reseau.getUtilisateurs().get(alice).contains(bob));
+
+        assertThrows(RuntimeException.class, () -> reseau.extraireSousReseau("Inconnu", 1, Direction.ABONNES, 10));
+        assertThrows(IllegalArgumentException.class, () -> reseau.extraireSousReseau("alice", -1, Direction.ABONNES, 10));
+        assertThrows(IllegalArgumentException.class, () -> reseau.extraireSousReseau("alice", 1, Direction.ABONNES, 0));
+    }
+
+    @Test
+    void testExtraireSousReseauAutourDUnHub() {
+        // un compte suivi par 1000 abonnés, dont chacun a lui-même 3 abonnés
+        CivixNet grand = new CivixNet(new MagasinIdentifiants(1, 0));
+        grand.ajouterUtilisateur("hub", "MotDePasse1");
+        LotMutations lot = new LotMutations();
+        for (int i = 0; i < 1000; i++) {
+            grand.ajouterUtilisateur("f" + i, "MotDePasse1");
+            lot.ajouter("f" + i, "hub");
+            for (int j = 1; j <= 3; j++) {
+                lot.ajouter("f" + (i + j) % 1000, "f" + i);
+            }
+        }
+        grand.appliquerLot(lot);
+
+        CivixNet voisinage = grand.extraireSousReseau("hub", 1, Direction.ABONNES, 50);
+        assertEquals(50, voisinage.getUtilisateurs().size());
+        Utilisateur hub = voisinage.obtenirUtilisateurAPartirDuUsername("hub");
+        assertEquals(49, voisinage.nombreAbonnes(hub));
+
+        // au deuxième niveau, le budget restant est partagé entre les 49 abonnés du hub
+        voisinage = grand.extraireSousReseau("hub", 2, Direction.ABONNES, 200);
+        assertEquals(200, voisinage.getUtilisateurs().size());
+        Map<String, Set<String>> abonnements = abonnementsParNom(voisinage);
+        for (Map.Entry<String, Set<String>> u : abonnements.entrySet()) {
+            for (String suivi : u.getValue()) {
+                assertTrue(grand.getUtilisateurs().get(grand.obtenirUtilisateurAPartirDuUsername(u.getKey()))
+                        .contains(grand.obtenirUtilisateurAPartirDuUsername(suivi)));
+            }
+        }
+    }
 }
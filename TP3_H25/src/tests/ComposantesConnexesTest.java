@@ -0,0 +1,155 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import reseau.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComposantesConnexesTest {
+
+    private static Set<String> noms(Collection<Utilisateur> utilisateurs) {
+        Set<String> noms = new TreeSet<>();
+        for (Utilisateur u : utilisateurs) {
+            noms.add(u.getUsername());
+        }
+        return noms;
+    }
+
+    private static Utilisateur u(CivixNet reseau, String nom) {
+        return reseau.obtenirUtilisateurAPartirDuUsername(nom);
+    }
+
+    @Test
+    void testPetitReseau() {
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        for (String nom : List.of("a", "b", "c", "d", "e", "f")) {
+            reseau.ajouterUtilisateur(nom, "MotDePasse1");
+        }
+        // cycle a -> b -> c -> a qui mène à d; e suit f
+        reseau.ajouterAbonnement(u(reseau, "a"), u(reseau, "b"));
+        reseau.ajouterAbonnement(u(reseau, "b"), u(reseau, "c"));
+        reseau.ajouterAbonnement(u(reseau, "c"), u(reseau, "a"));
+        reseau.ajouterAbonnement(u(reseau, "c"), u(reseau, "d"));
+        reseau.ajouterAbonnement(u(reseau, "e"), u(reseau, "f"));
+
+        ComposantesConnexes composantes = new ComposantesConnexes(reseau);
+        assertEquals(2, composantes.nombreComposantesFaibles());
+        assertEquals(Set.of("a", "b", "c", "d"), noms(composantes.membresComposanteFaible(u(reseau, "d"))));
+        assertEquals(2, composantes.tailleComposanteFaible(u(reseau, "f")));
+        assertTrue(composantes.utilisateursIsoles().isEmpty());
+
+        assertEquals(4, composantes.nombreComposantesFortes());
+        assertTrue(composantes.memeComposanteForte(u(reseau, "a"), u(reseau, "c")));
+        assertFalse(composantes.memeComposanteForte(u(reseau, "c"), u(reseau, "d")));
+        assertEquals(Set.of("a", "b", "c"), noms(composantes.membresComposanteForte(u(reseau, "b"))));
+        // en suivant les abonnements, on ne sort pas de d ni de f; en suivant les abonnés, du cycle ni de e
+        List<List<Utilisateur>> sansIssue = composantes.composantesSansIssue(Direction.ABONNEMENTS, 1);
+        assertEquals(List.of(Set.of("d"), Set.of("f")), List.of(noms(sansIssue.get(0)), noms(sansIssue.get(1))));
+        sansIssue = composantes.composantesSansIssue(Direction.ABONNES, 1);
+        assertEquals(2, sansIssue.size());
+        assertEquals(Set.of("a", "b", "c"), noms(sansIssue.get(0)));
+        assertEquals(Set.of("e"), noms(sansIssue.get(1)));
+        assertTrue(composantes.composantesSansIssue(Direction.ABONNEMENTS, 2).isEmpty());
+
+        // ajouts : tenus à jour sans reconstruction
+        reseau.ajouterUtilisateur("g", "MotDePasse1");
+        assertEquals(Set.of("g"), noms(composantes.utilisateursIsoles()));
+        reseau.ajouterAbonnement(u(reseau, "f"), u(reseau, "d"));
+        assertEquals(2, composantes.nombreComposantesFaibles());
+        assertEquals(6, composantes.tailleComposanteFaible(u(reseau, "e")));
+        reseau.ajouterAbonnement(u(reseau, "d"), u(reseau, "a"));
+        assertEquals(Set.of("a", "b", "c", "d"), noms(composantes.membresComposanteForte(u(reseau, "a"))));
+
+        // retrait : la composante est coupée
+        reseau.retirerAbonnement(u(reseau, "c"), u(reseau, "d"));
+        reseau.retirerAbonnement(u(reseau, "d"), u(reseau, "a"));
+        assertFalse(composantes.memeComposanteFaible(u(reseau, "a"), u(reseau, "d")));
+        assertEquals(Set.of("d", "e", "f"), noms(composantes.membresComposanteFaible(u(reseau, "e"))));
+        assertThrows(RuntimeException.class, () -> composantes.tailleComposanteForte(new Utilisateur("Inconnu")));
+    }
+
+    @Test
+    void testIdentiqueAuxAccessibilites() {
+        Random hasard = new Random(12);
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        for (int i = 0; i < 40; i++) {
+            reseau.ajouterUtilisateur("u" + i, "MotDePasse1");
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ComposantesConnexes composantes = new ComposantesConnexes(reseau, pool);
+            for (int i = 0; i < 300; i++) {
+                Utilisateur compte = u(reseau, "u" + hasard.nextInt(40));
+                Utilisateur cible = u(reseau, "u" + hasard.nextInt(40));
+                if (hasard.nextInt(4) == 0) {
+                    reseau.retirerAbonnement(compte, cible);
+                } else {
+                    reseau.ajouterAbonnement(compte, cible);
+                }
+                if (i % 30 != 0) {
+                    continue;
+                }
+
+                // accessibilités de référence par parcours en largeur
+                Map<Utilisateur, Set<Utilisateur>> atteints = new HashMap<>();
+                Map<Utilisateur, Set<Utilisateur>> relies = new HashMap<>();
+                for (Utilisateur u : reseau.getUtilisateurs().keySet()) {
+                    atteints.put(u, new HashSet<>(reseau.propagationFausseInformationRecursive(u.getUsername(), 40)));
+                    Set<Utilisateur> vus = new HashSet<>(List.of(u));
+                    Deque<Utilisateur> file = new ArrayDeque<>(vus);
+                    while (!file.isEmpty()) {
+                        Utilisateur v = file.poll();
+                        Set<Utilisateur> voisins = new HashSet<>(reseau.obtenirAbonnements(v));
+                        voisins.addAll(reseau.obtenirAbonnes(v));
+                        for (Utilisateur w : voisins) {
+                            if (vus.add(w)) {
+                                file.add(w);
+                            }
+                        }
+                    }
+                    relies.put(u, vus);
+                }
+                for (Utilisateur a : reseau.getUtilisateurs().keySet()) {
+                    assertEquals(relies.get(a), new HashSet<>(composantes.membresComposanteFaible(a)));
+                    assertEquals(relies.get(a).size(), composantes.tailleComposanteFaible(a));
+                    Set<Utilisateur> forte = new HashSet<>();
+                    for (Utilisateur b : atteints.get(a)) {
+                        if (atteints.get(b).contains(a)) {
+                            forte.add(b);
+                        }
+                    }
+                    assertEquals(forte, new HashSet<>(composantes.membresComposanteForte(a)));
+                }
+                assertEquals(new HashSet<>(relies.values()).size(), composantes.nombreComposantesFaibles());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testChaineProfonde() {
+        // un parcours récursif déborderait la pile sur une chaîne aussi longue
+        int n = 200_000;
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        for (int i = 0; i < n; i++) {
+            reseau.ajouterUtilisateur("u" + i, "MotDePasse1");
+        }
+        LotMutations lot = new LotMutations();
+        for (int i = 0; i + 1 < n; i++) {
+            lot.ajouter("u" + i, "u" + (i + 1));
+        }
+        reseau.appliquerLot(lot);
+
+        ComposantesConnexes composantes = new ComposantesConnexes(reseau);
+        assertEquals(1, composantes.nombreComposantesFaibles());
+        assertEquals(n, composantes.nombreComposantesFortes());
+
+        reseau.ajouterAbonnement(u(reseau, "u" + (n - 1)), u(reseau, "u0"));
+        assertEquals(1, composantes.nombreComposantesFortes());
+        assertEquals(n, composantes.tailleComposanteForte(u(reseau, "u12345")));
+    }
+}
@@ -0,0 +1,125 @@
+package tests;
+
+import app.DispositionForces;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispositionForcesTest {
+
+    private static double distance(DispositionForces disposition, int i, int j) {
+        return Math.hypot(disposition.abscisse(i) - disposition.abscisse(j), disposition.ordonnee(i) - disposition.ordonnee(j));
+    }
+
+    private static double[] aleatoires(Random hasard, int n) {
+        double[] coordonnees = new double[n];
+        for (int i = 0; i < n; i++) {
+            coordonnees[i] = hasard.nextDouble() * 1000;
+        }
+        return coordonnees;
+    }
+
+    @Test
+    void testDeuxGroupesSepares() {
+        // deux cliques de 10 nœuds reliées par un seul arc
+        List<int[]> arcs = new ArrayList<>();
+        for (int groupe = 0; groupe < 20; groupe += 10) {
+            for (int i = groupe; i < groupe + 10; i++) {
+                for (int j = i + 1; j < groupe + 10; j++) {
+                    arcs.add(new int[]{i, j});
+                }
+            }
+        }
+        arcs.add(new int[]{0, 10});
+        int[] sources = arcs.stream().mapToInt(a -> a[0]).toArray();
+        int[] cibles = arcs.stream().mapToInt(a -> a[1]).toArray();
+        Random hasard = new Random(5);
+        DispositionForces disposition = new DispositionForces(20, sources, cibles, arcs.size(), aleatoires(hasard, 20), aleatoires(hasard, 20));
+
+        List<Boolean> terminees = new ArrayList<>();
+        int iterations = disposition.executer(2000, 0.001, 0, (xs, ys, terminee) -> terminees.add(terminee));
+        assertTrue(disposition.estConvergee());
+        assertTrue(iterations < 2000);
+        assertEquals(iterations, terminees.size());
+        assertTrue(terminees.get(terminees.size() - 1));
+
+        double interne = 0;
+        double externe = 0;
+        for (int i = 1; i < 10; i++) {
+            interne += distance(disposition, i, (i + 1) % 10) + distance(disposition, i + 10, (i + 1) % 10 + 10);
+            externe += 2 * distance(disposition, i, i + 10);
+        }
+        assertTrue(externe > 2 * interne, interne + " / " + externe);
+    }
+
+    @Test
+    void testGrandGrapheSansNoeudsConfondus() {
+        // assez de nœuds pour passer par le quadtree et le calcul parallèle, dont plusieurs partis du même point
+        int n = 5000;
+        Random hasard = new Random(9);
+        int[] sources = new int[2 * n];
+        int[] cibles = new int[2 * n];
+        for (int a = 0; a < 2 * n; a++) {
+            sources[a] = hasard.nextInt(n);
+            cibles[a] = hasard.nextInt(n);
+        }
+        double[] xs = aleatoires(hasard, n);
+        double[] ys = aleatoires(hasard, n);
+        for (int i = 0; i < 50; i++) {
+            xs[i] = 500;
+            ys[i] = 500;
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DispositionForces disposition = new DispositionForces(n, sources, cibles, 2 * n, xs, ys, pool);
+            disposition.executer(30, 0, 0, null);
+            for (int i = 0; i < 50; i++) {
+                assertTrue(Double.isFinite(disposition.abscisse(i)) && Double.isFinite(disposition.ordonnee(i)));
+                for (int j = i + 1; j < 50; j++) {
+                    assertTrue(distance(disposition, i, j) > 1, i + ", " + j);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAnnulation() throws Exception {
+        int n = 20000;
+        Random hasard = new Random(2);
+        DispositionForces disposition = new DispositionForces(n, new int[0], new int[0], 0, aleatoires(hasard, n), aleatoires(hasard, n));
+        CountDownLatch premiere = new CountDownLatch(1);
+        List<Boolean> terminees = new ArrayList<>();
+        ExecutorService fil = Executors.newSingleThreadExecutor();
+        Future<Integer> execution = fil.submit(() -> disposition.executer(Integer.MAX_VALUE, 0, 0, (xs, ys, terminee) -> {
+            terminees.add(terminee);
+            premiere.countDown();
+        }));
+        assertTrue(premiere.await(30, TimeUnit.SECONDS));
+        disposition.annuler();
+        assertTrue(execution.get(30, TimeUnit.SECONDS) < Integer.MAX_VALUE);
+        fil.shutdown();
+        assertTrue(disposition.estAnnulee());
+        assertFalse(disposition.estConvergee());
+        assertFalse(terminees.contains(true));
+    }
+
+    @Test
+    void testArcInvalide() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new DispositionForces(2, new int[]{0}, new int[]{2}, 1, new double[2], new double[2]));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DispositionForces(3, new int[0], new int[0], 0, new double[2], new double[3]));
+    }
+}
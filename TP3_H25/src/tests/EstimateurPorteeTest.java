@@ -0,0 +1,127 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import reseau.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EstimateurPorteeTest {
+
+    private static CivixNet reseauAleatoire(Random hasard, int nbUtilisateurs, int abonnementsParUtilisateur) {
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            reseau.ajouterUtilisateur("u" + i, "MotDePasse1");
+        }
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            Utilisateur compte = reseau.obtenirUtilisateurAPartirDuUsername("u" + i);
+            for (int j = 0; j < abonnementsParUtilisateur; j++) {
+                reseau.ajouterAbonnement(compte, reseau.obtenirUtilisateurAPartirDuUsername("u" + hasard.nextInt(nbUtilisateurs)));
+            }
+        }
+        return reseau;
+    }
+
+    /**
+     * Vérifie que l'estimateur tenu à jour donne les mêmes estimations qu'un estimateur reconstruit.
+     */
+    private static void verifierIdentiqueAReconstruit(CivixNet reseau, EstimateurPortee estimateur, Direction direction) {
+        EstimateurPortee reconstruit = new EstimateurPortee(reseau, direction, estimateur.sautsMax());
+        reconstruit.detacher();
+        for (Utilisateur u : reseau.getUtilisateurs().keySet()) {
+            for (int k = 0; k <= estimateur.sautsMax(); k++) {
+                assertEquals(reconstruit.estimerPortee(u, k), estimateur.estimerPortee(u, k), u.getUsername() + ", " + k);
+            }
+        }
+    }
+
+    @Test
+    void testProcheDesPropagationsExactes() {
+        CivixNet reseau = reseauAleatoire(new Random(8), 2000, 3);
+        EstimateurPortee estimateur = new EstimateurPortee(reseau, Direction.ABONNEMENTS, 3);
+
+        double sommeErreurs = 0;
+        int nb = 0;
+        for (Utilisateur u : reseau.getUtilisateurs().keySet()) {
+            for (int k = 0; k <= 3; k++) {
+                int exact = reseau.propagationFausseInformationRecursive(u.getUsername(), k).size();
+                double erreur = Math.abs(estimateur.estimerPortee(u, k) - exact) / (double) exact;
+                assertTrue(erreur < 0.6, u.getUsername() + " : " + estimateur.estimerPortee(u, k) + " au lieu de " + exact);
+                sommeErreurs += erreur;
+                nb++;
+            }
+        }
+        assertTrue(sommeErreurs / nb < 0.1);
+
+        Utilisateur u0 = reseau.obtenirUtilisateurAPartirDuUsername("u0");
+        assertEquals(1, estimateur.estimerPortee(u0, 0));
+        assertThrows(IllegalArgumentException.class, () -> estimateur.estimerPortee(u0, 4));
+        assertThrows(RuntimeException.class, () -> estimateur.estimerPortee(new Utilisateur("Inconnu"), 1));
+    }
+
+    @Test
+    void testMiseAJourIncrementale() {
+        for (Direction direction : Direction.values()) {
+            Random hasard = new Random(31);
+            CivixNet reseau = reseauAleatoire(hasard, 20, 2);
+            EstimateurPortee estimateur = new EstimateurPortee(reseau, direction, 3);
+
+            for (int i = 0; i < 200; i++) {
+                int nbUtilisateurs = reseau.getUtilisateurs().size();
+                Utilisateur compte = reseau.obtenirUtilisateurAPartirDuUsername("u" + hasard.nextInt(nbUtilisateurs));
+                Utilisateur cible = reseau.obtenirUtilisateurAPartirDuUsername("u" + hasard.nextInt(nbUtilisateurs));
+                int choix = hasard.nextInt(10);
+                if (choix == 0) {
+                    reseau.ajouterUtilisateur("u" + nbUtilisateurs, "MotDePasse1");
+                } else if (choix == 1) {
+                    // un nom déjà pris vide les abonnements de l'utilisateur existant
+                    reseau.ajouterUtilisateur(compte.getUsername(), "MotDePasse2");
+                } else if (choix == 2) {
+                    LotMutations lot = new LotMutations();
+                    for (int j = 0; j < 4; j++) {
+                        String abonne = "u" + hasard.nextInt(nbUtilisateurs);
+                        String suivi = "u" + hasard.nextInt(nbUtilisateurs);
+                        if (hasard.nextBoolean()) {
+                            lot.ajouter(abonne, suivi);
+                        } else {
+                            lot.retirer(abonne, suivi);
+                        }
+                    }
+                    reseau.appliquerLot(lot);
+                } else if (choix < 7) {
+                    reseau.ajouterAbonnement(compte, cible);
+                } else {
+                    reseau.retirerAbonnement(compte, cible);
+                }
+                verifierIdentiqueAReconstruit(reseau, estimateur, direction);
+            }
+        }
+    }
+
+    @Test
+    void testLotsMixtesCommeReconstruit() {
+        // un sommet peut à la fois perdre et gagner des registres dans un même lot
+        for (Direction direction : Direction.values()) {
+            Random hasard = new Random(57);
+            CivixNet reseau = reseauAleatoire(hasard, 300, 3);
+            EstimateurPortee estimateur = new EstimateurPortee(reseau, direction, 3);
+
+            for (int i = 0; i < 20; i++) {
+                LotMutations lot = new LotMutations();
+                for (int j = 0; j < 40; j++) {
+                    Utilisateur abonne = reseau.obtenirUtilisateurAPartirDuUsername("u" + hasard.nextInt(300));
+                    List<Utilisateur> suivis = new ArrayList<>(reseau.obtenirAbonnements(abonne));
+                    if (hasard.nextBoolean() && !suivis.isEmpty()) {
+                        // retirer un abonnement existant, pour que le lot réduise vraiment des esquisses
+                        lot.retirer(abonne.getUsername(), suivis.get(hasard.nextInt(suivis.size())).getUsername());
+                    } else {
+                        lot.ajouter(abonne.getUsername(), "u" + hasard.nextInt(300));
+                    }
+                }
+                reseau.appliquerLot(lot);
+                verifierIdentiqueAReconstruit(reseau, estimateur, direction);
+            }
+        }
+    }
+}
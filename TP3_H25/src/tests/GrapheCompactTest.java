@@ -0,0 +1,128 @@
+package tests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reseau.CivixNet;
+import reseau.GrapheCompact;
+import reseau.MagasinIdentifiants;
+import reseau.Utilisateur;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GrapheCompactTest {
+
+    private GrapheCompact graphe;
+    private Utilisateur alice, bob, clara, david;
+
+    @BeforeEach
+    void setUp() {
+        // seuil minuscule pour que les tests traversent plusieurs compactions
+        graphe = new GrapheCompact(2, new MagasinIdentifiants(1, 0));
+        graphe.ajouterUtilisateur("Alice", "MotDePasse12345");
+        graphe.ajouterUtilisateur("Bob", "SecurePass45678");
+        graphe.ajouterUtilisateur("Clara", "TestPass78901");
+        graphe.ajouterUtilisateur("David", "AlphaPass99999");
+
+        alice = graphe.obtenirUtilisateurAPartirDuUsername("Alice");
+        bob = graphe.obtenirUtilisateurAPartirDuUsername("Bob");
+        clara = graphe.obtenirUtilisateurAPartirDuUsername("Clara");
+        david = graphe.obtenirUtilisateurAPartirDuUsername("David");
+    }
+
+    private List<String> abonnementsDe(Utilisateur u) {
+        List<String> noms = new ArrayList<>();
+        graphe.pourChaqueAbonnement(graphe.id(u), v -> noms.add(graphe.utilisateur(v).getUsername()));
+        return noms;
+    }
+
+    @Test
+    void testAjouterEtRetirerAbonnement() {
+        graphe.ajouterAbonnement(alice, clara);
+        graphe.ajouterAbonnement(alice, bob);
+        graphe.ajouterAbonnement(alice, david);
+        assertEquals(List.of("Bob", "Clara", "David"), abonnementsDe(alice));
+
+        graphe.retirerAbonnement(alice, clara);
+        graphe.retirerAbonnement(alice, clara);
+        assertEquals(List.of("Bob", "David"), abonnementsDe(alice));
+        assertEquals(2, graphe.nombreAbonnements());
+    }
+
+    @Test
+    void testRetraitPuisAjoutAvantCompaction() {
+        graphe.ajouterAbonnements(bob, List.of(alice, clara));
+        graphe.compacter();
+        graphe.retirerAbonnement(bob, alice);
+        graphe.ajouterAbonnement(bob, alice);
+        assertTrue(graphe.contient(graphe.id(bob), graphe.id(alice)));
+        assertEquals(List.of("Alice", "Clara"), abonnementsDe(bob));
+    }
+
+    @Test
+    void testAbonnementMutuel() {
+        graphe.ajouterAbonnement(alice, bob);
+        graphe.ajouterAbonnement(bob, alice);
+        graphe.ajouterAbonnement(bob, david);
+        assertTrue(graphe.abonnementMutuel(alice, bob));
+        assertFalse(graphe.abonnementMutuel(bob, david));
+    }
+
+    @Test
+    void testUtilisateurInexistant() {
+        Utilisateur inconnu = new Utilisateur("Inconnu");
+        assertThrows(RuntimeException.class, () -> graphe.ajouterAbonnement(alice, inconnu));
+        assertThrows(RuntimeException.class, () -> graphe.obtenirUtilisateurAPartirDuUsername("Inconnu"));
+    }
+
+    @Test
+    void testConversionDepuisEtVersCivixNet() {
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        reseau.ajouterUtilisateur("Zoe", "ZoePass12345");
+        reseau.ajouterUtilisateur("Yann", "YannPass12345");
+        Utilisateur zoe = reseau.obtenirUtilisateurAPartirDuUsername("Zoe");
+        Utilisateur yann = reseau.obtenirUtilisateurAPartirDuUsername("Yann");
+        reseau.ajouterAbonnement(zoe, yann);
+
+        GrapheCompact converti = GrapheCompact.depuis(reseau);
+        assertEquals(2, converti.nombreUtilisateurs());
+        assertEquals(1, converti.nombreAbonnements());
+        assertTrue(converti.contient(converti.id(zoe), converti.id(yann)));
+
+        CivixNet retour = converti.versCivixNet();
+        assertEquals(reseau.toString(), retour.toString());
+    }
+
+    @Test
+    void testLecturesSansCompactionIdentiquesAuModele() {
+        // seuil jamais atteint : les lectures fusionnent le CSR et le tampon
+        Random hasard = new Random(5);
+        int n = 200;
+        GrapheCompact grand = new GrapheCompact(1_000_000, new MagasinIdentifiants(1, 0));
+        List<Set<Integer>> modele = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            grand.ajouterUtilisateur("u" + i, "MotDePasse1");
+            modele.add(new TreeSet<>());
+        }
+        for (int tour = 0; tour < 4; tour++) {
+            for (int op = 0; op < 3000; op++) {
+                int source = hasard.nextInt(n);
+                int cible = hasard.nextInt(n);
+                if (hasard.nextInt(3) == 0) {
+                    assertEquals(modele.get(source).remove(cible), grand.retirerAbonnement(source, cible));
+                } else {
+                    assertEquals(modele.get(source).add(cible), grand.ajouterAbonnement(source, cible));
+                }
+            }
+            for (int u = 0; u < n; u++) {
+                List<Integer> lus = new ArrayList<>();
+                grand.pourChaqueAbonnement(u, lus::add);
+                assertEquals(new ArrayList<>(modele.get(u)), lus);
+                assertEquals(modele.get(u).size(), grand.degreSortant(u));
+            }
+            // la compaction suivante part d'un CSR non vide, que les tours suivants modifient
+            grand.compacter();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package tests;
+
+import app.GrilleSpatiale;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GrilleSpatialeTest {
+
+    private static List<Integer> dans(GrilleSpatiale grille, double x1, double y1, double x2, double y2) {
+        List<Integer> trouves = new ArrayList<>();
+        grille.pourChaqueDans(x1, y1, x2, y2, trouves::add);
+        return trouves;
+    }
+
+    @Test
+    void testRangementParCase() {
+        // cases de 10 : (0,0) et (5,5) partagent la première case, (15,0) est à droite, (0,15) au-dessus
+        double[] xs = {0, 5, 15, 0, 19.99};
+        double[] ys = {0, 5, 0, 15, 19.99};
+        GrilleSpatiale grille = new GrilleSpatiale(10);
+        grille.reconstruire(xs, ys, 5);
+
+        assertEquals(List.of(0, 1), dans(grille, 1, 1, 1, 1));
+        assertEquals(List.of(2), dans(grille, 12, 3, 12, 3));
+        assertEquals(List.of(3), dans(grille, 3, 12, 3, 12));
+        assertEquals(List.of(4), dans(grille, 19, 19, 19, 19));
+
+        // chaque nœud est rangé dans une seule case
+        List<Integer> tous = dans(grille, 0, 0, 19.99, 19.99);
+        tous.sort(null);
+        assertEquals(List.of(0, 1, 2, 3, 4), tous);
+    }
+
+    @Test
+    void testBords() {
+        GrilleSpatiale grille = new GrilleSpatiale(10);
+        assertTrue(dans(grille, -100, -100, 100, 100).isEmpty());
+        assertEquals(-1, grille.plusProche(new double[0], new double[0], 0, 0, 50));
+
+        // coordonnées négatives, nœuds sur les bords minimal et maximal de la grille
+        double[] xs = {-20, 20, -20, 20};
+        double[] ys = {-20, -20, 20, 20};
+        grille.reconstruire(xs, ys, 4);
+        assertEquals(List.of(0), dans(grille, -20, -20, -20, -20));
+        assertEquals(List.of(3), dans(grille, 20, 20, 20, 20));
+
+        // un rectangle qui déborde est ramené à la grille, un rectangle hors de la grille ne donne rien
+        assertEquals(4, dans(grille, -1e9, -1e9, 1e9, 1e9).size());
+        assertTrue(dans(grille, 100, 100, 200, 200).isEmpty());
+        assertTrue(dans(grille, -200, -200, -100, -100).isEmpty());
+
+        assertEquals(3, grille.plusProche(xs, ys, 25, 25, 10));
+        assertEquals(-1, grille.plusProche(xs, ys, 0, 0, 10));
+
+        // tous les nœuds confondus : une seule case
+        grille.reconstruire(new double[]{3, 3, 3}, new double[]{7, 7, 7}, 3);
+        assertEquals(3, dans(grille, 3, 7, 3, 7).size());
+
+        // une grille reconstruite vide ne garde rien de la précédente
+        grille.reconstruire(xs, ys, 0);
+        assertTrue(dans(grille, -1e9, -1e9, 1e9, 1e9).isEmpty());
+    }
+
+    @Test
+    void testRequetesIdentiquesAuParcoursComplet() {
+        Random hasard = new Random(7);
+        int n = 2000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            // un nœud isolé très loin force des cases plus grandes que la taille demandée
+            xs[i] = i == 0 ? 1e6 : hasard.nextDouble() * 1000 - 500;
+            ys[i] = i == 0 ? 1e6 : hasard.nextDouble() * 1000 - 500;
+        }
+        GrilleSpatiale grille = new GrilleSpatiale(5);
+        grille.reconstruire(xs, ys, n);
+
+        for (int essai = 0; essai < 200; essai++) {
+            double x1 = hasard.nextDouble() * 1200 - 600;
+            double y1 = hasard.nextDouble() * 1200 - 600;
+            double x2 = x1 + hasard.nextDouble() * 300;
+            double y2 = y1 + hasard.nextDouble() * 300;
+            boolean[] vus = new boolean[n];
+            grille.pourChaqueDans(x1, y1, x2, y2, i -> {
+                assertFalse(vus[i]);
+                vus[i] = true;
+            });
+            for (int i = 0; i < n; i++) {
+                if (xs[i] >= x1 && xs[i] <= x2 && ys[i] >= y1 && ys[i] <= y2) {
+                    assertTrue(vus[i], "nœud " + i + " manquant");
+                }
+            }
+
+            double x = hasard.nextDouble() * 1000 - 500;
+            double y = hasard.nextDouble() * 1000 - 500;
+            double rayon = hasard.nextDouble() * 40;
+            int attendu = -1;
+            double meilleure = rayon * rayon;
+            for (int i = 0; i < n; i++) {
+                double distance = (xs[i] - x) * (xs[i] - x) + (ys[i] - y) * (ys[i] - y);
+                if (distance <= meilleure) {
+                    meilleure = distance;
+                    attendu = i;
+                }
+            }
+            int trouve = grille.plusProche(xs, ys, x, y, rayon);
+            if (attendu == -1) {
+                assertEquals(-1, trouve);
+            } else {
+                assertNotEquals(-1, trouve);
+                assertEquals(meilleure, (xs[trouve] - x) * (xs[trouve] - x) + (ys[trouve] - y) * (ys[trouve] - y));
+            }
+        }
+    }
+}
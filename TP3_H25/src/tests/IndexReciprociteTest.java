@@ -0,0 +1,120 @@
+package tests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reseau.CivixNet;
+import reseau.IndexReciprocite;
+import reseau.LotMutations;
+import reseau.MagasinIdentifiants;
+import reseau.Utilisateur;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexReciprociteTest {
+
+    private CivixNet reseau;
+    private Utilisateur alice, bob, clara;
+
+    @BeforeEach
+    void setUp() {
+        reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        reseau.ajouterUtilisateur("Alice", "MotDePasse12345");
+        reseau.ajouterUtilisateur("Bob", "SecurePass45678");
+        reseau.ajouterUtilisateur("Clara", "TestPass78901");
+
+        alice = reseau.obtenirUtilisateurAPartirDuUsername("Alice");
+        bob = reseau.obtenirUtilisateurAPartirDuUsername("Bob");
+        clara = reseau.obtenirUtilisateurAPartirDuUsername("Clara");
+    }
+
+    @Test
+    void testConstructionEtMiseAJour() {
+        reseau.ajouterAbonnement(alice, bob);
+        reseau.ajouterAbonnement(bob, alice);
+        reseau.ajouterAbonnement(alice, clara);
+        reseau.ajouterAbonnement(clara, clara);
+
+        IndexReciprocite index = new IndexReciprocite(reseau);
+        assertEquals(Set.of(bob), index.obtenirMutuels(alice));
+        assertTrue(index.abonnementMutuel(bob, alice));
+        assertFalse(index.abonnementMutuel(alice, clara));
+        assertFalse(index.abonnementMutuel(clara, clara));
+        assertEquals(1, index.nombrePaires());
+        assertEquals(4, index.nombreAbonnements());
+        assertEquals(0.5, index.tauxReciprocite());
+
+        reseau.ajouterAbonnement(clara, alice);
+        assertEquals(Set.of(bob, clara), index.obtenirMutuels(alice));
+        assertEquals(1, index.nombreMutuels(clara));
+
+        reseau.retirerAbonnement(bob, alice);
+        assertEquals(Set.of(clara), index.obtenirMutuels(alice));
+        assertTrue(index.obtenirMutuels(bob).isEmpty());
+        assertEquals(1, index.nombrePaires());
+
+        // un nom déjà pris vide les abonnements de l'utilisateur existant
+        reseau.ajouterUtilisateur("clara", "AutrePass11111");
+        assertTrue(index.obtenirMutuels(alice).isEmpty());
+        assertEquals(0, index.nombrePaires());
+        assertEquals(2, index.nombreAbonnements());
+
+        index.detacher();
+        reseau.ajouterAbonnement(bob, alice);
+        assertEquals(2, index.nombreAbonnements());
+        assertThrows(RuntimeException.class, () -> index.obtenirMutuels(new Utilisateur("Inconnu")));
+    }
+
+    @Test
+    void testCorrespondAuReseau() {
+        Random hasard = new Random(5);
+        IndexReciprocite index = new IndexReciprocite(reseau);
+        for (int i = 0; i < 300; i++) {
+            String nom = "u" + hasard.nextInt(15);
+            Optional<Utilisateur> compte = reseau.chercherUtilisateur(nom);
+            int choix = hasard.nextInt(8);
+            if (compte.isEmpty() || choix == 0) {
+                reseau.ajouterUtilisateur(nom, "MotDePasse" + hasard.nextInt(1000));
+            } else if (choix == 1) {
+                LotMutations lot = new LotMutations();
+                for (int k = 0; k < 5; k++) {
+                    String suivi = "u" + hasard.nextInt(15);
+                    if (hasard.nextBoolean()) {
+                        lot.ajouter(nom, suivi);
+                    } else {
+                        lot.retirer(nom, suivi);
+                    }
+                }
+                reseau.appliquerLot(lot);
+            } else {
+                Optional<Utilisateur> cible = reseau.chercherUtilisateur("u" + hasard.nextInt(15));
+                if (cible.isPresent() && choix < 6) {
+                    reseau.ajouterAbonnement(compte.get(), cible.get());
+                } else if (cible.isPresent()) {
+                    reseau.retirerAbonnement(compte.get(), cible.get());
+                }
+            }
+        }
+
+        long paires = 0;
+        long abonnements = 0;
+        for (Map.Entry<Utilisateur, Set<Utilisateur>> u : reseau.getUtilisateurs().entrySet()) {
+            Set<Utilisateur> attendus = new HashSet<>();
+            for (Utilisateur suivi : u.getValue()) {
+                if (suivi != u.getKey() && reseau.abonnementMutuel(u.getKey(), suivi)) {
+                    attendus.add(suivi);
+                }
+            }
+            assertEquals(attendus, index.obtenirMutuels(u.getKey()), u.getKey().getUsername());
+            paires += attendus.size();
+            abonnements += u.getValue().size();
+        }
+        assertEquals(paires, index.nombreAbonnementsReciproques());
+        assertEquals(abonnements, index.nombreAbonnements());
+
+        // un index construit sur l'état final donne le même résultat
+        IndexReciprocite reconstruit = new IndexReciprocite(reseau);
+        assertEquals(index.nombrePaires(), reconstruit.nombrePaires());
+    }
+}
@@ -0,0 +1,233 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reseau.CivixNet;
+import reseau.JournalMutations;
+import reseau.MagasinIdentifiants;
+import reseau.ReseauPersistant;
+import reseau.Utilisateur;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalMutationsTest {
+
+    private static final int NB_UTILISATEURS = 20;
+
+    // chaque mot de passe ajouté est haché : facteur de travail réduit pour garder les tests rapides
+    private static final int ITERATIONS = 1000;
+
+    private static CivixNet nouveauReseau() {
+        return new CivixNet(new MagasinIdentifiants(ITERATIONS, 16));
+    }
+
+    /**
+     * Applique une modification aléatoire au réseau.
+     */
+    private static void modifier(CivixNet reseau, Random hasard) {
+        String nom = "u" + hasard.nextInt(NB_UTILISATEURS);
+        Optional<Utilisateur> compte = reseau.chercherUtilisateur(nom);
+        int choix = hasard.nextInt(10);
+        if (compte.isEmpty() || choix == 0) {
+            reseau.ajouterUtilisateur(nom, "MotDePasse" + hasard.nextInt(1000));
+            return;
+        }
+        List<Utilisateur> cibles = new ArrayList<>();
+        for (int i = 0; i < 1 + hasard.nextInt(3); i++) {
+            reseau.chercherUtilisateur("u" + hasard.nextInt(NB_UTILISATEURS)).ifPresent(cibles::add);
+        }
+        if (cibles.isEmpty()) {
+            return;
+        }
+        if (choix < 6) {
+            reseau.ajouterAbonnement(compte.get(), cibles.get(0));
+        } else if (choix < 8) {
+            reseau.ajouterAbonnements(compte.get(), cibles);
+        } else if (choix == 8) {
+            reseau.retirerAbonnement(compte.get(), cibles.get(0));
+        } else {
+            reseau.retirerAbonnements(compte.get(), cibles);
+        }
+    }
+
+    @Test
+    void testRejouerApresTroncatureAleatoire(@TempDir Path dossier) throws IOException {
+        Random hasard = new Random(3);
+        Path fichier = dossier.resolve("journal.log");
+        CivixNet reseau = nouveauReseau();
+        JournalMutations journal = JournalMutations.ouvrir(fichier, reseau, 8);
+
+        // état du réseau après chaque opération, indexé par la taille du journal à ce moment
+        TreeMap<Long, Map<String, Set<String>>> etats = new TreeMap<>();
+        etats.put(journal.taille(), ReseauBuilderTest.resume(reseau));
+        for (int i = 0; i < 400; i++) {
+            modifier(reseau, hasard);
+            etats.put(journal.taille(), ReseauBuilderTest.resume(reseau));
+        }
+        journal.close();
+        byte[] complet = Files.readAllBytes(fichier);
+        assertEquals(etats.lastKey(), complet.length);
+
+        for (int essai = 0; essai < 100; essai++) {
+            int coupure = essai == 0 ? complet.length : hasard.nextInt(complet.length + 1);
+            Files.write(fichier, Arrays.copyOf(complet, coupure));
+
+            CivixNet relu = nouveauReseau();
+            JournalMutations repris = JournalMutations.ouvrir(fichier, relu, 1);
+            Map.Entry<Long, Map<String, Set<String>>> attendu = etats.floorEntry((long) coupure);
+            Map<String, Set<String>> etatAttendu = attendu == null ? Map.of() : attendu.getValue();
+            assertEquals(etatAttendu, ReseauBuilderTest.resume(relu), "coupure à " + coupure);
+            assertEquals(attendu == null ? etats.firstKey() : attendu.getKey(), repris.taille());
+
+            // la fin incomplète a été coupée : les nouveaux enregistrements suivent la partie valide
+            relu.ajouterUtilisateur("nouveau", "MotDePasse1");
+            repris.close();
+            CivixNet apresReprise = new CivixNet();
+            JournalMutations.rejouer(fichier, apresReprise);
+            Map<String, Set<String>> attenduApresReprise = new TreeMap<>(etatAttendu);
+            attenduApresReprise.put("nouveau", Set.of());
+            assertEquals(attenduApresReprise, ReseauBuilderTest.resume(apresReprise));
+        }
+    }
+
+    @Test
+    void testEnregistrementCorrompu(@TempDir Path dossier) throws IOException {
+        Path fichier = dossier.resolve("journal.log");
+        CivixNet reseau = nouveauReseau();
+        try (JournalMutations journal = JournalMutations.ouvrir(fichier, reseau, 1)) {
+            reseau.ajouterUtilisateur("alice", "MotDePasse1");
+            long milieu = journal.taille();
+            reseau.ajouterUtilisateur("bob", "MotDePasse2");
+            reseau.ajouterAbonnement(reseau.obtenirUtilisateurAPartirDuUsername("alice"),
+                    reseau.obtenirUtilisateurAPartirDuUsername("bob"));
+
+            journal.synchroniser();
+            byte[] octets = Files.readAllBytes(fichier);
+            octets[(int) milieu + 10] ^= 0x01;
+            Files.write(dossier.resolve("corrompu.log"), octets);
+        }
+        CivixNet relu = new CivixNet();
+        assertEquals(1, JournalMutations.rejouer(dossier.resolve("corrompu.log"), relu));
+        assertEquals(Set.of("alice"), ReseauBuilderTest.resume(relu).keySet());
+
+        Files.write(dossier.resolve("autre.log"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertThrows(IOException.class, () -> JournalMutations.rejouer(dossier.resolve("autre.log"), new CivixNet()));
+    }
+
+    @Test
+    void testReseauPersistantCompaction(@TempDir Path dossier) throws Exception {
+        Random hasard = new Random(11);
+        Map<String, Set<String>> attendu;
+        try (ReseauPersistant persistant = ReseauPersistant.ouvrir(dossier, 16, 512)) {
+            persistant.reseau().identifiants().setIterations(ITERATIONS);
+            for (int i = 0; i < 300; i++) {
+                modifier(persistant.reseau(), hasard);
+            }
+            attendu = ReseauBuilderTest.resume(persistant.reseau());
+        }
+        assertTrue(Files.exists(dossier.resolve(ReseauPersistant.INSTANTANE)));
+
+        try (ReseauPersistant persistant = ReseauPersistant.ouvrir(dossier, 16, Long.MAX_VALUE)) {
+            persistant.reseau().identifiants().setIterations(ITERATIONS);
+            assertEquals(attendu, ReseauBuilderTest.resume(persistant.reseau()));
+            for (int i = 0; i < 100; i++) {
+                modifier(persistant.reseau(), hasard);
+            }
+            attendu = ReseauBuilderTest.resume(persistant.reseau());
+        }
+
+        // arrêt brutal après l'écriture de l'instantané, avant la suppression de l'archive :
+        // l'archive est rejouée sur un instantané qui la contient déjà
+        Path sauvegarde = dossier.resolve("sauvegarde.log");
+        Files.copy(dossier.resolve(ReseauPersistant.JOURNAL), sauvegarde);
+        try (ReseauPersistant persistant = ReseauPersistant.ouvrir(dossier, 16, Long.MAX_VALUE)) {
+            persistant.compacter().get();
+            assertFalse(Files.exists(dossier.resolve(ReseauPersistant.ARCHIVE)));
+        }
+        Files.move(sauvegarde, dossier.resolve(ReseauPersistant.ARCHIVE), StandardCopyOption.REPLACE_EXISTING);
+        try (ReseauPersistant persistant = ReseauPersistant.ouvrir(dossier, 16, Long.MAX_VALUE)) {
+            assertEquals(attendu, ReseauBuilderTest.resume(persistant.reseau()));
+        }
+    }
+
+    @Test
+    void testChangementDeMotDePasseApresReouverture(@TempDir Path dossier) throws Exception {
+        try (ReseauPersistant persistant = ReseauPersistant.ouvrir(dossier, 1, Long.MAX_VALUE)) {
+            persistant.reseau().identifiants().setIterations(ITERATIONS);
+            persistant.reseau().ajouterUtilisateur("Alice", "Alice123secure");
+            persistant.reseau().identifiants().changer("alice", "Nouveau456Pw");
+        }
+        // relu depuis le journal
+        try (ReseauPersistant persistant = ReseauPersistant.ouvrir(dossier, 1, Long.MAX_VALUE)) {
+            MagasinIdentifiants identifiants = persistant.reseau().identifiants();
+            identifiants.setIterations(ITERATIONS);
+            assertTrue(identifiants.authentifier("alice", "Nouveau456Pw"));
+            assertFalse(identifiants.authentifier("alice", "Alice123secure"));
+            identifiants.changer("Alice", "Encore789Pw");
+            persistant.compacter().get();
+        }
+        // relu depuis l'instantané construit par la compaction
+        assertFalse(Files.exists(dossier.resolve(ReseauPersistant.ARCHIVE)));
+        ReseauPersistant persistant = ReseauPersistant.ouvrir(dossier, 1, Long.MAX_VALUE);
+        MagasinIdentifiants identifiants = persistant.reseau().identifiants();
+        identifiants.setIterations(ITERATIONS);
+        assertTrue(identifiants.authentifier("alice", "Encore789Pw"));
+        assertFalse(identifiants.authentifier("alice", "Nouveau456Pw"));
+
+        // le journal fermé n'écoute plus le magasin
+        long taille = persistant.journal().taille();
+        persistant.close();
+        identifiants.changer("alice", "Dernier000Pw");
+        assertEquals(taille, persistant.journal().taille());
+    }
+
+    @Test
+    void testAjoutJournaliseSansHachage(@TempDir Path dossier) throws IOException {
+        // facteur de travail par défaut : un hachage fait par le journal se verrait nettement
+        CivixNet reseau = new CivixNet();
+        long debut = System.nanoTime();
+        reseau.ajouterUtilisateur("alice", "MotDePasse1");
+        long hachage = System.nanoTime() - debut;
+
+        Path fichier = dossier.resolve("journal.log");
+        try (JournalMutations journal = JournalMutations.ouvrir(fichier, reseau, Integer.MAX_VALUE)) {
+            Utilisateur alice = reseau.obtenirUtilisateurAPartirDuUsername("alice");
+            debut = System.nanoTime();
+            for (int i = 0; i < 20; i++) {
+                journal.utilisateurAjoute(alice);
+                journal.finLot();
+            }
+            long journalisation = System.nanoTime() - debut;
+            assertTrue(journalisation < hachage / 4,
+                    "20 ajouts journalisés : " + journalisation / 1000 + " µs, un hachage : " + hachage / 1000 + " µs");
+        }
+
+        CivixNet relu = new CivixNet();
+        assertEquals(20, JournalMutations.rejouer(fichier, relu));
+        assertEquals(0, relu.identifiants().nombreEnAttente());
+        assertTrue(relu.identifiants().authentifier("alice", "MotDePasse1"));
+    }
+
+    @Test
+    void testCopieIndependante() {
+        CivixNet reseau = nouveauReseau();
+        reseau.ajouterUtilisateur("alice", "MotDePasse1");
+        reseau.ajouterUtilisateur("bob", "MotDePasse2");
+        Utilisateur alice = reseau.obtenirUtilisateurAPartirDuUsername("alice");
+        Utilisateur bob = reseau.obtenirUtilisateurAPartirDuUsername("bob");
+        reseau.ajouterAbonnement(alice, bob);
+
+        CivixNet copie = reseau.copie();
+        assertEquals(ReseauBuilderTest.resume(reseau), ReseauBuilderTest.resume(copie));
+        reseau.retirerAbonnement(alice, bob);
+        assertEquals(Set.of("bob"), ReseauBuilderTest.resume(copie).get("alice"));
+        assertEquals(Set.of(copie.obtenirUtilisateurAPartirDuUsername("alice")),
+                copie.obtenirAbonnes(copie.obtenirUtilisateurAPartirDuUsername("bob")));
+    }
+}
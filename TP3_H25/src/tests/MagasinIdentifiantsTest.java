@@ -0,0 +1,215 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reseau.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MagasinIdentifiantsTest {
+
+    // facteur de travail réduit pour garder les tests rapides
+    private static final int ITERATIONS = 1000;
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void testAuthentification() {
+        MagasinIdentifiants magasin = new MagasinIdentifiants(ITERATIONS, 16);
+        assertTrue(magasin.ajouter("Alice", "Alice123secure"));
+        // haché dès l'ajout, le mot de passe ne reste pas en clair dans le magasin
+        assertEquals(0, magasin.nombreEnAttente());
+
+        assertTrue(magasin.authentifier("alice", "Alice123secure"));
+        assertTrue(magasin.authentifier("ALICE", "Alice123secure"));
+        assertFalse(magasin.authentifier("alice", "Alice123Secure"));
+        assertFalse(magasin.authentifier("inconnu", "Alice123secure"));
+        assertFalse(magasin.authentifier("alice", null));
+
+        String empreinte = magasin.empreinte("Alice");
+        assertTrue(MagasinIdentifiants.estEmpreinte(empreinte));
+        assertFalse(empreinte.contains("Alice123secure"));
+        assertThrows(RuntimeException.class, () -> magasin.empreinte("inconnu"));
+    }
+
+    @Test
+    void testReglesDuMotDePasse() {
+        MagasinIdentifiants magasin = new MagasinIdentifiants(ITERATIONS, 16);
+        assertThrows(IllegalArgumentException.class, () -> {magasin.ajouter("bob", null);});
+        assertThrows(IllegalArgumentException.class, () -> {magasin.ajouter("bob", "bob123secure");});
+        assertThrows(IllegalArgumentException.class, () -> {magasin.ajouter("bob", "BOB123SECURE");});
+        assertThrows(IllegalArgumentException.class, () -> {magasin.ajouter("bob", "Bobsecure");});
+        assertThrows(IllegalArgumentException.class, () -> {magasin.ajouter("bob", "$pbkdf2-sha256$1000$abc");});
+        assertEquals(0, magasin.nombreEnAttente());
+
+        // un nom déjà pris garde son mot de passe
+        assertTrue(magasin.ajouter("bob", "Bob123secure"));
+        assertFalse(magasin.ajouter("Bob", "Bob123secure78"));
+        assertTrue(magasin.authentifier("bob", "Bob123secure"));
+        assertThrows(RuntimeException.class, () -> magasin.changer("inconnu", "Bob123secure"));
+    }
+
+    @Test
+    void testChangerMotDePasseEtFacteurDeTravail() {
+        MagasinIdentifiants magasin = new MagasinIdentifiants(ITERATIONS, 16);
+        magasin.ajouter("bob", "Bob123secure");
+        assertTrue(magasin.authentifier("bob", "Bob123secure"));
+
+        // le cache ne doit pas accepter l'ancien mot de passe
+        magasin.changer("bob", "Bob123secure78");
+        assertFalse(magasin.authentifier("bob", "Bob123secure"));
+        assertTrue(magasin.authentifier("bob", "Bob123secure78"));
+        assertTrue(magasin.empreinte("bob").startsWith("$pbkdf2-sha256$1000$"));
+
+        magasin.setIterations(2 * ITERATIONS);
+        assertTrue(magasin.authentifier("bob", "Bob123secure78"));
+        assertTrue(magasin.empreinte("bob").startsWith("$pbkdf2-sha256$2000$"));
+        assertTrue(magasin.authentifier("bob", "Bob123secure78"));
+        assertThrows(IllegalArgumentException.class, () -> magasin.setIterations(0));
+    }
+
+    @Test
+    void testEmpreintesForgeesRefusees() throws Exception {
+        MagasinIdentifiants magasin = new MagasinIdentifiants(ITERATIONS, 16);
+        magasin.ajouter("alice", "Alice123secure");
+        String empreinte = magasin.empreinte("alice");
+
+        // une empreinte ne passe pas pour un mot de passe déjà haché, ce qui éviterait les règles
+        assertThrows(IllegalArgumentException.class, () -> magasin.ajouter("bob", empreinte));
+        magasin.ajouter("bob", "Bob123secure");
+        assertThrows(IllegalArgumentException.class, () -> magasin.changer("bob", empreinte));
+        assertTrue(magasin.authentifier("bob", "Bob123secure"));
+        assertThrows(IllegalArgumentException.class, () -> magasin.setIterations(MagasinIdentifiants.ITERATIONS_MAX + 1));
+
+        // les chargements refusent un facteur de travail démesuré ou un sel tronqué
+        String[] parties = empreinte.split("\\$");
+        String demesuree = "$pbkdf2-sha256$" + Integer.MAX_VALUE + "$" + parties[3] + "$" + parties[4];
+        String selTronque = "$pbkdf2-sha256$" + ITERATIONS + "$" + parties[3].substring(0, 8) + "$" + parties[4];
+        for (String forgee : List.of(demesuree, selTronque)) {
+            Path fichier = dossier.resolve("forge.json");
+            Files.writeString(fichier, "{\"utilisateurs\": [{\"username\": \"eve\", \"password\": \""
+                    + forgee + "\", \"abonnements\": []}]}");
+            assertThrows(IllegalArgumentException.class,
+                    () -> ReseauBuilder.chargerDepuisJSONEnContinu(fichier, Compression.AUCUNE), forgee);
+        }
+    }
+
+    @Test
+    void testSansCache() {
+        MagasinIdentifiants magasin = new MagasinIdentifiants(ITERATIONS, 0);
+        magasin.ajouter("bob", "Bob123secure");
+        assertTrue(magasin.authentifier("bob", "Bob123secure"));
+        assertTrue(magasin.authentifier("bob", "Bob123secure"));
+        assertFalse(magasin.authentifier("bob", "Bob123secure7"));
+        assertThrows(IllegalArgumentException.class, () -> new MagasinIdentifiants(ITERATIONS, -1));
+    }
+
+    @Test
+    void testHachageParalleleDuChargement() throws Exception {
+        // un fichier JSON dont les mots de passe sont en clair, comme donnees/reseau.json
+        StringBuilder json = new StringBuilder("{\"utilisateurs\": [");
+        for (int i = 0; i < 200; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"username\": \"u").append(i)
+                    .append("\", \"password\": \"MotDePasse").append(i).append("\", \"abonnements\": []}");
+        }
+        Path fichier = dossier.resolve("clair.json");
+        Files.writeString(fichier, json.append("]}"));
+
+        MagasinIdentifiants magasin = new MagasinIdentifiants(ITERATIONS, 16);
+        CivixNet reseau = ReseauBuilder.chargerDepuisJSONEnContinu(fichier, Compression.AUCUNE, magasin);
+        assertSame(magasin, reseau.identifiants());
+        // le chargement rend un réseau dont tous les mots de passe sont déjà hachés
+        assertEquals(0, magasin.nombreEnAttente());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(0, magasin.hacherEnAttente(pool));
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < 200; i += 37) {
+            assertTrue(MagasinIdentifiants.estEmpreinte(magasin.empreinte("u" + i)));
+            assertTrue(magasin.empreinte("u" + i).startsWith("$pbkdf2-sha256$1000$"));
+            assertTrue(magasin.authentifier("u" + i, "MotDePasse" + i));
+        }
+    }
+
+    @Test
+    void testEmpreintesExporteesEtRelues() throws Exception {
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(ITERATIONS, 16));
+        reseau.ajouterUtilisateur("Alice", "Alice123secure");
+        reseau.ajouterUtilisateur("Bob", "Bob123secure");
+        reseau.ajouterAbonnement(reseau.obtenirUtilisateurAPartirDuUsername("Alice"),
+                reseau.obtenirUtilisateurAPartirDuUsername("Bob"));
+        assertEquals(0, reseau.identifiants().hacherEnAttente());
+
+        Path fichier = dossier.resolve("reseau.json");
+        ReseauBuilder.exporterVersJSON(reseau, fichier, Compression.AUCUNE);
+        assertFalse(Files.readString(fichier).contains("Alice123secure"));
+
+        CivixNet relu = ReseauBuilder.chargerDepuisJSONEnContinu(fichier, Compression.AUCUNE);
+        relu.identifiants().setIterations(ITERATIONS);
+        assertEquals(0, relu.identifiants().nombreEnAttente());
+        assertTrue(relu.identifiants().authentifier("alice", "Alice123secure"));
+        assertFalse(relu.identifiants().authentifier("bob", "Alice123secure"));
+
+        // les copies du réseau gardent les identifiants
+        assertTrue(reseau.copie().identifiants().authentifier("Bob", "Bob123secure"));
+        assertTrue(GrapheCompact.depuis(reseau).versCivixNet().identifiants().authentifier("Bob", "Bob123secure"));
+    }
+
+    @Test
+    void testAucunMotDePasseEnClairPersiste() throws Exception {
+        Path journal;
+        Path instantane = dossier.resolve(ReseauPersistant.INSTANTANE);
+        try (ReseauPersistant persistant = ReseauPersistant.ouvrir(dossier, 1, Long.MAX_VALUE)) {
+            persistant.reseau().identifiants().setIterations(ITERATIONS);
+            persistant.reseau().ajouterUtilisateur("Alice", "Secret123Pw");
+            persistant.reseau().ajouterUtilisateur("Bob", "Secret123Pw");
+            journal = Files.copy(dossier.resolve(ReseauPersistant.JOURNAL), dossier.resolve("copie.log"));
+            persistant.compacter().get();
+        }
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(ITERATIONS, 16));
+        reseau.ajouterUtilisateur("Alice", "Secret123Pw");
+        reseau.ajouterUtilisateur("Bob", "Secret123Pw");
+        Path json = dossier.resolve("reseau.json");
+        ReseauBuilder.exporterVersJSON(reseau, json, Compression.AUCUNE);
+        assertEquals(0, reseau.identifiants().nombreEnAttente());
+
+        byte[] secret = "Secret123Pw".getBytes(StandardCharsets.UTF_8);
+        for (Path fichier : List.of(journal, instantane, json)) {
+            assertFalse(contient(Files.readAllBytes(fichier), secret), fichier.toString());
+        }
+
+        CivixNet rejoue = new CivixNet();
+        JournalMutations.rejouer(journal, rejoue);
+        CivixNet charge = ReseauBuilder.chargerDepuisJSONEnContinu(json, Compression.AUCUNE);
+        List<CivixNet> relus = new ArrayList<>(List.of(rejoue, charge));
+        try (ReseauPersistant persistant = ReseauPersistant.ouvrir(dossier, 1, Long.MAX_VALUE)) {
+            relus.add(persistant.reseau());
+        }
+        for (CivixNet r : relus) {
+            r.identifiants().setIterations(ITERATIONS);
+            assertEquals(0, r.identifiants().nombreEnAttente());
+            assertTrue(r.identifiants().authentifier("alice", "Secret123Pw"));
+            assertFalse(r.identifiants().authentifier("bob", "Secret123Px"));
+        }
+    }
+
+    private static boolean contient(byte[] octets, byte[] motif) {
+        for (int i = 0; i + motif.length <= octets.length; i++) {
+            if (Arrays.equals(octets, i, i + motif.length, motif, 0, motif.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
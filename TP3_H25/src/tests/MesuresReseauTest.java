@@ -0,0 +1,158 @@
+package tests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reseau.*;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MesuresReseauTest {
+
+    private CivixNet reseau;
+    private MesuresReseau mesures;
+
+    private Utilisateur u(String nom) {
+        return reseau.obtenirUtilisateurAPartirDuUsername(nom);
+    }
+
+    @BeforeEach
+    void setUp() {
+        reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        for (String nom : List.of("a", "b", "c", "d")) {
+            reseau.ajouterUtilisateur(nom, "MotDePasse1");
+        }
+        reseau.ajouterAbonnement(u("a"), u("b"));
+        reseau.ajouterAbonnement(u("a"), u("c"));
+        mesures = new MesuresReseau();
+        mesures.attacher(reseau);
+    }
+
+    @Test
+    void testJaugesEtCompteurs() {
+        InstantaneMesures depart = mesures.instantane();
+        assertEquals(4, depart.nombreUtilisateurs());
+        assertEquals(2, depart.nombreAbonnements());
+        assertEquals(2, depart.degreSortantMax());
+        assertEquals(1, depart.degreEntrantMax());
+        assertEquals(0, depart.abonnementsAjoutes());
+
+        reseau.ajouterUtilisateur("e", "MotDePasse1");
+        reseau.ajouterAbonnements(u("b"), List.of(u("c"), u("d"), u("e")));
+        reseau.ajouterAbonnement(u("d"), u("c"));
+        reseau.ajouterAbonnement(u("d"), u("c"));
+        InstantaneMesures apres = mesures.instantane();
+        assertEquals(5, apres.nombreUtilisateurs());
+        assertEquals(6, apres.nombreAbonnements());
+        assertEquals(3, apres.degreSortantMax());
+        assertEquals(3, apres.degreEntrantMax());
+        assertEquals(1, apres.utilisateursAjoutes());
+        assertEquals(4, apres.abonnementsAjoutes());
+
+        // reprendre le nom de b vide ses abonnements : les maximums redescendent
+        reseau.ajouterUtilisateur("B", "MotDePasse1");
+        InstantaneMesures reprise = mesures.instantane();
+        assertEquals(5, reprise.nombreUtilisateurs());
+        assertEquals(3, reprise.nombreAbonnements());
+        assertEquals(2, reprise.degreSortantMax());
+        assertEquals(2, reprise.degreEntrantMax());
+        assertEquals(3, reprise.abonnementsRetires());
+    }
+
+    @Test
+    void testDureesDesOperations() {
+        reseau.propagationFausseInformationRecursive("a", 2);
+        reseau.chercherUtilisateur("inconnu");
+        LotMutations lot = new LotMutations();
+        lot.ajouter("c", "a");
+        reseau.appliquerLot(lot);
+        reseau.extraireSousReseau("a", 1, Direction.ABONNEMENTS, 10);
+
+        InstantaneMesures instantane = mesures.instantane();
+        assertEquals(1, instantane.durees(OperationMesuree.PROPAGATION).nombre());
+        assertEquals(1, instantane.durees(OperationMesuree.APPLICATION_LOT).nombre());
+        assertEquals(1, instantane.durees(OperationMesuree.EXTRACTION).nombre());
+        // la propagation et l'extraction recherchent aussi leur utilisateur de départ
+        assertEquals(3, instantane.durees(OperationMesuree.RECHERCHE).nombre());
+        assertEquals(0, instantane.durees(OperationMesuree.CHARGEMENT).nombre());
+        assertTrue(instantane.durees(OperationMesuree.PROPAGATION).max() > 0);
+        assertEquals(1, instantane.abonnementsAjoutes());
+
+        mesures.reinitialiser();
+        assertEquals(0, mesures.instantane().durees(OperationMesuree.PROPAGATION).nombre());
+        assertEquals(0, mesures.instantane().abonnementsAjoutes());
+        assertEquals(3, mesures.instantane().nombreAbonnements());
+    }
+
+    @Test
+    void testTaillesDesFrontieres() {
+        for (int i = 0; i < 1000; i++) {
+            reseau.ajouterUtilisateur("abonne" + i, "MotDePasse1");
+            reseau.ajouterAbonnement(u("abonne" + i), u("d"));
+        }
+        reseau.propagationAuxAbonnes("d");
+
+        ResumeHistogramme frontieres = mesures.instantane().frontieres();
+        assertEquals(1, frontieres.nombre());
+        assertEquals(1000, frontieres.max());
+        assertEquals(1000, frontieres.quantile(0.5), 1000 * 0.03);
+        assertEquals(1000.0, frontieres.moyenne());
+        assertThrows(IllegalArgumentException.class, () -> frontieres.quantile(1.5));
+    }
+
+    @Test
+    void testMesuresSuspenduesEtDetachees() {
+        mesures.setActives(false);
+        reseau.propagationFausseInformationRecursive("a");
+        assertEquals(0, mesures.instantane().durees(OperationMesuree.PROPAGATION).nombre());
+        assertEquals(0, mesures.instantane().frontieres().nombre());
+        // les jauges restent tenues à jour
+        reseau.ajouterAbonnement(u("b"), u("c"));
+        assertEquals(3, mesures.instantane().nombreAbonnements());
+
+        mesures.setActives(true);
+        mesures.detacher();
+        reseau.propagationFausseInformationRecursive("a");
+        reseau.ajouterAbonnement(u("c"), u("d"));
+        assertEquals(0, mesures.instantane().durees(OperationMesuree.PROPAGATION).nombre());
+        assertEquals(1, mesures.instantane().abonnementsAjoutes());
+
+        mesures.attacher(reseau);
+        assertEquals(4, mesures.instantane().nombreAbonnements());
+        assertThrows(IllegalStateException.class, () -> mesures.attacher(new CivixNet()));
+    }
+
+    @Test
+    void testChargementMesure() throws Exception {
+        MesuresReseau chargement = new MesuresReseau();
+        CivixNet charge = ReseauBuilder.chargerDepuisJSON("donnees/reseau.json", chargement);
+
+        InstantaneMesures instantane = chargement.instantane();
+        assertEquals(1, instantane.durees(OperationMesuree.CHARGEMENT).nombre());
+        assertEquals(charge.getUtilisateurs().size(), instantane.nombreUtilisateurs());
+        assertEquals(charge.getUtilisateurs().size(), instantane.utilisateursAjoutes());
+        long abonnements = charge.getUtilisateurs().values().stream().mapToLong(s -> s.size()).sum();
+        assertEquals(abonnements, instantane.nombreAbonnements());
+    }
+
+    @Test
+    void testJmx() throws Exception {
+        ObjectName nom = mesures.enregistrerJmx("test");
+        try {
+            reseau.propagationFausseInformationRecursive("a");
+            MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(4L, serveur.getAttribute(nom, "NombreUtilisateurs"));
+            assertEquals(2, serveur.getAttribute(nom, "DegreSortantMax"));
+            assertNotNull(serveur.getAttribute(nom, "DureesMedianesMicros"));
+            assertEquals(1L, mesures.getNombresOperations().get("PROPAGATION"));
+            assertThrows(IllegalStateException.class, () -> mesures.enregistrerJmx("autre"));
+        } finally {
+            mesures.desenregistrerJmx();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(nom));
+    }
+}
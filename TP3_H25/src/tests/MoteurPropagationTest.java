@@ -0,0 +1,136 @@
+package tests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reseau.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoteurPropagationTest {
+
+    private CivixNet reseau;
+    private GrapheCompact graphe;
+
+    @BeforeEach
+    void setUp() {
+        // assez d'utilisateurs pour que les frontières dépassent la taille d'un morceau parallèle
+        Random hasard = new Random(42);
+        reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        for (int i = 0; i < 5000; i++) {
+            reseau.ajouterUtilisateur("u" + i, "MotDePasse1");
+        }
+        for (int i = 0; i < 5000; i++) {
+            Utilisateur compte = reseau.obtenirUtilisateurAPartirDuUsername("u" + i);
+            for (int j = 0; j < 3; j++) {
+                reseau.ajouterAbonnement(compte, reseau.obtenirUtilisateurAPartirDuUsername("u" + hasard.nextInt(5000)));
+            }
+        }
+        graphe = GrapheCompact.depuis(reseau);
+    }
+
+    private static Set<String> noms(List<Utilisateur> utilisateurs) {
+        Set<String> noms = new HashSet<>();
+        for (Utilisateur u : utilisateurs) {
+            noms.add(u.getUsername());
+        }
+        return noms;
+    }
+
+    @Test
+    void testIdentiqueAuParcoursSequentiel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MoteurPropagation moteur = new MoteurPropagation(graphe, Direction.ABONNEMENTS, pool);
+            for (int profondeur = 0; profondeur <= 6; profondeur++) {
+                ResultatPropagation resultat = moteur.propager(graphe.obtenirUtilisateurAPartirDuUsername("u7"), profondeur);
+                List<Utilisateur> attendus = reseau.propagationFausseInformationRecursive("u7", profondeur);
+                assertEquals(noms(attendus), noms(resultat.utilisateursAffectes()));
+                assertEquals(attendus.size(), Arrays.stream(resultat.atteintsParNiveau()).sum());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testPropagationAuxAbonnes() {
+        MoteurPropagation moteur = new MoteurPropagation(graphe, Direction.ABONNES);
+        ResultatPropagation resultat = moteur.propager(graphe.obtenirUtilisateurAPartirDuUsername("u7"), 2);
+        assertEquals(noms(reseau.propagationAuxAbonnes("u7")), noms(resultat.utilisateursAffectes()));
+    }
+
+    @Test
+    void testProfondeurNulleEtInvalide() {
+        MoteurPropagation moteur = new MoteurPropagation(graphe, Direction.ABONNEMENTS);
+        ResultatPropagation resultat = moteur.propager(0, 0);
+        assertEquals(1, resultat.nombreAffectes());
+        assertArrayEquals(new int[]{1}, resultat.atteintsParNiveau());
+        assertThrows(IllegalArgumentException.class, () -> moteur.propager(0, -1));
+    }
+
+    @Test
+    void testProfondeurIllimiteeSurUneLongueChaine() {
+        // une chaîne plus longue que ce que la pile d'appels supporterait avec un appel par niveau
+        CivixNet chaine = new CivixNet(new MagasinIdentifiants(1, 0));
+        int longueur = 100_000;
+        Utilisateur precedent = null;
+        for (int i = 0; i < longueur; i++) {
+            chaine.ajouterUtilisateur("c" + i, "MotDePasse1");
+            Utilisateur courant = chaine.obtenirUtilisateurAPartirDuUsername("c" + i);
+            if (precedent != null) {
+                chaine.ajouterAbonnement(precedent, courant);
+            }
+            precedent = courant;
+        }
+        assertEquals(longueur, chaine.propagationFausseInformationRecursive("c0", Integer.MAX_VALUE).size());
+
+        GrapheCompact compact = GrapheCompact.depuis(chaine);
+        ResultatPropagation resultat = new MoteurPropagation(compact, Direction.ABONNEMENTS)
+                .propager(compact.obtenirUtilisateurAPartirDuUsername("c0"), Integer.MAX_VALUE);
+        assertEquals(longueur, resultat.nombreAffectes());
+        assertEquals(longueur, resultat.atteintsParNiveau().length);
+
+        // les niveaux qui n'atteignent personne ne sont pas gardés
+        ResultatPropagation finDeChaine = new MoteurPropagation(compact, Direction.ABONNEMENTS)
+                .propager(compact.obtenirUtilisateurAPartirDuUsername("c" + (longueur - 4)), 1_000_000);
+        assertArrayEquals(new int[]{1, 1, 1, 1}, finDeChaine.atteintsParNiveau());
+    }
+
+    @Test
+    void testPropagationEnLotIdentiqueAuxParcoursIndividuels() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MoteurPropagation moteur = new MoteurPropagation(graphe, Direction.ABONNEMENTS, pool);
+            int[] sources = new int[150];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = (i * 37) % graphe.nombreUtilisateurs();
+            }
+            ResultatPropagationLot lot = moteur.propagerLot(sources, 3);
+
+            BitSet union = new BitSet();
+            for (int i = 0; i < sources.length; i++) {
+                ResultatPropagation seul = moteur.propager(sources[i], 3);
+                assertEquals(seul.nombreAffectes(), lot.nombreAtteints(i));
+                for (int id : seul.affectes()) {
+                    union.set(id);
+                }
+            }
+            assertEquals(union.cardinality(), lot.nombreAffectes());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testPropagationEnLotParNoms() {
+        MoteurPropagation moteur = new MoteurPropagation(graphe, Direction.ABONNEMENTS);
+        ResultatPropagationLot lot = moteur.propagerLot(List.of("u7", "u7", "u8"), 2);
+        assertEquals(3, lot.nombreSources());
+        assertEquals(lot.nombreAtteints(0), lot.nombreAtteints(1));
+        assertEquals(reseau.propagationFausseInformationRecursive("u8").size(), lot.nombreAtteints(2));
+        assertThrows(RuntimeException.class, () -> moteur.propagerLot(List.of("Inconnu"), 2));
+    }
+}
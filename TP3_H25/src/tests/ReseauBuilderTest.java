@@ -0,0 +1,140 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reseau.CivixNet;
+import reseau.Compression;
+import reseau.ReseauBuilder;
+import reseau.Utilisateur;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReseauBuilderTest {
+
+    private static final String RESEAU_JSON = "donnees/reseau.json";
+
+    /**
+     * Résume un réseau par noms d'utilisateur, l'ordre des ensembles d'abonnements n'étant pas garanti.
+     */
+    static Map<String, Set<String>> resume(CivixNet reseau) {
+        Map<String, Set<String>> resume = new TreeMap<>();
+        for (Map.Entry<Utilisateur, Set<Utilisateur>> e : reseau.getUtilisateurs().entrySet()) {
+            Set<String> noms = new TreeSet<>();
+            for (Utilisateur u : e.getValue()) {
+                noms.add(u.getUsername());
+            }
+            resume.put(e.getKey().getUsername(), noms);
+        }
+        return resume;
+    }
+
+    @Test
+    void testChargementEnContinuEquivalent() throws Exception {
+        CivixNet arbre = ReseauBuilder.chargerDepuisJSON(RESEAU_JSON);
+        CivixNet continu = ReseauBuilder.chargerDepuisJSONEnContinu(RESEAU_JSON);
+        assertEquals(resume(arbre), resume(continu));
+    }
+
+    @Test
+    void testChargementEnContinuSuivi() throws Exception {
+        AtomicLong utilisateurs = new AtomicLong();
+        AtomicLong octets = new AtomicLong();
+        CivixNet reseau = ReseauBuilder.chargerDepuisJSONEnContinu(RESEAU_JSON, (u, a, o, n) -> {
+            utilisateurs.set(u);
+            octets.set(o);
+        });
+        assertEquals(reseau.getUtilisateurs().size(), utilisateurs.get());
+        assertTrue(octets.get() > 0);
+    }
+
+    @Test
+    void testSerialiseDeserialise(@TempDir Path dossier) throws Exception {
+        CivixNet reseau = ReseauBuilder.chargerDepuisJSON(RESEAU_JSON);
+        String pathOut = dossier.toString() + java.io.File.separator;
+        ReseauBuilder.serialise(reseau, pathOut);
+
+        CivixNet restaure = ReseauBuilder.deserialise(pathOut + "civixNet.ser");
+        assertEquals(resume(reseau), resume(restaure));
+        assertEquals("alice", restaure.obtenirUtilisateurAPartirDuUsername("alice").getUsername());
+    }
+
+    @Test
+    void testDeserialiseFichierCorrompu(@TempDir Path dossier) throws Exception {
+        String pathOut = dossier.toString() + java.io.File.separator;
+        ReseauBuilder.convertirJSONEnInstantane(RESEAU_JSON, pathOut);
+
+        try (RandomAccessFile fichier = new RandomAccessFile(pathOut + "civixNet.ser", "rw")) {
+            fichier.seek(20);
+            int octet = fichier.read();
+            fichier.seek(20);
+            fichier.write(octet ^ 0x01);
+        }
+        assertThrows(IOException.class, () -> ReseauBuilder.deserialise(pathOut + "civixNet.ser"));
+    }
+
+    @Test
+    void testDeserialiseTaillesInvalides(@TempDir Path dossier) throws Exception {
+        String pathOut = dossier.toString() + java.io.File.separator;
+        ReseauBuilder.convertirJSONEnInstantane(RESEAU_JSON, pathOut);
+        Path fichier = Path.of(pathOut + "civixNet.ser");
+        byte[] original = Files.readAllBytes(fichier);
+
+        // nombre d'utilisateurs de l'en-tête démesuré, puis négatif : refusés avant toute allocation
+        for (int nombre : new int[]{Integer.MAX_VALUE, -1}) {
+            byte[] octets = original.clone();
+            ByteBuffer.wrap(octets).putInt(8, nombre);
+            Files.write(fichier, octets);
+            assertThrows(IOException.class, () -> ReseauBuilder.deserialise(pathOut + "civixNet.ser"));
+        }
+
+        // longueur du premier username remplacée par un varint de 2^28 : plus longue que le fichier
+        byte[] octets = new byte[original.length + 3];
+        System.arraycopy(original, 0, octets, 0, 12);
+        octets[12] = (byte) 0x80;
+        octets[13] = (byte) 0x80;
+        octets[14] = (byte) 0x80;
+        octets[15] = (byte) 0x01;
+        System.arraycopy(original, 13, octets, 16, original.length - 13);
+        Files.write(fichier, octets);
+        assertThrows(IOException.class, () -> ReseauBuilder.deserialise(pathOut + "civixNet.ser"));
+    }
+
+    @Test
+    void testExporterVersJSONAllerRetour(@TempDir Path dossier) throws Exception {
+        CivixNet reseau = ReseauBuilder.chargerDepuisJSON(RESEAU_JSON);
+
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        ReseauBuilder.exporterVersJSON(reseau, sortie);
+        Path fichier = Files.write(dossier.resolve("reseau.json"), sortie.toByteArray());
+        assertEquals(resume(reseau), resume(ReseauBuilder.chargerDepuisJSONEnContinu(fichier, Compression.AUCUNE)));
+
+        Path compresse = dossier.resolve("reseau.json.gz");
+        ReseauBuilder.exporterVersJSON(reseau, compresse, Compression.GZIP);
+        assertTrue(Files.size(compresse) < sortie.size());
+        assertEquals(resume(reseau), resume(ReseauBuilder.chargerDepuisJSONEnContinu(compresse, Compression.GZIP)));
+    }
+
+    @Test
+    void testExporterVersJSONEnFragments(@TempDir Path dossier) throws Exception {
+        CivixNet reseau = ReseauBuilder.chargerDepuisJSON(RESEAU_JSON);
+        int nbUtilisateurs = reseau.getUtilisateurs().size();
+
+        for (int nbFragments : new int[]{1, 3, nbUtilisateurs + 2}) {
+            List<Path> fragments = ReseauBuilder.exporterVersJSONEnFragments(reseau, dossier, nbFragments,
+                    Compression.GZIP);
+            assertEquals(nbFragments, fragments.size());
+            assertEquals(resume(reseau), resume(ReseauBuilder.chargerDepuisFragmentsJSON(fragments, Compression.GZIP)));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> ReseauBuilder.exporterVersJSONEnFragments(reseau, dossier, 0, Compression.AUCUNE));
+    }
+}
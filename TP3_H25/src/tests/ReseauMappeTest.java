@@ -0,0 +1,116 @@
+package tests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reseau.CivixNet;
+import reseau.MagasinIdentifiants;
+import reseau.ReseauBuilder;
+import reseau.ReseauMappe;
+import reseau.Utilisateur;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReseauMappeTest {
+
+    @TempDir
+    Path dossier;
+
+    private CivixNet reseau;
+    private ReseauMappe mappe;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        reseau.ajouterUtilisateur("Alice", "MotDePasse12345");
+        reseau.ajouterUtilisateur("Bob", "SecurePass45678");
+        reseau.ajouterUtilisateur("Clara", "TestPass78901");
+        reseau.ajouterUtilisateur("David", "AlphaPass99999");
+        Utilisateur alice = reseau.obtenirUtilisateurAPartirDuUsername("Alice");
+        Utilisateur bob = reseau.obtenirUtilisateurAPartirDuUsername("Bob");
+        Utilisateur clara = reseau.obtenirUtilisateurAPartirDuUsername("Clara");
+        Utilisateur david = reseau.obtenirUtilisateurAPartirDuUsername("David");
+        reseau.ajouterAbonnement(alice, bob);
+        reseau.ajouterAbonnement(bob, alice);
+        reseau.ajouterAbonnement(bob, clara);
+        reseau.ajouterAbonnement(clara, david);
+
+        ReseauBuilder.serialise(reseau, dossier.toString() + File.separator);
+        mappe = ReseauMappe.ouvrir(dossier.resolve("civixNet.ser"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mappe.close();
+    }
+
+    @Test
+    void testNomsEtIdentifiants() throws Exception {
+        assertEquals(4, mappe.nombreUtilisateurs());
+        assertEquals("Clara", mappe.username(mappe.id("clara")));
+        assertEquals(-1, mappe.id("Inconnu"));
+        mappe.verifierIntegrite();
+    }
+
+    @Test
+    void testAbonnements() {
+        List<String> noms = new ArrayList<>();
+        mappe.pourChaqueAbonnement(mappe.id("Bob"), v -> noms.add(mappe.username(v)));
+        assertEquals(List.of("Alice", "Clara"), noms);
+        assertEquals(2, mappe.degreSortant(mappe.id("Bob")));
+        assertTrue(mappe.abonnementMutuel("Alice", "Bob"));
+        assertFalse(mappe.abonnementMutuel("Bob", "Clara"));
+    }
+
+    @Test
+    void testPropagationIdentiqueAuReseau() {
+        List<String> attendus = reseau.propagationFausseInformationRecursive("Alice").stream()
+                .map(Utilisateur::getUsername).toList();
+        assertEquals(attendus, mappe.propagationFausseInformationRecursive("Alice"));
+        assertThrows(RuntimeException.class, () -> mappe.propagationFausseInformationRecursive("Inconnu"));
+    }
+
+    @Test
+    void testInstantaneCorrompu() throws Exception {
+        byte[] original = Files.readAllBytes(dossier.resolve("civixNet.ser"));
+        Path fichier = dossier.resolve("corrompu.ser");
+
+        // nombre d'utilisateurs de l'en-tête démesuré ou négatif : refusé à l'ouverture
+        for (int nombre : new int[]{Integer.MAX_VALUE, -1, 5}) {
+            byte[] octets = original.clone();
+            ByteBuffer.wrap(octets).putInt(8, nombre);
+            Files.write(fichier, octets);
+            assertThrows(IOException.class, () -> ReseauMappe.ouvrir(fichier).close());
+        }
+
+        // longueur du premier username prolongée sur deux octets : elle dépasse la zone des données
+        byte[] octets = original.clone();
+        octets[12] = (byte) 0xFF;
+        Files.write(fichier, octets);
+        try (ReseauMappe corrompue = ReseauMappe.ouvrir(fichier)) {
+            assertThrows(UncheckedIOException.class, () -> corrompue.username(0));
+            assertEquals("Bob", corrompue.username(1));
+        }
+
+        // position d'une liste d'abonnements hors des données dans l'index
+        octets = original.clone();
+        ByteBuffer fin = ByteBuffer.wrap(octets);
+        long positionIndex = fin.getLong(octets.length - 12);
+        fin.putLong((int) positionIndex + 4 * Long.BYTES, octets.length);
+        Files.write(fichier, octets);
+        try (ReseauMappe corrompue = ReseauMappe.ouvrir(fichier)) {
+            assertThrows(UncheckedIOException.class, () -> corrompue.degreSortant(0));
+            assertThrows(UncheckedIOException.class, () -> corrompue.pourChaqueAbonnement(0, v -> {}));
+            assertTrue(corrompue.contient(1, 0));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package tests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reseau.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreInfluenceTest {
+
+    private static final int NB_UTILISATEURS = 3000;
+
+    private GrapheCompact graphe;
+    private Random hasard;
+
+    @BeforeEach
+    void setUp() {
+        hasard = new Random(23);
+        graphe = new GrapheCompact(new MagasinIdentifiants(1, 0));
+        for (int i = 0; i < NB_UTILISATEURS; i++) {
+            graphe.ajouterUtilisateur("u" + i, "MotDePasse1");
+        }
+        for (int i = 0; i < NB_UTILISATEURS; i++) {
+            // les petits identifiants sont plus suivis, et certains ne suivent personne
+            int nb = i % 10 == 0 ? 0 : 1 + hasard.nextInt(5);
+            for (int j = 0; j < nb; j++) {
+                graphe.ajouterAbonnement(i, (int) (NB_UTILISATEURS * Math.pow(hasard.nextDouble(), 3)));
+            }
+        }
+    }
+
+    /**
+     * PageRank séquentiel de référence, itéré jusqu'à un écart négligeable.
+     */
+    private double[] pageRankNaif() {
+        int n = graphe.nombreUtilisateurs();
+        double[] rangs = new double[n];
+        Arrays.fill(rangs, 1.0 / n);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            double[] nouveaux = new double[n];
+            double pendants = 0;
+            for (int u = 0; u < n; u++) {
+                int degre = graphe.degreSortant(u);
+                if (degre == 0) {
+                    pendants += rangs[u];
+                    continue;
+                }
+                double part = rangs[u] / degre;
+                graphe.pourChaqueAbonnement(u, v -> nouveaux[v] += part);
+            }
+            for (int v = 0; v < n; v++) {
+                nouveaux[v] = (1 - ScoreInfluence.AMORTISSEMENT) / n
+                        + ScoreInfluence.AMORTISSEMENT * (nouveaux[v] + pendants / n);
+            }
+            rangs = nouveaux;
+        }
+        return rangs;
+    }
+
+    @Test
+    void testPageRankIdentiqueAuCalculNaif() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ScoreInfluence score = new ScoreInfluence(graphe, Direction.ABONNES, pool);
+            int iterations = score.calculerPageRank(1e-10, 200);
+            assertTrue(iterations < 200);
+
+            double[] attendus = pageRankNaif();
+            double somme = 0;
+            for (int i = 0; i < NB_UTILISATEURS; i++) {
+                double rang = score.pageRank(graphe.utilisateur(i));
+                assertEquals(attendus[i], rang, 1e-9);
+                somme += rang;
+            }
+            assertEquals(1.0, somme, 1e-9);
+
+            List<Utilisateur> meilleurs = score.plusInfluents(5);
+            assertEquals(5, meilleurs.size());
+            for (int k = 1; k < meilleurs.size(); k++) {
+                assertTrue(score.pageRank(meilleurs.get(k - 1)) >= score.pageRank(meilleurs.get(k)));
+            }
+            double cinquieme = score.pageRank(meilleurs.get(4));
+            assertEquals(4, Arrays.stream(attendus).filter(r -> r > cinquieme + 1e-9).count());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testPageRankReprisApresModifications() {
+        ScoreInfluence score = new ScoreInfluence(graphe, Direction.ABONNES);
+        int iterationsInitiales = score.calculerPageRank(1e-8, 200);
+
+        for (int i = 0; i < 20; i++) {
+            graphe.ajouterUtilisateur("nouveau" + i, "MotDePasse1");
+        }
+        for (int i = 0; i < 100; i++) {
+            int compte = hasard.nextInt(graphe.nombreUtilisateurs());
+            int cible = hasard.nextInt(graphe.nombreUtilisateurs());
+            if (hasard.nextBoolean()) {
+                graphe.ajouterAbonnement(compte, cible);
+            } else {
+                graphe.retirerAbonnement(compte, cible);
+            }
+        }
+        score.rafraichir();
+        int iterationsReprise = score.calculerPageRank(1e-8, 200);
+        assertTrue(iterationsReprise < iterationsInitiales, iterationsReprise + " >= " + iterationsInitiales);
+
+        double[] attendus = pageRankNaif();
+        for (int i = 0; i < graphe.nombreUtilisateurs(); i++) {
+            assertEquals(attendus[i], score.pageRank(graphe.utilisateur(i)), 1e-7);
+        }
+        assertThrows(IllegalStateException.class, () -> score.portee(graphe.utilisateur(0)));
+    }
+
+    @Test
+    void testPorteesProchesDesPropagationsExactes() {
+        ScoreInfluence score = new ScoreInfluence(graphe, Direction.ABONNES);
+        assertEquals(3, score.estimerPortees(3));
+        MoteurPropagation moteur = new MoteurPropagation(graphe, Direction.ABONNES);
+
+        double sommeErreurs = 0;
+        for (int i = 0; i < NB_UTILISATEURS; i++) {
+            Utilisateur u = graphe.utilisateur(i);
+            int exact = moteur.propager(u, 3).nombreAffectes();
+            double erreur = Math.abs(score.portee(u) - exact) / exact;
+            assertTrue(erreur < 0.6, u.getUsername() + " : " + score.portee(u) + " au lieu de " + exact);
+            sommeErreurs += erreur;
+        }
+        assertTrue(sommeErreurs / NB_UTILISATEURS < 0.1);
+
+        // le plus suivi atteint le plus de monde
+        assertEquals(graphe.utilisateur(0), score.plusGrandesPortees(1).get(0));
+        assertThrows(IllegalArgumentException.class, () -> score.estimerPortees(-1));
+    }
+}
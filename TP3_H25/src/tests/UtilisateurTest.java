@@ -1,6 +1,8 @@
 package tests;
 
 import org.junit.jupiter.api.Test;
+import reseau.CivixNet;
+import reseau.MagasinIdentifiants;
 import reseau.Utilisateur;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -9,16 +11,18 @@ class UtilisateurTest {
 
     @Test
     void constructeurUtilisateur(){
-        Utilisateur utilisateur = new Utilisateur("alice", "Alice123secure");
+        Utilisateur utilisateur = new Utilisateur("alice");
         assertEquals("alice", utilisateur.getUsername());
-        assertEquals("Alice123secure", utilisateur.getPassword());
+
+        assertThrows(IllegalArgumentException.class, () -> {new Utilisateur("aaaaaaaaaaaaaaaa");});
+        assertThrows(IllegalArgumentException.class, () -> {new Utilisateur(null);});
     }
 
     @Test
     void compareTo() {
-        Utilisateur utilisateur = new Utilisateur("alice", "Alice123secure");
-        Utilisateur utilisateur2 = new Utilisateur("bob", "Bob123secure");
-        Utilisateur utilisateur3 = new Utilisateur("alice", "Alice123secure");
+        Utilisateur utilisateur = new Utilisateur("alice");
+        Utilisateur utilisateur2 = new Utilisateur("bob");
+        Utilisateur utilisateur3 = new Utilisateur("alice");
         assertEquals(-1, utilisateur.compareTo(utilisateur2));
         assertEquals(0, utilisateur.compareTo(utilisateur3));
         assertEquals(1, utilisateur2.compareTo(utilisateur3));
@@ -26,44 +30,34 @@ class UtilisateurTest {
 
     @Test
     void getUsername() {
-        Utilisateur utilisateur2 = new Utilisateur("bob", "Bob123secure");
+        Utilisateur utilisateur2 = new Utilisateur("bob");
         assertEquals("bob", utilisateur2.getUsername());
     }
 
-    @Test
-    void getPassword() {
-        Utilisateur utilisateur2 = new Utilisateur("bob", "Bob123secure");
-        assertEquals("Bob123secure", utilisateur2.getPassword());
-    }
-
     @Test
     void setUsername() {
-        Utilisateur utilisateur2 = new Utilisateur("bob", "Bob123secure");
+        Utilisateur utilisateur2 = new Utilisateur("bob");
         utilisateur2.setUsername("alice");
         assertEquals("alice", utilisateur2.getUsername());
 
         assertThrows(IllegalArgumentException.class, () -> {utilisateur2.setUsername("aaaaaaaaaaaaaaaa");});
         assertThrows(IllegalArgumentException.class, () -> {utilisateur2.setUsername(null);});
-    }
-
-    @Test
-    void setPassword() {
-        Utilisateur utilisateur2 = new Utilisateur("bob", "Bob123secure");
-        utilisateur2.setPassword("Bob123secure78");
-        assertEquals("Bob123secure78", utilisateur2.getPassword());
 
-        assertThrows(IllegalArgumentException.class, () -> {utilisateur2.setPassword(null);});
-        assertThrows(IllegalArgumentException.class, () -> {utilisateur2.setPassword("bob123secure");});
-        assertThrows(IllegalArgumentException.class, () -> {utilisateur2.setPassword("BOB123SECURE");});
-        assertThrows(IllegalArgumentException.class, () -> {utilisateur2.setPassword("Bobsecure");});
+        // les index du réseau sont rangés par le nom : un utilisateur inscrit ne peut plus être renommé
+        CivixNet reseau = new CivixNet(new MagasinIdentifiants(1, 0));
+        reseau.ajouterUtilisateur("Clara", "TestPass78901");
+        Utilisateur clara = reseau.obtenirUtilisateurAPartirDuUsername("Clara");
+        assertThrows(IllegalStateException.class, () -> {clara.setUsername("Zoe");});
+        assertEquals("Clara", clara.getUsername());
+        assertSame(clara, reseau.obtenirUtilisateurAPartirDuUsername("clara"));
     }
 
     @Test
     void testToString() {
-        Utilisateur utilisateur = new Utilisateur("alice", "Alice123secure");
-        Utilisateur utilisateur2 = new Utilisateur("bob", "Bob123secure");
+        Utilisateur utilisateur = new Utilisateur("alice");
+        Utilisateur utilisateur2 = new Utilisateur("bob");
 
-        assertEquals("Username: alice (Mot de passe: Alice123secure)", utilisateur.toString());
-        assertEquals("Username: bob (Mot de passe: Bob123secure)", utilisateur2.toString());
+        assertEquals("Username: alice", utilisateur.toString());
+        assertEquals("Username: bob", utilisateur2.toString());
     }
 }
\ No newline at end of file